@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.loadgen;
+
+import java.util.Random;
+
+/**
+ * Distribution of a size or count in a {@link WorkloadProfile}
+ */
+public class Distribution {
+
+    private enum Kind {
+        FIXED, UNIFORM, EXPONENTIAL
+    }
+
+    private final Kind kind;
+    private final int min;
+    private final int max;
+    private final double mean;
+
+    private Distribution(Kind kind, int min, int max, double mean) {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("A distribution needs 0 <= min <= max instead of: " + min + ", " + max);
+        }
+        this.kind = kind;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+    }
+
+    /**
+     * @return a distribution always returning the value
+     */
+    public static Distribution fixed(int value) {
+        return new Distribution(Kind.FIXED, value, value, value);
+    }
+
+    /**
+     * @return a distribution returning values between min and max inclusive with equal probability
+     */
+    public static Distribution uniform(int min, int max) {
+        return new Distribution(Kind.UNIFORM, min, max, (min + max) / 2.0);
+    }
+
+    /**
+     * @return an exponential distribution with the mean, capped at max. Mostly small values with a long tail, like the
+     * sizes of documents
+     */
+    public static Distribution exponential(double mean, int max) {
+        if (mean <= 0) {
+            throw new IllegalArgumentException("Mean needs to be positive instead of: " + mean);
+        }
+        return new Distribution(Kind.EXPONENTIAL, 0, max, mean);
+    }
+
+    /**
+     * Parse a distribution in the form {@code 16}, {@code uniform:0-8} or {@code exp:1024:10240}, where the exponential
+     * form holds the mean and the maximum
+     */
+    public static Distribution parse(String input) {
+        try {
+            if (input.startsWith("uniform:")) {
+                String[] bounds = input.substring("uniform:".length()).split("-");
+                return uniform(Integer.parseInt(bounds[0]), Integer.parseInt(bounds[1]));
+            } else if (input.startsWith("exp:")) {
+                String[] parts = input.substring("exp:".length()).split(":");
+                return exponential(Double.parseDouble(parts[0]), Integer.parseInt(parts[1]));
+            }
+            return fixed(Integer.parseInt(input));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid distribution: " + input, e);
+        }
+    }
+
+    public int sample(Random random) {
+        switch (kind) {
+            case UNIFORM:
+                return min + random.nextInt(max - min + 1);
+            case EXPONENTIAL:
+                return (int) Math.min(max, Math.round(-mean * Math.log(1 - random.nextDouble())));
+            default:
+                return min;
+        }
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case UNIFORM:
+                return "uniform:" + min + "-" + max;
+            case EXPONENTIAL:
+                return "exp:" + mean + ":" + max;
+            default:
+                return Integer.toString(min);
+        }
+    }
+}
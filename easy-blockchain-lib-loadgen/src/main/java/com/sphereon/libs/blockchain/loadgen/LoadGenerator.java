@@ -0,0 +1,455 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.loadgen;
+
+import com.sphereon.libs.blockchain.api.HasContent;
+import com.sphereon.libs.blockchain.api.model.ChainId;
+import com.sphereon.libs.blockchain.api.model.ExternalId;
+import com.sphereon.libs.blockchain.commons.Bytes;
+import com.sphereon.libs.blockchain.commons.Digest;
+import com.sphereon.libs.blockchain.commons.Operations;
+import com.sphereon.libs.blockchain.commons.RegistrationType;
+import com.sphereon.libs.blockchain.commons.links.Link;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives synthetic chains and entries through {@link Operations} and {@link Digest} with a number of threads and reports
+ * the throughput, latency percentiles, allocation rate and GC time per {@link WorkloadProfile}.
+ * <p>
+ * Every worker generates a pool of entries up front and cycles through it, so the measurement covers the library and
+ * not the data generation. Per entry the content hash and the entry Id are calculated, and entries starting a chain
+ * calculate the chain Id as well. Entries starting a chain get an extra 8 byte external Id with a sequence number, since
+ * chains are identified by their external Ids.
+ * <p>
+ * Run {@link #main(String[])} with {@code --help} for the options. Results are written as one JSON object per line.
+ */
+public class LoadGenerator {
+    private static final Operations operations = Operations.getInstance();
+    private static final Digest digest = Digest.getInstance();
+
+    private static final int TEMPLATE_COUNT = 1024;
+    private static final int LINK_TARGET_COUNT = 64;
+    private static final String LINK_CONTEXT = "loadgen";
+
+    // Keeps the results alive, so the JIT cannot skip the hashing
+    private static volatile int sink;
+
+
+    /**
+     * Run the profile and wait for the result
+     */
+    public WorkloadResult run(final WorkloadProfile profile) {
+        final int threads = profile.getThreads();
+        // Workers count down ready after their warmup, and measure once start is counted down
+        final CountDownLatch ready = new CountDownLatch(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "loadgen-" + profile.getName() + "-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            List<Future<Worker>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                final Worker worker = new Worker(profile, i, share(profile.getEntries(), threads, i), share(profile.getWarmupEntries(), threads, i), ready, start);
+                futures.add(executor.submit(new Callable<Worker>() {
+                    @Override
+                    public Worker call() throws Exception {
+                        worker.run();
+                        return worker;
+                    }
+                }));
+            }
+
+            awaitReady(ready, futures);
+            long gcCount = gcCount();
+            long gcTime = gcTimeMillis();
+            start.countDown();
+            long startNanos = System.nanoTime();
+            LatencyHistogram latency = new LatencyHistogram();
+            long entries = 0;
+            long chains = 0;
+            long bytes = 0;
+            long allocated = 0;
+            for (Future<Worker> future : futures) {
+                Worker worker = future.get();
+                latency.merge(worker.latency);
+                entries += worker.measured;
+                chains += worker.chains;
+                bytes += worker.bytes;
+                allocated = worker.allocatedBytes < 0 || allocated < 0 ? -1 : allocated + worker.allocatedBytes;
+            }
+            long elapsed = System.nanoTime() - startNanos;
+            return new WorkloadResult(profile, entries, chains, bytes, elapsed, latency, allocated, gcCount() - gcCount, gcTimeMillis() - gcTime);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e.getMessage(), e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Wait until all workers finished their warmup. A worker finishing before that has failed, so its failure is thrown
+     * instead of waiting forever
+     */
+    private static void awaitReady(CountDownLatch ready, List<Future<Worker>> futures) throws InterruptedException, ExecutionException {
+        while (!ready.await(100, TimeUnit.MILLISECONDS)) {
+            for (Future<Worker> future : futures) {
+                if (future.isDone()) {
+                    future.get();
+                }
+            }
+        }
+    }
+
+    private static long share(long total, int parts, int part) {
+        return total / parts + (part < total % parts ? 1 : 0);
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcTimeMillis() {
+        long time = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, collector.getCollectionTime());
+        }
+        return time;
+    }
+
+    /**
+     * @return the bytes allocated by the current thread, or -1 when the JVM cannot tell
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+            if (sunThreadBean.isThreadAllocatedMemorySupported() && sunThreadBean.isThreadAllocatedMemoryEnabled()) {
+                return sunThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+
+    private static class Template {
+        private final List<ExternalId> externalIds;
+        // The external Ids prefixed with the sequence number external Id, for entries starting a chain
+        private final List<ExternalId> chainExternalIds;
+        private final byte[] sequence = new byte[8];
+        private final HasContent<byte[]> content;
+        private final int entrySize;
+
+        private Template(List<ExternalId> externalIds, byte[] content) {
+            this.externalIds = externalIds;
+            this.chainExternalIds = new ArrayList<>(externalIds.size() + 1);
+            this.chainExternalIds.add(new ExternalId().setValue(sequence));
+            this.chainExternalIds.addAll(externalIds);
+            this.content = HasContent.Impl.of(content);
+            this.entrySize = operations.entrySize(this.content, externalIds);
+        }
+    }
+
+
+    private static class Worker {
+        private final WorkloadProfile profile;
+        private final int index;
+        private final long entries;
+        private final long warmupEntries;
+        private final CountDownLatch ready;
+        private final CountDownLatch start;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private long measured;
+        private long chains;
+        private long bytes;
+        private long allocatedBytes;
+        private long sequence;
+
+        private Worker(WorkloadProfile profile, int index, long entries, long warmupEntries, CountDownLatch ready, CountDownLatch start) {
+            this.profile = profile;
+            this.index = index;
+            this.entries = entries;
+            this.warmupEntries = warmupEntries;
+            this.ready = ready;
+            this.start = start;
+        }
+
+        private void run() throws InterruptedException {
+            Template[] templates = templates();
+            process(templates, warmupEntries, false);
+            ready.countDown();
+            start.await();
+            long allocatedBefore = allocatedBytes();
+            process(templates, entries, true);
+            long allocatedAfter = allocatedBytes();
+            allocatedBytes = allocatedBefore < 0 || allocatedAfter < 0 ? -1 : allocatedAfter - allocatedBefore;
+        }
+
+        private void process(Template[] templates, long count, boolean measure) {
+            int entriesPerChain = profile.getEntriesPerChain();
+            ChainId chainId = null;
+            int result = 0;
+            for (long i = 0; i < count; i++) {
+                Template template = templates[(int) (i % templates.length)];
+                long begin = System.nanoTime();
+                result += digest.getSHA256Hash(template.content.getContent())[0];
+                boolean first = i % entriesPerChain == 0;
+                if (first) {
+                    // Unique over threads and runs of the worker, so the chain Id cache of Operations does not help
+                    Bytes.writeLong((long) index << 48 | sequence++, template.sequence, 0);
+                    chainId = operations.calculateChainId(template.chainExternalIds);
+                    result += operations.calculateEntryId(chainId, template.content, template.chainExternalIds).hashCode();
+                } else {
+                    result += operations.calculateEntryId(chainId, template.content, template.externalIds).hashCode();
+                }
+                if (measure) {
+                    latency.record(System.nanoTime() - begin);
+                    measured++;
+                    bytes += template.entrySize + (first ? 10 : 0);
+                    if (first) {
+                        chains++;
+                    }
+                }
+            }
+            sink += result;
+        }
+
+        private Template[] templates() {
+            Random random = new Random(profile.getSeed() * 31 + index);
+            List<String> linkTargets = new ArrayList<>();
+            for (int i = 0; i < LINK_TARGET_COUNT; i++) {
+                byte[] value = new byte[16];
+                random.nextBytes(value);
+                List<ExternalId> externalIds = new ArrayList<>();
+                externalIds.add(new ExternalId().setValue(value));
+                linkTargets.add(Link.CHAIN_ID.newBuilder(RegistrationType.Defaults.CHAIN_LINK)
+                        .context(LINK_CONTEXT).chainId(operations.calculateChainId(externalIds).toHex()).buildTargetLink());
+            }
+
+            List<RegistrationType> types = profile.getRegistrationTypes();
+            Template[] templates = new Template[TEMPLATE_COUNT];
+            for (int t = 0; t < templates.length; t++) {
+                List<ExternalId> externalIds = new ArrayList<>();
+                int pairs = profile.getExternalIdCount().sample(random);
+                for (int p = 0; p < pairs; p++) {
+                    RegistrationType type = types.get(random.nextInt(types.size()));
+                    byte[] value = new byte[profile.getExternalIdSize().sample(random)];
+                    random.nextBytes(value);
+                    externalIds.add(new ExternalId().setValue(type.getNameInBytes()));
+                    externalIds.add(new ExternalId().setValue(value));
+                }
+                if (random.nextDouble() < profile.getChainLinkDensity()) {
+                    RegistrationType type = types.get(random.nextInt(types.size()));
+                    externalIds.add(new ExternalId().setValue(type.createChainLinkKey().getBytes(StandardCharsets.UTF_8)));
+                    externalIds.add(new ExternalId().setValue(linkTargets.get(random.nextInt(linkTargets.size())).getBytes(StandardCharsets.UTF_8)));
+                }
+                byte[] content = new byte[profile.getContentSize().sample(random)];
+                random.nextBytes(content);
+                content = fit(externalIds, content);
+                templates[t] = new Template(externalIds, content);
+            }
+            return templates;
+        }
+    }
+
+
+    /**
+     * Shrink the content, and if needed drop trailing external Id pairs, so the entry including the sequence number
+     * external Id fits the payload limit. External Ids come in name and value pairs, so they are dropped together
+     *
+     * @return the content, shrunk when needed
+     */
+    static byte[] fit(List<ExternalId> externalIds, byte[] content) {
+        for (; ; ) {
+            // The sequence number external Id of chain entries takes 2 + 8 bytes
+            int overflow = operations.payloadSize(HasContent.Impl.of(content), externalIds) + 10 - Operations.MAX_PAYLOAD_SIZE;
+            if (overflow <= 0) {
+                return content;
+            } else if (content.length > 0) {
+                byte[] shrunk = new byte[Math.max(0, content.length - overflow)];
+                System.arraycopy(content, 0, shrunk, 0, shrunk.length);
+                content = shrunk;
+            } else {
+                externalIds.remove(externalIds.size() - 1);
+                if (externalIds.size() % 2 == 1) {
+                    externalIds.remove(externalIds.size() - 1);
+                }
+            }
+        }
+    }
+
+
+    public static void main(String[] args) throws IOException {
+        List<String> names = new ArrayList<>();
+        List<String> overrideArgs = new ArrayList<>();
+        String output = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("--help".equals(arg)) {
+                usage(System.out);
+                return;
+            } else if ("--profile".equals(arg) && i + 1 < args.length) {
+                for (String name : args[++i].split(",")) {
+                    names.add(name.trim());
+                }
+            } else if ("--output".equals(arg) && i + 1 < args.length) {
+                output = args[++i];
+            } else if (arg.startsWith("--") && i + 1 < args.length) {
+                overrideArgs.add(arg);
+                overrideArgs.add(args[++i]);
+            } else {
+                System.err.println("Unknown argument: " + arg);
+                usage(System.err);
+                System.exit(2);
+                return;
+            }
+        }
+        if (names.isEmpty()) {
+            names.addAll(WorkloadProfile.builtInNames());
+        }
+
+        LoadGenerator generator = new LoadGenerator();
+        Writer writer = output == null ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8);
+        PrintWriter out = new PrintWriter(writer, true);
+        try {
+            for (String name : names) {
+                WorkloadProfile profile = WorkloadProfile.builtIn(name);
+                WorkloadProfile.Builder builder = profile == null ? WorkloadProfile.newBuilder(name) : profile.toBuilder();
+                try {
+                    applyOverrides(builder, overrideArgs);
+                } catch (IllegalArgumentException e) {
+                    System.err.println(e.getMessage());
+                    usage(System.err);
+                    System.exit(2);
+                    return;
+                }
+                out.println(generator.run(builder.build()).toJson());
+            }
+        } finally {
+            out.flush();
+            if (output != null) {
+                out.close();
+            }
+        }
+    }
+
+    static void applyOverrides(WorkloadProfile.Builder builder, List<String> overrideArgs) {
+        for (int i = 0; i < overrideArgs.size(); i += 2) {
+            String option = overrideArgs.get(i);
+            String value = overrideArgs.get(i + 1);
+            try {
+                if ("--threads".equals(option)) {
+                    builder.threads(Integer.parseInt(value));
+                } else if ("--entries".equals(option)) {
+                    builder.entries(Long.parseLong(value));
+                } else if ("--warmup".equals(option)) {
+                    builder.warmupEntries(Long.parseLong(value));
+                } else if ("--seed".equals(option)) {
+                    builder.seed(Long.parseLong(value));
+                } else if ("--external-ids".equals(option)) {
+                    builder.externalIdCount(Distribution.parse(value));
+                } else if ("--external-id-size".equals(option)) {
+                    builder.externalIdSize(Distribution.parse(value));
+                } else if ("--content-size".equals(option)) {
+                    builder.contentSize(Distribution.parse(value));
+                } else if ("--link-density".equals(option)) {
+                    builder.chainLinkDensity(Double.parseDouble(value));
+                } else if ("--entries-per-chain".equals(option)) {
+                    builder.entriesPerChain(Integer.parseInt(value));
+                } else if ("--types".equals(option)) {
+                    builder.registrationTypes(registrationTypes(value));
+                } else {
+                    throw new IllegalArgumentException("Unknown option: " + option);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value for " + option + ": " + value, e);
+            }
+        }
+    }
+
+    private static List<RegistrationType> registrationTypes(String names) {
+        List<RegistrationType> types = new ArrayList<>();
+        for (String name : names.split(",")) {
+            RegistrationType found = null;
+            for (RegistrationType type : WorkloadProfile.defaultRegistrationTypes()) {
+                if (type.getName().equalsIgnoreCase(name.trim())) {
+                    found = type;
+                }
+            }
+            if (found == null) {
+                throw new IllegalArgumentException("Unknown registration type: " + name);
+            }
+            types.add(found);
+        }
+        return types;
+    }
+
+    private static void usage(PrintStream out) {
+        out.println("Usage: LoadGenerator [options]");
+        out.println("  --profile <names>             Comma separated profiles, built-in: " + WorkloadProfile.builtInNames() + ". Defaults to all");
+        out.println("  --threads <n>                 Worker threads. Defaults to the number of cores");
+        out.println("  --entries <n>                 Measured entries over all threads");
+        out.println("  --warmup <n>                  Warmup entries over all threads");
+        out.println("  --external-ids <dist>         Registration external Id pairs per entry");
+        out.println("  --external-id-size <dist>     Size of registration external Id values");
+        out.println("  --content-size <dist>         Size of entry content");
+        out.println("  --types <names>               Comma separated registration types of RegistrationType.Defaults");
+        out.println("  --link-density <0..1>         Probability of a chain link per entry");
+        out.println("  --entries-per-chain <n>       Entries per chain, including the first");
+        out.println("  --seed <n>                    Seed of the generated data");
+        out.println("  --output <file>               Write the JSON results to a file instead of standard out");
+        out.println("Distributions: <n>, uniform:<min>-<max> or exp:<mean>:<max>");
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.loadgen;
+
+import com.sphereon.libs.blockchain.commons.RegistrationType;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The shape of a synthetic workload: how chains and entries look and how many of them are processed by how many threads
+ */
+public class WorkloadProfile {
+    private final String name;
+    private final Distribution externalIdCount;
+    private final Distribution externalIdSize;
+    private final Distribution contentSize;
+    private final List<RegistrationType> registrationTypes;
+    private final double chainLinkDensity;
+    private final int entriesPerChain;
+    private final long entries;
+    private final long warmupEntries;
+    private final int threads;
+    private final long seed;
+
+    private WorkloadProfile(Builder builder) {
+        this.name = builder.name;
+        this.externalIdCount = builder.externalIdCount;
+        this.externalIdSize = builder.externalIdSize;
+        this.contentSize = builder.contentSize;
+        this.registrationTypes = Collections.unmodifiableList(new ArrayList<>(builder.registrationTypes));
+        this.chainLinkDensity = builder.chainLinkDensity;
+        this.entriesPerChain = builder.entriesPerChain;
+        this.entries = builder.entries;
+        this.warmupEntries = builder.warmupEntries;
+        this.threads = builder.threads;
+        this.seed = builder.seed;
+    }
+
+
+    public static Builder newBuilder(String name) {
+        return new Builder(name);
+    }
+
+    /**
+     * @return a builder initialized with the settings of this profile
+     */
+    public Builder toBuilder() {
+        return new Builder(name)
+                .externalIdCount(externalIdCount)
+                .externalIdSize(externalIdSize)
+                .contentSize(contentSize)
+                .registrationTypes(registrationTypes)
+                .chainLinkDensity(chainLinkDensity)
+                .entriesPerChain(entriesPerChain)
+                .entries(entries)
+                .warmupEntries(warmupEntries)
+                .threads(threads)
+                .seed(seed);
+    }
+
+
+    /**
+     * @return the built-in profile with the name, or null when there is none
+     */
+    public static WorkloadProfile builtIn(String name) {
+        if ("small".equals(name)) {
+            return newBuilder(name).externalIdCount(Distribution.uniform(1, 2)).contentSize(Distribution.uniform(32, 256)).build();
+        } else if ("mixed".equals(name)) {
+            return newBuilder(name).build();
+        } else if ("large".equals(name)) {
+            return newBuilder(name).externalIdCount(Distribution.uniform(2, 6)).contentSize(Distribution.uniform(4096, 10000)).build();
+        } else if ("linked".equals(name)) {
+            return newBuilder(name).chainLinkDensity(0.8).entriesPerChain(10).build();
+        }
+        return null;
+    }
+
+    public static List<String> builtInNames() {
+        List<String> names = new ArrayList<>();
+        Collections.addAll(names, "small", "mixed", "large", "linked");
+        return names;
+    }
+
+    /**
+     * @return the registration types of {@link RegistrationType.Defaults}, except the chain link type itself
+     */
+    public static List<RegistrationType> defaultRegistrationTypes() {
+        List<RegistrationType> types = new ArrayList<>();
+        for (Field field : RegistrationType.Defaults.class.getFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && RegistrationType.class.equals(field.getType())) {
+                try {
+                    RegistrationType type = (RegistrationType) field.get(null);
+                    if (!RegistrationType.Defaults.CHAIN_LINK.equals(type)) {
+                        types.add(type);
+                    }
+                } catch (IllegalAccessException e) {
+                    throw new RuntimeException(e.getMessage(), e);
+                }
+            }
+        }
+        return types;
+    }
+
+
+    public String getName() {
+        return name;
+    }
+
+    public Distribution getExternalIdCount() {
+        return externalIdCount;
+    }
+
+    public Distribution getExternalIdSize() {
+        return externalIdSize;
+    }
+
+    public Distribution getContentSize() {
+        return contentSize;
+    }
+
+    public List<RegistrationType> getRegistrationTypes() {
+        return registrationTypes;
+    }
+
+    public double getChainLinkDensity() {
+        return chainLinkDensity;
+    }
+
+    public int getEntriesPerChain() {
+        return entriesPerChain;
+    }
+
+    public long getEntries() {
+        return entries;
+    }
+
+    public long getWarmupEntries() {
+        return warmupEntries;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+
+    public static class Builder {
+        private final String name;
+        private Distribution externalIdCount = Distribution.uniform(0, 4);
+        private Distribution externalIdSize = Distribution.uniform(8, 64);
+        private Distribution contentSize = Distribution.exponential(1024, 10000);
+        private List<RegistrationType> registrationTypes = defaultRegistrationTypes();
+        private double chainLinkDensity = 0.1;
+        private int entriesPerChain = 100;
+        private long entries = 100000;
+        private long warmupEntries = 20000;
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private long seed = 42;
+
+        private Builder(String name) {
+            if (name == null || name.isEmpty()) {
+                throw new IllegalArgumentException("A workload profile needs a name");
+            }
+            this.name = name;
+        }
+
+        /**
+         * @param externalIdCount The number of registration external Id pairs per entry, on top of chain links
+         */
+        public Builder externalIdCount(Distribution externalIdCount) {
+            this.externalIdCount = externalIdCount;
+            return this;
+        }
+
+        /**
+         * @param externalIdSize The size in bytes of registration external Id values
+         */
+        public Builder externalIdSize(Distribution externalIdSize) {
+            this.externalIdSize = externalIdSize;
+            return this;
+        }
+
+        /**
+         * @param contentSize The size in bytes of entry content. Sizes are capped so entries fit the payload limit
+         */
+        public Builder contentSize(Distribution contentSize) {
+            this.contentSize = contentSize;
+            return this;
+        }
+
+        /**
+         * @param registrationTypes The registration types used as external Id keys, picked with equal probability
+         */
+        public Builder registrationTypes(List<RegistrationType> registrationTypes) {
+            if (registrationTypes == null || registrationTypes.isEmpty()) {
+                throw new IllegalArgumentException("At least one registration type is needed");
+            }
+            this.registrationTypes = registrationTypes;
+            return this;
+        }
+
+        /**
+         * @param chainLinkDensity The probability that an entry carries a chain link to another chain
+         */
+        public Builder chainLinkDensity(double chainLinkDensity) {
+            if (chainLinkDensity < 0 || chainLinkDensity > 1) {
+                throw new IllegalArgumentException("Chain link density needs to be between 0 and 1 instead of: " + chainLinkDensity);
+            }
+            this.chainLinkDensity = chainLinkDensity;
+            return this;
+        }
+
+        /**
+         * @param entriesPerChain The number of entries per chain, including the first entry creating the chain
+         */
+        public Builder entriesPerChain(int entriesPerChain) {
+            if (entriesPerChain < 1) {
+                throw new IllegalArgumentException("Entries per chain needs to be at least 1 instead of: " + entriesPerChain);
+            }
+            this.entriesPerChain = entriesPerChain;
+            return this;
+        }
+
+        /**
+         * @param entries The number of measured entries, over all threads
+         */
+        public Builder entries(long entries) {
+            if (entries < 1) {
+                throw new IllegalArgumentException("Entries needs to be at least 1 instead of: " + entries);
+            }
+            this.entries = entries;
+            return this;
+        }
+
+        /**
+         * @param warmupEntries The number of entries processed before measuring, over all threads
+         */
+        public Builder warmupEntries(long warmupEntries) {
+            if (warmupEntries < 0) {
+                throw new IllegalArgumentException("Warmup entries cannot be negative: " + warmupEntries);
+            }
+            this.warmupEntries = warmupEntries;
+            return this;
+        }
+
+        public Builder threads(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("Threads needs to be at least 1 instead of: " + threads);
+            }
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * @param seed The seed of the generated data, so runs process the same workload
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public WorkloadProfile build() {
+            return new WorkloadProfile(this);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.loadgen;
+
+import java.util.Locale;
+
+/**
+ * Throughput, latency, allocation and GC figures of a {@link WorkloadProfile} run
+ */
+public class WorkloadResult {
+    private final WorkloadProfile profile;
+    private final long entries;
+    private final long chains;
+    private final long bytes;
+    private final long elapsedNanos;
+    private final LatencyHistogram latency;
+    private final long allocatedBytes;
+    private final long gcCount;
+    private final long gcTimeMillis;
+
+    WorkloadResult(WorkloadProfile profile, long entries, long chains, long bytes, long elapsedNanos, LatencyHistogram latency,
+                   long allocatedBytes, long gcCount, long gcTimeMillis) {
+        this.profile = profile;
+        this.entries = entries;
+        this.chains = chains;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+        this.latency = latency;
+        this.allocatedBytes = allocatedBytes;
+        this.gcCount = gcCount;
+        this.gcTimeMillis = gcTimeMillis;
+    }
+
+    public WorkloadProfile getProfile() {
+        return profile;
+    }
+
+    public long getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return the number of entries creating a chain
+     */
+    public long getChains() {
+        return chains;
+    }
+
+    /**
+     * @return the number of entry bytes hashed, in the entry format
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getEntriesPerSecond() {
+        return entries * 1e9 / elapsedNanos;
+    }
+
+    public double getBytesPerSecond() {
+        return bytes * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return the per entry latencies in nanoseconds
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return the bytes allocated by the worker threads, or -1 when the JVM does not support measuring it
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @return the bytes allocated by the worker threads per second, or -1 when the JVM does not support measuring it
+     */
+    public double getAllocationRate() {
+        return allocatedBytes < 0 ? -1 : allocatedBytes * 1e9 / elapsedNanos;
+    }
+
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    public long getGcTimeMillis() {
+        return gcTimeMillis;
+    }
+
+    /**
+     * @return the result as a single line JSON object
+     */
+    public String toJson() {
+        return String.format(Locale.ROOT, "{\"profile\":\"%s\",\"threads\":%d,\"entries\":%d,\"chains\":%d,\"bytes\":%d,"
+                        + "\"elapsedMillis\":%.3f,\"entriesPerSecond\":%.1f,\"bytesPerSecond\":%.1f,"
+                        + "\"latencyNanos\":{\"mean\":%.1f,\"p50\":%d,\"p90\":%d,\"p99\":%d,\"p999\":%d,\"max\":%d},"
+                        + "\"allocatedBytes\":%d,\"allocationBytesPerSecond\":%.1f,\"gcCount\":%d,\"gcTimeMillis\":%d,"
+                        + "\"externalIdCount\":\"%s\",\"externalIdSize\":\"%s\",\"contentSize\":\"%s\","
+                        + "\"registrationTypes\":%d,\"chainLinkDensity\":%s,\"entriesPerChain\":%d,\"seed\":%d}",
+                profile.getName().replace("\\", "\\\\").replace("\"", "\\\""), profile.getThreads(), entries, chains, bytes,
+                elapsedNanos / 1e6, getEntriesPerSecond(), getBytesPerSecond(),
+                latency.getMean(), latency.getValueAtQuantile(0.5), latency.getValueAtQuantile(0.9),
+                latency.getValueAtQuantile(0.99), latency.getValueAtQuantile(0.999), latency.getMax(),
+                allocatedBytes, getAllocationRate(), gcCount, gcTimeMillis,
+                profile.getExternalIdCount(), profile.getExternalIdSize(), profile.getContentSize(),
+                profile.getRegistrationTypes().size(), profile.getChainLinkDensity(), profile.getEntriesPerChain(), profile.getSeed());
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.loadgen;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class TestDistribution {
+
+    @Test
+    public void testParse() {
+        Assert.assertEquals("16", Distribution.parse("16").toString());
+        Assert.assertEquals("uniform:0-8", Distribution.parse("uniform:0-8").toString());
+        Assert.assertEquals("exp:1024.0:10240", Distribution.parse("exp:1024:10240").toString());
+        for (String invalid : new String[]{"", "x", "uniform:8", "uniform:8-2", "exp:0:10", "exp:10", "-1"}) {
+            try {
+                Distribution.parse(invalid);
+                Assert.fail("Invalid distribution accepted: " + invalid);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testSample() {
+        Random random = new Random(1);
+        Distribution fixed = Distribution.fixed(7);
+        Distribution uniform = Distribution.uniform(2, 4);
+        Distribution exponential = Distribution.exponential(100, 1000);
+        boolean[] seen = new boolean[5];
+        long sum = 0;
+        int samples = 20000;
+        for (int i = 0; i < samples; i++) {
+            Assert.assertEquals(7, fixed.sample(random));
+            int value = uniform.sample(random);
+            Assert.assertTrue(value >= 2 && value <= 4);
+            seen[value] = true;
+            int size = exponential.sample(random);
+            Assert.assertTrue(size >= 0 && size <= 1000);
+            sum += size;
+        }
+        Assert.assertTrue(seen[2] && seen[3] && seen[4]);
+        double mean = (double) sum / samples;
+        Assert.assertTrue("Mean " + mean, mean > 90 && mean < 110);
+    }
+}
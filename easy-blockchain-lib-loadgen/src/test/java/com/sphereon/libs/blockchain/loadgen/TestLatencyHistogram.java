@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.loadgen;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestLatencyHistogram {
+
+    @Test
+    public void testIndex() {
+        for (int i = 0; i < 32; i++) {
+            Assert.assertEquals(i, LatencyHistogram.index(i));
+            Assert.assertEquals(i, LatencyHistogram.lowerBound(i));
+        }
+        // Values below 64 still have their own bucket, from 64 on two values share one
+        Assert.assertEquals(63, LatencyHistogram.index(63));
+        Assert.assertEquals(64, LatencyHistogram.index(64));
+        Assert.assertEquals(64, LatencyHistogram.index(65));
+        Assert.assertEquals(65, LatencyHistogram.index(66));
+        int previous = 0;
+        for (long value = 1; value > 0 && value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+            int index = LatencyHistogram.index(value);
+            Assert.assertTrue(index >= previous);
+            previous = index;
+            long lower = LatencyHistogram.lowerBound(index);
+            // A bucket spans at most 1/32 of its lower bound
+            Assert.assertTrue(lower <= value);
+            Assert.assertTrue(value - lower <= Math.max(1, lower / 32));
+            Assert.assertEquals(index, LatencyHistogram.index(lower));
+        }
+        Assert.assertEquals(LatencyHistogram.index(Long.MAX_VALUE), LatencyHistogram.index(Long.MAX_VALUE - 1));
+    }
+
+    @Test
+    public void testQuantiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.getValueAtQuantile(0.5));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        Assert.assertEquals(1000, histogram.getCount());
+        Assert.assertEquals(1000000, histogram.getMax());
+        Assert.assertEquals(500500.0, histogram.getMean(), 0.001);
+        assertNear(500000, histogram.getValueAtQuantile(0.5));
+        assertNear(990000, histogram.getValueAtQuantile(0.99));
+        assertNear(1000000, histogram.getValueAtQuantile(1));
+        assertNear(1000, histogram.getValueAtQuantile(0));
+
+        LatencyHistogram other = new LatencyHistogram();
+        other.record(5000000);
+        other.record(-1);
+        histogram.merge(other);
+        Assert.assertEquals(1002, histogram.getCount());
+        Assert.assertEquals(5000000, histogram.getMax());
+        Assert.assertEquals(0, histogram.getValueAtQuantile(0));
+    }
+
+    private static void assertNear(long expected, long actual) {
+        Assert.assertTrue("Expected about " + expected + " instead of " + actual, actual <= expected && actual >= expected - expected / 32);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.loadgen;
+
+import com.sphereon.libs.blockchain.api.HasContent;
+import com.sphereon.libs.blockchain.api.model.ExternalId;
+import com.sphereon.libs.blockchain.commons.Operations;
+import com.sphereon.libs.blockchain.commons.RegistrationType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TestLoadGenerator {
+
+    @Test
+    public void testRun() {
+        WorkloadProfile profile = WorkloadProfile.builtIn("linked").toBuilder().threads(2).entries(1000).warmupEntries(100).build();
+        WorkloadResult result = new LoadGenerator().run(profile);
+        Assert.assertEquals(1000, result.getEntries());
+        Assert.assertEquals(100, result.getChains());
+        Assert.assertEquals(1000, result.getLatency().getCount());
+        Assert.assertTrue(result.getBytes() > 0);
+    }
+
+    @Test(timeout = 30000)
+    public void testWorkerFailureBeforeStart() {
+        RegistrationType failing = new RegistrationType.Impl("Failing") {
+            @Override
+            public byte[] getNameInBytes() {
+                throw new IllegalStateException("Generation failure");
+            }
+        };
+        WorkloadProfile profile = WorkloadProfile.newBuilder("failing").threads(2).entries(10).warmupEntries(0)
+                .externalIdCount(Distribution.fixed(1)).registrationTypes(Collections.singletonList(failing)).build();
+        try {
+            new LoadGenerator().run(profile);
+            Assert.fail("Worker failure expected");
+        } catch (RuntimeException e) {
+            Assert.assertEquals("Generation failure", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testFitKeepsPairs() {
+        List<ExternalId> externalIds = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            externalIds.add(new ExternalId().setValue(("name" + i).getBytes()));
+            externalIds.add(new ExternalId().setValue(new byte[4000]));
+        }
+        byte[] content = LoadGenerator.fit(externalIds, new byte[5000]);
+        Assert.assertEquals(0, content.length);
+        Assert.assertEquals(4, externalIds.size());
+        Assert.assertEquals("name1", new String(externalIds.get(2).getValue()));
+        Assert.assertTrue(Operations.getInstance().payloadSize(HasContent.Impl.of(content), externalIds) + 10 <= Operations.MAX_PAYLOAD_SIZE);
+
+        externalIds = new ArrayList<>();
+        externalIds.add(new ExternalId().setValue("name".getBytes()));
+        externalIds.add(new ExternalId().setValue(new byte[100]));
+        content = LoadGenerator.fit(externalIds, new byte[Operations.MAX_PAYLOAD_SIZE]);
+        Assert.assertEquals(2, externalIds.size());
+        Assert.assertEquals(Operations.MAX_PAYLOAD_SIZE - 10 - (4 + 2) - (100 + 2), content.length);
+    }
+
+    @Test
+    public void testOverrides() {
+        WorkloadProfile.Builder builder = WorkloadProfile.newBuilder("custom");
+        LoadGenerator.applyOverrides(builder, Arrays.asList(
+                "--threads", "3", "--entries", "500", "--warmup", "0", "--seed", "9",
+                "--external-ids", "uniform:1-2", "--external-id-size", "32", "--content-size", "exp:100:1000",
+                "--link-density", "0.5", "--entries-per-chain", "5", "--types", "root, Context"));
+        WorkloadProfile profile = builder.build();
+        Assert.assertEquals(3, profile.getThreads());
+        Assert.assertEquals(500, profile.getEntries());
+        Assert.assertEquals(0, profile.getWarmupEntries());
+        Assert.assertEquals(9, profile.getSeed());
+        Assert.assertEquals("uniform:1-2", profile.getExternalIdCount().toString());
+        Assert.assertEquals("32", profile.getExternalIdSize().toString());
+        Assert.assertEquals("exp:100.0:1000", profile.getContentSize().toString());
+        Assert.assertEquals(0.5, profile.getChainLinkDensity(), 0);
+        Assert.assertEquals(5, profile.getEntriesPerChain());
+        Assert.assertEquals(Arrays.asList(RegistrationType.Defaults.ROOT, RegistrationType.Defaults.CONTEXT), profile.getRegistrationTypes());
+
+        assertInvalid("--threads", "many");
+        assertInvalid("--threads", "0");
+        assertInvalid("--content-size", "uniform:5");
+        assertInvalid("--types", "NoSuchType");
+        assertInvalid("--unknown", "1");
+    }
+
+    private static void assertInvalid(String option, String value) {
+        try {
+            LoadGenerator.applyOverrides(WorkloadProfile.newBuilder("invalid"), Arrays.asList(option, value));
+            Assert.fail("Invalid option accepted: " + option + " " + value);
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
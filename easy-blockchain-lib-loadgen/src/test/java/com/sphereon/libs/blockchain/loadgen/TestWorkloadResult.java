@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.loadgen;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class TestWorkloadResult {
+
+    @Test
+    public void testToJson() {
+        WorkloadProfile profile = WorkloadProfile.newBuilder("say \"hi\"").threads(2).entries(100).seed(7)
+                .externalIdCount(Distribution.uniform(1, 3)).contentSize(Distribution.fixed(64)).chainLinkDensity(0.25).entriesPerChain(10).build();
+        LatencyHistogram latency = new LatencyHistogram();
+        latency.record(10);
+        latency.record(20);
+        WorkloadResult result = new WorkloadResult(profile, 100, 10, 5000, TimeUnit.SECONDS.toNanos(2), latency, 1000, 3, 4);
+        Assert.assertEquals(50.0, result.getEntriesPerSecond(), 0.001);
+        Assert.assertEquals(2500.0, result.getBytesPerSecond(), 0.001);
+
+        String json = result.toJson();
+        Assert.assertTrue(json, json.startsWith("{\"profile\":\"say \\\"hi\\\"\",\"threads\":2,\"entries\":100,\"chains\":10,\"bytes\":5000,"));
+        Assert.assertTrue(json, json.contains("\"elapsedMillis\":2000.000,\"entriesPerSecond\":50.0,\"bytesPerSecond\":2500.0,"));
+        Assert.assertTrue(json, json.contains("\"latencyNanos\":{\"mean\":15.0,\"p50\":10,\"p90\":20,\"p99\":20,\"p999\":20,\"max\":20},"));
+        Assert.assertTrue(json, json.contains("\"allocatedBytes\":1000,\"allocationBytesPerSecond\":500.0,\"gcCount\":3,\"gcTimeMillis\":4,"));
+        Assert.assertTrue(json, json.contains("\"externalIdCount\":\"uniform:1-3\",\"externalIdSize\":"));
+        Assert.assertTrue(json, json.endsWith("\"contentSize\":\"64\",\"registrationTypes\":"
+                + profile.getRegistrationTypes().size() + ",\"chainLinkDensity\":0.25,\"entriesPerChain\":10,\"seed\":7}"));
+        Assert.assertFalse(json.contains("\n"));
+    }
+}
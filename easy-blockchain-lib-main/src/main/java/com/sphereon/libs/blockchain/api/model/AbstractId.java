@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.libs.blockchain.api.model;
+
+import com.sphereon.libs.blockchain.commons.Bytes;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Base class for 32 byte (SHA-256) identifiers. The identifier is stored as four big-endian longs, so instances take a
+ * fraction of the memory of a hex string and can be compared and hashed without looking at individual bytes.
+ * Hex and byte conversions are only needed at the boundaries.
+ */
+public abstract class AbstractId<T extends AbstractId<T>> implements Comparable<T> {
+    public static final int LENGTH = 32;
+    public static final int HEX_LENGTH = LENGTH * 2;
+
+    private static final char[] DIGITS_LOWER = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+
+    private final long word0;
+    private final long word1;
+    private final long word2;
+    private final long word3;
+
+    protected AbstractId(byte[] bytes, int offset) {
+        if (bytes == null || offset < 0 || bytes.length - offset < LENGTH) {
+            throw new IllegalArgumentException("An Id needs " + LENGTH + " bytes");
+        }
+        this.word0 = Bytes.readLong(bytes, offset);
+        this.word1 = Bytes.readLong(bytes, offset + 8);
+        this.word2 = Bytes.readLong(bytes, offset + 16);
+        this.word3 = Bytes.readLong(bytes, offset + 24);
+    }
+
+    protected AbstractId(CharSequence hex) {
+        if (hex == null || hex.length() != HEX_LENGTH) {
+            throw new IllegalArgumentException("An Id needs " + HEX_LENGTH + " hex characters instead of: " + hex);
+        }
+        this.word0 = parseHexLong(hex, 0);
+        this.word1 = parseHexLong(hex, 16);
+        this.word2 = parseHexLong(hex, 32);
+        this.word3 = parseHexLong(hex, 48);
+    }
+
+    public byte[] toBytes() {
+        byte[] bytes = new byte[LENGTH];
+        writeTo(bytes, 0);
+        return bytes;
+    }
+
+    /**
+     * Write the 32 bytes of this Id into the target array
+     */
+    public void writeTo(byte[] target, int offset) {
+        Bytes.writeLong(word0, target, offset);
+        Bytes.writeLong(word1, target, offset + 8);
+        Bytes.writeLong(word2, target, offset + 16);
+        Bytes.writeLong(word3, target, offset + 24);
+    }
+
+    /**
+     * Write the 32 bytes of this Id at the current position of the buffer
+     */
+    public void writeTo(ByteBuffer target) {
+        target.putLong(word0).putLong(word1).putLong(word2).putLong(word3);
+    }
+
+    /**
+     * @return true if the 32 bytes at the offset equal this Id
+     */
+    public boolean matches(byte[] bytes, int offset) {
+        return bytes != null && offset >= 0 && bytes.length - offset >= LENGTH
+                && Bytes.readLong(bytes, offset) == word0 && Bytes.readLong(bytes, offset + 8) == word1
+                && Bytes.readLong(bytes, offset + 16) == word2 && Bytes.readLong(bytes, offset + 24) == word3;
+    }
+
+    /**
+     * Like {@link #matches(byte[], int)}, but the time taken does not depend on the position of the first difference, so
+     * comparing a calculated Id against a claimed Id does not leak how much of it matched
+     *
+     * @return true if the 32 bytes at the offset equal this Id
+     */
+    public boolean matchesInConstantTime(byte[] bytes, int offset) {
+        if (bytes == null || offset < 0 || bytes.length - offset < LENGTH) {
+            return false;
+        }
+        long difference = (Bytes.readLong(bytes, offset) ^ word0) | (Bytes.readLong(bytes, offset + 8) ^ word1)
+                | (Bytes.readLong(bytes, offset + 16) ^ word2) | (Bytes.readLong(bytes, offset + 24) ^ word3);
+        return difference == 0;
+    }
+
+    /**
+     * @return the Id in lowercase hex form, as used by the blockchain API
+     */
+    public String toHex() {
+        char[] chars = new char[HEX_LENGTH];
+        writeHex(word0, chars, 0);
+        writeHex(word1, chars, 16);
+        writeHex(word2, chars, 32);
+        writeHex(word3, chars, 48);
+        return new String(chars);
+    }
+
+    @Override
+    public int compareTo(T other) {
+        // Unsigned comparison of the words equals the lexicographic comparison of the unsigned bytes
+        int result = Long.compareUnsigned(word0, other.word0());
+        if (result == 0) {
+            result = Long.compareUnsigned(word1, other.word1());
+        }
+        if (result == 0) {
+            result = Long.compareUnsigned(word2, other.word2());
+        }
+        if (result == 0) {
+            result = Long.compareUnsigned(word3, other.word3());
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        AbstractId<?> that = (AbstractId<?>) o;
+
+        return word0 == that.word0 && word1 == that.word1 && word2 == that.word2 && word3 == that.word3;
+    }
+
+    @Override
+    public int hashCode() {
+        // The Id is a SHA-256 hash, so any of its bits are uniformly distributed
+        return (int) (word0 >>> 32);
+    }
+
+    @Override
+    public String toString() {
+        return toHex();
+    }
+
+    final long word0() {
+        return word0;
+    }
+
+    final long word1() {
+        return word1;
+    }
+
+    final long word2() {
+        return word2;
+    }
+
+    final long word3() {
+        return word3;
+    }
+
+    private static long parseHexLong(CharSequence hex, int offset) {
+        long value = 0;
+        for (int i = 0; i < 16; i++) {
+            int digit = Bytes.hexDigit(hex.charAt(offset + i));
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid hex character '" + hex.charAt(offset + i) + "' in: " + hex);
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+
+    private static void writeHex(long value, char[] target, int offset) {
+        for (int i = 15; i >= 0; i--) {
+            target[offset + i] = DIGITS_LOWER[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.libs.blockchain.api.model;
+
+/**
+ * An entry Id in raw form
+ *
+ * @see AbstractId
+ */
+public final class EntryId extends AbstractId<EntryId> {
+
+    private EntryId(byte[] bytes, int offset) {
+        super(bytes, offset);
+    }
+
+    private EntryId(CharSequence hex) {
+        super(hex);
+    }
+
+    public static EntryId fromHex(CharSequence hex) {
+        return new EntryId(hex);
+    }
+
+    public static EntryId fromBytes(byte[] bytes) {
+        return new EntryId(bytes, 0);
+    }
+
+    public static EntryId fromBytes(byte[] bytes, int offset) {
+        return new EntryId(bytes, offset);
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.libs.blockchain.api.model;
+
+import com.sphereon.libs.blockchain.api.HasContent;
+import com.sphereon.libs.blockchain.api.HasValue;
+import com.sphereon.libs.blockchain.commons.Digest;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable counterpart of {@link EntryData}. Instances are created using the {@link Builder}, which copies all input once.
+ * <p>
+ * A SHA-256 digest over the external Ids and content is calculated on creation. It is used as the hash code source and
+ * as the equality discriminator, so putting instances in sets or maps never scans the content again.
+ * Please note that this digest is not the entry Id, since the entry Id depends on the chain Id as well.
+ */
+public final class ImmutableEntryData implements HasContent<byte[]> {
+    private final List<ImmutableExternalId> externalIds;
+    private final byte[] content;
+    private final byte[] digest;
+    private final int hashCode;
+
+    private ImmutableEntryData(List<ImmutableExternalId> externalIds, byte[] content) {
+        this.externalIds = Collections.unmodifiableList(externalIds);
+        this.content = content;
+        this.digest = calculateDigest(externalIds, content);
+        this.hashCode = (digest[0] & 0xFF) << 24 | (digest[1] & 0xFF) << 16 | (digest[2] & 0xFF) << 8 | (digest[3] & 0xFF);
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Create an immutable copy of the mutable (JAXB) bean
+     */
+    public static ImmutableEntryData from(EntryData entryData) {
+        return newBuilder().externalIds(entryData.getExternalIds()).content(entryData.getContent()).build();
+    }
+
+    public static ImmutableEntryData from(Entry entry) {
+        return from(entry.getEntryData());
+    }
+
+    public List<ImmutableExternalId> getExternalIds() {
+        return externalIds;
+    }
+
+    /**
+     * @return a copy of the content, since this object is immutable
+     */
+    @Override
+    public byte[] getContent() {
+        return content == null ? null : content.clone();
+    }
+
+    public int contentLength() {
+        return content == null ? 0 : content.length;
+    }
+
+    /**
+     * Copy the content into the target without an intermediate copy
+     *
+     * @return the offset directly after the written content
+     */
+    public int writeContentTo(byte[] target, int offset) {
+        if (content == null) {
+            return offset;
+        }
+        System.arraycopy(content, 0, target, offset, content.length);
+        return offset + content.length;
+    }
+
+    /**
+     * @return a copy of the SHA-256 digest over the external Ids and the content
+     */
+    public byte[] getDigest() {
+        return digest.clone();
+    }
+
+    /**
+     * Convert to the mutable (JAXB) bean
+     */
+    public EntryData toEntryData() {
+        EntryData entryData = new EntryData();
+        List<ExternalId> mutableIds = new ArrayList<>(externalIds.size());
+        for (ImmutableExternalId externalId : externalIds) {
+            mutableIds.add(externalId.toExternalId());
+        }
+        entryData.setExternalIds(mutableIds);
+        entryData.setContent(getContent());
+        return entryData;
+    }
+
+    public Entry toEntry() {
+        Entry entry = new Entry();
+        entry.setEntryData(toEntryData());
+        return entry;
+    }
+
+    private static byte[] calculateDigest(List<ImmutableExternalId> externalIds, byte[] content) {
+        MessageDigest messageDigest = Digest.getInstance().newMessageDigest(Digest.Algorithm.SHA_256);
+        byte[] length = new byte[4];
+        for (ImmutableExternalId externalId : externalIds) {
+            // Length prefixes make sure that moving bytes between adjacent external Ids changes the digest
+            messageDigest.update(intToBytes(externalId.length(), length));
+            messageDigest.update(externalId.value());
+        }
+        if (content == null) {
+            messageDigest.update((byte) 0);
+        } else {
+            messageDigest.update((byte) 1);
+            messageDigest.update(content);
+        }
+        return messageDigest.digest();
+    }
+
+    private static byte[] intToBytes(int value, byte[] target) {
+        target[0] = (byte) (value >>> 24);
+        target[1] = (byte) (value >>> 16);
+        target[2] = (byte) (value >>> 8);
+        target[3] = (byte) value;
+        return target;
+    }
+
+    @Override
+    public String toString() {
+        return "ImmutableEntryData{" +
+                "externalIds=" + externalIds +
+                ", content=" + Arrays.toString(content) +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ImmutableEntryData)) return false;
+
+        ImmutableEntryData that = (ImmutableEntryData) o;
+
+        // The digest covers the external Ids and the content, so there is no need to compare those
+        return hashCode == that.hashCode && Arrays.equals(digest, that.digest);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+
+    public static class Builder {
+        private List<ImmutableExternalId> externalIds;
+        private byte[] content;
+
+        private Builder() {
+            reset();
+        }
+
+        public Builder reset() {
+            this.externalIds = new ArrayList<>();
+            this.content = null;
+            return this;
+        }
+
+        public Builder externalId(byte[] value) {
+            externalIds.add(ImmutableExternalId.of(value));
+            return this;
+        }
+
+        public Builder externalId(String value) {
+            externalIds.add(ImmutableExternalId.of(value));
+            return this;
+        }
+
+        public Builder externalId(HasValue<byte[]> externalId) {
+            externalIds.add(ImmutableExternalId.of(externalId));
+            return this;
+        }
+
+        public Builder externalIds(Collection<? extends HasValue<byte[]>> externalIds) {
+            if (externalIds != null) {
+                for (HasValue<byte[]> externalId : externalIds) {
+                    externalId(externalId);
+                }
+            }
+            return this;
+        }
+
+        public Builder content(byte[] content) {
+            this.content = content == null ? null : content.clone();
+            return this;
+        }
+
+        public Builder content(String content) {
+            this.content = content == null ? null : content.getBytes();
+            return this;
+        }
+
+        public ImmutableEntryData build() {
+            ImmutableEntryData entryData = new ImmutableEntryData(externalIds, content);
+            // The built instance owns the collected state now
+            reset();
+            return entryData;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.libs.blockchain.api.model;
+
+import com.sphereon.libs.blockchain.api.HasValue;
+
+import java.util.Arrays;
+
+/**
+ * Immutable counterpart of {@link ExternalId}. The value is copied once on creation and the hash code is computed once,
+ * so instances are cheap to use as keys in hash based collections.
+ */
+public final class ImmutableExternalId implements HasValue<byte[]> {
+    private final byte[] value;
+    private final int hashCode;
+
+    private ImmutableExternalId(byte[] value) {
+        this.value = value;
+        this.hashCode = Arrays.hashCode(value);
+    }
+
+    public static ImmutableExternalId of(byte[] value) {
+        if (value == null) {
+            throw new NullPointerException("External Id needs a value");
+        }
+        return new ImmutableExternalId(value.clone());
+    }
+
+    public static ImmutableExternalId of(String value) {
+        if (value == null) {
+            throw new NullPointerException("External Id needs a value");
+        }
+        return new ImmutableExternalId(value.getBytes());
+    }
+
+    public static ImmutableExternalId of(HasValue<byte[]> externalId) {
+        if (externalId instanceof ImmutableExternalId) {
+            return (ImmutableExternalId) externalId;
+        }
+        return of(externalId.getValue());
+    }
+
+    /**
+     * @return a copy of the value, since this object is immutable
+     */
+    @Override
+    public byte[] getValue() {
+        return value.clone();
+    }
+
+    public int length() {
+        return value.length;
+    }
+
+    byte[] value() {
+        return value;
+    }
+
+    /**
+     * Copy the value into the target without an intermediate copy
+     *
+     * @return the offset directly after the written value
+     */
+    public int writeTo(byte[] target, int offset) {
+        System.arraycopy(value, 0, target, offset, value.length);
+        return offset + value.length;
+    }
+
+    /**
+     * Convert to the mutable (JAXB) bean
+     */
+    public ExternalId toExternalId() {
+        return new ExternalId().setValue(getValue());
+    }
+
+    @Override
+    public String toString() {
+        return "ImmutableExternalId{" +
+                "value=" + Arrays.toString(value) +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ImmutableExternalId)) return false;
+
+        ImmutableExternalId that = (ImmutableExternalId) o;
+
+        return hashCode == that.hashCode && Arrays.equals(value, that.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
@@ -0,0 +1,454 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.libs.blockchain.commons;
+
+import com.sphereon.libs.blockchain.api.HasContent;
+import com.sphereon.libs.blockchain.api.HasValue;
+import com.sphereon.libs.blockchain.api.model.ChainId;
+import com.sphereon.libs.blockchain.api.model.Entry;
+import com.sphereon.libs.blockchain.api.model.EntryId;
+
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous facade for {@link Operations} and {@link Digest}. All methods return immediately with a
+ * {@link CompletableFuture} and perform the hashing on the configured {@link Executor}.
+ * <p>
+ * Cancelling a returned future prevents work that has not started yet. Stream and file hashing also check the future
+ * between reads, so an abandoned hash of a large file stops early instead of reading the file to the end.
+ */
+public class AsyncOperations {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private static final int BUFFER_SIZE_64K = 65536;
+
+    private static volatile AsyncOperations instance;
+
+    private final Executor executor;
+    private final Operations operations = Operations.getInstance();
+    private final Digest digest = Digest.getInstance();
+
+
+    private AsyncOperations(Executor executor) {
+        if (executor == null) {
+            throw new NullPointerException("An executor is required for async operations");
+        }
+        this.executor = executor;
+    }
+
+
+    /**
+     * @return the shared instance, running on {@link #newDefaultExecutor()}
+     */
+    public static AsyncOperations getInstance() {
+        // See Digest.getInstance() for the double checked locking rationale
+        if (instance == null) {
+            synchronized (AsyncOperations.class) {
+                if (instance == null) {
+                    AsyncOperations.instance = new AsyncOperations(newDefaultExecutor());
+                }
+            }
+        }
+        return instance;
+    }
+
+
+    /**
+     * Create an instance running on the supplied executor. The caller stays responsible for the executor lifecycle
+     *
+     * @param executor The executor to run the operations on
+     * @return
+     */
+    public static AsyncOperations of(Executor executor) {
+        return new AsyncOperations(executor);
+    }
+
+
+    /**
+     * What a bounded executor does with work submitted while all threads are busy and the work queue is full
+     */
+    public enum SaturationPolicy {
+        /**
+         * The submitting thread runs the work itself. This throttles producers, but the operation then completes
+         * synchronously on the calling thread, and work that waits for other tasks of the same executor can deadlock
+         */
+        CALLER_RUNS,
+        /**
+         * The work is rejected. Futures returned by this class complete exceptionally with a
+         * {@link java.util.concurrent.RejectedExecutionException}
+         */
+        REJECT
+    }
+
+
+    /**
+     * A bounded pool with one daemon thread per available core and a bounded work queue. When the queue is full the
+     * submitting thread runs the work itself, see {@link SaturationPolicy#CALLER_RUNS}
+     *
+     * @return a new executor service
+     */
+    public static ExecutorService newDefaultExecutor() {
+        return newExecutor(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY);
+    }
+
+
+    /**
+     * The same bounded pool as {@link #newDefaultExecutor()} with a custom size. When the queue is full the submitting
+     * thread runs the work itself, see {@link SaturationPolicy#CALLER_RUNS}
+     *
+     * @param threads       The number of threads
+     * @param queueCapacity The number of tasks that can wait before the submitting thread runs them itself
+     * @return a new executor service
+     */
+    public static ExecutorService newExecutor(int threads, int queueCapacity) {
+        return newExecutor(threads, queueCapacity, SaturationPolicy.CALLER_RUNS);
+    }
+
+
+    /**
+     * A bounded pool of daemon threads
+     *
+     * @param threads       The number of threads
+     * @param queueCapacity The number of tasks that can wait for a thread
+     * @param policy        What happens to work submitted while the queue is full
+     * @return a new executor service
+     */
+    public static ExecutorService newExecutor(int threads, int queueCapacity, SaturationPolicy policy) {
+        if (threads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Threads and queue capacity need to be at least 1 instead of: " + threads + ", " + queueCapacity);
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("A saturation policy is required");
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), new DaemonThreadFactory("easy-blockchain-async"),
+                policy == SaturationPolicy.CALLER_RUNS ? new ThreadPoolExecutor.CallerRunsPolicy() : new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+
+    /**
+     * An executor for hashing batches of files. On Java 21 and newer this executor starts a virtual thread per task, on
+     * older versions it is the same bounded pool as {@link #newDefaultExecutor()}
+     *
+     * @return a new executor service, to be shut down by the caller
+     */
+    public static ExecutorService newBatchExecutor() {
+        return BatchExecutors.newBatchExecutor();
+    }
+
+
+    /**
+     * @return whether {@link #newBatchExecutor()} uses virtual threads on this JVM
+     */
+    public static boolean isVirtualBatchExecutor() {
+        return BatchExecutors.isVirtual();
+    }
+
+
+    /**
+     * The executor running the operations. The executor of the shared instance uses
+     * {@link SaturationPolicy#CALLER_RUNS}, so once it is saturated the returned futures are completed on the calling
+     * thread before the method returns. Use {@link #of(Executor)} with an executor of {@link SaturationPolicy#REJECT}
+     * to have saturated calls fail instead
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+
+    public CompletableFuture<ChainId> calculateChainId(final Collection<? extends HasValue<byte[]>> externalIds) {
+        return submit(new Supplier<ChainId>() {
+            @Override
+            public ChainId get() {
+                return operations.calculateChainId(externalIds);
+            }
+        });
+    }
+
+
+    public CompletableFuture<String> generateChainId(final Collection<? extends HasValue<byte[]>> externalIds) {
+        return submit(new Supplier<String>() {
+            @Override
+            public String get() {
+                return operations.generateChainId(externalIds);
+            }
+        });
+    }
+
+
+    /**
+     * @see Operations#calculateEntryId(ChainId, HasContent, Collection)
+     */
+    public CompletableFuture<EntryId> calculateEntryId(final ChainId chainId, final HasContent<byte[]> entryData, final Collection<? extends HasValue<byte[]>> externalIds) {
+        return submit(new Supplier<EntryId>() {
+            @Override
+            public EntryId get() {
+                return operations.calculateEntryId(chainId, entryData, externalIds);
+            }
+        });
+    }
+
+
+    public CompletableFuture<EntryId> calculateEntryId(ChainId chainId, Entry entry) {
+        return calculateEntryId(chainId, entry.getEntryData(), entry.getEntryData().getExternalIds());
+    }
+
+
+    /**
+     * @see Operations#generateEntryID(String, HasContent, Collection)
+     */
+    public CompletableFuture<String> generateEntryId(final String chainIdHex, final HasContent<byte[]> entryData, final Collection<? extends HasValue<byte[]>> externalIds) {
+        return submit(new Supplier<String>() {
+            @Override
+            public String get() {
+                return operations.generateEntryID(chainIdHex, entryData, externalIds);
+            }
+        });
+    }
+
+
+    public CompletableFuture<String> generateFirstEntryId(HasContent<byte[]> entryData, Collection<? extends HasValue<byte[]>> externalIds) {
+        return generateEntryId(null, entryData, externalIds);
+    }
+
+
+    /**
+     * @see Operations#entryToBytes(String, HasContent, Collection)
+     */
+    public CompletableFuture<byte[]> entryToBytes(final String chainIdHex, final HasContent<byte[]> entryData, final Collection<? extends HasValue<byte[]>> externalIds) {
+        return submit(new Supplier<byte[]>() {
+            @Override
+            public byte[] get() {
+                return operations.entryToBytes(chainIdHex, entryData, externalIds).original();
+            }
+        });
+    }
+
+
+    public CompletableFuture<byte[]> entryToBytes(String chainIdHex, Entry entry) {
+        return entryToBytes(chainIdHex, entry.getEntryData(), entry.getEntryData().getExternalIds());
+    }
+
+
+    public CompletableFuture<byte[]> getHash(final Digest.Algorithm algorithm, final byte[] input) {
+        return submit(new Supplier<byte[]>() {
+            @Override
+            public byte[] get() {
+                return digest.getHash(algorithm, input);
+            }
+        });
+    }
+
+
+    /**
+     * Hash the file. The file is opened on the executor, not on the calling thread
+     *
+     * @param algorithm The hash algorithm
+     * @param file      The file to hash
+     * @return a future which can be cancelled to stop reading the file
+     */
+    public CompletableFuture<byte[]> getHash(final Digest.Algorithm algorithm, final Path file) {
+        final CompletableFuture<byte[]> future = new CompletableFuture<>();
+        execute(future, new Runnable() {
+            @Override
+            public void run() {
+                try (InputStream inputStream = Files.newInputStream(file)) {
+                    hash(algorithm, inputStream, future);
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            }
+        });
+        return future;
+    }
+
+
+    /**
+     * Hash the stream. The stream is closed afterwards, like {@link Digest#getHash(Digest.Algorithm, InputStream)} does
+     *
+     * @param algorithm   The hash algorithm
+     * @param inputStream The stream to hash
+     * @return a future which can be cancelled to stop reading the stream
+     */
+    public CompletableFuture<byte[]> getHash(final Digest.Algorithm algorithm, final InputStream inputStream) {
+        final CompletableFuture<byte[]> future = new CompletableFuture<>();
+        execute(future, new Runnable() {
+            @Override
+            public void run() {
+                try (InputStream in = inputStream) {
+                    hash(algorithm, in, future);
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            }
+        });
+        return future;
+    }
+
+
+    /**
+     * Hash a batch of files concurrently. Cancelling the returned future cancels the hashes which are still running
+     *
+     * @param algorithm The hash algorithm
+     * @param files     The files to hash
+     * @return a future with the hashes in the order of the files
+     */
+    public CompletableFuture<List<byte[]>> getHashes(Digest.Algorithm algorithm, List<Path> files) {
+        final List<CompletableFuture<byte[]>> hashes = new ArrayList<>(files.size());
+        for (Path file : files) {
+            hashes.add(getHash(algorithm, file));
+        }
+        final CompletableFuture<List<byte[]>> result = CompletableFuture.allOf(hashes.toArray(new CompletableFuture[hashes.size()]))
+                .thenApply(new Function<Void, List<byte[]>>() {
+                    @Override
+                    public List<byte[]> apply(Void ignored) {
+                        List<byte[]> values = new ArrayList<>(hashes.size());
+                        for (CompletableFuture<byte[]> hash : hashes) {
+                            values.add(hash.join());
+                        }
+                        return values;
+                    }
+                });
+        result.whenComplete(new BiConsumer<List<byte[]>, Throwable>() {
+            @Override
+            public void accept(List<byte[]> values, Throwable t) {
+                if (t != null) {
+                    // Cancelled by the caller or one of the files failed. Stop the remaining work
+                    for (CompletableFuture<byte[]> hash : hashes) {
+                        hash.cancel(false);
+                    }
+                }
+            }
+        });
+        return result;
+    }
+
+
+    public CompletableFuture<String> getHashAsString(Digest.Algorithm algorithm, Path file, final Digest.Encoding encoding) {
+        return getHash(algorithm, file).thenApply(new Function<byte[], String>() {
+            @Override
+            public String apply(byte[] hash) {
+                return encode(hash, encoding);
+            }
+        });
+    }
+
+
+    public CompletableFuture<String> getHashAsString(Digest.Algorithm algorithm, InputStream inputStream, final Digest.Encoding encoding) {
+        return getHash(algorithm, inputStream).thenApply(new Function<byte[], String>() {
+            @Override
+            public String apply(byte[] hash) {
+                return encode(hash, encoding);
+            }
+        });
+    }
+
+
+    private void hash(Digest.Algorithm algorithm, InputStream inputStream, CompletableFuture<byte[]> future) throws Exception {
+        MessageDigest messageDigest = digest.newMessageDigest(algorithm);
+        byte[] buffer = new byte[BUFFER_SIZE_64K];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            if (future.isDone()) {
+                // Cancelled (or completed otherwise) by the caller. Nobody is interested in the result anymore
+                return;
+            }
+            messageDigest.update(buffer, 0, read);
+        }
+        future.complete(messageDigest.digest());
+    }
+
+
+    private static String encode(byte[] hash, Digest.Encoding encoding) {
+        if (encoding == Digest.Encoding.UTF_8) {
+            return new String(hash, Charset.forName("UTF-8"));
+        }
+        return Bytes.toHex(hash);
+    }
+
+
+    private <T> CompletableFuture<T> submit(final Supplier<T> supplier) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        execute(future, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    future.complete(supplier.get());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            }
+        });
+        return future;
+    }
+
+
+    private void execute(final CompletableFuture<?> future, final Runnable task) {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    // Do not start work for futures which have been cancelled while queued
+                    if (!future.isDone()) {
+                        task.run();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            // Rejected by the executor, for instance because it has been shut down
+            future.completeExceptionally(e);
+        }
+    }
+
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        private DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Creates the executor for batch file hashing.
+ * <p>
+ * This is the Java 8 implementation, using the bounded platform thread pool of {@link AsyncOperations}. The
+ * multi-release jar contains a Java 21 version in META-INF/versions/21 which uses virtual threads instead.
+ */
+final class BatchExecutors {
+
+    private BatchExecutors() {
+    }
+
+    static ExecutorService newBatchExecutor() {
+        return AsyncOperations.newDefaultExecutor();
+    }
+
+    static boolean isVirtual() {
+        return false;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.libs.blockchain.commons;
+
+/**
+ * Hex and big-endian byte conversions used by the entry format.
+ * <p>
+ * This is the Java 8 implementation. The multi-release jar contains a Java 17 version in META-INF/versions/17 using
+ * HexFormat and VarHandles. Both versions need to keep the same public methods and behaviour.
+ */
+public final class Bytes {
+    private static final char[] DIGITS_LOWER = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+
+    private Bytes() {
+    }
+
+    /**
+     * @param data The bytes to encode
+     * @return the lowercase hex form
+     */
+    public static String toHex(byte[] data) {
+        char[] out = new char[data.length << 1];
+        for (int i = 0, j = 0; i < data.length; i++) {
+            out[j++] = DIGITS_LOWER[(0xF0 & data[i]) >>> 4];
+            out[j++] = DIGITS_LOWER[0x0F & data[i]];
+        }
+        return new String(out);
+    }
+
+    /**
+     * @param hex Hex characters in upper or lower case
+     * @return the decoded bytes
+     * @throws IllegalArgumentException when the input has an odd length or contains non hex characters
+     */
+    public static byte[] fromHex(CharSequence hex) {
+        int length = hex.length();
+        if ((length & 1) != 0) {
+            throw new IllegalArgumentException("Hex input needs an even number of characters: " + hex);
+        }
+        byte[] out = new byte[length >> 1];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = (byte) (digit(hex, i << 1) << 4 | digit(hex, (i << 1) + 1));
+        }
+        return out;
+    }
+
+    /**
+     * Unlike {@link Character#digit(char, int)} only ASCII hex digits are accepted, like HexFormat does
+     *
+     * @param c The character
+     * @return the value of the hex digit, or -1 when it is not a hex digit
+     */
+    public static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    /**
+     * Write a big-endian short
+     *
+     * @return the offset directly after the written value
+     */
+    public static int writeShort(int value, byte[] target, int offset) {
+        target[offset] = (byte) (value >>> 8);
+        target[offset + 1] = (byte) value;
+        return offset + 2;
+    }
+
+    public static int readUnsignedShort(byte[] source, int offset) {
+        return (source[offset] & 0xFF) << 8 | (source[offset + 1] & 0xFF);
+    }
+
+    /**
+     * Write a big-endian long
+     *
+     * @return the offset directly after the written value
+     */
+    public static int writeLong(long value, byte[] target, int offset) {
+        for (int i = 7; i >= 0; i--) {
+            target[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+        return offset + 8;
+    }
+
+    public static long readLong(byte[] source, int offset) {
+        return (source[offset] & 0xFFL) << 56 | (source[offset + 1] & 0xFFL) << 48 | (source[offset + 2] & 0xFFL) << 40 | (source[offset + 3] & 0xFFL) << 32
+                | (source[offset + 4] & 0xFFL) << 24 | (source[offset + 5] & 0xFFL) << 16 | (source[offset + 6] & 0xFFL) << 8 | (source[offset + 7] & 0xFFL);
+    }
+
+    private static int digit(CharSequence hex, int index) {
+        int digit = hexDigit(hex.charAt(index));
+        if (digit < 0) {
+            throw new IllegalArgumentException("Invalid hex character '" + hex.charAt(index) + "' in: " + hex);
+        }
+        return digit;
+    }
+}
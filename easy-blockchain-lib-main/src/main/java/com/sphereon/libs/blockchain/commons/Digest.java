@@ -16,11 +16,19 @@
 
 package com.sphereon.libs.blockchain.commons;
 
+import com.sphereon.libs.blockchain.commons.digest.DigestProviders;
+import com.sphereon.libs.blockchain.commons.digest.MultiDigest;
+import com.sphereon.libs.blockchain.commons.digest.MultiDigestResult;
+import com.sphereon.libs.blockchain.commons.jfr.JfrEvents;
+import com.sphereon.libs.blockchain.commons.metrics.Metrics;
+import com.sphereon.libs.blockchain.commons.offheap.DigestLongMap;
+import com.sphereon.libs.blockchain.commons.offheap.DigestSet;
+
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 
 
 /**
@@ -89,29 +97,74 @@ public class Digest {
 
 
     public byte[] getHash(Algorithm algorithm, byte[] input) {
-        try {
-            return MessageDigest.getInstance(algorithm.getImplementation()).digest(input);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e.getMessage(), e);
+        boolean metrics = Metrics.isEnabled();
+        long start = metrics ? System.nanoTime() : 0;
+        Object event = JfrEvents.beginDigest();
+        byte[] hash = newMessageDigest(algorithm).digest(input);
+        JfrEvents.commitDigest(event, algorithm, input.length, JfrEvents.SOURCE_BYTES);
+        if (metrics) {
+            Metrics.instruments().digest(algorithm, System.nanoTime() - start, input.length);
         }
+        return hash;
+    }
+
+
+    /**
+     * Create a new message digest for incremental hashing, using the digest provider selected in {@link DigestProviders}.
+     * Message digests are not thread safe
+     *
+     * @param algorithm The hash algorithm
+     * @return a new message digest
+     */
+    public MessageDigest newMessageDigest(Algorithm algorithm) {
+        return DigestProviders.getInstance().getSelected(algorithm).newMessageDigest(algorithm);
     }
 
 
     public byte[] getHash(Algorithm algorithm, InputStream inputStream) {
         try {
+            boolean metrics = Metrics.isEnabled();
+            long start = metrics ? System.nanoTime() : 0;
+            Object event = JfrEvents.beginDigest();
+            long bytes = 0;
+            int read;
             byte[] buffer = new byte[BUFFER_SIZE_8K];
-            MessageDigest messageDigest = MessageDigest.getInstance(algorithm.getImplementation());
+            MessageDigest messageDigest = newMessageDigest(algorithm);
             try (DigestInputStream dis = new DigestInputStream(inputStream, messageDigest)) {
-                while (dis.read(buffer) != -1)
-                    ;
+                while ((read = dis.read(buffer)) != -1) {
+                    bytes += read;
+                }
+            }
+            byte[] hash = messageDigest.digest();
+            JfrEvents.commitDigest(event, algorithm, bytes, JfrEvents.SOURCE_STREAM);
+            if (metrics) {
+                Metrics.instruments().digest(algorithm, System.nanoTime() - start, bytes);
             }
-            return messageDigest.digest();
+            return hash;
         } catch (Exception e) {
             throw new RuntimeException(e.getMessage(), e);
         }
     }
 
 
+    /**
+     * Hash the stream with several algorithms while reading it once. The stream is closed afterwards
+     *
+     * @see MultiDigest for tree hashes and parallel hashing
+     */
+    public MultiDigestResult getHashes(InputStream inputStream, Algorithm... algorithms) {
+        return MultiDigest.newBuilder().algorithms(algorithms).build().digest(inputStream);
+    }
+
+
+    /**
+     * Hash the file with several algorithms while reading it once
+     */
+    public MultiDigestResult getHashes(Path file, Algorithm... algorithms) {
+        return MultiDigest.newBuilder().algorithms(algorithms).build().digest(file);
+    }
+
+
 
     public byte[] getHashAsHex(Algorithm algorithm, byte[] input) {
         return getHashAsString(algorithm, input, Encoding.HEX).getBytes();
@@ -133,6 +186,31 @@ public class Digest {
     }
 
 
+    /**
+     * Add the SHA-256 hash of the input to the off-heap set, for instance to keep track of known content hashes
+     *
+     * @return true when the hash was not in the set yet
+     */
+    public boolean getSHA256Hash(byte[] base, DigestSet target) {
+        return target.add(getHash(Algorithm.SHA_256, base));
+    }
+
+
+    public boolean getSHA256Hash(InputStream inputStream, DigestSet target) {
+        return target.add(getHash(Algorithm.SHA_256, inputStream));
+    }
+
+
+    /**
+     * Associate the SHA-256 hash of the input with the value in the off-heap map
+     *
+     * @return the previous value, or {@link DigestLongMap#NO_VALUE}
+     */
+    public long getSHA256Hash(byte[] base, DigestLongMap target, long value) {
+        return target.put(getHash(Algorithm.SHA_256, base), 0, value);
+    }
+
+
     public String getHashAsString(Algorithm algorithm, String input, Encoding encoding) {
         if (Utils.String.isEmpty(input)) {
             return "";
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.libs.blockchain.commons;
+
+/**
+ * Thrown when an entry does not fit the size limits of the entry format or the chain
+ */
+public class EntryValidationException extends RuntimeException {
+
+    public enum Reason {
+        EXTERNAL_IDS_TOO_LARGE, PAYLOAD_TOO_LARGE
+    }
+
+    private final Reason reason;
+    private final long size;
+    private final long limit;
+
+    public EntryValidationException(Reason reason, long size, long limit) {
+        super(message(reason, size, limit));
+        this.reason = reason;
+        this.size = size;
+        this.limit = limit;
+    }
+
+    private static String message(Reason reason, long size, long limit) {
+        if (reason == Reason.EXTERNAL_IDS_TOO_LARGE) {
+            return "External Ids take " + size + " bytes including their length prefixes, which exceeds the maximum of " + limit + " bytes";
+        }
+        return "Entry payload of " + size + " bytes exceeds the maximum of " + limit + " bytes";
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    /**
+     * @return the offending size in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the limit in bytes that was exceeded
+     */
+    public long getLimit() {
+        return limit;
+    }
+}
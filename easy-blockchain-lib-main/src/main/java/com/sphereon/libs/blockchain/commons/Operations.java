@@ -19,15 +19,27 @@ package com.sphereon.libs.blockchain.commons;
 import com.sphereon.libs.blockchain.api.HasContent;
 import com.sphereon.libs.blockchain.api.HasValue;
 import com.sphereon.libs.blockchain.api.model.Chain;
+import com.sphereon.libs.blockchain.api.model.ChainId;
 import com.sphereon.libs.blockchain.api.model.Entry;
+import com.sphereon.libs.blockchain.api.model.EntryId;
+import com.sphereon.libs.blockchain.api.model.ImmutableEntryData;
+import com.sphereon.libs.blockchain.api.model.ImmutableExternalId;
+import com.sphereon.libs.blockchain.commons.jfr.JfrEvents;
+import com.sphereon.libs.blockchain.commons.metrics.Metrics;
+import com.sphereon.libs.blockchain.commons.offheap.DigestLongMap;
+import com.sphereon.libs.blockchain.commons.offheap.DigestSet;
 
-import javax.xml.bind.DatatypeConverter;
 import java.lang.reflect.Array;
 import java.nio.ByteBuffer;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 
 /**
@@ -35,9 +47,29 @@ import java.util.List;
  */
 public class Operations {
 
+    /**
+     * Maximum size of the payload (external Ids including their length prefixes and content) of an entry
+     */
+    public static final int MAX_PAYLOAD_SIZE = 10240;
+    /**
+     * Maximum total size of the external Ids including their length prefixes, as it has to fit the 2 byte length field
+     */
+    public static final int MAX_EXTERNAL_IDS_LENGTH = Short.MAX_VALUE;
+    public static final int PAYMENT_UNIT_SIZE = 1024;
+    public static final int CHAIN_CREATION_PAYMENT_UNITS = 10;
+
+    public static final int DEFAULT_CHAIN_ID_CACHE_SIZE = 1024;
+
+    private static final int VERSION_SIZE = 1;
+    private static final int CHAIN_ID_SIZE = ChainId.LENGTH;
+
     private static volatile Operations instance;
     private static Digest digest = Digest.getInstance();
 
+    // Parsed chain Ids by their hex form, so the hex form does not have to be parsed for every entry
+    private final ConcurrentMap<String, ChainId> chainIdCache = new ConcurrentHashMap<>();
+    private volatile int chainIdCacheSize = DEFAULT_CHAIN_ID_CACHE_SIZE;
+
     public static Operations getInstance() {
         /*
         We use double checked locking and a non final instance, since we do not know beforehand whether we operate
@@ -110,7 +142,7 @@ public class Operations {
      * @return
      */
     public Result<byte[]> fromHex(String hex) {
-        return new Result(DatatypeConverter.parseHexBinary(hex));
+        return new Result<>(Bytes.fromHex(hex));
     }
 
     /**
@@ -120,7 +152,7 @@ public class Operations {
      * @return
      */
     public String toHex(byte[] input) {
-        return DatatypeConverter.printHexBinary(input).toLowerCase();
+        return Bytes.toHex(input);
     }
 
 
@@ -149,9 +181,9 @@ public class Operations {
         if (value == null) {
             throw new RuntimeException("Null bytearray short value not allowed");
         }
-        ByteBuffer buffer = ByteBuffer.allocate(2);
-        buffer.putShort(value);
-        return new Result<>(buffer.array());
+        byte[] bytes = new byte[2];
+        Bytes.writeShort(value, bytes, 0);
+        return new Result<>(bytes);
     }
 
     /**
@@ -185,13 +217,19 @@ public class Operations {
      * @return
      */
     public Result<byte[]> calculateChainIdBase(Collection<? extends HasValue<byte[]>> externalIds) {
+        boolean metrics = Metrics.isEnabled();
+        long start = metrics ? System.nanoTime() : 0;
         List<byte[]> byteList = new ArrayList<>();
         if (!isEmpty(externalIds)) {
             for (HasValue<byte[]> externalId : externalIds) {
                 byteList.add(externalId.getValue());
             }
         }
-        return calculateChainIdBaseFromBytes(byteList);
+        Result<byte[]> result = calculateChainIdBaseFromBytes(byteList);
+        if (metrics) {
+            Metrics.instruments().chainIdBase(System.nanoTime() - start);
+        }
+        return result;
     }
 
     /**
@@ -235,7 +273,7 @@ public class Operations {
      * @see #calculateChainIdBase(Collection) for the byte calculations
      */
     public String generateChainId(Collection<? extends HasValue<byte[]>> externalIds) {
-        return calculateChainIdBase(externalIds).stringHash(Digest.Algorithm.SHA_256, Digest.Encoding.HEX);
+        return calculateChainId(externalIds).toHex();
     }
 
     /**
@@ -256,6 +294,94 @@ public class Operations {
         return generateChainId(chain.getFirstEntry().getEntryData().getExternalIds());
     }
 
+    /**
+     * A chain ID is generated from the external Ids of the chain only using SHA-256 hashing!
+     * This is the chainId in raw form. The external Id hashes are streamed into the chain Id hash, so the chain Id base is
+     * never materialized
+     *
+     * @param externalIds A collection of externalId/Metadata values in byte form
+     * @return
+     * @see #generateChainId(Collection) for the hex form
+     */
+    public ChainId calculateChainId(Collection<? extends HasValue<byte[]>> externalIds) {
+        boolean metrics = Metrics.isEnabled();
+        long start = metrics ? System.nanoTime() : 0;
+        MessageDigest chainIdDigest = digest.newMessageDigest(Digest.Algorithm.SHA_256);
+        if (!isEmpty(externalIds)) {
+            MessageDigest externalIdDigest = digest.newMessageDigest(Digest.Algorithm.SHA_256);
+            for (HasValue<byte[]> externalId : externalIds) {
+                chainIdDigest.update(externalIdDigest.digest(externalId.getValue()));
+            }
+        }
+        ChainId chainId = ChainId.fromBytes(chainIdDigest.digest());
+        if (metrics) {
+            Metrics.instruments().chainId(System.nanoTime() - start);
+        }
+        return chainId;
+    }
+
+    /**
+     * @param chain
+     * @return
+     * @see #calculateChainId(Collection)
+     */
+    public ChainId calculateChainId(Chain chain) {
+        return calculateChainId(chain.getFirstEntry().getEntryData().getExternalIds());
+    }
+
+    /**
+     * Parse a chain Id in hex form. Recently parsed chain Ids are cached. Unlike the hex based entry methods, which
+     * still accept chain Ids of any size, this needs exactly 64 hex characters
+     *
+     * @param chainIdHex
+     * @throws IllegalArgumentException when the input is not a 32 byte chain Id in hex form
+     * @return
+     */
+    public ChainId parseChainId(String chainIdHex) {
+        int cacheSize = chainIdCacheSize;
+        if (cacheSize <= 0) {
+            return ChainId.fromHex(chainIdHex);
+        }
+        ChainId chainId = chainIdCache.get(chainIdHex);
+        if (Metrics.isEnabled()) {
+            Metrics.instruments().chainIdCache(chainId != null);
+        }
+        if (chainId == null) {
+            chainId = ChainId.fromHex(chainIdHex);
+            if (chainIdCache.size() >= cacheSize) {
+                // Approximate eviction. Good enough for the small set of chains typically in use
+                Iterator<String> keys = chainIdCache.keySet().iterator();
+                if (keys.hasNext()) {
+                    keys.next();
+                    keys.remove();
+                }
+            }
+            chainIdCache.put(chainIdHex, chainId);
+        }
+        return chainId;
+    }
+
+    public int getChainIdCacheSize() {
+        return chainIdCacheSize;
+    }
+
+    /**
+     * @return the number of parsed chain Ids currently cached
+     */
+    public int getChainIdCacheCount() {
+        return chainIdCache.size();
+    }
+
+    /**
+     * @param chainIdCacheSize The maximum number of parsed chain Ids to keep. Use 0 to disable the cache
+     */
+    public void setChainIdCacheSize(int chainIdCacheSize) {
+        this.chainIdCacheSize = chainIdCacheSize;
+        if (chainIdCacheSize <= 0) {
+            chainIdCache.clear();
+        }
+    }
+
 
     /**
      * The first entryId of a chain is calculated from the external Ids and the content of the entry!
@@ -266,7 +392,7 @@ public class Operations {
      * @return
      */
     public String generateFirstEntryId(HasContent<byte[]> entryData, Collection<? extends HasValue<byte[]>> externalIds) {
-        return calculateEntryIdBase(null, entryData, externalIds).stringHash(Digest.Algorithm.SHA_256, Digest.Encoding.HEX);
+        return calculateEntryId(null, entryData, externalIds).toHex();
     }
 
     /**
@@ -300,7 +426,19 @@ public class Operations {
      * @return
      */
     public String generateEntryID(String chainIdHex, HasContent<byte[]> entryData, Collection<? extends HasValue<byte[]>> externalIds) {
-        return calculateEntryIdBase(chainIdHex, entryData, externalIds).stringHash(Digest.Algorithm.SHA_256, Digest.Encoding.HEX);
+        boolean metrics = Metrics.isEnabled();
+        long start = metrics ? System.nanoTime() : 0;
+        Object event = JfrEvents.beginEntryId();
+        // Only looked up while recording, parseChainId does its own lookup
+        boolean cached = event != null && chainIdHex != null && chainIdCache.containsKey(chainIdHex);
+        String entryId = calculateEntryId(entryBytes(chainIdHex, entryData, externalIds)).toHex();
+        if (event != null) {
+            JfrEvents.commitEntryId(event, externalIds == null ? 0 : externalIds.size(), contentLength(entryData), cached);
+        }
+        if (metrics) {
+            Metrics.instruments().entryId(System.nanoTime() - start);
+        }
+        return entryId;
     }
 
     /**
@@ -324,6 +462,70 @@ public class Operations {
         return generateEntryID(chainIdHex, entry.getEntryData(), entry.getEntryData().getExternalIds());
     }
 
+    /**
+     * An entryId is calculated from the chain Id, the external Ids and the content of the entry!
+     * If the chainId is null it will be calculated as if it is the first entry in a chain
+     * This is the entryId in raw form. No hex parsing or encoding is involved
+     *
+     * @param chainId
+     * @param entryData
+     * @param externalIds
+     * @return
+     * @see #generateEntryID(String, HasContent, Collection) for the hex form
+     */
+    public EntryId calculateEntryId(ChainId chainId, HasContent<byte[]> entryData, Collection<? extends HasValue<byte[]>> externalIds) {
+        return calculateEntryId(entryBytes(chainId, entryData, externalIds));
+    }
+
+    /**
+     * Calculate the entryId from an already serialized entry, so callers which need the entry bytes as well only
+     * serialize once
+     *
+     * @param entryBytes The entry as serialized by {@link #entryToBytes(String, HasContent, Collection)}
+     * @return
+     */
+    public EntryId calculateEntryId(byte[] entryBytes) {
+        return EntryId.fromBytes(entryIdBytes(entryBytes));
+    }
+
+    /**
+     * Calculate the entryId and add it to the off-heap set, without creating an {@link EntryId}
+     *
+     * @return true when the entryId was not in the set yet
+     * @see #calculateEntryId(ChainId, HasContent, Collection)
+     */
+    public boolean calculateEntryId(ChainId chainId, HasContent<byte[]> entryData, Collection<? extends HasValue<byte[]>> externalIds, DigestSet target) {
+        return target.add(entryIdBytes(entryBytes(chainId, entryData, externalIds)));
+    }
+
+    /**
+     * Calculate the entryId and associate it with the value in the off-heap map, without creating an {@link EntryId}
+     *
+     * @return the previous value, or {@link DigestLongMap#NO_VALUE}
+     * @see #calculateEntryId(ChainId, HasContent, Collection)
+     */
+    public long calculateEntryId(ChainId chainId, HasContent<byte[]> entryData, Collection<? extends HasValue<byte[]>> externalIds, DigestLongMap target, long value) {
+        return target.put(entryIdBytes(entryBytes(chainId, entryData, externalIds)), 0, value);
+    }
+
+    private byte[] entryIdBytes(byte[] entryBytes) {
+        // SHA-256 over the SHA-512 hash of the entry bytes followed by the entry bytes
+        MessageDigest entryIdDigest = digest.newMessageDigest(Digest.Algorithm.SHA_256);
+        entryIdDigest.update(digest.getSHA512Hash(entryBytes));
+        entryIdDigest.update(entryBytes);
+        return entryIdDigest.digest();
+    }
+
+    /**
+     * @param chainId
+     * @param entry
+     * @return
+     * @see #calculateEntryId(ChainId, HasContent, Collection)
+     */
+    public EntryId calculateEntryId(ChainId chainId, Entry entry) {
+        return calculateEntryId(chainId, entry.getEntryData(), entry.getEntryData().getExternalIds());
+    }
+
 
     /**
      * An entryId base is calculated from the chain Id in hex form, the external Ids and the content of the entry!
@@ -390,22 +592,70 @@ public class Operations {
 
 
     public Result<byte[]> entryToBytes(String chainIdHex, HasContent<byte[]> entryData, Collection<? extends HasValue<byte[]>> externalIds) {
-        byte[] chainID;
-        if (Utils.String.isNotEmpty(chainIdHex)) {
-            chainID = fromHex(chainIdHex).original();
-        } else {
-            chainID = calculateChainIdBase(externalIds).byteHash(Digest.Algorithm.SHA_256);
+        return new Result<>(entryBytes(chainIdHex, entryData, externalIds));
+    }
+
+    /**
+     * Serialize an entry using a raw chain Id. If the chainId is null it will be calculated as if it is the first entry in
+     * a chain
+     *
+     * @param chainId
+     * @param entryData
+     * @param externalIds
+     * @return
+     * @see #entryToBytes(String, HasContent, Collection)
+     */
+    public Result<byte[]> chainEntryToBytes(ChainId chainId, HasContent<byte[]> entryData, Collection<? extends HasValue<byte[]>> externalIds) {
+        return new Result<>(entryBytes(chainId, entryData, externalIds));
+    }
+
+    /**
+     * Serialize an entry using a chain Id in hex form. Hex chain Ids of another size than 32 bytes are not parsed into a
+     * {@link ChainId}, but serialized as decoded, like the hex based methods always did
+     */
+    private byte[] entryBytes(String chainIdHex, HasContent<byte[]> entryData, Collection<? extends HasValue<byte[]>> externalIds) {
+        if (Utils.String.isEmpty(chainIdHex)) {
+            return entryBytes((ChainId) null, entryData, externalIds);
+        } else if (chainIdHex.length() == ChainId.HEX_LENGTH) {
+            return entryBytes(parseChainId(chainIdHex), entryData, externalIds);
         }
-        byte[] externalIdBytes = externalIdsToBytes(externalIds).original();
-        byte[] bytes = new byte[0];
+        return entryBytes(null, fromHex(chainIdHex).original(), entryData, externalIds);
+    }
+
+    private byte[] entryBytes(ChainId chainId, HasContent<byte[]> entryData, Collection<? extends HasValue<byte[]>> externalIds) {
+        return entryBytes(chainId == null ? calculateChainId(externalIds) : chainId, null, entryData, externalIds);
+    }
+
+    /**
+     * @param chainId      The chain Id, or null when the chain Id bytes are given instead
+     * @param chainIdBytes The chain Id bytes of any size, only used when the chain Id is null
+     */
+    private byte[] entryBytes(ChainId chainId, byte[] chainIdBytes, HasContent<byte[]> entryData, Collection<? extends HasValue<byte[]>> externalIds) {
+        int chainIdSize = chainId == null ? chainIdBytes.length : CHAIN_ID_SIZE;
+        boolean metrics = Metrics.isEnabled();
+        long start = metrics ? System.nanoTime() : 0;
+        Object event = JfrEvents.beginEntrySerialize();
+        byte[] content = entryData == null ? null : entryData.getContent();
+        int externalIdsSize = externalIdsSize(externalIds);
+        byte[] bytes = new byte[VERSION_SIZE + chainIdSize + externalIdsSize + (content == null ? 0 : content.length)];
         //version
-        bytes = concat(bytes, (byte) 0).original();
-        bytes = concat(bytes, chainID).original();
-        bytes = concat(bytes, externalIdBytes).original();
-        if (entryData != null && entryData.getContent() != null) {
-            bytes = concat(bytes, entryData.getContent()).original();
+        bytes[0] = (byte) 0;
+        if (chainId == null) {
+            System.arraycopy(chainIdBytes, 0, bytes, VERSION_SIZE, chainIdSize);
+        } else {
+            chainId.writeTo(bytes, VERSION_SIZE);
         }
-        return new Result<>(bytes);
+        int offset = writeExternalIds(externalIds, externalIdsSize, bytes, VERSION_SIZE + chainIdSize);
+        if (content != null) {
+            System.arraycopy(content, 0, bytes, offset, content.length);
+        }
+        if (event != null) {
+            JfrEvents.commitEntrySerialize(event, externalIds == null ? 0 : externalIds.size(), content == null ? 0 : content.length, bytes.length);
+        }
+        if (metrics) {
+            Metrics.instruments().entrySerialized(System.nanoTime() - start, bytes.length);
+        }
+        return bytes;
     }
 
     protected Result<byte[]> chainToBytes(HasContent<byte[]> firstEntryData, Collection<? extends HasValue<byte[]>> externalIds) {
@@ -415,26 +665,212 @@ public class Operations {
     }
 
     protected Result<byte[]> externalIdsToBytes(Collection<? extends HasValue<byte[]>> externalIds) {
+        int externalIdsSize = externalIdsSize(externalIds);
+        byte[] bytes = new byte[externalIdsSize];
+        writeExternalIds(externalIds, externalIdsSize, bytes, 0);
+        return new Result<>(bytes);
+    }
+
+    /**
+     * Write the external Ids section into the target array
+     *
+     * @return the offset directly after the written section
+     */
+    private static int writeExternalIds(Collection<? extends HasValue<byte[]>> externalIds, int externalIdsSize, byte[] target, int offset) {
         if (externalIds == null || externalIds.isEmpty()) {
-            return new Result(new byte[]{(byte) 0});
+            target[offset] = (byte) 0;
+            return offset + 1;
         }
-        byte[] bytes = new byte[0];
-        short externalIdLength = 0;
+        // The size includes the 2 bytes of the total length itself
+        offset = Bytes.writeShort(externalIdsSize - 2, target, offset);
         for (HasValue<byte[]> externalId : externalIds) {
-            if (externalId.getValue() == null) {
-                throw new NullPointerException("External Id needs a value");
+            byte[] value = externalId.getValue();
+            offset = Bytes.writeShort(value.length, target, offset);
+            System.arraycopy(value, 0, target, offset, value.length);
+            offset += value.length;
+        }
+        return offset;
+    }
+
+
+    /**
+     * Calculate the exact size of the external Ids section as written by {@link #entryToBytes(String, HasContent, Collection)}
+     *
+     * @param externalIds The external Ids
+     * @return the size in bytes
+     * @throws EntryValidationException when the external Ids do not fit the 2 byte length field of the entry format
+     */
+    public int externalIdsSize(Collection<? extends HasValue<byte[]>> externalIds) {
+        if (externalIds == null || externalIds.isEmpty()) {
+            return 1;
+        }
+        long valuesLength = 0;
+        if (externalIds instanceof List && externalIds instanceof RandomAccess) {
+            List<? extends HasValue<byte[]>> list = (List<? extends HasValue<byte[]>>) externalIds;
+            for (int i = 0; i < list.size(); i++) {
+                valuesLength += externalIdLength(list.get(i));
+            }
+        } else {
+            for (HasValue<byte[]> externalId : externalIds) {
+                valuesLength += externalIdLength(externalId);
             }
-            // We need to add 2 to store the next section's externalID length value
-            externalIdLength += (externalId.getValue().length + 2);
         }
-        bytes = concat(bytes, toByteArray(externalIdLength).original()).original();
+        return externalIdsSize(externalIds.size(), valuesLength);
+    }
 
-        for (HasValue<byte[]> externalId : externalIds) {
-            bytes = concat(bytes, toByteArray(externalId.getValue().length).original()).original();
-            bytes = concat(bytes, externalId.getValue()).original();
+    private static int externalIdLength(HasValue<byte[]> externalId) {
+        if (externalId instanceof ImmutableExternalId) {
+            // Avoid the defensive copy
+            return ((ImmutableExternalId) externalId).length();
+        }
+        byte[] value = externalId.getValue();
+        if (value == null) {
+            throw new NullPointerException("External Id needs a value");
         }
+        return value.length;
+    }
 
-        return new Result<>(bytes);
+    private static int externalIdsSize(int externalIdCount, long externalIdValuesLength) {
+        if (externalIdCount == 0) {
+            return 1;
+        }
+        // Every external Id is prefixed with its 2 byte length
+        long length = externalIdValuesLength + 2L * externalIdCount;
+        if (length > MAX_EXTERNAL_IDS_LENGTH) {
+            throw new EntryValidationException(EntryValidationException.Reason.EXTERNAL_IDS_TOO_LARGE, length, MAX_EXTERNAL_IDS_LENGTH);
+        }
+        return (int) length + 2;
+    }
+
+    /**
+     * Calculate the exact size of the entry bytes as returned by {@link #entryToBytes(String, HasContent, Collection)},
+     * without serializing the entry
+     *
+     * @param entryData   The entry data (content)
+     * @param externalIds The external Ids
+     * @return the size in bytes
+     * @throws EntryValidationException when the external Ids are too large for the entry format
+     */
+    public int entrySize(HasContent<byte[]> entryData, Collection<? extends HasValue<byte[]>> externalIds) {
+        return VERSION_SIZE + CHAIN_ID_SIZE + externalIdsSize(externalIds) + contentLength(entryData);
+    }
+
+    private static int contentLength(HasContent<byte[]> entryData) {
+        if (entryData instanceof ImmutableEntryData) {
+            // Avoid the defensive copy
+            return ((ImmutableEntryData) entryData).contentLength();
+        }
+        byte[] content = entryData == null ? null : entryData.getContent();
+        return content == null ? 0 : content.length;
+    }
+
+    /**
+     * @param entry
+     * @return
+     * @see #entrySize(HasContent, Collection)
+     */
+    public int entrySize(Entry entry) {
+        return entrySize(entry.getEntryData(), entry.getEntryData().getExternalIds());
+    }
+
+    /**
+     * Calculate the exact size of the entry bytes from lengths only
+     *
+     * @param contentLength          The length of the content
+     * @param externalIdCount        The number of external Ids
+     * @param externalIdValuesLength The sum of the lengths of all external Id values
+     * @return the size in bytes
+     * @throws EntryValidationException when the external Ids are too large for the entry format
+     * @see #entrySize(HasContent, Collection)
+     */
+    public int entrySize(int contentLength, int externalIdCount, int externalIdValuesLength) {
+        return VERSION_SIZE + CHAIN_ID_SIZE + externalIdsSize(externalIdCount, externalIdValuesLength) + contentLength;
+    }
+
+    /**
+     * The payload of an entry are the external Ids including their length prefixes and the content. The payload determines
+     * the cost of an entry and has a maximum size
+     *
+     * @param entryData   The entry data (content)
+     * @param externalIds The external Ids
+     * @return the payload size in bytes
+     * @throws EntryValidationException when the external Ids are too large for the entry format
+     */
+    public int payloadSize(HasContent<byte[]> entryData, Collection<? extends HasValue<byte[]>> externalIds) {
+        int externalIdsSize = externalIdsSize(externalIds);
+        // The external Ids section of an entry without external Ids does not contain payload
+        return (externalIdsSize > 2 ? externalIdsSize - 2 : 0) + contentLength(entryData);
+    }
+
+    /**
+     * @param contentLength          The length of the content
+     * @param externalIdCount        The number of external Ids
+     * @param externalIdValuesLength The sum of the lengths of all external Id values
+     * @return the payload size in bytes
+     * @see #payloadSize(HasContent, Collection)
+     */
+    public int payloadSize(int contentLength, int externalIdCount, int externalIdValuesLength) {
+        int externalIdsSize = externalIdsSize(externalIdCount, externalIdValuesLength);
+        return (externalIdsSize > 2 ? externalIdsSize - 2 : 0) + contentLength;
+    }
+
+    /**
+     * Calculate the number of payment units (entry credits) needed to store an entry. Every started kilobyte of payload
+     * costs one unit, with a minimum of one unit
+     *
+     * @param payloadSize The payload size
+     * @return the number of payment units
+     * @see #payloadSize(HasContent, Collection)
+     */
+    public int paymentUnits(int payloadSize) {
+        return Math.max(1, (payloadSize + PAYMENT_UNIT_SIZE - 1) / PAYMENT_UNIT_SIZE);
+    }
+
+    /**
+     * @see #paymentUnits(int)
+     */
+    public int paymentUnits(HasContent<byte[]> entryData, Collection<? extends HasValue<byte[]>> externalIds) {
+        return paymentUnits(payloadSize(entryData, externalIds));
+    }
+
+    /**
+     * Chain creation costs a fixed amount of payment units on top of the units of the first entry
+     *
+     * @see #paymentUnits(int)
+     */
+    public int chainPaymentUnits(HasContent<byte[]> firstEntryData, Collection<? extends HasValue<byte[]>> externalIds) {
+        return CHAIN_CREATION_PAYMENT_UNITS + paymentUnits(firstEntryData, externalIds);
+    }
+
+    /**
+     * Validate that an entry fits the limits of the entry format and the chain
+     *
+     * @param entryData   The entry data (content)
+     * @param externalIds The external Ids
+     * @return the payload size in bytes
+     * @throws EntryValidationException when the entry does not fit
+     */
+    public int validateEntry(HasContent<byte[]> entryData, Collection<? extends HasValue<byte[]>> externalIds) {
+        return validatePayloadSize(payloadSize(entryData, externalIds));
+    }
+
+    /**
+     * @see #validateEntry(HasContent, Collection)
+     */
+    public int validateEntry(Entry entry) {
+        return validateEntry(entry.getEntryData(), entry.getEntryData().getExternalIds());
+    }
+
+    /**
+     * @param payloadSize The payload size, for instance calculated using {@link #payloadSize(int, int, int)}
+     * @return the payload size in bytes
+     * @throws EntryValidationException when the payload exceeds the maximum
+     */
+    public int validatePayloadSize(int payloadSize) {
+        if (payloadSize > MAX_PAYLOAD_SIZE) {
+            throw new EntryValidationException(EntryValidationException.Reason.PAYLOAD_TOO_LARGE, payloadSize, MAX_PAYLOAD_SIZE);
+        }
+        return payloadSize;
     }
 
     public Result<byte[]> currentTimeMillis() {
@@ -47,7 +47,6 @@ public class Utils {
      * Borrowed from commons codec
      */
     public static class Hex {
-        private static final char[] DIGITS_LOWER = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
 
         /**
          * Converts an array of bytes into an array of characters representing the hexadecimal values of each byte in order.
@@ -58,15 +57,7 @@ public class Utils {
          * @return A char[] containing hexadecimal characters
          */
         protected static char[] encode(final byte[] data) {
-
-            final int l = data.length;
-            final char[] out = new char[l << 1];
-            // two characters form the hex value.
-            for (int i = 0, j = 0; i < l; i++) {
-                out[j++] = DIGITS_LOWER[(0xF0 & data[i]) >>> 4];
-                out[j++] = DIGITS_LOWER[0x0F & data[i]];
-            }
-            return out;
+            return Bytes.toHex(data).toCharArray();
         }
 
         /**
@@ -78,7 +69,7 @@ public class Utils {
          * @since 1.4
          */
         public static java.lang.String encodeAsString(final byte[] data) {
-            return new java.lang.String(encode(data));
+            return Bytes.toHex(data);
         }
 
     }
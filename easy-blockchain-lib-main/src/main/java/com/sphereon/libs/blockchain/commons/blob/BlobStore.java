@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.blob;
+
+import com.sphereon.libs.blockchain.commons.Bytes;
+import com.sphereon.libs.blockchain.commons.Digest;
+import com.sphereon.libs.blockchain.commons.RegistrationType;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Content addressed store keeping a copy of documents under their SHA-256 hash, the value of
+ * {@link RegistrationType.Defaults#HASH} external Ids.
+ * <p>
+ * Content is hashed while it is written to a temporary file, which is then moved to its final location atomically.
+ * Files are sharded into directories by the first characters of the hex hash, so directories stay small. Identical
+ * content is stored once. Concurrent writers of the same content both succeed, since either move results in the same
+ * file, and readers never see partially written blobs.
+ * <p>
+ * Reads can go through streams, through read only memory mapped buffers, or through {@link FileChannel#transferTo} to
+ * copy a blob to a socket or file without passing it through the heap.
+ */
+public class BlobStore {
+    private static final Logger logger = Logger.getLogger(BlobStore.class.getName());
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int HASH_LENGTH = 32;
+    private static final String TMP_DIRECTORY = "tmp";
+
+    private final Path root;
+    private final Path tmp;
+    private final int shardLevels;
+    private final int shardWidth;
+    private final boolean sync;
+    private final Digest digest = Digest.getInstance();
+
+
+    private BlobStore(Builder builder) {
+        this.root = builder.root;
+        this.tmp = builder.root.resolve(TMP_DIRECTORY);
+        this.shardLevels = builder.shardLevels;
+        this.shardWidth = builder.shardWidth;
+        this.sync = builder.sync;
+        try {
+            Files.createDirectories(tmp);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * @param root The directory of the store
+     */
+    public static Builder newBuilder(Path root) {
+        return new Builder(root);
+    }
+
+
+    public Path getRoot() {
+        return root;
+    }
+
+
+    public StoredBlob put(byte[] content) {
+        return put(new ByteArrayInputStream(content), null);
+    }
+
+    public StoredBlob put(Path file) {
+        try (InputStream input = Files.newInputStream(file)) {
+            return put(input, null);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    public StoredBlob put(InputStream input) {
+        return put(input, null);
+    }
+
+    /**
+     * Store the content read from the stream. The stream is read until its end, but not closed
+     *
+     * @param input        The content
+     * @param expectedHash The SHA-256 hash the content should have, for instance from a Hash registration, or null
+     * @return the stored blob
+     * @throws IllegalArgumentException when the content does not have the expected hash. Nothing is stored in that case
+     */
+    public StoredBlob put(InputStream input, byte[] expectedHash) {
+        if (expectedHash != null) {
+            checkHash(expectedHash);
+            if (Files.exists(path(expectedHash))) {
+                // The content still needs to be read to verify it, but does not need to be written
+                byte[] hash = digest.getHash(Digest.Algorithm.SHA_256, new NonClosingInputStream(input));
+                if (!MessageDigest.isEqual(hash, expectedHash)) {
+                    throw new IllegalArgumentException("Content hash " + Bytes.toHex(hash) + " does not match expected hash " + Bytes.toHex(expectedHash));
+                }
+                return new StoredBlob(hash, size(hash), true);
+            }
+        }
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(tmp, "blob", ".tmp");
+            MessageDigest sha256 = digest.newMessageDigest(Digest.Algorithm.SHA_256);
+            long size = 0;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    sha256.update(buffer, 0, read);
+                    wrapped.clear().limit(read);
+                    while (wrapped.hasRemaining()) {
+                        channel.write(wrapped);
+                    }
+                    size += read;
+                }
+                if (sync) {
+                    channel.force(true);
+                }
+            }
+            byte[] hash = sha256.digest();
+            if (expectedHash != null && !MessageDigest.isEqual(hash, expectedHash)) {
+                throw new IllegalArgumentException("Content hash " + Bytes.toHex(hash) + " does not match expected hash " + Bytes.toHex(expectedHash));
+            }
+            Path target = path(hash);
+            if (Files.exists(target)) {
+                return new StoredBlob(hash, size, true);
+            }
+            Files.createDirectories(target.getParent());
+            try {
+                // Another writer of the same content might win the race, the resulting file is the same either way
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                return new StoredBlob(hash, size, true);
+            }
+            temp = null;
+            return new StoredBlob(hash, size, false);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Could not delete temporary blob " + temp, e);
+                }
+            }
+        }
+    }
+
+
+    public boolean contains(byte[] hash) {
+        return Files.exists(path(hash));
+    }
+
+    /**
+     * @return the size of the blob
+     * @throws IllegalArgumentException when the store does not hold the blob
+     */
+    public long size(byte[] hash) {
+        try {
+            return Files.size(path(hash));
+        } catch (NoSuchFileException e) {
+            throw notFound(hash);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the file of the blob, which exists when the store holds the blob. The file should not be changed
+     */
+    public Path path(byte[] hash) {
+        String hex = Bytes.toHex(checkHash(hash));
+        Path path = root;
+        for (int level = 0; level < shardLevels; level++) {
+            path = path.resolve(hex.substring(level * shardWidth, (level + 1) * shardWidth));
+        }
+        return path.resolve(hex);
+    }
+
+
+    /**
+     * @return a stream over the blob, which needs to be closed by the caller
+     */
+    public InputStream open(byte[] hash) {
+        try {
+            return Files.newInputStream(path(hash));
+        } catch (NoSuchFileException e) {
+            throw notFound(hash);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Map the blob into memory. The mapping stays valid after the blob is deleted, until it is garbage collected
+     *
+     * @return a read only buffer over the blob
+     */
+    public MappedByteBuffer map(byte[] hash) {
+        try (FileChannel channel = FileChannel.open(path(hash), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            throw notFound(hash);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Copy the blob to the target channel. For file and socket channels the operating system copies the data directly
+     *
+     * @return the number of bytes transferred
+     */
+    public long transferTo(byte[] hash, WritableByteChannel target) {
+        try (FileChannel channel = FileChannel.open(path(hash), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+            return size;
+        } catch (NoSuchFileException e) {
+            throw notFound(hash);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * Hash the stored blob again, for instance to detect corruption on disk
+     *
+     * @return whether the content still matches its hash
+     */
+    public boolean verify(byte[] hash) {
+        try (InputStream input = open(hash)) {
+            return MessageDigest.isEqual(hash, digest.getHash(Digest.Algorithm.SHA_256, input));
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * @return true when the blob was deleted, false when the store did not hold it
+     */
+    public boolean delete(byte[] hash) {
+        try {
+            return Files.deleteIfExists(path(hash));
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+
+    private static byte[] checkHash(byte[] hash) {
+        if (hash == null || hash.length != HASH_LENGTH) {
+            throw new IllegalArgumentException("A blob hash needs " + HASH_LENGTH + " bytes");
+        }
+        return hash;
+    }
+
+    private static IllegalArgumentException notFound(byte[] hash) {
+        return new IllegalArgumentException("Blob " + Bytes.toHex(hash) + " not found");
+    }
+
+
+    /**
+     * Digest closes the streams it hashes, while the caller owns the stream passed to put
+     */
+    private static final class NonClosingInputStream extends FilterInputStream {
+        private NonClosingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+
+    public static class Builder {
+        private final Path root;
+        private int shardLevels = 2;
+        private int shardWidth = 2;
+        private boolean sync = true;
+
+        private Builder(Path root) {
+            if (root == null) {
+                throw new IllegalArgumentException("A blob store needs a root directory");
+            }
+            this.root = root;
+        }
+
+        /**
+         * @param shardLevels The number of directory levels between the root and the blobs. Defaults to 2
+         */
+        public Builder shardLevels(int shardLevels) {
+            if (shardLevels < 0 || shardLevels > 4) {
+                throw new IllegalArgumentException("Shard levels need to be between 0 and 4 instead of: " + shardLevels);
+            }
+            this.shardLevels = shardLevels;
+            return this;
+        }
+
+        /**
+         * @param shardWidth The number of hex characters of the hash per directory level. Defaults to 2, so 256
+         *                   directories per level
+         */
+        public Builder shardWidth(int shardWidth) {
+            if (shardWidth < 1 || shardWidth > 4) {
+                throw new IllegalArgumentException("Shard width needs to be between 1 and 4 instead of: " + shardWidth);
+            }
+            this.shardWidth = shardWidth;
+            return this;
+        }
+
+        /**
+         * @param sync Whether blobs are forced to disk before they become visible. Defaults to true
+         */
+        public Builder sync(boolean sync) {
+            this.sync = sync;
+            return this;
+        }
+
+        public BlobStore build() {
+            return new BlobStore(this);
+        }
+    }
+}
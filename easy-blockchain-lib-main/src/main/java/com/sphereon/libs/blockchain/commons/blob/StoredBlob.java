@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.blob;
+
+import com.sphereon.libs.blockchain.commons.Bytes;
+
+/**
+ * The result of storing a blob in a {@link BlobStore}
+ */
+public final class StoredBlob {
+    private final byte[] hash;
+    private final long size;
+    private final boolean duplicate;
+
+
+    StoredBlob(byte[] hash, long size, boolean duplicate) {
+        this.hash = hash;
+        this.size = size;
+        this.duplicate = duplicate;
+    }
+
+
+    /**
+     * @return the SHA-256 hash of the content, which is the key of the blob
+     */
+    public byte[] getHash() {
+        return hash.clone();
+    }
+
+    public String getHashHex() {
+        return Bytes.toHex(hash);
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return true when the store already held the content, in which case nothing was written
+     */
+    public boolean isDuplicate() {
+        return duplicate;
+    }
+
+    @Override
+    public String toString() {
+        return getHashHex();
+    }
+}
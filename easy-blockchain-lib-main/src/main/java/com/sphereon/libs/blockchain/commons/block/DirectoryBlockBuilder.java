@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.block;
+
+import com.sphereon.libs.blockchain.api.model.ChainId;
+import com.sphereon.libs.blockchain.commons.merkle.MerkleHash;
+import com.sphereon.libs.blockchain.commons.merkle.MerkleRootAccumulator;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+
+/**
+ * Calculates the body and key Merkle roots of a directory block from a stream of (chain Id, key Merkle root) pairs.
+ * <p>
+ * The body lists the admin, entry credit and factoid blocks first, followed by the entry blocks. Each pair is hashed
+ * with SHA-256 into a leaf of the body Merkle tree. The key Merkle root is the SHA-256 hash of the header hash followed
+ * by the body Merkle root.
+ * <p>
+ * The body is not kept, so blocks of any size take constant memory. Builders are not thread safe, but can be
+ * {@link #reset() reset} and reused, including their digests.
+ */
+public final class DirectoryBlockBuilder {
+    public static final ChainId ADMIN_BLOCK_CHAIN_ID = ChainId.fromHex("000000000000000000000000000000000000000000000000000000000000000a");
+    public static final ChainId ENTRY_CREDIT_BLOCK_CHAIN_ID = ChainId.fromHex("000000000000000000000000000000000000000000000000000000000000000c");
+    public static final ChainId FACTOID_BLOCK_CHAIN_ID = ChainId.fromHex("000000000000000000000000000000000000000000000000000000000000000f");
+
+    private static final byte[] ZERO_HASH = new byte[MerkleHash.LENGTH];
+
+    private final MessageDigest sha256 = MerkleHash.SHA_256.newMessageDigest();
+    private final MerkleRootAccumulator body = new MerkleRootAccumulator(MerkleHash.SHA_256);
+    private final ByteBuffer header = ByteBuffer.allocate(DirectoryBlockHeader.LENGTH);
+    private final byte[] leaf = new byte[MerkleHash.LENGTH];
+    private long networkId;
+    private byte[] previousKeyMR;
+    private byte[] previousFullHash;
+    private long timestamp;
+    private long height;
+
+
+    public DirectoryBlockBuilder() {
+        reset();
+    }
+
+
+    /**
+     * Start a new directory block, reusing the digests. The network Id is kept
+     */
+    public DirectoryBlockBuilder reset() {
+        this.previousKeyMR = ZERO_HASH;
+        this.previousFullHash = ZERO_HASH;
+        this.timestamp = 0;
+        this.height = 0;
+        body.reset();
+        return this;
+    }
+
+
+    /**
+     * @param networkId The network identifier, for instance 0xFA92E5A2 for the Factom main net
+     */
+    public DirectoryBlockBuilder networkId(long networkId) {
+        this.networkId = EntryBlockBuilder.checkUnsignedInt("Network Id", networkId);
+        return this;
+    }
+
+    public DirectoryBlockBuilder previousKeyMR(byte[] previousKeyMR) {
+        this.previousKeyMR = EntryBlockBuilder.checkHash(previousKeyMR).clone();
+        return this;
+    }
+
+    public DirectoryBlockBuilder previousFullHash(byte[] previousFullHash) {
+        this.previousFullHash = EntryBlockBuilder.checkHash(previousFullHash).clone();
+        return this;
+    }
+
+    /**
+     * @param timestamp The block time in minutes since the epoch
+     */
+    public DirectoryBlockBuilder timestamp(long timestamp) {
+        this.timestamp = EntryBlockBuilder.checkUnsignedInt("Timestamp", timestamp);
+        return this;
+    }
+
+    public DirectoryBlockBuilder height(long height) {
+        this.height = EntryBlockBuilder.checkUnsignedInt("Height", height);
+        return this;
+    }
+
+
+    public DirectoryBlockBuilder addBlock(ChainId chainId, byte[] keyMR) {
+        return addBlock(chainId.toBytes(), 0, EntryBlockBuilder.checkHash(keyMR), 0);
+    }
+
+    public DirectoryBlockBuilder addBlock(EntryBlockHeader entryBlock) {
+        return addBlock(entryBlock.getChainId(), entryBlock.getKeyMR());
+    }
+
+    /**
+     * Add the block with the 32 byte chain Id and key Merkle root at the offsets to the body
+     */
+    public DirectoryBlockBuilder addBlock(byte[] chainId, int chainIdOffset, byte[] keyMR, int keyMROffset) {
+        try {
+            sha256.update(chainId, chainIdOffset, MerkleHash.LENGTH);
+            sha256.update(keyMR, keyMROffset, MerkleHash.LENGTH);
+            sha256.digest(leaf, 0, MerkleHash.LENGTH);
+        } catch (DigestException e) {
+            sha256.reset();
+            throw new RuntimeException(e.getMessage(), e);
+        }
+        body.add(leaf, 0);
+        return this;
+    }
+
+
+    public long getBlockCount() {
+        return body.getLeafCount();
+    }
+
+
+    /**
+     * @return the header with the Merkle roots of the block so far. More blocks can be added afterwards
+     */
+    public DirectoryBlockHeader build() {
+        if (body.getLeafCount() == 0) {
+            throw new IllegalStateException("A directory block needs at least one block");
+        }
+        EntryBlockBuilder.checkUnsignedInt("Block count", body.getLeafCount());
+        byte[] bodyMR = body.root();
+        header.clear();
+        DirectoryBlockHeader.write(header, networkId, bodyMR, previousKeyMR, previousFullHash, timestamp, height, body.getLeafCount());
+        byte[] headerHash = new byte[MerkleHash.LENGTH];
+        byte[] keyMR = new byte[MerkleHash.LENGTH];
+        EntryBlockBuilder.keyMR(sha256, header.array(), headerHash, bodyMR, keyMR);
+        return new DirectoryBlockHeader(networkId, bodyMR, previousKeyMR, previousFullHash, timestamp, height,
+                body.getLeafCount(), headerHash, keyMR);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.block;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The header of a directory block, with the Merkle roots calculated by a {@link DirectoryBlockBuilder}
+ */
+public final class DirectoryBlockHeader {
+    public static final int LENGTH = 1 + 4 + 3 * 32 + 3 * 4;
+    public static final int VERSION = 0;
+
+    private final long networkId;
+    private final byte[] bodyMR;
+    private final byte[] previousKeyMR;
+    private final byte[] previousFullHash;
+    private final long timestamp;
+    private final long height;
+    private final long blockCount;
+    private final byte[] headerHash;
+    private final byte[] keyMR;
+
+
+    DirectoryBlockHeader(long networkId, byte[] bodyMR, byte[] previousKeyMR, byte[] previousFullHash, long timestamp,
+                         long height, long blockCount, byte[] headerHash, byte[] keyMR) {
+        this.networkId = networkId;
+        this.bodyMR = bodyMR;
+        this.previousKeyMR = previousKeyMR;
+        this.previousFullHash = previousFullHash;
+        this.timestamp = timestamp;
+        this.height = height;
+        this.blockCount = blockCount;
+        this.headerHash = headerHash;
+        this.keyMR = keyMR;
+    }
+
+
+    public long getNetworkId() {
+        return networkId;
+    }
+
+    /**
+     * @return the Merkle root over the chain Id and key Merkle root pairs of the body
+     */
+    public byte[] getBodyMR() {
+        return bodyMR.clone();
+    }
+
+    public byte[] getPreviousKeyMR() {
+        return previousKeyMR.clone();
+    }
+
+    public byte[] getPreviousFullHash() {
+        return previousFullHash.clone();
+    }
+
+    /**
+     * @return the block time in minutes since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getHeight() {
+        return height;
+    }
+
+    public long getBlockCount() {
+        return blockCount;
+    }
+
+    /**
+     * @return the SHA-256 hash of the serialized header
+     */
+    public byte[] getHeaderHash() {
+        return headerHash.clone();
+    }
+
+    /**
+     * @return the key Merkle root, which identifies the directory block
+     */
+    public byte[] getKeyMR() {
+        return keyMR.clone();
+    }
+
+
+    /**
+     * @return the serialized header
+     */
+    public byte[] toBytes() {
+        return write(ByteBuffer.allocate(LENGTH), networkId, bodyMR, previousKeyMR, previousFullHash, timestamp, height,
+                blockCount).array();
+    }
+
+
+    static ByteBuffer write(ByteBuffer target, long networkId, byte[] bodyMR, byte[] previousKeyMR, byte[] previousFullHash,
+                            long timestamp, long height, long blockCount) {
+        target.put((byte) VERSION).putInt((int) networkId);
+        target.put(bodyMR).put(previousKeyMR).put(previousFullHash);
+        target.putInt((int) timestamp).putInt((int) height).putInt((int) blockCount);
+        return target;
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.block;
+
+import com.sphereon.libs.blockchain.api.model.ChainId;
+import com.sphereon.libs.blockchain.api.model.EntryId;
+import com.sphereon.libs.blockchain.commons.merkle.MerkleHash;
+import com.sphereon.libs.blockchain.commons.merkle.MerkleRootAccumulator;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+
+/**
+ * Calculates the body and key Merkle roots of an entry block from a stream of entry hashes and minute markers.
+ * <p>
+ * The entry hashes in an entry block are the entry Ids. After the entries of each minute with entries a minute marker
+ * follows, which is 31 zero bytes and the minute number. The body Merkle root is the {@link MerkleHash#SHA_256} root
+ * over the entry hashes and markers. The key Merkle root is the SHA-256 hash of the header hash followed by the body
+ * Merkle root.
+ * <p>
+ * The body is not kept, so blocks of any size take constant memory. Builders are not thread safe, but can be
+ * {@link #reset(ChainId) reset} and reused, including their digests.
+ */
+public final class EntryBlockBuilder {
+    public static final int MINUTES = 10;
+
+    private static final byte[] ZERO_HASH = new byte[MerkleHash.LENGTH];
+
+    private final MessageDigest sha256 = MerkleHash.SHA_256.newMessageDigest();
+    private final MerkleRootAccumulator body = new MerkleRootAccumulator(MerkleHash.SHA_256);
+    private final ByteBuffer header = ByteBuffer.allocate(EntryBlockHeader.LENGTH);
+    private final byte[] marker = new byte[MerkleHash.LENGTH];
+    private ChainId chainId;
+    private byte[] previousKeyMR;
+    private byte[] previousFullHash;
+    private long sequence;
+    private long directoryBlockHeight;
+    private int lastMinute;
+
+
+    /**
+     * @param chainId The chain of the entry block
+     */
+    public EntryBlockBuilder(ChainId chainId) {
+        reset(chainId);
+    }
+
+
+    /**
+     * Start a new entry block, reusing the digests
+     */
+    public EntryBlockBuilder reset(ChainId chainId) {
+        if (chainId == null) {
+            throw new IllegalArgumentException("An entry block needs a chain Id");
+        }
+        this.chainId = chainId;
+        this.previousKeyMR = ZERO_HASH;
+        this.previousFullHash = ZERO_HASH;
+        this.sequence = 0;
+        this.directoryBlockHeight = 0;
+        this.lastMinute = 0;
+        body.reset();
+        return this;
+    }
+
+
+    /**
+     * @param previousKeyMR The key Merkle root of the previous entry block in the chain. Defaults to zeros, as for the
+     *                      first block of a chain
+     */
+    public EntryBlockBuilder previousKeyMR(byte[] previousKeyMR) {
+        this.previousKeyMR = checkHash(previousKeyMR).clone();
+        return this;
+    }
+
+    /**
+     * @param previousFullHash The SHA-256 hash of the complete previous entry block. Defaults to zeros
+     */
+    public EntryBlockBuilder previousFullHash(byte[] previousFullHash) {
+        this.previousFullHash = checkHash(previousFullHash).clone();
+        return this;
+    }
+
+    /**
+     * @param sequence The sequence of the block within the chain, starting at 0
+     */
+    public EntryBlockBuilder sequence(long sequence) {
+        this.sequence = checkUnsignedInt("Sequence", sequence);
+        return this;
+    }
+
+    /**
+     * @param directoryBlockHeight The height of the directory block the entry block is part of
+     */
+    public EntryBlockBuilder directoryBlockHeight(long directoryBlockHeight) {
+        this.directoryBlockHeight = checkUnsignedInt("Directory block height", directoryBlockHeight);
+        return this;
+    }
+
+
+    public EntryBlockBuilder addEntry(EntryId entryHash) {
+        return addEntry(entryHash.toBytes(), 0);
+    }
+
+    /**
+     * Add the 32 byte entry hash at the offset to the body
+     */
+    public EntryBlockBuilder addEntry(byte[] entryHash, int offset) {
+        body.add(entryHash, offset);
+        return this;
+    }
+
+
+    /**
+     * Add the marker ending the entries of a minute
+     *
+     * @param minute The minute, from 1 to 10
+     */
+    public EntryBlockBuilder endMinute(int minute) {
+        if (minute < 1 || minute > MINUTES || minute <= lastMinute) {
+            throw new IllegalArgumentException("Minute needs to be between " + (lastMinute + 1) + " and " + MINUTES + " instead of: " + minute);
+        }
+        marker[MerkleHash.LENGTH - 1] = (byte) minute;
+        body.add(marker, 0);
+        lastMinute = minute;
+        return this;
+    }
+
+
+    /**
+     * @return the number of entry hashes and minute markers added
+     */
+    public long getEntryCount() {
+        return body.getLeafCount();
+    }
+
+
+    /**
+     * @return the header with the Merkle roots of the block so far. More entries can be added afterwards
+     */
+    public EntryBlockHeader build() {
+        if (body.getLeafCount() == 0) {
+            throw new IllegalStateException("An entry block needs at least one entry");
+        }
+        checkUnsignedInt("Entry count", body.getLeafCount());
+        byte[] bodyMR = body.root();
+        header.clear();
+        EntryBlockHeader.write(header, chainId, bodyMR, previousKeyMR, previousFullHash, sequence, directoryBlockHeight, body.getLeafCount());
+        byte[] headerHash = new byte[MerkleHash.LENGTH];
+        byte[] keyMR = new byte[MerkleHash.LENGTH];
+        keyMR(sha256, header.array(), headerHash, bodyMR, keyMR);
+        return new EntryBlockHeader(chainId, bodyMR, previousKeyMR, previousFullHash, sequence, directoryBlockHeight,
+                body.getLeafCount(), headerHash, keyMR);
+    }
+
+
+    /**
+     * Hash the header and combine the header hash with the body Merkle root into the key Merkle root
+     */
+    static void keyMR(MessageDigest sha256, byte[] header, byte[] headerHash, byte[] bodyMR, byte[] keyMR) {
+        try {
+            sha256.update(header);
+            sha256.digest(headerHash, 0, MerkleHash.LENGTH);
+        } catch (DigestException e) {
+            sha256.reset();
+            throw new RuntimeException(e.getMessage(), e);
+        }
+        MerkleHash.SHA_256.combine(sha256, headerHash, 0, bodyMR, 0, keyMR, 0);
+    }
+
+    static byte[] checkHash(byte[] hash) {
+        if (hash == null || hash.length != MerkleHash.LENGTH) {
+            throw new IllegalArgumentException("A hash needs " + MerkleHash.LENGTH + " bytes");
+        }
+        return hash;
+    }
+
+    static long checkUnsignedInt(String name, long value) {
+        if (value < 0 || value > 0xFFFFFFFFL) {
+            throw new IllegalArgumentException(name + " needs to fit in 4 unsigned bytes instead of: " + value);
+        }
+        return value;
+    }
+}
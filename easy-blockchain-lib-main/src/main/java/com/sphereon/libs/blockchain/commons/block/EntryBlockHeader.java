@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.block;
+
+import com.sphereon.libs.blockchain.api.model.ChainId;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The header of an entry block, with the Merkle roots calculated by an {@link EntryBlockBuilder}
+ */
+public final class EntryBlockHeader {
+    public static final int LENGTH = 4 * 32 + 3 * 4;
+
+    private final ChainId chainId;
+    private final byte[] bodyMR;
+    private final byte[] previousKeyMR;
+    private final byte[] previousFullHash;
+    private final long sequence;
+    private final long directoryBlockHeight;
+    private final long entryCount;
+    private final byte[] headerHash;
+    private final byte[] keyMR;
+
+
+    EntryBlockHeader(ChainId chainId, byte[] bodyMR, byte[] previousKeyMR, byte[] previousFullHash, long sequence,
+                     long directoryBlockHeight, long entryCount, byte[] headerHash, byte[] keyMR) {
+        this.chainId = chainId;
+        this.bodyMR = bodyMR;
+        this.previousKeyMR = previousKeyMR;
+        this.previousFullHash = previousFullHash;
+        this.sequence = sequence;
+        this.directoryBlockHeight = directoryBlockHeight;
+        this.entryCount = entryCount;
+        this.headerHash = headerHash;
+        this.keyMR = keyMR;
+    }
+
+
+    public ChainId getChainId() {
+        return chainId;
+    }
+
+    /**
+     * @return the Merkle root over the entry hashes and minute markers of the body
+     */
+    public byte[] getBodyMR() {
+        return bodyMR.clone();
+    }
+
+    public byte[] getPreviousKeyMR() {
+        return previousKeyMR.clone();
+    }
+
+    public byte[] getPreviousFullHash() {
+        return previousFullHash.clone();
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getDirectoryBlockHeight() {
+        return directoryBlockHeight;
+    }
+
+    /**
+     * @return the number of entry hashes and minute markers in the body
+     */
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * @return the SHA-256 hash of the serialized header
+     */
+    public byte[] getHeaderHash() {
+        return headerHash.clone();
+    }
+
+    /**
+     * @return the key Merkle root, which identifies the entry block
+     */
+    public byte[] getKeyMR() {
+        return keyMR.clone();
+    }
+
+
+    /**
+     * @return the serialized header
+     */
+    public byte[] toBytes() {
+        return write(ByteBuffer.allocate(LENGTH), chainId, bodyMR, previousKeyMR, previousFullHash, sequence,
+                directoryBlockHeight, entryCount).array();
+    }
+
+
+    static ByteBuffer write(ByteBuffer target, ChainId chainId, byte[] bodyMR, byte[] previousKeyMR, byte[] previousFullHash,
+                            long sequence, long directoryBlockHeight, long entryCount) {
+        chainId.writeTo(target);
+        target.put(bodyMR).put(previousKeyMR).put(previousFullHash);
+        target.putInt((int) sequence).putInt((int) directoryBlockHeight).putInt((int) entryCount);
+        return target;
+    }
+}
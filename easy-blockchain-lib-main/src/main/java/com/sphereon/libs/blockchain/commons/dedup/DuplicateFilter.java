@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.dedup;
+
+import com.sphereon.libs.blockchain.api.model.EntryId;
+import com.sphereon.libs.blockchain.commons.RegistrationType;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Detects entries and content that have been seen before, so duplicates can be skipped before hashing and submission.
+ * <p>
+ * Entry Ids and content hashes (the values of {@link RegistrationType.Defaults#HASH} external Ids) are kept in separate
+ * {@link ScalableBloomFilter}s. A key the filter has not seen is reported as new without further lookups, which is the
+ * common case for fresh data. A key the filter reports as possibly seen is checked against the optional
+ * {@link SeenStore}. Without a store such keys are treated as duplicates, so a fraction of new keys up to the false
+ * positive rate is wrongly skipped.
+ * <p>
+ * The Bloom filters can be snapshotted to a file and are loaded from it when the filter is built, so a restarted process
+ * does not have to re-add all keys. The store is not part of the snapshot.
+ */
+public class DuplicateFilter {
+    private static final int MAGIC = 0x45424C42; // EBLB
+    private static final int VERSION = 1;
+
+    public enum KeyType {
+        ENTRY_ID, CONTENT_HASH
+    }
+
+    private final ScalableBloomFilter[] filters;
+    private final SeenStore store;
+    private final Path snapshotPath;
+    private final AtomicLong falsePositives = new AtomicLong();
+
+
+    private DuplicateFilter(ScalableBloomFilter[] filters, SeenStore store, Path snapshotPath) {
+        this.filters = filters;
+        this.store = store;
+        this.snapshotPath = snapshotPath;
+    }
+
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+
+    public boolean isDuplicate(EntryId entryId) {
+        return isDuplicate(KeyType.ENTRY_ID, entryId.toBytes());
+    }
+
+    public boolean isDuplicate(KeyType type, byte[] key) {
+        return isDuplicate(type, key, 0, key.length);
+    }
+
+    /**
+     * @return whether the key has been marked as seen before. Without a store, true might be a false positive
+     */
+    public boolean isDuplicate(KeyType type, byte[] key, int offset, int length) {
+        if (!filters[type.ordinal()].mightContain(key, offset, length)) {
+            return false;
+        }
+        if (store == null) {
+            return true;
+        }
+        if (store.contains(type, copy(key, offset, length))) {
+            return true;
+        }
+        falsePositives.incrementAndGet();
+        return false;
+    }
+
+
+    public boolean markSeen(EntryId entryId) {
+        return markSeen(KeyType.ENTRY_ID, entryId.toBytes());
+    }
+
+    public boolean markSeen(KeyType type, byte[] key) {
+        return markSeen(type, key, 0, key.length);
+    }
+
+    /**
+     * Mark the key as seen. With a store that adds atomically, exactly one of concurrent calls for the same key returns
+     * true
+     *
+     * @return true when the key was new, false when it is a duplicate
+     */
+    public boolean markSeen(KeyType type, byte[] key, int offset, int length) {
+        boolean added = filters[type.ordinal()].put(key, offset, length);
+        if (store == null) {
+            return added;
+        }
+        boolean stored = store.add(type, copy(key, offset, length));
+        if (stored && !added) {
+            falsePositives.incrementAndGet();
+        }
+        return stored;
+    }
+
+
+    /**
+     * @return the number of keys the Bloom filter reported as possibly seen, but the store did not contain
+     */
+    public long getFalsePositiveCount() {
+        return falsePositives.get();
+    }
+
+    public ScalableBloomFilter getBloomFilter(KeyType type) {
+        return filters[type.ordinal()];
+    }
+
+    public SeenStore getStore() {
+        return store;
+    }
+
+
+    /**
+     * Save the Bloom filters to the snapshot path of the builder
+     */
+    public void snapshot() {
+        if (snapshotPath == null) {
+            throw new IllegalStateException("No snapshot path has been configured");
+        }
+        snapshot(snapshotPath);
+    }
+
+    /**
+     * Save the Bloom filters. The file is replaced atomically. Keys marked while saving may or may not be included
+     */
+    public void snapshot(Path path) {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (OutputStream os = Files.newOutputStream(tmp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 64 * 1024));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(filters.length);
+            for (KeyType type : KeyType.values()) {
+                out.writeUTF(type.name());
+                filters[type.ordinal()].writeTo(out);
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+
+    private static ScalableBloomFilter[] load(Path path) {
+        ScalableBloomFilter[] filters = new ScalableBloomFilter[KeyType.values().length];
+        try (InputStream is = Files.newInputStream(path)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(is, 64 * 1024));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new RuntimeException("File " + path + " is not a duplicate filter snapshot");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                KeyType type = KeyType.valueOf(in.readUTF());
+                filters[type.ordinal()] = ScalableBloomFilter.readFrom(in);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+        return filters;
+    }
+
+    private static byte[] copy(byte[] key, int offset, int length) {
+        return offset == 0 && length == key.length ? key.clone() : Arrays.copyOfRange(key, offset, offset + length);
+    }
+
+
+    public static class Builder {
+        private long expectedInsertions = 1000000;
+        private double falsePositiveRate = 0.001;
+        private SeenStore store;
+        private Path snapshotPath;
+
+        private Builder() {
+        }
+
+        /**
+         * @param expectedInsertions The number of keys per type the first Bloom filter stage is sized for. The filters
+         *                           grow beyond it. Defaults to 1,000,000
+         */
+        public Builder expectedInsertions(long expectedInsertions) {
+            if (expectedInsertions < 1) {
+                throw new IllegalArgumentException("Expected insertions needs to be at least 1 instead of: " + expectedInsertions);
+            }
+            this.expectedInsertions = expectedInsertions;
+            return this;
+        }
+
+        /**
+         * @param falsePositiveRate The maximum false positive rate of the Bloom filters. Defaults to 0.001
+         */
+        public Builder falsePositiveRate(double falsePositiveRate) {
+            if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+                throw new IllegalArgumentException("False positive rate needs to be between 0 and 1 instead of: " + falsePositiveRate);
+            }
+            this.falsePositiveRate = falsePositiveRate;
+            return this;
+        }
+
+        /**
+         * @param store The exact store resolving Bloom filter positives. Defaults to none
+         */
+        public Builder store(SeenStore store) {
+            this.store = store;
+            return this;
+        }
+
+        /**
+         * @param snapshotPath The snapshot file. When it exists the Bloom filters are loaded from it, in which case the
+         *                     expected insertions and false positive rate of the snapshot are used
+         */
+        public Builder snapshotPath(Path snapshotPath) {
+            this.snapshotPath = snapshotPath;
+            return this;
+        }
+
+        public DuplicateFilter build() {
+            ScalableBloomFilter[] filters = snapshotPath != null && Files.exists(snapshotPath)
+                    ? load(snapshotPath) : new ScalableBloomFilter[KeyType.values().length];
+            for (int i = 0; i < filters.length; i++) {
+                if (filters[i] == null) {
+                    filters[i] = new ScalableBloomFilter(expectedInsertions, falsePositiveRate);
+                }
+            }
+            return new DuplicateFilter(filters, store, snapshotPath);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.dedup;
+
+import java.nio.ByteBuffer;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link SeenStore} keeping all keys in memory. Mainly useful for tests and for processes that only need to detect
+ * duplicates during their own lifetime
+ */
+public class InMemorySeenStore implements SeenStore {
+    private final Map<DuplicateFilter.KeyType, Set<ByteBuffer>> keys = new EnumMap<>(DuplicateFilter.KeyType.class);
+
+    public InMemorySeenStore() {
+        for (DuplicateFilter.KeyType type : DuplicateFilter.KeyType.values()) {
+            keys.put(type, ConcurrentHashMap.<ByteBuffer>newKeySet());
+        }
+    }
+
+    @Override
+    public boolean contains(DuplicateFilter.KeyType type, byte[] key) {
+        return keys.get(type).contains(ByteBuffer.wrap(key));
+    }
+
+    @Override
+    public boolean add(DuplicateFilter.KeyType type, byte[] key) {
+        return keys.get(type).add(ByteBuffer.wrap(key));
+    }
+
+    public int size(DuplicateFilter.KeyType type) {
+        return keys.get(type).size();
+    }
+}
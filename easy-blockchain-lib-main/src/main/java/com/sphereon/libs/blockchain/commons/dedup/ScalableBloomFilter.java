@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.dedup;
+
+import com.sphereon.libs.blockchain.commons.Bytes;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter that grows with the number of keys added, while keeping the overall false positive rate below the
+ * configured rate.
+ * <p>
+ * Keys are added to the last of a chain of fixed size stages. When a stage has reached its capacity a new stage with
+ * twice the capacity and half the false positive rate is appended. The false positive rates of the stages form a
+ * geometric series, so their sum never exceeds the configured rate.
+ * <p>
+ * The filter is thread safe and lock free, except for appending a stage. A key that was added is always reported as
+ * possibly contained. A key that was not added is reported as possibly contained with the false positive rate.
+ */
+public final class ScalableBloomFilter {
+    private static final int GROWTH = 2;
+    private static final double TIGHTENING = 0.5;
+    private static final long SEED1 = 0x9E3779B97F4A7C15L;
+    private static final long SEED2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long MULTIPLIER = 0xFF51AFD7ED558CCDL;
+
+    private final long initialCapacity;
+    private final double falsePositiveRate;
+    private volatile Stage[] stages;
+
+
+    /**
+     * @param initialCapacity   The number of keys the first stage is sized for
+     * @param falsePositiveRate The maximum false positive rate, between 0 and 1 exclusive
+     */
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("Initial capacity needs to be at least 1 instead of: " + initialCapacity);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False positive rate needs to be between 0 and 1 instead of: " + falsePositiveRate);
+        }
+        this.initialCapacity = initialCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+        this.stages = new Stage[]{new Stage(initialCapacity, falsePositiveRate * (1 - TIGHTENING))};
+    }
+
+    private ScalableBloomFilter(long initialCapacity, double falsePositiveRate, Stage[] stages) {
+        this.initialCapacity = initialCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+        this.stages = stages;
+    }
+
+
+    public boolean mightContain(byte[] key) {
+        return mightContain(key, 0, key.length);
+    }
+
+    /**
+     * @return false when the key has definitely not been added, true when it probably has
+     */
+    public boolean mightContain(byte[] key, int offset, int length) {
+        long hash1 = hash(key, offset, length, SEED1);
+        long hash2 = hash(key, offset, length, SEED2);
+        for (Stage stage : stages) {
+            if (stage.mightContain(hash1, hash2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    public boolean put(byte[] key) {
+        return put(key, 0, key.length);
+    }
+
+    /**
+     * Add the key, unless it might have been added already
+     *
+     * @return true when the key was added, false when it might have been added before. When the same key is put
+     * concurrently, more than one call can return true
+     */
+    public boolean put(byte[] key, int offset, int length) {
+        long hash1 = hash(key, offset, length, SEED1);
+        long hash2 = hash(key, offset, length, SEED2);
+        Stage[] current = stages;
+        for (Stage stage : current) {
+            if (stage.mightContain(hash1, hash2)) {
+                return false;
+            }
+        }
+        Stage last = current[current.length - 1];
+        if (last.count.get() >= last.capacity) {
+            last = grow(last);
+        }
+        return last.put(hash1, hash2);
+    }
+
+
+    /**
+     * @return the approximate number of keys added
+     */
+    public long getCount() {
+        long count = 0;
+        for (Stage stage : stages) {
+            count += stage.count.get();
+        }
+        return count;
+    }
+
+    public int getStageCount() {
+        return stages.length;
+    }
+
+    /**
+     * @return the memory used by the bit arrays of all stages
+     */
+    public long getSizeInBytes() {
+        long size = 0;
+        for (Stage stage : stages) {
+            size += stage.bits.length() * 8L;
+        }
+        return size;
+    }
+
+    /**
+     * @return the maximum false positive rate the filter was created with
+     */
+    public double getFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    /**
+     * @return the false positive rate expected for the keys added so far, based on the fill ratio of the stages
+     */
+    public double getExpectedFalsePositiveRate() {
+        double none = 1;
+        for (Stage stage : stages) {
+            none *= 1 - stage.expectedFalsePositiveRate();
+        }
+        return 1 - none;
+    }
+
+
+    /**
+     * Write the filter. Keys added while writing may or may not be included
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        Stage[] current = stages;
+        out.writeLong(initialCapacity);
+        out.writeDouble(falsePositiveRate);
+        out.writeInt(current.length);
+        for (Stage stage : current) {
+            out.writeLong(stage.capacity);
+            out.writeInt(stage.hashFunctions);
+            out.writeLong(stage.count.get());
+            out.writeInt(stage.bits.length());
+            for (int i = 0; i < stage.bits.length(); i++) {
+                out.writeLong(stage.bits.get(i));
+            }
+        }
+    }
+
+    /**
+     * Read a filter written by {@link #writeTo(DataOutputStream)}
+     */
+    public static ScalableBloomFilter readFrom(DataInputStream in) throws IOException {
+        long initialCapacity = in.readLong();
+        double falsePositiveRate = in.readDouble();
+        int stageCount = in.readInt();
+        if (initialCapacity < 1 || !(falsePositiveRate > 0 && falsePositiveRate < 1) || stageCount < 1) {
+            throw new IOException("Invalid Bloom filter header");
+        }
+        Stage[] stages = new Stage[stageCount];
+        for (int s = 0; s < stageCount; s++) {
+            long capacity = in.readLong();
+            int hashFunctions = in.readInt();
+            long count = in.readLong();
+            int words = in.readInt();
+            if (capacity < 1 || hashFunctions < 1 || words < 1) {
+                throw new IOException("Invalid Bloom filter stage " + s);
+            }
+            AtomicLongArray bits = new AtomicLongArray(words);
+            for (int i = 0; i < words; i++) {
+                bits.set(i, in.readLong());
+            }
+            stages[s] = new Stage(capacity, hashFunctions, bits, count);
+        }
+        return new ScalableBloomFilter(initialCapacity, falsePositiveRate, stages);
+    }
+
+
+    private synchronized Stage grow(Stage full) {
+        Stage[] current = stages;
+        Stage last = current[current.length - 1];
+        if (last != full) {
+            // Another thread appended a stage already
+            return last;
+        }
+        double rate = falsePositiveRate * (1 - TIGHTENING) * Math.pow(TIGHTENING, current.length);
+        Stage[] next = new Stage[current.length + 1];
+        System.arraycopy(current, 0, next, 0, current.length);
+        next[current.length] = new Stage(full.capacity * GROWTH, rate);
+        stages = next;
+        return next[current.length];
+    }
+
+
+    /**
+     * Hash the key with a seed, 8 bytes at a time. Keys are usually digests already, but content hashes can also be
+     * passed in hex or other encodings, so the bytes are mixed instead of used directly
+     */
+    private static long hash(byte[] key, int offset, int length, long seed) {
+        long hash = seed ^ (length * MULTIPLIER);
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            hash = (hash ^ mix(Bytes.readLong(key, offset + i))) * MULTIPLIER;
+        }
+        if (i < length) {
+            long tail = 0;
+            for (; i < length; i++) {
+                tail = tail << 8 | (key[offset + i] & 0xFF);
+            }
+            hash = (hash ^ mix(tail)) * MULTIPLIER;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+
+    private static final class Stage {
+        private final long capacity;
+        private final int hashFunctions;
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final AtomicLong count;
+
+        private Stage(long capacity, double falsePositiveRate) {
+            this(capacity, hashFunctions(capacity, optimalBits(capacity, falsePositiveRate)),
+                    new AtomicLongArray(words(optimalBits(capacity, falsePositiveRate))), 0);
+        }
+
+        private Stage(long capacity, int hashFunctions, AtomicLongArray bits, long count) {
+            this.capacity = capacity;
+            this.hashFunctions = hashFunctions;
+            this.bits = bits;
+            this.bitCount = bits.length() * 64L;
+            this.count = new AtomicLong(count);
+        }
+
+        private boolean mightContain(long hash1, long hash2) {
+            long combined = hash1;
+            for (int i = 0; i < hashFunctions; i++) {
+                long index = (combined & Long.MAX_VALUE) % bitCount;
+                if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+                combined += hash2;
+            }
+            return true;
+        }
+
+        /**
+         * @return true when at least one bit was set by this call
+         */
+        private boolean put(long hash1, long hash2) {
+            boolean changed = false;
+            long combined = hash1;
+            for (int i = 0; i < hashFunctions; i++) {
+                long index = (combined & Long.MAX_VALUE) % bitCount;
+                int word = (int) (index >>> 6);
+                long mask = 1L << index;
+                long value;
+                while (((value = bits.get(word)) & mask) == 0) {
+                    if (bits.compareAndSet(word, value, value | mask)) {
+                        changed = true;
+                        break;
+                    }
+                }
+                combined += hash2;
+            }
+            if (changed) {
+                count.incrementAndGet();
+            }
+            return changed;
+        }
+
+        private double expectedFalsePositiveRate() {
+            return Math.pow(1 - Math.exp(-(double) hashFunctions * count.get() / bitCount), hashFunctions);
+        }
+
+        private static long optimalBits(long capacity, double falsePositiveRate) {
+            return (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        }
+
+        private static int words(long bits) {
+            long words = (bits + 63) / 64;
+            if (words > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Bloom filter stage too large: " + bits + " bits");
+            }
+            return (int) Math.max(1, words);
+        }
+
+        private static int hashFunctions(long capacity, long bits) {
+            return Math.max(1, (int) Math.round((double) bits / capacity * Math.log(2)));
+        }
+    }
+}
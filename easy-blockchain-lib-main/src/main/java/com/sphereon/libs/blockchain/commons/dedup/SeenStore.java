@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.dedup;
+
+/**
+ * Exact record of the keys seen by a {@link DuplicateFilter}. The filter only consults the store when its Bloom filter
+ * reports a key as possibly seen, so the store resolves the false positives. Implementations need to be thread safe and
+ * are responsible for their own persistence, for instance in a database table keyed by type and key.
+ */
+public interface SeenStore {
+
+    /**
+     * @return whether the key has been added before
+     */
+    boolean contains(DuplicateFilter.KeyType type, byte[] key);
+
+    /**
+     * Add the key. The filter passes its own copy of the key, so the array can be kept
+     *
+     * @return true when the key was not in the store yet
+     */
+    boolean add(DuplicateFilter.KeyType type, byte[] key);
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.digest;
+
+import com.sphereon.libs.blockchain.commons.Digest;
+
+/**
+ * Throughput of a digest provider for an algorithm, as measured by {@link DigestProviders#benchmark(Digest.Algorithm)}
+ */
+public final class DigestBenchmarkResult implements Comparable<DigestBenchmarkResult> {
+    private final String providerName;
+    private final Digest.Algorithm algorithm;
+    private final double bytesPerSecond;
+    private final boolean valid;
+
+    DigestBenchmarkResult(String providerName, Digest.Algorithm algorithm, double bytesPerSecond, boolean valid) {
+        this.providerName = providerName;
+        this.algorithm = algorithm;
+        this.bytesPerSecond = bytesPerSecond;
+        this.valid = valid;
+    }
+
+    public String getProviderName() {
+        return providerName;
+    }
+
+    public Digest.Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public double getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * @return false when the provider failed or produced a different hash than the reference implementation. Invalid
+     * providers are never selected
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * Valid and fastest results first
+     */
+    @Override
+    public int compareTo(DigestBenchmarkResult other) {
+        if (valid != other.valid) {
+            return valid ? -1 : 1;
+        }
+        return Double.compare(other.bytesPerSecond, bytesPerSecond);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s: %.1f MB/s%s", algorithm.getImplementation(), providerName, bytesPerSecond / (1024 * 1024), valid ? "" : " (invalid)");
+    }
+}
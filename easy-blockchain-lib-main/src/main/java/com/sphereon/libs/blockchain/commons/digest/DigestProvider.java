@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.digest;
+
+import com.sphereon.libs.blockchain.commons.Digest;
+
+import java.security.MessageDigest;
+
+/**
+ * Service provider interface for message digest implementations used by {@link Digest}.
+ * <p>
+ * Implementations are discovered using {@link java.util.ServiceLoader}, by listing them in
+ * META-INF/services/com.sphereon.libs.blockchain.commons.digest.DigestProvider, or registered using
+ * {@link DigestProviders#register(DigestProvider)}. Every installed JCA provider is a candidate as well.
+ */
+public interface DigestProvider {
+
+    /**
+     * @return a unique name, used for selection by configuration and in logs
+     */
+    String getName();
+
+    boolean supports(Digest.Algorithm algorithm);
+
+    /**
+     * @param algorithm A supported algorithm
+     * @return a new message digest. Message digests are not thread safe
+     */
+    MessageDigest newMessageDigest(Digest.Algorithm algorithm);
+}
@@ -0,0 +1,348 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.digest;
+
+import com.sphereon.libs.blockchain.commons.Digest;
+import com.sphereon.libs.blockchain.commons.Utils;
+import com.sphereon.libs.blockchain.commons.metrics.Metrics;
+
+import java.security.MessageDigest;
+import java.security.Provider;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Registry of the available {@link DigestProvider}s and the provider selected per algorithm.
+ * <p>
+ * Candidates are the default JCA lookup, every installed JCA security provider and the providers found by the
+ * {@link ServiceLoader}. Without configuration the default JCA lookup is used, which is the behaviour the library always
+ * had. The selection can be configured using system properties:
+ * <ul>
+ * <li>{@value #PROVIDER_PROPERTY}: the name of the provider to use for all algorithms it supports</li>
+ * <li>{@value #BENCHMARK_PROPERTY}: when true, benchmark all candidates on first use and select the fastest per
+ * algorithm</li>
+ * <li>{@value #BENCHMARK_MILLIS_PROPERTY}: the measurement time per candidate and algorithm</li>
+ * </ul>
+ * An invalid configuration, like an unknown provider name, is logged as a warning and the default JCA lookup is used
+ * instead.
+ * <p>
+ * The selected provider per algorithm is logged at INFO level using java.util.logging. The benchmark results, including
+ * candidates producing wrong hashes, are logged at FINE level. The selection is counted in the
+ * {@link Metrics#DIGEST_PROVIDER_SELECTED} metric and can be inspected using {@link #getSelected(Digest.Algorithm)} and
+ * {@link #getBenchmarkResults(Digest.Algorithm)}.
+ */
+public class DigestProviders {
+    public static final String PROVIDER_PROPERTY = "easy-blockchain.digest.provider";
+    public static final String BENCHMARK_PROPERTY = "easy-blockchain.digest.benchmark";
+    public static final String BENCHMARK_MILLIS_PROPERTY = "easy-blockchain.digest.benchmark.millis";
+    public static final long DEFAULT_BENCHMARK_MILLIS = 100;
+
+    private static final Logger LOG = Logger.getLogger(DigestProviders.class.getName());
+
+    // Entries are small, so benchmark with a typical entry sized payload instead of large blocks
+    private static final int BENCHMARK_PAYLOAD_SIZE = 1024;
+    private static final int BENCHMARK_ROUNDS = 64;
+
+    private static volatile DigestProviders instance;
+
+    private final DigestProvider defaultProvider = JcaDigestProvider.defaultProvider();
+    private final List<DigestProvider> providers = new CopyOnWriteArrayList<>();
+    private final ConcurrentMap<Digest.Algorithm, DigestProvider> selected = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Digest.Algorithm, List<DigestBenchmarkResult>> benchmarkResults = new ConcurrentHashMap<>();
+    private volatile int sink;
+
+
+    private DigestProviders() {
+        providers.add(defaultProvider);
+        for (Provider provider : Security.getProviders()) {
+            JcaDigestProvider jcaProvider = JcaDigestProvider.of(provider);
+            if (supportsAny(jcaProvider)) {
+                providers.add(jcaProvider);
+            }
+        }
+        try {
+            Iterator<DigestProvider> iterator = ServiceLoader.load(DigestProvider.class, DigestProviders.class.getClassLoader()).iterator();
+            while (iterator.hasNext()) {
+                register(iterator.next());
+            }
+        } catch (ServiceConfigurationError e) {
+            LOG.log(Level.WARNING, "Could not load digest providers: " + e.getMessage(), e);
+        }
+    }
+
+
+    public static DigestProviders getInstance() {
+        // See Digest.getInstance() for the double checked locking rationale
+        if (instance == null) {
+            synchronized (DigestProviders.class) {
+                if (instance == null) {
+                    DigestProviders.instance = create(System.getProperty(PROVIDER_PROPERTY), Boolean.getBoolean(BENCHMARK_PROPERTY),
+                            Long.getLong(BENCHMARK_MILLIS_PROPERTY, DEFAULT_BENCHMARK_MILLIS));
+                }
+            }
+        }
+        return instance;
+    }
+
+
+    /**
+     * Create a configured registry. An invalid configuration falls back to the default JCA provider, since without an
+     * instance no hash could be calculated at all
+     */
+    static DigestProviders create(String providerName, boolean benchmark, long benchmarkMillis) {
+        DigestProviders providers = new DigestProviders();
+        try {
+            providers.configure(providerName, benchmark, benchmarkMillis);
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Invalid digest provider configuration, using the default JCA provider: " + e.getMessage(), e);
+            providers.reset();
+        }
+        return providers;
+    }
+
+
+    /**
+     * Apply a configuration. Benchmarking takes precedence over a configured provider name
+     *
+     * @param providerName    The provider to select for all algorithms it supports. Can be null
+     * @param benchmark       Whether to benchmark the candidates and select the fastest
+     * @param benchmarkMillis The measurement time per candidate and algorithm
+     * @throws RuntimeException when the named provider is unknown
+     */
+    public void configure(String providerName, boolean benchmark, long benchmarkMillis) {
+        if (benchmark) {
+            benchmarkAndSelect(benchmarkMillis);
+        } else if (Utils.String.isNotEmpty(providerName)) {
+            select(providerName);
+        }
+    }
+
+
+    /**
+     * Register a provider. A provider with the same name is replaced
+     */
+    public void register(DigestProvider provider) {
+        DigestProvider existing = getProvider(provider.getName());
+        if (existing != null) {
+            providers.remove(existing);
+        }
+        providers.add(provider);
+        LOG.fine("Registered digest provider " + provider.getName());
+    }
+
+
+    /**
+     * Unregister a provider. When it was selected, the default provider is used again
+     */
+    public void unregister(DigestProvider provider) {
+        providers.remove(provider);
+        for (Digest.Algorithm algorithm : Digest.Algorithm.values()) {
+            selected.remove(algorithm, provider);
+        }
+    }
+
+
+    public List<DigestProvider> getProviders() {
+        return Collections.unmodifiableList(new ArrayList<>(providers));
+    }
+
+
+    public List<DigestProvider> getCandidates(Digest.Algorithm algorithm) {
+        List<DigestProvider> candidates = new ArrayList<>();
+        for (DigestProvider provider : providers) {
+            if (provider.supports(algorithm)) {
+                candidates.add(provider);
+            }
+        }
+        return candidates;
+    }
+
+
+    public DigestProvider getProvider(String name) {
+        for (DigestProvider provider : providers) {
+            if (provider.getName().equals(name)) {
+                return provider;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * @return the selected provider, or the default JCA provider when nothing has been selected
+     */
+    public DigestProvider getSelected(Digest.Algorithm algorithm) {
+        DigestProvider provider = selected.get(algorithm);
+        return provider == null ? defaultProvider : provider;
+    }
+
+
+    public void select(Digest.Algorithm algorithm, DigestProvider provider) {
+        if (!provider.supports(algorithm)) {
+            throw new RuntimeException("Digest provider " + provider.getName() + " does not support " + algorithm.getImplementation());
+        }
+        selected.put(algorithm, provider);
+        LOG.info("Selected digest provider " + provider.getName() + " for " + algorithm.getImplementation());
+        if (Metrics.isEnabled()) {
+            Metrics.instruments().digestProviderSelected(algorithm, provider.getName());
+        }
+    }
+
+
+    /**
+     * Select the named provider for all algorithms it supports
+     */
+    public void select(String providerName) {
+        DigestProvider provider = getProvider(providerName);
+        if (provider == null) {
+            throw new RuntimeException("Unknown digest provider " + providerName + ", available providers are " + providers);
+        }
+        for (Digest.Algorithm algorithm : Digest.Algorithm.values()) {
+            if (provider.supports(algorithm)) {
+                select(algorithm, provider);
+            }
+        }
+    }
+
+
+    /**
+     * Use the default JCA provider for all algorithms again
+     */
+    public void reset() {
+        selected.clear();
+        benchmarkResults.clear();
+    }
+
+
+    public List<DigestBenchmarkResult> benchmark(Digest.Algorithm algorithm) {
+        return benchmark(algorithm, DEFAULT_BENCHMARK_MILLIS);
+    }
+
+
+    /**
+     * Measure the throughput of all candidates for the algorithm. Every candidate first hashes a reference input, to
+     * make sure it produces the same result as the default JCA provider
+     *
+     * @param algorithm The algorithm
+     * @param millis    The measurement time per candidate. The same time is spent warming up first
+     * @return the results, fastest valid candidate first
+     */
+    public List<DigestBenchmarkResult> benchmark(Digest.Algorithm algorithm, long millis) {
+        byte[] payload = new byte[BENCHMARK_PAYLOAD_SIZE];
+        new Random(BENCHMARK_PAYLOAD_SIZE).nextBytes(payload);
+        byte[] reference = defaultProvider.newMessageDigest(algorithm).digest(payload);
+
+        List<DigestBenchmarkResult> results = new ArrayList<>();
+        for (DigestProvider candidate : getCandidates(algorithm)) {
+            DigestBenchmarkResult result;
+            try {
+                MessageDigest messageDigest = candidate.newMessageDigest(algorithm);
+                if (!Arrays.equals(reference, messageDigest.digest(payload))) {
+                    LOG.fine("Digest provider " + candidate.getName() + " calculates a wrong " + algorithm.getImplementation() + " hash");
+                    result = new DigestBenchmarkResult(candidate.getName(), algorithm, 0, false);
+                } else {
+                    // Warm up, so the JIT has compiled the implementation before measuring
+                    measure(messageDigest, payload, millis);
+                    result = new DigestBenchmarkResult(candidate.getName(), algorithm, measure(messageDigest, payload, millis), true);
+                }
+            } catch (RuntimeException e) {
+                LOG.log(Level.FINE, "Digest provider " + candidate.getName() + " failed for " + algorithm.getImplementation(), e);
+                result = new DigestBenchmarkResult(candidate.getName(), algorithm, 0, false);
+            }
+            LOG.fine("Digest benchmark " + result);
+            results.add(result);
+        }
+        Collections.sort(results);
+        benchmarkResults.put(algorithm, Collections.unmodifiableList(results));
+        return results;
+    }
+
+
+    /**
+     * Benchmark all algorithms and select the fastest valid provider per algorithm
+     *
+     * @return the selected providers
+     */
+    public Map<Digest.Algorithm, DigestProvider> benchmarkAndSelect(long millis) {
+        Map<Digest.Algorithm, DigestProvider> selection = new EnumMap<>(Digest.Algorithm.class);
+        for (Digest.Algorithm algorithm : Digest.Algorithm.values()) {
+            List<DigestBenchmarkResult> results = benchmark(algorithm, millis);
+            if (!results.isEmpty() && results.get(0).isValid()) {
+                DigestProvider fastest = getProvider(results.get(0).getProviderName());
+                select(algorithm, fastest);
+                selection.put(algorithm, fastest);
+                LOG.fine("Digest benchmark for " + algorithm.getImplementation() + ": " + results);
+            }
+        }
+        return selection;
+    }
+
+
+    /**
+     * @return the results of the last benchmark of the algorithm, or an empty list when it has not been benchmarked
+     */
+    public List<DigestBenchmarkResult> getBenchmarkResults(Digest.Algorithm algorithm) {
+        List<DigestBenchmarkResult> results = benchmarkResults.get(algorithm);
+        return results == null ? Collections.<DigestBenchmarkResult>emptyList() : results;
+    }
+
+
+    private double measure(MessageDigest messageDigest, byte[] payload, long millis) {
+        long start = System.nanoTime();
+        long end = start + TimeUnit.MILLISECONDS.toNanos(Math.max(1, millis));
+        long bytes = 0;
+        long now;
+        int result = 0;
+        do {
+            for (int i = 0; i < BENCHMARK_ROUNDS; i++) {
+                messageDigest.update(payload);
+                result ^= messageDigest.digest()[0];
+            }
+            bytes += (long) BENCHMARK_ROUNDS * payload.length;
+            now = System.nanoTime();
+        } while (now < end);
+        // Keep the result reachable, so the hashing cannot be optimized away
+        sink = result;
+        return bytes / ((now - start) / 1e9);
+    }
+
+
+    private static boolean supportsAny(DigestProvider provider) {
+        for (Digest.Algorithm algorithm : Digest.Algorithm.values()) {
+            if (provider.supports(algorithm)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.digest;
+
+import com.sphereon.libs.blockchain.commons.Digest;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+
+/**
+ * Message digests from the Java Cryptography Architecture, either from a specific security provider or from the first
+ * provider supporting the algorithm, which is what the library always used
+ */
+public class JcaDigestProvider implements DigestProvider {
+    public static final String DEFAULT_NAME = "JCA";
+    public static final String NAME_PREFIX = "JCA:";
+
+    private final Provider provider;
+
+
+    private JcaDigestProvider(Provider provider) {
+        this.provider = provider;
+    }
+
+
+    /**
+     * @return a provider using the first security provider supporting the algorithm
+     */
+    public static JcaDigestProvider defaultProvider() {
+        return new JcaDigestProvider(null);
+    }
+
+
+    public static JcaDigestProvider of(Provider provider) {
+        if (provider == null) {
+            throw new NullPointerException("A security provider is required");
+        }
+        return new JcaDigestProvider(provider);
+    }
+
+
+    @Override
+    public String getName() {
+        return provider == null ? DEFAULT_NAME : NAME_PREFIX + provider.getName();
+    }
+
+
+    @Override
+    public boolean supports(Digest.Algorithm algorithm) {
+        if (provider == null) {
+            return true;
+        }
+        return provider.getService("MessageDigest", algorithm.getImplementation()) != null;
+    }
+
+
+    @Override
+    public MessageDigest newMessageDigest(Digest.Algorithm algorithm) {
+        try {
+            return provider == null ? MessageDigest.getInstance(algorithm.getImplementation())
+                    : MessageDigest.getInstance(algorithm.getImplementation(), provider);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
@@ -0,0 +1,551 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.digest;
+
+import com.sphereon.libs.blockchain.commons.Digest;
+import com.sphereon.libs.blockchain.commons.jfr.JfrEvents;
+import com.sphereon.libs.blockchain.commons.merkle.MerkleHash;
+import com.sphereon.libs.blockchain.commons.merkle.MerkleRootAccumulator;
+import com.sphereon.libs.blockchain.commons.metrics.Metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Calculates several hashes of a source, and optionally its tree hash, while reading it only once.
+ * <p>
+ * Every buffer read from the source is fed to the digest state of each algorithm. In parallel mode every algorithm runs
+ * on its own thread, fed from a shared ring of read-ahead buffers, so hashing a file with SHA-256 and SHA-512 takes about
+ * as long as the slower of the two instead of their sum. By default every digest starts its own daemon threads. With an
+ * executor, the lanes that are rejected, run on the calling thread or not started within the start timeout are abandoned
+ * and the stream is hashed on the calling thread instead, so a saturated or caller-runs executor never blocks the digest.
+ * <p>
+ * Instances are immutable and thread safe.
+ */
+public final class MultiDigest {
+    private static final Digest digest = Digest.getInstance();
+    // Queued after the last chunk, to stop the hashing lanes
+    private static final Chunk END = new Chunk(0);
+
+    private final Set<Digest.Algorithm> algorithms;
+    private final int treeChunkSize;
+    private final boolean parallel;
+    private final Executor executor;
+    private final long startTimeoutNanos;
+    private final int bufferSize;
+    private final int readAhead;
+
+
+    private MultiDigest(Builder builder) {
+        this.algorithms = EnumSet.copyOf(builder.algorithms);
+        this.treeChunkSize = builder.treeChunkSize;
+        this.parallel = builder.parallel;
+        this.executor = builder.executor;
+        this.startTimeoutNanos = builder.startTimeoutNanos;
+        this.bufferSize = builder.bufferSize;
+        this.readAhead = builder.readAhead;
+    }
+
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+
+    public MultiDigestResult digest(byte[] input) {
+        long start = System.nanoTime();
+        Object[] events = beginEvents();
+        Sink[] sinks = newSinks();
+        for (Sink sink : sinks) {
+            sink.update(input, 0, input.length);
+        }
+        return finish(sinks, input.length, start, events, JfrEvents.SOURCE_BYTES);
+    }
+
+
+    public MultiDigestResult digest(Path file) {
+        try {
+            return digest(Files.newInputStream(file));
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * Hash the stream. The stream is closed afterwards, like {@link Digest#getHash(Digest.Algorithm, InputStream)} does
+     */
+    public MultiDigestResult digest(InputStream inputStream) {
+        long start = System.nanoTime();
+        Object[] events = beginEvents();
+        Sink[] sinks = newSinks();
+        try (InputStream input = inputStream) {
+            long size = parallel && sinks.length > 1 ? readParallel(input, sinks) : readSequential(input, sinks);
+            return finish(sinks, size, start, events, JfrEvents.SOURCE_STREAM);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+
+    public Set<Digest.Algorithm> getAlgorithms() {
+        return EnumSet.copyOf(algorithms);
+    }
+
+    /**
+     * @return the chunk size of the tree hash, or 0 when no tree hash is calculated
+     */
+    public int getTreeChunkSize() {
+        return treeChunkSize;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+
+    private long readSequential(InputStream input, Sink[] sinks) throws IOException {
+        byte[] buffer = new byte[bufferSize];
+        long size = 0;
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            size += read;
+            for (Sink sink : sinks) {
+                sink.update(buffer, 0, read);
+            }
+        }
+        return size;
+    }
+
+
+    private long readParallel(InputStream input, Sink[] sinks) throws IOException {
+        BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(readAhead);
+        for (int i = 0; i < readAhead; i++) {
+            free.add(new Chunk(bufferSize));
+        }
+        CountDownLatch started = new CountDownLatch(sinks.length);
+        CountDownLatch done = new CountDownLatch(sinks.length);
+        Lane[] lanes = new Lane[sinks.length];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane(sinks[i], free, started, done, Thread.currentThread());
+        }
+        if (!start(lanes, started, done)) {
+            // Nothing has been read yet, so hash on the calling thread instead
+            return readSequential(input, sinks);
+        }
+
+        long size = 0;
+        try {
+            for (; ; ) {
+                Chunk chunk = free.take();
+                int read = input.read(chunk.data);
+                if (read == -1) {
+                    break;
+                } else if (read == 0) {
+                    free.add(chunk);
+                    continue;
+                }
+                size += read;
+                chunk.length = read;
+                chunk.pending.set(lanes.length);
+                for (Lane lane : lanes) {
+                    lane.queue.add(chunk);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e.getMessage(), e);
+        } finally {
+            stop(lanes, done);
+        }
+        for (Lane lane : lanes) {
+            if (lane.failure != null) {
+                throw new RuntimeException(lane.failure.getMessage(), lane.failure);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Start the lanes on dedicated threads, or on the executor when one is configured. Lanes the executor did not start
+     * on another thread within the start timeout are abandoned, after which the started lanes are stopped again
+     *
+     * @return whether all lanes are running
+     */
+    private boolean start(Lane[] lanes, CountDownLatch started, CountDownLatch done) {
+        if (executor == null) {
+            for (int i = 0; i < lanes.length; i++) {
+                Thread thread = new Thread(lanes[i], "easy-blockchain-digest-" + i);
+                thread.setDaemon(true);
+                thread.start();
+            }
+            return true;
+        }
+        boolean rejected = false;
+        for (int i = 0; i < lanes.length && !rejected; i++) {
+            try {
+                executor.execute(lanes[i]);
+            } catch (RejectedExecutionException e) {
+                rejected = true;
+            }
+        }
+        boolean interrupted = false;
+        if (!rejected) {
+            try {
+                started.await(startTimeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        boolean running = true;
+        for (Lane lane : lanes) {
+            if (lane.state.compareAndSet(Lane.PENDING, Lane.ABANDONED)) {
+                running = false;
+                done.countDown();
+            }
+        }
+        if (!running) {
+            stop(lanes, done);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return running;
+    }
+
+    /**
+     * Stop the running lanes and wait until they have processed their chunks, so the sinks can be finished safely
+     */
+    private static void stop(Lane[] lanes, CountDownLatch done) {
+        for (Lane lane : lanes) {
+            if (lane.state.get() != Lane.ABANDONED) {
+                lane.queue.add(END);
+            }
+        }
+        boolean interrupted = false;
+        for (; ; ) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    private Sink[] newSinks() {
+        Sink[] sinks = new Sink[algorithms.size() + (treeChunkSize > 0 ? 1 : 0)];
+        int i = 0;
+        for (Digest.Algorithm algorithm : algorithms) {
+            sinks[i++] = new AlgorithmSink(algorithm);
+        }
+        if (treeChunkSize > 0) {
+            sinks[i] = new TreeSink(treeChunkSize);
+        }
+        return sinks;
+    }
+
+    private Object[] beginEvents() {
+        Object[] events = new Object[algorithms.size()];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = JfrEvents.beginDigest();
+        }
+        return events;
+    }
+
+    private MultiDigestResult finish(Sink[] sinks, long size, long start, Object[] events, String source) {
+        Map<Digest.Algorithm, byte[]> hashes = new EnumMap<>(Digest.Algorithm.class);
+        byte[] treeHash = null;
+        for (Sink sink : sinks) {
+            if (sink instanceof AlgorithmSink) {
+                hashes.put(((AlgorithmSink) sink).algorithm, sink.finish());
+            } else {
+                treeHash = sink.finish();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        boolean metrics = Metrics.isEnabled();
+        int i = 0;
+        for (Digest.Algorithm algorithm : algorithms) {
+            JfrEvents.commitDigest(events[i++], algorithm, size, source);
+            if (metrics) {
+                Metrics.instruments().digest(algorithm, elapsed, size);
+            }
+        }
+        return new MultiDigestResult(hashes, size, treeHash);
+    }
+
+
+    private interface Sink {
+        void update(byte[] input, int offset, int length);
+
+        byte[] finish();
+    }
+
+    private static final class AlgorithmSink implements Sink {
+        private final Digest.Algorithm algorithm;
+        private final MessageDigest messageDigest;
+
+        private AlgorithmSink(Digest.Algorithm algorithm) {
+            this.algorithm = algorithm;
+            this.messageDigest = digest.newMessageDigest(algorithm);
+        }
+
+        @Override
+        public void update(byte[] input, int offset, int length) {
+            messageDigest.update(input, offset, length);
+        }
+
+        @Override
+        public byte[] finish() {
+            return messageDigest.digest();
+        }
+    }
+
+    /**
+     * SHA-256 Merkle root of the SHA-256 hashes of fixed size chunks. An empty source has a single empty chunk
+     */
+    private static final class TreeSink implements Sink {
+        private final int chunkSize;
+        private final MessageDigest leaf = digest.newMessageDigest(Digest.Algorithm.SHA_256);
+        private final MerkleRootAccumulator accumulator = new MerkleRootAccumulator(MerkleHash.SHA_256);
+        private int filled;
+
+        private TreeSink(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public void update(byte[] input, int offset, int length) {
+            while (length > 0) {
+                int count = Math.min(length, chunkSize - filled);
+                leaf.update(input, offset, count);
+                filled += count;
+                offset += count;
+                length -= count;
+                if (filled == chunkSize) {
+                    accumulator.add(leaf.digest());
+                    filled = 0;
+                }
+            }
+        }
+
+        @Override
+        public byte[] finish() {
+            if (filled > 0 || accumulator.getLeafCount() == 0) {
+                accumulator.add(leaf.digest());
+            }
+            return accumulator.root();
+        }
+    }
+
+
+    private static final class Chunk {
+        private final byte[] data;
+        private final AtomicInteger pending = new AtomicInteger();
+        private int length;
+
+        private Chunk(int size) {
+            this.data = new byte[size];
+        }
+    }
+
+    /**
+     * Feeds the chunks to a single sink on its own thread, returning each chunk to the free ring after the last lane
+     * processed it. A failing or interrupted lane keeps draining its queue until the end, so the reader is never blocked
+     * by it and every chunk is returned
+     */
+    private static final class Lane implements Runnable {
+        private static final int PENDING = 0;
+        private static final int RUNNING = 1;
+        private static final int ABANDONED = 2;
+
+        private final Sink sink;
+        private final BlockingQueue<Chunk> free;
+        private final CountDownLatch started;
+        private final CountDownLatch done;
+        private final Thread reader;
+        private final BlockingQueue<Chunk> queue = new LinkedBlockingQueue<>();
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private volatile Throwable failure;
+
+        private Lane(Sink sink, BlockingQueue<Chunk> free, CountDownLatch started, CountDownLatch done, Thread reader) {
+            this.sink = sink;
+            this.free = free;
+            this.started = started;
+            this.done = done;
+            this.reader = reader;
+        }
+
+        @Override
+        public void run() {
+            if (Thread.currentThread() == reader) {
+                // A caller-runs executor, the lane would wait for chunks the reader never gets to read
+                started.countDown();
+                return;
+            }
+            if (!state.compareAndSet(PENDING, RUNNING)) {
+                return;
+            }
+            started.countDown();
+            boolean interrupted = false;
+            try {
+                for (; ; ) {
+                    Chunk chunk;
+                    try {
+                        chunk = queue.take();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                        if (failure == null) {
+                            failure = e;
+                        }
+                        continue;
+                    }
+                    if (chunk == END) {
+                        return;
+                    }
+                    if (failure == null) {
+                        try {
+                            sink.update(chunk.data, 0, chunk.length);
+                        } catch (Throwable t) {
+                            failure = t;
+                        }
+                    }
+                    if (chunk.pending.decrementAndGet() == 0) {
+                        free.add(chunk);
+                    }
+                }
+            } finally {
+                done.countDown();
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+
+    public static final class Builder {
+        private final Set<Digest.Algorithm> algorithms = EnumSet.noneOf(Digest.Algorithm.class);
+        private int treeChunkSize;
+        private boolean parallel;
+        private Executor executor;
+        private long startTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(100);
+        private int bufferSize = 64 * 1024;
+        private int readAhead = 4;
+
+        private Builder() {
+        }
+
+        public Builder algorithms(Digest.Algorithm... algorithms) {
+            for (Digest.Algorithm algorithm : algorithms) {
+                this.algorithms.add(algorithm);
+            }
+            return this;
+        }
+
+        /**
+         * @param chunkSize Calculate a SHA-256 Merkle root over the SHA-256 hashes of chunks of this size as well
+         */
+        public Builder treeHash(int chunkSize) {
+            if (chunkSize < 1) {
+                throw new IllegalArgumentException("Tree hash chunk size needs to be positive instead of: " + chunkSize);
+            }
+            this.treeChunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * @param parallel Whether every algorithm is calculated on its own thread when reading streams. Defaults to false
+         */
+        public Builder parallel(boolean parallel) {
+            this.parallel = parallel;
+            return this;
+        }
+
+        /**
+         * @param executor The executor of parallel mode. Defaults to none, starting dedicated daemon threads per digest.
+         *                 Do not pass a shared bounded executor that may be saturated, since every digest then waits for
+         *                 the start timeout before falling back to the calling thread
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * @param timeout How long to wait for the executor to start the lanes before hashing on the calling thread.
+         *                Defaults to 100 milliseconds
+         */
+        public Builder startTimeout(long timeout, TimeUnit unit) {
+            if (timeout < 0) {
+                throw new IllegalArgumentException("Start timeout cannot be negative: " + timeout);
+            }
+            this.startTimeoutNanos = unit.toNanos(timeout);
+            return this;
+        }
+
+        /**
+         * @param bufferSize The size of the read buffers. Defaults to 64 KiB
+         */
+        public Builder bufferSize(int bufferSize) {
+            if (bufferSize < 1) {
+                throw new IllegalArgumentException("Buffer size needs to be positive instead of: " + bufferSize);
+            }
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        /**
+         * @param readAhead The number of buffers shared by the lanes in parallel mode. Defaults to 4
+         */
+        public Builder readAhead(int readAhead) {
+            if (readAhead < 1) {
+                throw new IllegalArgumentException("Read ahead needs to be at least 1 instead of: " + readAhead);
+            }
+            this.readAhead = readAhead;
+            return this;
+        }
+
+        public MultiDigest build() {
+            if (algorithms.isEmpty() && treeChunkSize == 0) {
+                throw new IllegalArgumentException("A multi digest needs at least one algorithm or a tree hash");
+            }
+            return new MultiDigest(this);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.digest;
+
+import com.sphereon.libs.blockchain.commons.Digest;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The hashes, size and optional tree hash of a source read once by {@link MultiDigest}
+ */
+public final class MultiDigestResult {
+    private final Map<Digest.Algorithm, byte[]> hashes;
+    private final long size;
+    private final byte[] treeHash;
+
+    MultiDigestResult(Map<Digest.Algorithm, byte[]> hashes, long size, byte[] treeHash) {
+        this.hashes = new EnumMap<>(hashes);
+        this.size = size;
+        this.treeHash = treeHash;
+    }
+
+    /**
+     * @return the hash, or null when the algorithm was not requested
+     */
+    public byte[] getHash(Digest.Algorithm algorithm) {
+        byte[] hash = hashes.get(algorithm);
+        return hash == null ? null : hash.clone();
+    }
+
+    public boolean hasHash(Digest.Algorithm algorithm) {
+        return hashes.containsKey(algorithm);
+    }
+
+    /**
+     * @return the number of bytes read from the source
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the SHA-256 Merkle root of the chunk hashes, or null when no tree hash was requested
+     * @see MultiDigest.Builder#treeHash(int)
+     */
+    public byte[] getTreeHash() {
+        return treeHash == null ? null : treeHash.clone();
+    }
+}
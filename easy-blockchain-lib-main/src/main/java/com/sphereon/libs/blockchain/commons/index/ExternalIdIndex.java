@@ -0,0 +1,470 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.libs.blockchain.commons.index;
+
+import com.sphereon.libs.blockchain.api.HasValue;
+import com.sphereon.libs.blockchain.api.model.Entry;
+import com.sphereon.libs.blockchain.commons.RegistrationType;
+import com.sphereon.libs.blockchain.commons.RegistrationTypeRegistry;
+import com.sphereon.libs.blockchain.commons.links.Link;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process inverted index from (registration type, external Id value) to the entries carrying that value.
+ * <p>
+ * External Ids are interpreted as key/value pairs: an external Id whose value is the name of a registered
+ * {@link RegistrationType} (or a chain link key for such a type) is the key for the external Id directly following it.
+ * Make sure the subsystems are initialized in the {@link RegistrationTypeRegistry} before adding entries.
+ * <p>
+ * Entry Ids are interned to ordinals, so the postings lists are plain int arrays. Values are kept sorted per
+ * registration type, which allows for prefix queries. The index can be saved to and loaded from a compact file.
+ */
+public class ExternalIdIndex {
+    private static final int ENTRY_ID_LENGTH = 32;
+    private static final int MAGIC = 0x45424C58; // EBLX
+    private static final int VERSION = 1;
+    // Longer external Ids are values only. This avoids creating strings for content hashes and the like
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private static final Comparator<byte[]> UNSIGNED_BYTES = new Comparator<byte[]>() {
+        @Override
+        public int compare(byte[] first, byte[] second) {
+            int length = Math.min(first.length, second.length);
+            for (int i = 0; i < length; i++) {
+                int diff = (first[i] & 0xFF) - (second[i] & 0xFF);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return first.length - second.length;
+        }
+    };
+
+    private final RegistrationTypeRegistry registry;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, NavigableMap<byte[], Postings>> terms = new HashMap<>();
+    private byte[] entryIds = new byte[ENTRY_ID_LENGTH * 64];
+    private int entryCount;
+    // Open addressing table of ordinal + 1, keyed by the entry Id
+    private int[] ordinalTable = new int[128];
+
+    public ExternalIdIndex() {
+        this(RegistrationTypeRegistry.getInstance());
+    }
+
+    public ExternalIdIndex(RegistrationTypeRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Index the external Ids of an entry. Adding an entry that is indexed already is a no-op, since the external Ids are
+     * part of the entry Id
+     *
+     * @param entryId     The entry Id in bytes
+     * @param externalIds The external Ids of the entry
+     * @return the number of key/value pairs that were indexed
+     */
+    public int addEntry(byte[] entryId, List<? extends HasValue<byte[]>> externalIds) {
+        checkEntryId(entryId);
+        lock.writeLock().lock();
+        try {
+            if (findOrdinal(entryId) != -1) {
+                return 0;
+            }
+            int ordinal = intern(entryId);
+            int pairs = 0;
+            if (externalIds == null) {
+                return pairs;
+            }
+            for (int i = 0; i + 1 < externalIds.size(); i++) {
+                String key = resolveKey(externalIds.get(i).getValue());
+                if (key != null) {
+                    addPosting(key, externalIds.get(i + 1).getValue(), ordinal);
+                    pairs++;
+                    i++;
+                }
+            }
+            return pairs;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @see #addEntry(byte[], List)
+     */
+    public int addEntry(byte[] entryId, Entry entry) {
+        return addEntry(entryId, entry.getEntryData().getExternalIds());
+    }
+
+    /**
+     * Index a single value for an entry explicitly
+     */
+    public void add(byte[] entryId, RegistrationType registrationType, byte[] value) {
+        add(entryId, registrationType.getName(), value);
+    }
+
+    /**
+     * Index a single value for an entry explicitly, using a key like a chain link key
+     */
+    public void add(byte[] entryId, String key, byte[] value) {
+        checkEntryId(entryId);
+        lock.writeLock().lock();
+        try {
+            int ordinal = findOrdinal(entryId);
+            if (ordinal == -1) {
+                ordinal = intern(entryId);
+            }
+            addPosting(key, value, ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the entry Ids of the entries having the exact value for the registration type, in the order they were added
+     */
+    public List<byte[]> find(RegistrationType registrationType, byte[] value) {
+        return find(registrationType.getName(), value);
+    }
+
+    /**
+     * @see #find(RegistrationType, byte[])
+     */
+    public List<byte[]> find(String key, byte[] value) {
+        lock.readLock().lock();
+        try {
+            NavigableMap<byte[], Postings> values = terms.get(key);
+            Postings postings = values == null ? null : values.get(value);
+            return postings == null ? new ArrayList<byte[]>() : toEntryIds(postings.toArray(), postings.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the entry Ids of the entries having a value starting with the prefix for the registration type, in the order
+     * they were added
+     */
+    public List<byte[]> findByPrefix(RegistrationType registrationType, byte[] prefix) {
+        return findByPrefix(registrationType.getName(), prefix);
+    }
+
+    /**
+     * @see #findByPrefix(RegistrationType, byte[])
+     */
+    public List<byte[]> findByPrefix(String key, byte[] prefix) {
+        lock.readLock().lock();
+        try {
+            NavigableMap<byte[], Postings> values = terms.get(key);
+            if (values == null) {
+                return new ArrayList<>();
+            }
+            byte[] upper = prefixUpperBound(prefix);
+            Collection<Postings> matches = (upper == null ? values.tailMap(prefix, true) : values.subMap(prefix, true, upper, false)).values();
+            int total = 0;
+            for (Postings postings : matches) {
+                total += postings.size();
+            }
+            int[] ordinals = new int[total];
+            int offset = 0;
+            for (Postings postings : matches) {
+                postings.copyTo(ordinals, offset);
+                offset += postings.size();
+            }
+            Arrays.sort(ordinals);
+            int unique = 0;
+            for (int i = 0; i < ordinals.length; i++) {
+                if (i == 0 || ordinals[i] != ordinals[i - 1]) {
+                    ordinals[unique++] = ordinals[i];
+                }
+            }
+            return toEntryIds(ordinals, unique);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean containsEntry(byte[] entryId) {
+        lock.readLock().lock();
+        try {
+            return findOrdinal(entryId) != -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of indexed entries
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entryCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Save the index to a file. The file is written next to the target and moved in place afterwards
+     */
+    public void save(Path path) {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        lock.readLock().lock();
+        try (OutputStream os = Files.newOutputStream(tmp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 64 * 1024));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entryCount);
+            out.write(entryIds, 0, entryCount * ENTRY_ID_LENGTH);
+            out.writeInt(terms.size());
+            for (Map.Entry<String, NavigableMap<byte[], Postings>> type : terms.entrySet()) {
+                out.writeUTF(type.getKey());
+                out.writeInt(type.getValue().size());
+                for (Map.Entry<byte[], Postings> term : type.getValue().entrySet()) {
+                    writeVarInt(out, term.getKey().length);
+                    out.write(term.getKey());
+                    Postings postings = term.getValue();
+                    writeVarInt(out, postings.size());
+                    int previous = 0;
+                    for (int i = 0; i < postings.size(); i++) {
+                        // Ordinals are ascending, so the deltas are small
+                        writeVarInt(out, postings.get(i) - previous);
+                        previous = postings.get(i);
+                    }
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        } finally {
+            lock.readLock().unlock();
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    public static ExternalIdIndex load(Path path) {
+        return load(path, RegistrationTypeRegistry.getInstance());
+    }
+
+    public static ExternalIdIndex load(Path path, RegistrationTypeRegistry registry) {
+        ExternalIdIndex index = new ExternalIdIndex(registry);
+        try (InputStream is = Files.newInputStream(path)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(is, 64 * 1024));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new RuntimeException("File " + path + " is not an external Id index");
+            }
+            int entryCount = in.readInt();
+            index.entryIds = new byte[Math.max(ENTRY_ID_LENGTH, entryCount * ENTRY_ID_LENGTH)];
+            in.readFully(index.entryIds, 0, entryCount * ENTRY_ID_LENGTH);
+            index.ordinalTable = new int[tableSizeFor(entryCount)];
+            for (int ordinal = 0; ordinal < entryCount; ordinal++) {
+                index.insertOrdinal(ordinal);
+            }
+            index.entryCount = entryCount;
+            int typeCount = in.readInt();
+            for (int t = 0; t < typeCount; t++) {
+                String key = in.readUTF();
+                int termCount = in.readInt();
+                NavigableMap<byte[], Postings> values = index.values(key);
+                for (int i = 0; i < termCount; i++) {
+                    byte[] value = new byte[readVarInt(in)];
+                    in.readFully(value);
+                    int count = readVarInt(in);
+                    Postings postings = new Postings(count);
+                    int ordinal = 0;
+                    for (int p = 0; p < count; p++) {
+                        ordinal += readVarInt(in);
+                        postings.add(ordinal);
+                    }
+                    values.put(value, postings);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+        return index;
+    }
+
+    private String resolveKey(byte[] value) {
+        if (value == null || value.length == 0 || value.length > MAX_KEY_LENGTH) {
+            return null;
+        }
+        String name = new String(value);
+        RegistrationType registrationType = registry.get(name);
+        if (registrationType == null) {
+            return null;
+        }
+        return Link.parser().isLinkKey(name) ? registrationType.createChainLinkKey() : registrationType.getName();
+    }
+
+    private void addPosting(String key, byte[] value, int ordinal) {
+        NavigableMap<byte[], Postings> values = values(key);
+        Postings postings = values.get(value);
+        if (postings == null) {
+            postings = new Postings();
+            values.put(value.clone(), postings);
+        }
+        postings.add(ordinal);
+    }
+
+    private NavigableMap<byte[], Postings> values(String key) {
+        NavigableMap<byte[], Postings> values = terms.get(key);
+        if (values == null) {
+            values = new TreeMap<>(UNSIGNED_BYTES);
+            terms.put(key, values);
+        }
+        return values;
+    }
+
+    private List<byte[]> toEntryIds(int[] ordinals, int length) {
+        List<byte[]> result = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            int offset = ordinals[i] * ENTRY_ID_LENGTH;
+            result.add(Arrays.copyOfRange(entryIds, offset, offset + ENTRY_ID_LENGTH));
+        }
+        return result;
+    }
+
+    private int intern(byte[] entryId) {
+        if ((entryCount + 1) * ENTRY_ID_LENGTH > entryIds.length) {
+            entryIds = Arrays.copyOf(entryIds, entryIds.length << 1);
+        }
+        System.arraycopy(entryId, 0, entryIds, entryCount * ENTRY_ID_LENGTH, ENTRY_ID_LENGTH);
+        int ordinal = entryCount++;
+        if (entryCount * 2 > ordinalTable.length) {
+            ordinalTable = new int[ordinalTable.length << 1];
+            for (int i = 0; i < entryCount; i++) {
+                insertOrdinal(i);
+            }
+        } else {
+            insertOrdinal(ordinal);
+        }
+        return ordinal;
+    }
+
+    private void insertOrdinal(int ordinal) {
+        int mask = ordinalTable.length - 1;
+        int slot = hash(entryIds, ordinal * ENTRY_ID_LENGTH) & mask;
+        while (ordinalTable[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        ordinalTable[slot] = ordinal + 1;
+    }
+
+    private int findOrdinal(byte[] entryId) {
+        int mask = ordinalTable.length - 1;
+        int slot = hash(entryId, 0) & mask;
+        while (ordinalTable[slot] != 0) {
+            int ordinal = ordinalTable[slot] - 1;
+            if (equalsEntryId(ordinal, entryId)) {
+                return ordinal;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private boolean equalsEntryId(int ordinal, byte[] entryId) {
+        int offset = ordinal * ENTRY_ID_LENGTH;
+        for (int i = 0; i < ENTRY_ID_LENGTH; i++) {
+            if (entryIds[offset + i] != entryId[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(byte[] bytes, int offset) {
+        // Entry Ids are SHA-256 hashes, so the bytes are uniformly distributed already
+        return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16 | (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+    }
+
+    private static int tableSizeFor(int entries) {
+        int size = 128;
+        while (size < entries * 2) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    private static void checkEntryId(byte[] entryId) {
+        if (entryId == null || entryId.length != ENTRY_ID_LENGTH) {
+            throw new RuntimeException("An entry Id has to be " + ENTRY_ID_LENGTH + " bytes");
+        }
+    }
+
+    /**
+     * @return the smallest value greater than all values having the prefix, or null if there is no such value
+     */
+    private static byte[] prefixUpperBound(byte[] prefix) {
+        for (int i = prefix.length - 1; i >= 0; i--) {
+            if (prefix[i] != (byte) 0xFF) {
+                byte[] upper = Arrays.copyOf(prefix, i + 1);
+                upper[i]++;
+                return upper;
+            }
+        }
+        return null;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.libs.blockchain.commons.index;
+
+import java.util.Arrays;
+
+/**
+ * Ascending list of entry ordinals backed by a primitive array
+ */
+class Postings {
+    private int[] ordinals;
+    private int size;
+
+    Postings() {
+        this(2);
+    }
+
+    Postings(int capacity) {
+        this.ordinals = new int[Math.max(1, capacity)];
+    }
+
+    /**
+     * Ordinals are handed out in increasing order, so adding almost always appends to the end of the list
+     */
+    void add(int ordinal) {
+        int index = size;
+        if (size > 0 && ordinals[size - 1] >= ordinal) {
+            index = Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+        }
+        if (size == ordinals.length) {
+            ordinals = Arrays.copyOf(ordinals, size + (size >> 1) + 1);
+        }
+        System.arraycopy(ordinals, index, ordinals, index + 1, size - index);
+        ordinals[index] = ordinal;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int index) {
+        return ordinals[index];
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(ordinals, size);
+    }
+
+    /**
+     * Copy the ordinals into the target array
+     */
+    void copyTo(int[] target, int offset) {
+        System.arraycopy(ordinals, 0, target, offset, size);
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.ingest;
+
+import com.sphereon.libs.blockchain.api.HasContent;
+import com.sphereon.libs.blockchain.api.HasValue;
+import com.sphereon.libs.blockchain.api.model.ChainId;
+import com.sphereon.libs.blockchain.api.model.EntryId;
+import com.sphereon.libs.blockchain.api.model.ImmutableEntryData;
+import com.sphereon.libs.blockchain.api.model.ImmutableExternalId;
+import com.sphereon.libs.blockchain.commons.Bytes;
+import com.sphereon.libs.blockchain.commons.Digest;
+import com.sphereon.libs.blockchain.commons.EntryValidationException;
+import com.sphereon.libs.blockchain.commons.Operations;
+import com.sphereon.libs.blockchain.commons.offheap.DigestLongMap;
+import com.sphereon.libs.blockchain.commons.offheap.DigestSet;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.util.Collection;
+
+/**
+ * Serializes entries and calculates entry Ids with reusable message digests and a reusable serialization buffer, so
+ * hashing many entries does not allocate per entry. The result is the same as
+ * {@link Operations#calculateEntryId(ChainId, HasContent, Collection)}.
+ * <p>
+ * {@link ImmutableExternalId} and {@link ImmutableEntryData} values are serialized without copying them first. Other
+ * implementations are read through {@link HasValue#getValue()} and {@link HasContent#getContent()}.
+ * <p>
+ * Instances are not thread safe. Use one instance per thread.
+ */
+public final class EntryHasher {
+    public static final int ENTRY_ID_LENGTH = 32;
+
+    private static final int SHA_512_LENGTH = 64;
+    private static final int HEADER_SIZE = 1 + ChainId.LENGTH;
+
+    private final MessageDigest sha256;
+    private final MessageDigest sha512;
+    private final byte[] sha512Hash = new byte[SHA_512_LENGTH];
+    private MessageDigest externalIdSha256;
+    private byte[] externalIdHash;
+    private byte[] entryIdHash;
+    private byte[] buffer;
+    private int length;
+
+
+    public EntryHasher() {
+        this(1024);
+    }
+
+
+    /**
+     * @param initialBufferSize The initial size of the serialization buffer. It grows when a larger entry is serialized
+     */
+    public EntryHasher(int initialBufferSize) {
+        Digest digest = Digest.getInstance();
+        this.sha256 = digest.newMessageDigest(Digest.Algorithm.SHA_256);
+        this.sha512 = digest.newMessageDigest(Digest.Algorithm.SHA_512);
+        this.buffer = new byte[Math.max(HEADER_SIZE + 1, initialBufferSize)];
+    }
+
+
+    /**
+     * Serialize the entry into the internal buffer, see {@link #buffer()}
+     *
+     * @param chainId     The chain Id. When null the entry is serialized as the first entry of a new chain
+     * @param entryData   The entry content
+     * @param externalIds The external Ids
+     * @return the length of the serialized entry
+     * @throws EntryValidationException when the external Ids do not fit the entry format
+     * @throws IllegalArgumentException when an external Id has no value
+     */
+    public int serialize(ChainId chainId, HasContent<byte[]> entryData, Collection<? extends HasValue<byte[]>> externalIds) {
+        if (chainId == null) {
+            chainId = Operations.getInstance().calculateChainId(externalIds);
+        }
+        byte[] content = null;
+        int contentLength;
+        if (entryData instanceof ImmutableEntryData) {
+            contentLength = ((ImmutableEntryData) entryData).contentLength();
+        } else {
+            content = entryData == null ? null : entryData.getContent();
+            contentLength = content == null ? 0 : content.length;
+        }
+
+        int externalIdsSize = 1;
+        if (externalIds != null && !externalIds.isEmpty()) {
+            long size = 2;
+            for (HasValue<byte[]> externalId : externalIds) {
+                size += 2 + externalIdLength(externalId);
+            }
+            if (size - 2 > Operations.MAX_EXTERNAL_IDS_LENGTH) {
+                throw new EntryValidationException(EntryValidationException.Reason.EXTERNAL_IDS_TOO_LARGE, size - 2, Operations.MAX_EXTERNAL_IDS_LENGTH);
+            }
+            externalIdsSize = (int) size;
+        }
+
+        ensureCapacity(HEADER_SIZE + externalIdsSize + contentLength);
+        byte[] target = buffer;
+        target[0] = 0;
+        chainId.writeTo(target, 1);
+        int offset = HEADER_SIZE;
+        if (externalIdsSize == 1) {
+            target[offset++] = 0;
+        } else {
+            offset = Bytes.writeShort(externalIdsSize - 2, target, offset);
+            for (HasValue<byte[]> externalId : externalIds) {
+                if (externalId instanceof ImmutableExternalId) {
+                    ImmutableExternalId immutableId = (ImmutableExternalId) externalId;
+                    offset = Bytes.writeShort(immutableId.length(), target, offset);
+                    offset = immutableId.writeTo(target, offset);
+                } else {
+                    byte[] value = externalId.getValue();
+                    offset = Bytes.writeShort(value.length, target, offset);
+                    System.arraycopy(value, 0, target, offset, value.length);
+                    offset += value.length;
+                }
+            }
+        }
+        if (entryData instanceof ImmutableEntryData) {
+            offset = ((ImmutableEntryData) entryData).writeContentTo(target, offset);
+        } else if (content != null) {
+            System.arraycopy(content, 0, target, offset, content.length);
+            offset += content.length;
+        }
+        length = offset;
+        return length;
+    }
+
+
+    /**
+     * Serialize the entry and write its entry Id into the target
+     *
+     * @param target The array receiving the 32 byte entry Id
+     * @param offset The offset in the target
+     */
+    public void entryId(ChainId chainId, HasContent<byte[]> entryData, Collection<? extends HasValue<byte[]>> externalIds, byte[] target, int offset) {
+        serialize(chainId, entryData, externalIds);
+        hash(buffer, 0, length, target, offset);
+    }
+
+
+    /**
+     * Serialize the entry and add its entry Id to the off-heap set
+     *
+     * @return true when the entry Id was not in the set yet
+     */
+    public boolean entryId(ChainId chainId, HasContent<byte[]> entryData, Collection<? extends HasValue<byte[]>> externalIds, DigestSet target) {
+        if (entryIdHash == null) {
+            entryIdHash = new byte[ENTRY_ID_LENGTH];
+        }
+        entryId(chainId, entryData, externalIds, entryIdHash, 0);
+        return target.add(entryIdHash, 0);
+    }
+
+
+    /**
+     * Serialize the entry and associate its entry Id with the value in the off-heap map
+     *
+     * @return the previous value, or {@link DigestLongMap#NO_VALUE}
+     */
+    public long entryId(ChainId chainId, HasContent<byte[]> entryData, Collection<? extends HasValue<byte[]>> externalIds, DigestLongMap target, long value) {
+        if (entryIdHash == null) {
+            entryIdHash = new byte[ENTRY_ID_LENGTH];
+        }
+        entryId(chainId, entryData, externalIds, entryIdHash, 0);
+        return target.put(entryIdHash, 0, value);
+    }
+
+
+    public EntryId entryId(ChainId chainId, HasContent<byte[]> entryData, Collection<? extends HasValue<byte[]>> externalIds) {
+        byte[] entryId = new byte[ENTRY_ID_LENGTH];
+        entryId(chainId, entryData, externalIds, entryId, 0);
+        return EntryId.fromBytes(entryId);
+    }
+
+
+    /**
+     * Calculate a chain Id and write it into the target. The result is the same as
+     * {@link Operations#calculateChainId(Collection)}. The serialization buffer is used for external Id values, so its
+     * contents are overwritten
+     *
+     * @param externalIds The external Ids of the first entry of the chain
+     * @param target      The array receiving the 32 byte chain Id
+     * @param offset      The offset in the target
+     * @return the number of external Id bytes hashed
+     */
+    public long chainId(Collection<? extends HasValue<byte[]>> externalIds, byte[] target, int offset) {
+        long hashed = 0;
+        try {
+            if (externalIds != null && !externalIds.isEmpty()) {
+                if (externalIdSha256 == null) {
+                    this.externalIdSha256 = Digest.getInstance().newMessageDigest(Digest.Algorithm.SHA_256);
+                    this.externalIdHash = new byte[ENTRY_ID_LENGTH];
+                }
+                for (HasValue<byte[]> externalId : externalIds) {
+                    if (externalId instanceof ImmutableExternalId) {
+                        ImmutableExternalId immutableId = (ImmutableExternalId) externalId;
+                        ensureCapacity(immutableId.length());
+                        int idLength = immutableId.writeTo(buffer, 0);
+                        externalIdSha256.update(buffer, 0, idLength);
+                        hashed += idLength;
+                    } else {
+                        byte[] value = externalId.getValue();
+                        externalIdSha256.update(value);
+                        hashed += value.length;
+                    }
+                    externalIdSha256.digest(externalIdHash, 0, ENTRY_ID_LENGTH);
+                    sha256.update(externalIdHash);
+                }
+            }
+            length = 0;
+            sha256.digest(target, offset, ENTRY_ID_LENGTH);
+            return hashed;
+        } catch (DigestException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        } catch (RuntimeException e) {
+            // For instance a null external Id value. Do not let the partial state leak into the next calculation
+            sha256.reset();
+            if (externalIdSha256 != null) {
+                externalIdSha256.reset();
+            }
+            throw e;
+        }
+    }
+
+
+    /**
+     * Calculate the entry Id of an already serialized entry: SHA-256 over the SHA-512 hash of the entry followed by the
+     * entry itself
+     */
+    public void hash(byte[] entryBytes, int entryOffset, int entryLength, byte[] target, int offset) {
+        try {
+            sha512.update(entryBytes, entryOffset, entryLength);
+            sha512.digest(sha512Hash, 0, SHA_512_LENGTH);
+            sha256.update(sha512Hash);
+            sha256.update(entryBytes, entryOffset, entryLength);
+            sha256.digest(target, offset, ENTRY_ID_LENGTH);
+        } catch (DigestException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * @return the internal buffer. Only the first {@link #length()} bytes belong to the last serialized entry. The
+     * contents are overwritten by the next call
+     */
+    public byte[] buffer() {
+        return buffer;
+    }
+
+
+    /**
+     * @return the length of the last serialized entry
+     */
+    public int length() {
+        return length;
+    }
+
+
+    private void ensureCapacity(int size) {
+        if (buffer.length < size) {
+            buffer = new byte[Math.max(size, buffer.length * 2)];
+        }
+    }
+
+
+    private static int externalIdLength(HasValue<byte[]> externalId) {
+        if (externalId instanceof ImmutableExternalId) {
+            return ((ImmutableExternalId) externalId).length();
+        }
+        byte[] value = externalId == null ? null : externalId.getValue();
+        if (value == null) {
+            throw new IllegalArgumentException("External Ids need a value");
+        }
+        return value.length;
+    }
+}
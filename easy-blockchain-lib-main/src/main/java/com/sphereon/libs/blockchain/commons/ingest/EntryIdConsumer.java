@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.ingest;
+
+/**
+ * Receives the entry Ids calculated by an {@link EntryIngestor}
+ */
+public interface EntryIdConsumer {
+
+    /**
+     * Called from a hashing worker thread. With multiple workers this method is called concurrently, and sequences are
+     * only ordered within a batch.
+     *
+     * @param sequence   The sequence returned when the entry was published
+     * @param entryId    The 32 byte entry Id. The array is reused for later entries, so copy it when it needs to be kept
+     * @param endOfBatch Whether this is the last entry of the current micro batch, for instance to flush downstream
+     */
+    void onEntryId(long sequence, byte[] entryId, boolean endOfBatch);
+}
@@ -0,0 +1,657 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.ingest;
+
+import com.sphereon.libs.blockchain.api.HasContent;
+import com.sphereon.libs.blockchain.api.HasValue;
+import com.sphereon.libs.blockchain.api.model.ChainId;
+import com.sphereon.libs.blockchain.api.model.ImmutableEntryData;
+import com.sphereon.libs.blockchain.commons.EntryValidationException;
+import com.sphereon.libs.blockchain.commons.Operations;
+import com.sphereon.libs.blockchain.commons.RegistrationType;
+import com.sphereon.libs.blockchain.commons.dedup.DuplicateFilter;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Calculates entry Ids for bursts of entries using a pre-allocated ring buffer and a fixed set of hashing workers.
+ * <p>
+ * Producers {@link #publish(ChainId, HasContent, Collection) publish} entries into slots of the ring. Workers claim
+ * micro batches of published slots, calculate the entry Ids with their own {@link EntryHasher} into the pre-allocated
+ * entry Id array of the slot and hand them to the {@link EntryIdConsumer}. There are no queues or executor hand-offs in
+ * between, so in steady state no objects are allocated besides the entries passed in by the producers.
+ * <p>
+ * When the ring is full, producers wait until workers free up slots. The {@link WaitStrategy} determines how idle
+ * workers and waiting producers wait.
+ * <p>
+ * Entries are validated on the producer thread, so an invalid entry throws an {@link EntryValidationException} from
+ * {@link #publish(ChainId, HasContent, Collection)}. Exceptions thrown by the consumer are counted and do not stop the
+ * workers, see {@link #getFailureCount()}. Errors are counted as well, but fail the ingestor: the workers process the
+ * entries published so far and further entries are rejected, see {@link #getFatalError()}.
+ * <p>
+ * With a {@link DuplicateFilter} configured, entries whose content hash or Id has been seen before are not passed to the
+ * consumer, see {@link #getDuplicateCount()}. Content hashes are the values following a
+ * {@link RegistrationType.Defaults#HASH} external Id and are checked before the entry is hashed. The keys of an entry are
+ * only marked as seen once the consumer accepted it, so an entry is delivered again when it is published after a failed
+ * delivery. Duplicates in flight on different workers at the same time can both be delivered.
+ */
+public class EntryIngestor implements Closeable {
+
+    // Sequence value of a worker that does not hold any unprocessed slots
+    private static final long IDLE = Long.MAX_VALUE;
+    private static final int SPIN_TRIES = 100;
+    private static final long PARK_NANOS = 100000L;
+    private static final byte[] HASH_KEY = RegistrationType.Defaults.HASH.getNameInBytes();
+
+    private final Slot[] slots;
+    private final int mask;
+    private final int indexShift;
+    private final ProducerType producerType;
+    private final WaitStrategy waitStrategy;
+    private final int batchSize;
+    private final EntryIdConsumer consumer;
+    private final DuplicateFilter duplicateFilter;
+    private final Operations operations = Operations.getInstance();
+
+    // Producer side. Single producers only use published, multiple producers use claimed and available
+    private long singleClaimed = -1;
+    private final AtomicLong published = new AtomicLong(-1);
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicIntegerArray available;
+    private volatile long cachedGating = -1;
+
+    // Consumer side
+    private final AtomicLong workSequence = new AtomicLong(-1);
+    private final Worker[] workers;
+    private final Thread[] threads;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final AtomicInteger blockedWorkers = new AtomicInteger();
+
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private volatile Throwable lastFailure;
+    private volatile Error fatalError;
+    private final AtomicInteger liveWorkers;
+    private volatile boolean running = true;
+    private volatile boolean closed;
+
+
+    private EntryIngestor(Builder builder) {
+        this.slots = new Slot[builder.bufferSize];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = builder.bufferSize - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(builder.bufferSize);
+        this.producerType = builder.producerType;
+        this.waitStrategy = builder.waitStrategy;
+        this.batchSize = builder.batchSize;
+        this.consumer = builder.consumer;
+        this.duplicateFilter = builder.duplicateFilter;
+        if (producerType == ProducerType.MULTI) {
+            this.available = new AtomicIntegerArray(builder.bufferSize);
+            for (int i = 0; i < builder.bufferSize; i++) {
+                available.set(i, -1);
+            }
+        } else {
+            this.available = null;
+        }
+
+        this.workers = new Worker[builder.workers];
+        this.threads = new Thread[builder.workers];
+        this.liveWorkers = new AtomicInteger(builder.workers);
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker();
+            threads[i] = new Thread(workers[i], builder.threadNamePrefix + "-" + (i + 1));
+            threads[i].setDaemon(true);
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+    }
+
+
+    public static Builder newBuilder(EntryIdConsumer consumer) {
+        return new Builder(consumer);
+    }
+
+
+    /**
+     * Publish an entry for entry Id calculation. The entry is not copied, so it should not be changed afterwards
+     *
+     * @param chainId     The chain Id. When null the entry is hashed as the first entry of a new chain
+     * @param entryData   The entry content
+     * @param externalIds The external Ids
+     * @return the sequence of the entry, as passed to the consumer together with its entry Id
+     * @throws EntryValidationException when the entry exceeds the size limits
+     * @throws IllegalStateException     when the ingestor has been closed or has failed
+     */
+    public long publish(ChainId chainId, HasContent<byte[]> entryData, Collection<? extends HasValue<byte[]>> externalIds) {
+        if (closed) {
+            throw new IllegalStateException("Entry ingestor has been closed");
+        }
+        if (fatalError != null) {
+            throw new IllegalStateException("Entry ingestor failed: " + fatalError, fatalError);
+        }
+        operations.validateEntry(entryData, externalIds);
+        long sequence = next();
+        slots[(int) sequence & mask].set(chainId, entryData, externalIds);
+        if (producerType == ProducerType.SINGLE) {
+            published.lazySet(sequence);
+        } else {
+            available.lazySet((int) sequence & mask, (int) (sequence >>> indexShift));
+        }
+        if (waitStrategy == WaitStrategy.BLOCKING && blockedWorkers.get() > 0) {
+            lock.lock();
+            try {
+                workAvailable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return sequence;
+    }
+
+
+    public long publish(ChainId chainId, ImmutableEntryData entryData) {
+        return publish(chainId, entryData, entryData.getExternalIds());
+    }
+
+
+    /**
+     * Wait until all entries published so far have been handed to the consumer
+     *
+     * @throws IllegalStateException when all workers have stopped because of an error
+     */
+    public void flush() {
+        long target = producerType == ProducerType.SINGLE ? published.get() : claimed.get();
+        int counter = 0;
+        while (gatingSequence() < target) {
+            checkWorkers();
+            counter = producerIdle(counter);
+        }
+    }
+
+
+    /**
+     * @return the number of free slots in the ring
+     */
+    public int remainingCapacity() {
+        long cursor = producerType == ProducerType.SINGLE ? published.get() : claimed.get();
+        return (int) (slots.length - (cursor - Math.min(cursor, gatingSequence())));
+    }
+
+
+    public int getBufferSize() {
+        return slots.length;
+    }
+
+
+    /**
+     * @return the number of entries for which hashing or the consumer threw an exception or error
+     */
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+
+    /**
+     * @return the number of entries skipped by the duplicate filter
+     */
+    public long getDuplicateCount() {
+        return duplicates.get();
+    }
+
+
+    public Throwable getLastFailure() {
+        return lastFailure;
+    }
+
+
+    /**
+     * @return the first error thrown by hashing or the consumer, or null when the ingestor has not failed
+     */
+    public Error getFatalError() {
+        return fatalError;
+    }
+
+
+    /**
+     * Stop accepting entries, process the published entries and stop the workers
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flush();
+        } finally {
+            running = false;
+            lock.lock();
+            try {
+                workAvailable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            for (Thread thread : threads) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+
+    private long next() {
+        long sequence = producerType == ProducerType.SINGLE ? ++singleClaimed : claimed.incrementAndGet();
+        long wrapPoint = sequence - slots.length;
+        if (wrapPoint > cachedGating) {
+            long gating;
+            int counter = 0;
+            while (wrapPoint > (gating = gatingSequence())) {
+                checkWorkers();
+                counter = producerIdle(counter);
+            }
+            cachedGating = gating;
+        }
+        return sequence;
+    }
+
+
+    /**
+     * Record a failure of hashing or the consumer. An error fails the ingestor
+     */
+    private void fail(Throwable failure) {
+        failures.incrementAndGet();
+        lastFailure = failure;
+        if (failure instanceof Error && fatalError == null) {
+            fatalError = (Error) failure;
+        }
+    }
+
+
+    /**
+     * Waiting producers would spin forever when there are no workers left to free up slots
+     */
+    private void checkWorkers() {
+        if (liveWorkers.get() == 0) {
+            throw new IllegalStateException("All entry ingestor workers have stopped", fatalError);
+        }
+    }
+
+
+    /**
+     * @return the highest sequence of which the slot can be reused. Sequences above the work sequence are not claimed by
+     * a worker yet, so the work sequence needs to be read before the worker sequences
+     */
+    private long gatingSequence() {
+        long minimum = workSequence.get();
+        for (Worker worker : workers) {
+            minimum = Math.min(minimum, worker.sequence.get());
+        }
+        return minimum;
+    }
+
+
+    /**
+     * @return the highest sequence that is published without gaps
+     */
+    private long highestPublished(long from) {
+        if (producerType == ProducerType.SINGLE) {
+            return published.get();
+        }
+        long to = claimed.get();
+        for (long sequence = from; sequence <= to; sequence++) {
+            if (available.get((int) sequence & mask) != (int) (sequence >>> indexShift)) {
+                return sequence - 1;
+            }
+        }
+        return to;
+    }
+
+
+    private int producerIdle(int counter) {
+        if (waitStrategy == WaitStrategy.BUSY_SPIN) {
+            return counter;
+        } else if (counter < SPIN_TRIES) {
+            return counter + 1;
+        } else if (waitStrategy == WaitStrategy.YIELDING || counter < 2 * SPIN_TRIES) {
+            Thread.yield();
+            return counter + 1;
+        }
+        // Sleeping and blocking producers both park, since workers do not signal freed up slots
+        LockSupport.parkNanos(PARK_NANOS);
+        return counter;
+    }
+
+
+    private int workerIdle(int counter, long current) {
+        if (waitStrategy != WaitStrategy.BLOCKING) {
+            return producerIdle(counter);
+        }
+        blockedWorkers.incrementAndGet();
+        lock.lock();
+        try {
+            if (running && highestPublished(current + 1) <= current) {
+                // The timeout is a safety net only, publishers signal when a worker is blocked
+                workAvailable.await(1, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+            blockedWorkers.decrementAndGet();
+        }
+        return counter;
+    }
+
+
+    private static class Slot {
+        private final byte[] entryId = new byte[EntryHasher.ENTRY_ID_LENGTH];
+        private ChainId chainId;
+        private HasContent<byte[]> entryData;
+        private Collection<? extends HasValue<byte[]>> externalIds;
+
+        private void set(ChainId chainId, HasContent<byte[]> entryData, Collection<? extends HasValue<byte[]>> externalIds) {
+            this.chainId = chainId;
+            this.entryData = entryData;
+            this.externalIds = externalIds;
+        }
+
+        private void clear() {
+            // Do not keep the entries reachable after processing
+            set(null, null, null);
+        }
+    }
+
+
+    private class Worker implements Runnable {
+        private final AtomicLong sequence = new AtomicLong(IDLE);
+        private final EntryHasher hasher = new EntryHasher();
+
+        @Override
+        public void run() {
+            try {
+                process();
+            } catch (Throwable t) {
+                fail(t);
+            } finally {
+                sequence.set(IDLE);
+                liveWorkers.decrementAndGet();
+            }
+        }
+
+        private void process() {
+            int counter = 0;
+            while (true) {
+                long current = workSequence.get();
+                long highest = highestPublished(current + 1);
+                if (highest <= current) {
+                    if (!running || Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    counter = workerIdle(counter, current);
+                    continue;
+                }
+                counter = 0;
+                // Announce the claim before making it, see gatingSequence()
+                sequence.set(current);
+                long end = Math.min(highest, current + batchSize);
+                if (!workSequence.compareAndSet(current, end)) {
+                    sequence.set(IDLE);
+                    continue;
+                }
+                try {
+                    if (duplicateFilter == null) {
+                        for (long next = current + 1; next <= end; next++) {
+                            Slot slot = slots[(int) next & mask];
+                            try {
+                                hasher.entryId(slot.chainId, slot.entryData, slot.externalIds, slot.entryId, 0);
+                                consumer.onEntryId(next, slot.entryId, next == end);
+                            } catch (Throwable t) {
+                                fail(t);
+                            } finally {
+                                slot.clear();
+                            }
+                        }
+                    } else {
+                        processDeduplicated(current + 1, end);
+                    }
+                } finally {
+                    sequence.set(IDLE);
+                }
+            }
+        }
+
+        /**
+         * Hash the batch and skip duplicates. Each new entry is handed to the consumer when the next new entry is found,
+         * so the last new entry of the batch is still passed as end of batch. The slots of pending entries are not
+         * reused before the batch is released
+         */
+        private void processDeduplicated(long from, long end) {
+            long pending = -1;
+            for (long next = from; next <= end; next++) {
+                Slot slot = slots[(int) next & mask];
+                boolean keep = false;
+                try {
+                    if (contentSeen(slot.externalIds)) {
+                        duplicates.incrementAndGet();
+                        continue;
+                    }
+                    hasher.entryId(slot.chainId, slot.entryData, slot.externalIds, slot.entryId, 0);
+                    // The pending entry is not marked as seen yet
+                    if (duplicateFilter.isDuplicate(DuplicateFilter.KeyType.ENTRY_ID, slot.entryId, 0, EntryHasher.ENTRY_ID_LENGTH)
+                            || pending >= 0 && isSame(slots[(int) pending & mask], slot)) {
+                        duplicates.incrementAndGet();
+                        continue;
+                    }
+                    if (pending >= 0) {
+                        deliver(pending, false);
+                    }
+                    pending = next;
+                    keep = true;
+                } catch (Throwable t) {
+                    fail(t);
+                } finally {
+                    if (!keep) {
+                        slot.clear();
+                    }
+                }
+            }
+            if (pending >= 0) {
+                deliver(pending, true);
+            }
+        }
+
+        private void deliver(long sequence, boolean endOfBatch) {
+            Slot slot = slots[(int) sequence & mask];
+            try {
+                consumer.onEntryId(sequence, slot.entryId, endOfBatch);
+                duplicateFilter.markSeen(DuplicateFilter.KeyType.ENTRY_ID, slot.entryId, 0, EntryHasher.ENTRY_ID_LENGTH);
+                markContentSeen(slot.externalIds);
+            } catch (Throwable t) {
+                fail(t);
+            } finally {
+                slot.clear();
+            }
+        }
+
+        private boolean contentSeen(Collection<? extends HasValue<byte[]>> externalIds) {
+            if (externalIds == null) {
+                return false;
+            }
+            boolean hashKey = false;
+            for (HasValue<byte[]> externalId : externalIds) {
+                byte[] value = externalId.getValue();
+                if (hashKey && isContentHash(value) && duplicateFilter.isDuplicate(DuplicateFilter.KeyType.CONTENT_HASH, value)) {
+                    return true;
+                }
+                hashKey = !hashKey && Arrays.equals(HASH_KEY, value);
+            }
+            return false;
+        }
+
+        private void markContentSeen(Collection<? extends HasValue<byte[]>> externalIds) {
+            if (externalIds == null) {
+                return;
+            }
+            boolean hashKey = false;
+            for (HasValue<byte[]> externalId : externalIds) {
+                byte[] value = externalId.getValue();
+                if (hashKey && isContentHash(value)) {
+                    duplicateFilter.markSeen(DuplicateFilter.KeyType.CONTENT_HASH, value);
+                }
+                hashKey = !hashKey && Arrays.equals(HASH_KEY, value);
+            }
+        }
+
+        private boolean isSame(Slot pending, Slot slot) {
+            if (Arrays.equals(pending.entryId, slot.entryId)) {
+                return true;
+            }
+            if (pending.externalIds == null || slot.externalIds == null) {
+                return false;
+            }
+            boolean hashKey = false;
+            for (HasValue<byte[]> externalId : pending.externalIds) {
+                byte[] value = externalId.getValue();
+                if (hashKey && isContentHash(value) && hasContentHash(slot.externalIds, value)) {
+                    return true;
+                }
+                hashKey = !hashKey && Arrays.equals(HASH_KEY, value);
+            }
+            return false;
+        }
+
+        private boolean hasContentHash(Collection<? extends HasValue<byte[]>> externalIds, byte[] contentHash) {
+            boolean hashKey = false;
+            for (HasValue<byte[]> externalId : externalIds) {
+                byte[] value = externalId.getValue();
+                if (hashKey && Arrays.equals(contentHash, value)) {
+                    return true;
+                }
+                hashKey = !hashKey && Arrays.equals(HASH_KEY, value);
+            }
+            return false;
+        }
+
+        private boolean isContentHash(byte[] value) {
+            return value != null && value.length > 0;
+        }
+    }
+
+
+    public static class Builder {
+        private final EntryIdConsumer consumer;
+        private int bufferSize = 16384;
+        private int workers = Runtime.getRuntime().availableProcessors();
+        private int batchSize = 64;
+        private WaitStrategy waitStrategy = WaitStrategy.SLEEPING;
+        private ProducerType producerType = ProducerType.MULTI;
+        private String threadNamePrefix = "easy-blockchain-ingest";
+        private DuplicateFilter duplicateFilter;
+
+        private Builder(EntryIdConsumer consumer) {
+            if (consumer == null) {
+                throw new NullPointerException("An entry Id consumer is required");
+            }
+            this.consumer = consumer;
+        }
+
+        /**
+         * @param bufferSize The number of slots in the ring, which needs to be a power of 2. Defaults to 16384
+         */
+        public Builder bufferSize(int bufferSize) {
+            if (bufferSize < 1 || Integer.bitCount(bufferSize) != 1) {
+                throw new IllegalArgumentException("Buffer size needs to be a power of 2 instead of: " + bufferSize);
+            }
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        /**
+         * @param workers The number of hashing worker threads. Defaults to the number of cores
+         */
+        public Builder workers(int workers) {
+            if (workers < 1) {
+                throw new IllegalArgumentException("At least one worker is needed instead of: " + workers);
+            }
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * @param batchSize The maximum number of slots a worker claims at once. Defaults to 64
+         */
+        public Builder batchSize(int batchSize) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("Batch size needs to be at least 1 instead of: " + batchSize);
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public Builder waitStrategy(WaitStrategy waitStrategy) {
+            this.waitStrategy = waitStrategy;
+            return this;
+        }
+
+        public Builder producerType(ProducerType producerType) {
+            this.producerType = producerType;
+            return this;
+        }
+
+        public Builder threadNamePrefix(String threadNamePrefix) {
+            this.threadNamePrefix = threadNamePrefix;
+            return this;
+        }
+
+        /**
+         * @param duplicateFilter Entries with a content hash or Id the filter has seen before are counted as duplicates
+         *                        instead of being passed to the consumer. The keys of delivered entries are marked as
+         *                        seen. Defaults to none
+         */
+        public Builder duplicateFilter(DuplicateFilter duplicateFilter) {
+            this.duplicateFilter = duplicateFilter;
+            return this;
+        }
+
+        /**
+         * @return a started ingestor
+         */
+        public EntryIngestor build() {
+            return new EntryIngestor(this);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.ingest;
+
+/**
+ * How idle hashing workers and producers waiting for free slots wait. The trade-off is latency versus CPU usage
+ */
+public enum WaitStrategy {
+    /**
+     * Spin continuously. Lowest latency, but keeps a core busy per idle worker
+     */
+    BUSY_SPIN,
+
+    /**
+     * Spin for a while, then yield the thread to others
+     */
+    YIELDING,
+
+    /**
+     * Spin, yield and then park for short periods. A good default for bursty loads
+     */
+    SLEEPING,
+
+    /**
+     * Block on a condition which producers signal. Lowest CPU usage, highest latency
+     */
+    BLOCKING
+}
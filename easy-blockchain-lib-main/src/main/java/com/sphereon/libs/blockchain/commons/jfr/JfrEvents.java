@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.jfr;
+
+import com.sphereon.libs.blockchain.commons.Digest;
+
+/**
+ * JDK Flight Recorder events of the library.
+ * <p>
+ * This is the Java 8 implementation, which does nothing. The multi-release jar contains a Java 17 version in
+ * META-INF/versions/17 emitting the events when the jdk.jfr module is present. Both versions need to keep the same
+ * public methods.
+ * <p>
+ * Every event is started with a begin method and finished with the matching commit method. The begin methods return null
+ * when no recording has the event enabled, in which case commit returns immediately. The events have a default threshold,
+ * which can be changed like any JFR setting, for instance in a .jfc file or using
+ * {@code recording.enable(JfrEvents.DIGEST_EVENT).withThreshold(Duration.ofMillis(5))}.
+ */
+public final class JfrEvents {
+    public static final String DIGEST_EVENT = "com.sphereon.easyblockchain.Digest";
+    public static final String ENTRY_SERIALIZE_EVENT = "com.sphereon.easyblockchain.EntrySerialize";
+    public static final String ENTRY_ID_EVENT = "com.sphereon.easyblockchain.EntryId";
+    public static final String LINK_PARSE_EVENT = "com.sphereon.easyblockchain.LinkParse";
+
+    public static final String SOURCE_BYTES = "bytes";
+    public static final String SOURCE_STREAM = "stream";
+
+    private JfrEvents() {
+    }
+
+
+    /**
+     * @return whether the events can be recorded in this runtime
+     */
+    public static boolean isAvailable() {
+        return false;
+    }
+
+
+    public static Object beginDigest() {
+        return null;
+    }
+
+    /**
+     * @param source {@link #SOURCE_BYTES} or {@link #SOURCE_STREAM}
+     */
+    public static void commitDigest(Object event, Digest.Algorithm algorithm, long bytes, String source) {
+    }
+
+
+    public static Object beginEntrySerialize() {
+        return null;
+    }
+
+    public static void commitEntrySerialize(Object event, int externalIds, int contentSize, int entrySize) {
+    }
+
+
+    public static Object beginEntryId() {
+        return null;
+    }
+
+    public static void commitEntryId(Object event, int externalIds, int contentSize, boolean chainIdCacheHit) {
+    }
+
+
+    public static Object beginLinkParse() {
+        return null;
+    }
+
+    public static void commitLinkParse(Object event, String input, int parts) {
+    }
+}
@@ -0,0 +1,547 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.libs.blockchain.commons.journal;
+
+import com.sphereon.libs.blockchain.api.HasContent;
+import com.sphereon.libs.blockchain.api.HasValue;
+import com.sphereon.libs.blockchain.api.model.Entry;
+import com.sphereon.libs.blockchain.commons.Digest;
+import com.sphereon.libs.blockchain.commons.Operations;
+import com.sphereon.libs.blockchain.commons.Utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+
+/**
+ * Local append-only journal of the entries of a single chain.
+ * <p>
+ * Entries are stored in segment files using the {@link Operations#entryToBytes(String, Entry)} format. A memory mapped
+ * index from entry Id to record location allows for constant time lookups, while the segments can be scanned
+ * sequentially without loading them in the heap. Every record carries a CRC-32 checksum. When opening a journal the
+ * records written after the last indexed position are replayed, and a torn record at the end of the last segment is
+ * truncated.
+ * <p>
+ * Appended records end up in the OS page cache immediately. Use {@link #sync()} or {@link Builder#syncOnAppend(boolean)}
+ * when records have to survive an operating system crash as well.
+ */
+public class ChainJournal implements Iterable<JournalRecord>, Closeable {
+
+    static final String SEGMENT_SUFFIX = ".seg";
+    static final String INDEX_FILE = "entries.idx";
+
+    private static final int SEGMENT_MAGIC = 0x45424C4A; // EBLJ
+    private static final int SEGMENT_VERSION = 1;
+    private static final int SEGMENT_HEADER_SIZE = 8;
+    private static final int ENTRY_ID_LENGTH = JournalIndex.KEY_LENGTH;
+    // length + entry Id + external Id count + checksum
+    private static final int RECORD_OVERHEAD = 4 + ENTRY_ID_LENGTH + 2 + 4;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private static final Operations operations = Operations.getInstance();
+    private static final Digest digest = Digest.getInstance();
+
+    private final Path directory;
+    private final String chainIdHex;
+    private final long maxSegmentSize;
+    private final boolean syncOnAppend;
+    private final List<FileChannel> segments = new ArrayList<>();
+    private JournalIndex index;
+    private long writePosition;
+    private boolean closed;
+
+    private ChainJournal(Builder builder) throws IOException {
+        this.directory = builder.directory;
+        this.chainIdHex = builder.chainIdHex;
+        this.maxSegmentSize = builder.maxSegmentSize;
+        this.syncOnAppend = builder.syncOnAppend;
+        recover(operations.fromHex(chainIdHex).original(), builder.initialIndexCapacity);
+    }
+
+    public static Builder newBuilder(Path directory, String chainIdHex) {
+        return new Builder(directory, chainIdHex);
+    }
+
+    /**
+     * Open or create the journal using the default settings
+     */
+    public static ChainJournal open(Path directory, String chainIdHex) {
+        return newBuilder(directory, chainIdHex).build();
+    }
+
+    public String getChainIdHex() {
+        return chainIdHex;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Append an entry to the journal. Appending an entry that is present already is a no-op
+     *
+     * @return the entry Id in bytes
+     */
+    public synchronized byte[] append(HasContent<byte[]> entryData, Collection<? extends HasValue<byte[]>> externalIds) {
+        ensureOpen();
+        byte[] entryBytes = operations.entryToBytes(chainIdHex, entryData, externalIds).original();
+        byte[] entryId = digest.getSHA256Hash(operations.concat(digest.getSHA512Hash(entryBytes), entryBytes).original());
+        if (index.get(entryId, 0) != -1) {
+            return entryId;
+        }
+        int externalIdCount = externalIds == null ? 0 : externalIds.size();
+        ByteBuffer record = ByteBuffer.allocate(RECORD_OVERHEAD + entryBytes.length);
+        record.putInt(ENTRY_ID_LENGTH + 2 + entryBytes.length);
+        record.put(entryId);
+        record.putShort((short) externalIdCount);
+        record.put(entryBytes);
+        record.putInt(checksum(record.array(), 4, record.position() - 4));
+        record.flip();
+
+        try {
+            if (writePosition > SEGMENT_HEADER_SIZE && writePosition + record.remaining() > maxSegmentSize) {
+                rollSegment();
+            }
+            int segment = segments.size() - 1;
+            long position = writePosition;
+            writeFully(activeSegment(), record, position);
+            if (syncOnAppend) {
+                activeSegment().force(false);
+            }
+            writePosition += record.capacity();
+            index.putIfAbsent(entryId, 0, JournalIndex.location(segment, position));
+            index.commit(segment, writePosition);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+        return entryId;
+    }
+
+    /**
+     * @see #append(HasContent, Collection)
+     */
+    public byte[] append(Entry entry) {
+        return append(entry.getEntryData(), entry.getEntryData().getExternalIds());
+    }
+
+    /**
+     * Lookup a record by entry Id
+     *
+     * @return the record, or null when the entry is not present in this journal
+     */
+    public synchronized JournalRecord get(byte[] entryId) {
+        ensureOpen();
+        long location = index.get(entryId, 0);
+        if (location == -1) {
+            return null;
+        }
+        int segment = JournalIndex.segmentOf(location);
+        JournalRecord record;
+        try {
+            record = new RecordReader().read(segments.get(segment), segment, JournalIndex.positionOf(location), Long.MAX_VALUE);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+        if (record == null || !Arrays.equals(entryId, record.getEntryId())) {
+            throw new RuntimeException("Journal " + directory + " contains an invalid record for entry " + Utils.Hex.encodeAsString(entryId));
+        }
+        return record;
+    }
+
+    /**
+     * @see #get(byte[])
+     */
+    public JournalRecord get(String entryIdHex) {
+        return get(operations.fromHex(entryIdHex).original());
+    }
+
+    public synchronized boolean contains(byte[] entryId) {
+        ensureOpen();
+        return index.get(entryId, 0) != -1;
+    }
+
+    /**
+     * @return the number of entries in the journal
+     */
+    public synchronized int size() {
+        ensureOpen();
+        return index.size();
+    }
+
+    /**
+     * Sequentially iterate over all records in append order. The iterator sees the records that were present when it was
+     * created
+     */
+    @Override
+    public synchronized Iterator<JournalRecord> iterator() {
+        ensureOpen();
+        return new RecordIterator(new ArrayList<>(segments), writePosition);
+    }
+
+    /**
+     * Flush the segments and the index to the storage device
+     */
+    public synchronized void sync() {
+        ensureOpen();
+        try {
+            activeSegment().force(false);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+        index.force();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        IOException failure = null;
+        for (FileChannel segment : segments) {
+            try {
+                segment.force(false);
+                segment.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        index.close();
+        if (failure != null) {
+            throw new RuntimeException(failure.getMessage(), failure);
+        }
+    }
+
+    private void recover(byte[] chainId, int initialIndexCapacity) throws IOException {
+        try {
+            recoverSegments(chainId, initialIndexCapacity);
+        } catch (IOException | RuntimeException | Error e) {
+            for (FileChannel segment : segments) {
+                try {
+                    segment.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            segments.clear();
+            throw e;
+        }
+    }
+
+    private void recoverSegments(byte[] chainId, int initialIndexCapacity) throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segmentFiles = listSegments();
+        for (int i = 0; i < segmentFiles.size(); i++) {
+            Path expected = segmentPath(i);
+            if (!segmentFiles.get(i).equals(expected)) {
+                throw new RuntimeException("Journal " + directory + " is missing segment " + expected.getFileName());
+            }
+            segments.add(openSegment(expected));
+        }
+        if (segments.isEmpty()) {
+            segments.add(openSegment(segmentPath(0)));
+        }
+
+        Path indexPath = directory.resolve(INDEX_FILE);
+        index = JournalIndex.open(indexPath, chainId, initialIndexCapacity);
+        if (index == null || index.committedSegment() >= segments.size()
+                || index.committedPosition() > segments.get(index.committedSegment()).size()) {
+            // Unusable index, or an index that was persisted ahead of the segment data after a crash and refers to
+            // records beyond the end of the segment. Rebuild it from all segments
+            if (index != null) {
+                index.close();
+            }
+            index = JournalIndex.create(indexPath, chainId, initialIndexCapacity);
+        }
+
+        int fromSegment = index.committedSegment();
+        long fromPosition = Math.max(SEGMENT_HEADER_SIZE, index.committedPosition());
+        RecordReader reader = new RecordReader();
+        for (int segment = fromSegment; segment < segments.size(); segment++) {
+            FileChannel channel = segments.get(segment);
+            long position = segment == fromSegment ? fromPosition : SEGMENT_HEADER_SIZE;
+            long end = channel.size();
+            while (position < end) {
+                JournalRecord record = reader.read(channel, segment, position, end);
+                if (record == null) {
+                    if (segment != segments.size() - 1) {
+                        throw new RuntimeException("Journal " + directory + " contains a corrupt record in segment " + segment + " at position " + position);
+                    }
+                    // Torn write at the tail of the journal
+                    channel.truncate(position);
+                    break;
+                }
+                index.putIfAbsent(record.getEntryId(), 0, JournalIndex.location(segment, position));
+                position += RECORD_OVERHEAD + record.getEntryBytes().length;
+            }
+            index.commit(segment, position);
+            writePosition = position;
+        }
+        index.force();
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> result = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                result.add(path);
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private Path segmentPath(int segment) {
+        return directory.resolve(String.format("%010d%s", segment, SEGMENT_SUFFIX));
+    }
+
+    private FileChannel openSegment(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < SEGMENT_HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+            header.putInt(SEGMENT_MAGIC).putInt(SEGMENT_VERSION).flip();
+            channel.truncate(0);
+            writeFully(channel, header, 0);
+            channel.force(true);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.getInt() != SEGMENT_MAGIC || header.getInt() != SEGMENT_VERSION) {
+                channel.close();
+                throw new RuntimeException("File " + path + " is not a journal segment");
+            }
+        }
+        return channel;
+    }
+
+    private void rollSegment() throws IOException {
+        activeSegment().force(false);
+        segments.add(openSegment(segmentPath(segments.size())));
+        writePosition = SEGMENT_HEADER_SIZE;
+        index.commit(segments.size() - 1, writePosition);
+    }
+
+    private FileChannel activeSegment() {
+        return segments.get(segments.size() - 1);
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Journal " + directory + " has been closed");
+        }
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of journal segment");
+            }
+            position += read;
+        }
+    }
+
+
+    /**
+     * Reads records using a read-ahead buffer, so sequential scans do not need a system call per record
+     */
+    private static class RecordReader {
+        private final ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        private FileChannel bufferedChannel;
+        private long bufferStart = -1;
+
+        /**
+         * @return the record, or null if the bytes at the position do not form a complete and valid record
+         */
+        JournalRecord read(FileChannel channel, int segment, long position, long end) throws IOException {
+            end = Math.min(end, channel.size());
+            if (position + RECORD_OVERHEAD > end) {
+                return null;
+            }
+            ByteBuffer lengthBytes = slice(channel, position, 4, end);
+            int length = lengthBytes.getInt(lengthBytes.position());
+            if (length < ENTRY_ID_LENGTH + 2 || position + 4 + length + 4 > end) {
+                return null;
+            }
+            ByteBuffer body = slice(channel, position + 4, length + 4, end);
+            byte[] bytes = new byte[length + 4];
+            body.get(bytes);
+            ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+            if (wrapped.getInt(length) != checksum(bytes, 0, length)) {
+                return null;
+            }
+            byte[] entryId = new byte[ENTRY_ID_LENGTH];
+            wrapped.get(entryId);
+            int externalIdCount = wrapped.getShort() & 0xFFFF;
+            byte[] entryBytes = new byte[length - ENTRY_ID_LENGTH - 2];
+            wrapped.get(entryBytes);
+            return new JournalRecord(entryId, externalIdCount, entryBytes, segment, position);
+        }
+
+        private ByteBuffer slice(FileChannel channel, long position, int length, long end) throws IOException {
+            if (length > buffer.capacity()) {
+                ByteBuffer large = ByteBuffer.allocate(length);
+                readFully(channel, large, position);
+                large.flip();
+                return large;
+            }
+            if (channel != bufferedChannel || position < bufferStart || position + length > bufferStart + buffer.limit()) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                readFully(channel, buffer, position);
+                buffer.flip();
+                bufferedChannel = channel;
+                bufferStart = position;
+            }
+            ByteBuffer slice = buffer.duplicate();
+            slice.position((int) (position - bufferStart));
+            slice.limit(slice.position() + length);
+            return slice;
+        }
+    }
+
+
+    private static class RecordIterator implements Iterator<JournalRecord> {
+        private final List<FileChannel> segments;
+        private final long lastSegmentEnd;
+        private final RecordReader reader = new RecordReader();
+        private int segment;
+        private long position = SEGMENT_HEADER_SIZE;
+        private JournalRecord next;
+
+        RecordIterator(List<FileChannel> segments, long lastSegmentEnd) {
+            this.segments = segments;
+            this.lastSegmentEnd = lastSegmentEnd;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            try {
+                while (segment < segments.size()) {
+                    FileChannel channel = segments.get(segment);
+                    long end = segment == segments.size() - 1 ? lastSegmentEnd : channel.size();
+                    if (position < end) {
+                        next = reader.read(channel, segment, position, end);
+                        if (next == null) {
+                            throw new RuntimeException("Journal contains a corrupt record in segment " + segment + " at position " + position);
+                        }
+                        position += RECORD_OVERHEAD + next.getEntryBytes().length;
+                        return;
+                    }
+                    segment++;
+                    position = SEGMENT_HEADER_SIZE;
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public JournalRecord next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            JournalRecord current = next;
+            advance();
+            return current;
+        }
+    }
+
+
+    public static class Builder {
+        private final Path directory;
+        private final String chainIdHex;
+        private long maxSegmentSize = 64L * 1024 * 1024;
+        private int initialIndexCapacity = 1024;
+        private boolean syncOnAppend;
+
+        private Builder(Path directory, String chainIdHex) {
+            if (directory == null) {
+                throw new NullPointerException("Journal directory is required");
+            }
+            if (Utils.String.isEmpty(chainIdHex) || chainIdHex.length() != 2 * ENTRY_ID_LENGTH) {
+                throw new RuntimeException("A journal needs a chain Id in hex form instead of: " + chainIdHex);
+            }
+            this.directory = directory;
+            this.chainIdHex = chainIdHex.toLowerCase();
+        }
+
+        /**
+         * The size after which a new segment is started. Records are never split over segments
+         */
+        public Builder maxSegmentSize(long maxSegmentSize) {
+            if (maxSegmentSize <= SEGMENT_HEADER_SIZE || maxSegmentSize > JournalIndex.positionOf(-1L)) {
+                throw new RuntimeException("Invalid maximum segment size " + maxSegmentSize);
+            }
+            this.maxSegmentSize = maxSegmentSize;
+            return this;
+        }
+
+        public Builder initialIndexCapacity(int initialIndexCapacity) {
+            this.initialIndexCapacity = initialIndexCapacity;
+            return this;
+        }
+
+        /**
+         * Force every appended record to the storage device before returning
+         */
+        public Builder syncOnAppend(boolean syncOnAppend) {
+            this.syncOnAppend = syncOnAppend;
+            return this;
+        }
+
+        public ChainJournal build() {
+            try {
+                return new ChainJournal(this);
+            } catch (IOException e) {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        }
+    }
+}
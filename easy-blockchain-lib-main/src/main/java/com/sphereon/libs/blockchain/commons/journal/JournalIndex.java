@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.libs.blockchain.commons.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Memory mapped open addressing hash table from 32 byte entry Ids to record locations.
+ * <p>
+ * Entry Ids are SHA-256 hashes, so the first 8 bytes are used as the hash directly. A location combines the segment
+ * number and the position of the record within that segment. The header keeps the position up to which the segments have
+ * been indexed, so recovery only needs to replay the records after it.
+ */
+class JournalIndex implements Closeable {
+    static final int KEY_LENGTH = 32;
+
+    private static final int MAGIC = 0x45424C49; // EBLI
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = KEY_LENGTH + 8;
+    private static final float MAX_LOAD_FACTOR = 0.7f;
+    private static final int MAX_CAPACITY = 1 << 25;
+
+    private static final int OFFSET_MAGIC = 0;
+    private static final int OFFSET_VERSION = 4;
+    private static final int OFFSET_CAPACITY = 8;
+    private static final int OFFSET_SIZE = 12;
+    private static final int OFFSET_COMMITTED_SEGMENT = 16;
+    private static final int OFFSET_COMMITTED_POSITION = 24;
+    private static final int OFFSET_CHAIN_ID = 32;
+
+    private final Path path;
+    private final byte[] chainId;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int size;
+
+    private JournalIndex(Path path, byte[] chainId, MappedByteBuffer buffer) {
+        this.path = path;
+        this.chainId = chainId;
+        this.buffer = buffer;
+        this.capacity = buffer.getInt(OFFSET_CAPACITY);
+        this.size = buffer.getInt(OFFSET_SIZE);
+    }
+
+    /**
+     * Open an existing index or create a new one. Returns null when the existing index is unusable and has to be rebuilt
+     * from the segments.
+     */
+    static JournalIndex open(Path path, byte[] chainId, int initialCapacity) throws IOException {
+        if (Files.exists(path)) {
+            MappedByteBuffer buffer = map(path, -1);
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(OFFSET_MAGIC) != MAGIC || buffer.getInt(OFFSET_VERSION) != VERSION) {
+                return null;
+            }
+            int capacity = buffer.getInt(OFFSET_CAPACITY);
+            if (Integer.bitCount(capacity) != 1 || buffer.capacity() != HEADER_SIZE + (long) capacity * SLOT_SIZE) {
+                return null;
+            }
+            byte[] storedChainId = new byte[KEY_LENGTH];
+            for (int i = 0; i < KEY_LENGTH; i++) {
+                storedChainId[i] = buffer.get(OFFSET_CHAIN_ID + i);
+            }
+            if (!Arrays.equals(chainId, storedChainId)) {
+                throw new RuntimeException("Journal index " + path + " belongs to a different chain");
+            }
+            return new JournalIndex(path, chainId, buffer);
+        }
+        return create(path, chainId, initialCapacity);
+    }
+
+    static JournalIndex create(Path path, byte[] chainId, int initialCapacity) throws IOException {
+        int capacity = Integer.highestOneBit(Math.max(16, initialCapacity - 1) << 1);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.deleteIfExists(tmp);
+        MappedByteBuffer buffer = map(tmp, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+        writeHeader(buffer, chainId, capacity);
+        buffer.force();
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new JournalIndex(path, chainId, buffer);
+    }
+
+    private static void writeHeader(MappedByteBuffer buffer, byte[] chainId, int capacity) {
+        buffer.putInt(OFFSET_MAGIC, MAGIC);
+        buffer.putInt(OFFSET_VERSION, VERSION);
+        buffer.putInt(OFFSET_CAPACITY, capacity);
+        buffer.putInt(OFFSET_SIZE, 0);
+        buffer.putInt(OFFSET_COMMITTED_SEGMENT, 0);
+        buffer.putLong(OFFSET_COMMITTED_POSITION, 0);
+        for (int i = 0; i < KEY_LENGTH; i++) {
+            buffer.put(OFFSET_CHAIN_ID + i, chainId[i]);
+        }
+    }
+
+    private static MappedByteBuffer map(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long mapSize = size < 0 ? channel.size() : size;
+            if (mapSize > Integer.MAX_VALUE) {
+                throw new RuntimeException("Journal index " + path + " exceeds the maximum size");
+            }
+            // The mapping stays valid after the channel has been closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, mapSize);
+        }
+    }
+
+    static long location(int segment, long position) {
+        return ((long) segment << 40) | position;
+    }
+
+    static int segmentOf(long location) {
+        return (int) (location >>> 40);
+    }
+
+    static long positionOf(long location) {
+        return location & 0xFFFFFFFFFFL;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int committedSegment() {
+        return buffer.getInt(OFFSET_COMMITTED_SEGMENT);
+    }
+
+    long committedPosition() {
+        return buffer.getLong(OFFSET_COMMITTED_POSITION);
+    }
+
+    void commit(int segment, long position) {
+        buffer.putInt(OFFSET_COMMITTED_SEGMENT, segment);
+        buffer.putLong(OFFSET_COMMITTED_POSITION, position);
+    }
+
+    /**
+     * @return the location of the entry Id, or -1 when the entry Id is not indexed
+     */
+    long get(byte[] entryId, int offset) {
+        int mask = capacity - 1;
+        int slot = hash(entryId, offset) & mask;
+        while (true) {
+            int base = HEADER_SIZE + slot * SLOT_SIZE;
+            long location = buffer.getLong(base + KEY_LENGTH);
+            if (location == 0) {
+                return -1;
+            }
+            if (keyEquals(base, entryId, offset)) {
+                return location;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * @return the existing location if the entry Id was indexed already, otherwise -1
+     */
+    long putIfAbsent(byte[] entryId, int offset, long location) throws IOException {
+        if (location == 0) {
+            throw new IllegalArgumentException("Location 0 is reserved for empty slots");
+        }
+        if (size + 1 > capacity * MAX_LOAD_FACTOR) {
+            grow();
+        }
+        int mask = capacity - 1;
+        int slot = hash(entryId, offset) & mask;
+        while (true) {
+            int base = HEADER_SIZE + slot * SLOT_SIZE;
+            long existing = buffer.getLong(base + KEY_LENGTH);
+            if (existing == 0) {
+                for (int i = 0; i < KEY_LENGTH; i++) {
+                    buffer.put(base + i, entryId[offset + i]);
+                }
+                // The location is written last, since a non zero location marks the slot as used
+                buffer.putLong(base + KEY_LENGTH, location);
+                buffer.putInt(OFFSET_SIZE, ++size);
+                return -1;
+            }
+            if (keyEquals(base, entryId, offset)) {
+                return existing;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void grow() throws IOException {
+        if (capacity >= MAX_CAPACITY) {
+            throw new RuntimeException("Journal index " + path + " reached its maximum capacity of " + MAX_CAPACITY + " slots");
+        }
+        int newCapacity = capacity << 1;
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.deleteIfExists(tmp);
+        MappedByteBuffer newBuffer = map(tmp, HEADER_SIZE + (long) newCapacity * SLOT_SIZE);
+        writeHeader(newBuffer, chainId, newCapacity);
+        int mask = newCapacity - 1;
+        byte[] key = new byte[KEY_LENGTH];
+        for (int slot = 0; slot < capacity; slot++) {
+            int base = HEADER_SIZE + slot * SLOT_SIZE;
+            long location = buffer.getLong(base + KEY_LENGTH);
+            if (location == 0) {
+                continue;
+            }
+            for (int i = 0; i < KEY_LENGTH; i++) {
+                key[i] = buffer.get(base + i);
+            }
+            int newSlot = hash(key, 0) & mask;
+            while (newBuffer.getLong(HEADER_SIZE + newSlot * SLOT_SIZE + KEY_LENGTH) != 0) {
+                newSlot = (newSlot + 1) & mask;
+            }
+            int newBase = HEADER_SIZE + newSlot * SLOT_SIZE;
+            for (int i = 0; i < KEY_LENGTH; i++) {
+                newBuffer.put(newBase + i, key[i]);
+            }
+            newBuffer.putLong(newBase + KEY_LENGTH, location);
+        }
+        newBuffer.putInt(OFFSET_SIZE, size);
+        newBuffer.putInt(OFFSET_COMMITTED_SEGMENT, committedSegment());
+        newBuffer.putLong(OFFSET_COMMITTED_POSITION, committedPosition());
+        newBuffer.force();
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.buffer = newBuffer;
+        this.capacity = newCapacity;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() {
+        buffer.force();
+    }
+
+    private boolean keyEquals(int base, byte[] entryId, int offset) {
+        for (int i = 0; i < KEY_LENGTH; i++) {
+            if (buffer.get(base + i) != entryId[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(byte[] entryId, int offset) {
+        // Entry Ids are uniformly distributed SHA-256 hashes, so no additional mixing is needed
+        return (entryId[offset] & 0xFF) << 24 | (entryId[offset + 1] & 0xFF) << 16 | (entryId[offset + 2] & 0xFF) << 8 | (entryId[offset + 3] & 0xFF);
+    }
+}
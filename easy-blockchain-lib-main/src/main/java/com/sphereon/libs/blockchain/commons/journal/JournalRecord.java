@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.libs.blockchain.commons.journal;
+
+import com.sphereon.libs.blockchain.api.model.Entry;
+import com.sphereon.libs.blockchain.api.model.EntryData;
+import com.sphereon.libs.blockchain.api.model.ExternalId;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A single entry as stored in a {@link ChainJournal}. The entry bytes use the same format as
+ * {@link com.sphereon.libs.blockchain.commons.Operations#entryToBytes(String, Entry)}
+ */
+public class JournalRecord {
+    private static final int VERSION_LENGTH = 1;
+    private static final int CHAIN_ID_LENGTH = 32;
+
+    private final byte[] entryId;
+    private final int externalIdCount;
+    private final byte[] entryBytes;
+    private final int segment;
+    private final long position;
+
+    JournalRecord(byte[] entryId, int externalIdCount, byte[] entryBytes, int segment, long position) {
+        this.entryId = entryId;
+        this.externalIdCount = externalIdCount;
+        this.entryBytes = entryBytes;
+        this.segment = segment;
+        this.position = position;
+    }
+
+    public byte[] getEntryId() {
+        return entryId;
+    }
+
+    public int getExternalIdCount() {
+        return externalIdCount;
+    }
+
+    public byte[] getEntryBytes() {
+        return entryBytes;
+    }
+
+    public int getSegment() {
+        return segment;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public byte[] getChainId() {
+        return Arrays.copyOfRange(entryBytes, VERSION_LENGTH, VERSION_LENGTH + CHAIN_ID_LENGTH);
+    }
+
+    /**
+     * Decode the entry bytes back into an entry. The entry bytes do not distinguish empty from absent content, so an
+     * entry without content bytes gets null content, like an entry that was built without content
+     */
+    public Entry toEntry() {
+        int offset = VERSION_LENGTH + CHAIN_ID_LENGTH;
+        List<ExternalId> externalIds = new ArrayList<>(externalIdCount);
+        if (externalIdCount == 0) {
+            // An entry without external Ids only contains a single zero byte as external Id section
+            offset += 1;
+        } else {
+            offset += 2;
+            for (int i = 0; i < externalIdCount; i++) {
+                int length = (entryBytes[offset] & 0xFF) << 8 | (entryBytes[offset + 1] & 0xFF);
+                offset += 2;
+                externalIds.add(new ExternalId().setValue(Arrays.copyOfRange(entryBytes, offset, offset + length)));
+                offset += length;
+            }
+        }
+        EntryData entryData = new EntryData();
+        entryData.setExternalIds(externalIds);
+        if (offset < entryBytes.length) {
+            entryData.setContent(Arrays.copyOfRange(entryBytes, offset, entryBytes.length));
+        }
+        Entry entry = new Entry();
+        entry.setEntryData(entryData);
+        return entry;
+    }
+
+    @Override
+    public String toString() {
+        return "JournalRecord{" +
+                "entryId=" + Arrays.toString(entryId) +
+                ", externalIdCount=" + externalIdCount +
+                ", segment=" + segment +
+                ", position=" + position +
+                '}';
+    }
+}
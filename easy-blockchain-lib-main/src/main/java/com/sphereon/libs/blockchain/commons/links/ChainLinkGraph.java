@@ -0,0 +1,519 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.links;
+
+import com.sphereon.libs.blockchain.api.HasValue;
+import com.sphereon.libs.blockchain.api.model.AbstractId;
+import com.sphereon.libs.blockchain.api.model.ChainId;
+import com.sphereon.libs.blockchain.api.model.Entry;
+import com.sphereon.libs.blockchain.api.model.EntryId;
+import com.sphereon.libs.blockchain.commons.RegistrationType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process graph of the chain links between entries and chains, built incrementally from the external Ids of entries.
+ * <p>
+ * A chain link is an external Id pair: a {@link RegistrationType#createChainLinkKey() chain link key} followed by a
+ * target link as built by {@link Link.Builder}, pointing at a chain or an entry. Every link is an edge from the entry
+ * carrying it to its target. A chain links to everything its entries link to, and a link to an entry is also a link to
+ * its chain when querying in reverse, so "what links to this document chain" includes links to its entries.
+ * <p>
+ * Chain and entry Ids are interned to int node Ids and the edges are kept in int adjacency arrays per node, in both
+ * directions. The graph is thread safe, with concurrent queries and exclusive updates.
+ */
+public class ChainLinkGraph {
+    private static final int ID_LENGTH = 32;
+    private static final byte CHAIN = 1;
+    private static final byte ENTRY = 2;
+    // Set on entry nodes whose external Ids have been added
+    private static final byte INDEXED = 4;
+    private static final byte[] CHAIN_LINK_NAME = RegistrationType.Defaults.CHAIN_LINK.getName().getBytes(StandardCharsets.UTF_8);
+    private static final int MAX_KEY_LENGTH = 128;
+
+    public enum Direction {
+        /**
+         * Follow links from their source to their target
+         */
+        FORWARD,
+        /**
+         * Follow links from their target back to their source
+         */
+        REVERSE
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Link.Parser parser = Link.parser();
+
+    private byte[] ids = new byte[ID_LENGTH * 64];
+    private byte[] flags = new byte[64];
+    // The chain node of entry nodes, -1 for chain nodes
+    private int[] chains = new int[64];
+    private int nodeCount;
+    // Open addressing table of node + 1, keyed by the Id
+    private int[] nodeTable = new int[128];
+
+    // Edges as (node, link type) pairs
+    private int[][] outgoing = new int[64][];
+    private int[] outgoingSize = new int[64];
+    private int[][] incoming = new int[64][];
+    private int[] incomingSize = new int[64];
+    // The entry nodes of chain nodes
+    private int[][] members = new int[64][];
+    private int[] memberSize = new int[64];
+    private int linkCount;
+
+    private final List<String> linkTypes = new ArrayList<>();
+    private final Map<String, Integer> linkTypeIds = new HashMap<>();
+
+
+    /**
+     * Add the chain links in the external Ids of an entry. Adding an entry that was added already is a no-op, since the
+     * external Ids are part of the entry Id. Target links that cannot be parsed are skipped
+     *
+     * @param chainId     The chain of the entry
+     * @param entryId     The entry
+     * @param externalIds The external Ids of the entry
+     * @return the number of links added
+     */
+    public int addEntry(ChainId chainId, EntryId entryId, List<? extends HasValue<byte[]>> externalIds) {
+        lock.writeLock().lock();
+        try {
+            int source = entryNode(chainId, entryId);
+            if ((flags[source] & INDEXED) != 0) {
+                return 0;
+            }
+            flags[source] |= INDEXED;
+            int links = 0;
+            if (externalIds == null) {
+                return links;
+            }
+            for (int i = 0; i + 1 < externalIds.size(); i++) {
+                String type = linkType(externalIds.get(i).getValue());
+                if (type != null) {
+                    byte[] target = externalIds.get(i + 1).getValue();
+                    if (target != null && addLink(source, type, new String(target, StandardCharsets.UTF_8))) {
+                        links++;
+                    }
+                    i++;
+                }
+            }
+            return links;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @see #addEntry(ChainId, EntryId, List)
+     */
+    public int addEntry(ChainId chainId, EntryId entryId, Entry entry) {
+        return addEntry(chainId, entryId, entry.getEntryData().getExternalIds());
+    }
+
+
+    /**
+     * Add a single link explicitly
+     *
+     * @param sourceChainId The chain of the entry carrying the link
+     * @param sourceEntryId The entry carrying the link
+     * @param linkType      The registration type name of the link
+     * @param targetChainId The target chain
+     * @param targetEntryId The target entry, or null when the link points at the chain
+     */
+    public void addLink(ChainId sourceChainId, EntryId sourceEntryId, String linkType, ChainId targetChainId, EntryId targetEntryId) {
+        lock.writeLock().lock();
+        try {
+            int source = entryNode(sourceChainId, sourceEntryId);
+            int target = targetEntryId == null ? chainNode(targetChainId) : entryNode(targetChainId, targetEntryId);
+            addEdge(source, target, linkTypeId(linkType));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    public int getNodeCount() {
+        lock.readLock().lock();
+        try {
+            return nodeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getLinkCount() {
+        lock.readLock().lock();
+        try {
+            return linkCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * @return the direct links of a chain or entry in the given direction
+     */
+    public List<LinkNode> links(AbstractId<?> id, Direction direction) {
+        return traverse(id, direction, 1);
+    }
+
+
+    /**
+     * Breadth first traversal of the links, visiting each chain and entry once
+     *
+     * @param id        The chain or entry to start from, which is not part of the result
+     * @param direction The direction to follow the links in
+     * @param maxDepth  The maximum number of links to follow
+     * @return the reached chains and entries in breadth first order, with their depth
+     */
+    public List<LinkNode> traverse(AbstractId<?> id, Direction direction, int maxDepth) {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("Maximum depth needs to be at least 1 instead of: " + maxDepth);
+        }
+        lock.readLock().lock();
+        try {
+            int start = findNode(id);
+            List<LinkNode> result = new ArrayList<>();
+            if (start == -1) {
+                return result;
+            }
+            BitSet visited = new BitSet(nodeCount);
+            visited.set(start);
+            int[] queue = new int[16];
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = start;
+            int depth = 0;
+            while (head < tail && depth < maxDepth) {
+                depth++;
+                int levelEnd = tail;
+                while (head < levelEnd) {
+                    int node = queue[head++];
+                    int[][] edges = direction == Direction.FORWARD ? outgoing : incoming;
+                    int[] edgeSize = direction == Direction.FORWARD ? outgoingSize : incomingSize;
+                    // Chains link through their entries. In reverse, links to the entries of a chain count for the chain
+                    boolean throughMembers = (flags[node] & CHAIN) != 0;
+                    int memberCount = throughMembers ? memberSize[node] : 0;
+                    for (int m = -1; m < memberCount; m++) {
+                        int from = m == -1 ? node : members[node][m];
+                        for (int e = 0; e < edgeSize[from]; e += 2) {
+                            int next = edges[from][e];
+                            if (!visited.get(next)) {
+                                visited.set(next);
+                                result.add(toLinkNode(next, depth, linkTypes.get(edges[from][e + 1])));
+                                if (tail == queue.length) {
+                                    queue = Arrays.copyOf(queue, tail << 1);
+                                }
+                                queue[tail++] = next;
+                            }
+                        }
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * @return whether following links from any chain or entry can lead back to it
+     */
+    public boolean hasCycle() {
+        return !findCycle().isEmpty();
+    }
+
+    /**
+     * @return the chains and entries of a cycle, in link order, or an empty list when the graph has no cycles. Chains are
+     * followed by the entry carrying the next link
+     */
+    public List<LinkNode> findCycle() {
+        lock.readLock().lock();
+        try {
+            int[] color = new int[nodeCount];
+            for (int node = 0; node < nodeCount; node++) {
+                if (color[node] == 0) {
+                    List<LinkNode> cycle = findCycle(node, color);
+                    if (!cycle.isEmpty()) {
+                        return cycle;
+                    }
+                }
+            }
+            return Collections.emptyList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return a cycle reachable from the chain or entry, or an empty list when there is none
+     */
+    public List<LinkNode> findCycle(AbstractId<?> id) {
+        lock.readLock().lock();
+        try {
+            int start = findNode(id);
+            return start == -1 ? Collections.<LinkNode>emptyList() : findCycle(start, new int[nodeCount]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Iterative depth first search over the links, where chains lead to their entries. Color 1 marks nodes on the current
+     * path, color 2 nodes that have been fully explored
+     */
+    private List<LinkNode> findCycle(int start, int[] color) {
+        int[] path = new int[16];
+        int[] position = new int[16];
+        int depth = 0;
+        path[0] = start;
+        color[start] = 1;
+        while (depth >= 0) {
+            int node = path[depth];
+            boolean chain = (flags[node] & CHAIN) != 0;
+            int size = chain ? memberSize[node] : outgoingSize[node];
+            if (position[depth] >= size) {
+                color[node] = 2;
+                depth--;
+                continue;
+            }
+            int next = chain ? members[node][position[depth]++] : outgoing[node][position[depth]];
+            if (!chain) {
+                position[depth] += 2;
+            }
+            if (color[next] == 1) {
+                List<LinkNode> cycle = new ArrayList<>();
+                int from = 0;
+                while (path[from] != next) {
+                    from++;
+                }
+                for (int i = from; i <= depth; i++) {
+                    cycle.add(toLinkNode(path[i], i - from, null));
+                }
+                return cycle;
+            }
+            if (color[next] == 0) {
+                color[next] = 1;
+                if (++depth == path.length) {
+                    path = Arrays.copyOf(path, depth << 1);
+                    position = Arrays.copyOf(position, depth << 1);
+                }
+                path[depth] = next;
+                position[depth] = 0;
+            }
+        }
+        return Collections.emptyList();
+    }
+
+
+    private boolean addLink(int source, String type, String targetLink) {
+        SortedMap<Link, String> parts;
+        try {
+            parts = parser.targetLinkParts(targetLink);
+        } catch (RuntimeException e) {
+            // External Ids are user data, so a malformed target is skipped instead of failing the whole entry
+            return false;
+        }
+        String chainHex = parts.get(Link.CHAIN_ID);
+        if (chainHex == null || chainHex.length() != AbstractId.HEX_LENGTH) {
+            return false;
+        }
+        String entryHex = parts.get(Link.ENTRY_ID);
+        try {
+            ChainId chainId = ChainId.fromHex(chainHex);
+            int target = entryHex == null ? chainNode(chainId) : entryNode(chainId, EntryId.fromHex(entryHex));
+            addEdge(source, target, linkTypeId(type));
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void addEdge(int source, int target, int type) {
+        append(outgoing, outgoingSize, source, target, type);
+        append(incoming, incomingSize, target, source, type);
+        linkCount++;
+    }
+
+    private static void append(int[][] lists, int[] sizes, int node, int first, int second) {
+        int[] list = ensureCapacity(lists, sizes, node, 2);
+        list[sizes[node]++] = first;
+        list[sizes[node]++] = second;
+    }
+
+    private static int[] ensureCapacity(int[][] lists, int[] sizes, int node, int extra) {
+        int[] list = lists[node];
+        if (list == null) {
+            list = lists[node] = new int[4];
+        } else if (sizes[node] + extra > list.length) {
+            list = lists[node] = Arrays.copyOf(list, list.length + (list.length >> 1));
+        }
+        return list;
+    }
+
+
+    /**
+     * @return the link type of a chain link key, or null when the value is not a chain link key
+     */
+    private String linkType(byte[] key) {
+        if (key == null || key.length < CHAIN_LINK_NAME.length || key.length > MAX_KEY_LENGTH) {
+            return null;
+        }
+        for (int i = 0; i < CHAIN_LINK_NAME.length; i++) {
+            if (key[i] != CHAIN_LINK_NAME[i]) {
+                return null;
+            }
+        }
+        String value = new String(key, StandardCharsets.UTF_8);
+        if (value.length() == CHAIN_LINK_NAME.length) {
+            return RegistrationType.Defaults.CHAIN_LINK.getName();
+        }
+        return parser.isLinkKey(value) ? parser.linkKeyValue(value) : null;
+    }
+
+    private int linkTypeId(String type) {
+        Integer id = linkTypeIds.get(type);
+        if (id == null) {
+            id = linkTypes.size();
+            linkTypes.add(type);
+            linkTypeIds.put(type, id);
+        }
+        return id;
+    }
+
+
+    private int chainNode(ChainId chainId) {
+        byte[] id = chainId.toBytes();
+        int node = findNode(id, CHAIN);
+        return node == -1 ? intern(id, CHAIN, -1) : node;
+    }
+
+    private int entryNode(ChainId chainId, EntryId entryId) {
+        byte[] id = entryId.toBytes();
+        int node = findNode(id, ENTRY);
+        if (node == -1) {
+            int chain = chainNode(chainId);
+            node = intern(id, ENTRY, chain);
+            appendMember(chain, node);
+        }
+        return node;
+    }
+
+    private void appendMember(int chain, int entry) {
+        int[] list = ensureCapacity(members, memberSize, chain, 1);
+        list[memberSize[chain]++] = entry;
+    }
+
+    private int findNode(AbstractId<?> id) {
+        if (id instanceof ChainId) {
+            return findNode(id.toBytes(), CHAIN);
+        } else if (id instanceof EntryId) {
+            return findNode(id.toBytes(), ENTRY);
+        }
+        throw new IllegalArgumentException("A chain or entry Id is required instead of: " + id);
+    }
+
+    private int intern(byte[] id, byte kind, int chain) {
+        if (nodeCount == flags.length) {
+            int capacity = flags.length << 1;
+            ids = Arrays.copyOf(ids, capacity * ID_LENGTH);
+            flags = Arrays.copyOf(flags, capacity);
+            chains = Arrays.copyOf(chains, capacity);
+            outgoing = Arrays.copyOf(outgoing, capacity);
+            outgoingSize = Arrays.copyOf(outgoingSize, capacity);
+            incoming = Arrays.copyOf(incoming, capacity);
+            incomingSize = Arrays.copyOf(incomingSize, capacity);
+            members = Arrays.copyOf(members, capacity);
+            memberSize = Arrays.copyOf(memberSize, capacity);
+        }
+        System.arraycopy(id, 0, ids, nodeCount * ID_LENGTH, ID_LENGTH);
+        flags[nodeCount] = kind;
+        chains[nodeCount] = chain;
+        int node = nodeCount++;
+        if (nodeCount * 2 > nodeTable.length) {
+            nodeTable = new int[nodeTable.length << 1];
+            for (int i = 0; i < nodeCount; i++) {
+                insertNode(i);
+            }
+        } else {
+            insertNode(node);
+        }
+        return node;
+    }
+
+    private void insertNode(int node) {
+        int mask = nodeTable.length - 1;
+        int slot = hash(ids, node * ID_LENGTH, flags[node] & (CHAIN | ENTRY)) & mask;
+        while (nodeTable[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        nodeTable[slot] = node + 1;
+    }
+
+    private int findNode(byte[] id, byte kind) {
+        int mask = nodeTable.length - 1;
+        int slot = hash(id, 0, kind) & mask;
+        while (nodeTable[slot] != 0) {
+            int node = nodeTable[slot] - 1;
+            if ((flags[node] & kind) != 0 && equalsId(node, id)) {
+                return node;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private boolean equalsId(int node, byte[] id) {
+        int offset = node * ID_LENGTH;
+        for (int i = 0; i < ID_LENGTH; i++) {
+            if (ids[offset + i] != id[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Ids are SHA-256 hashes, so their leading bytes are uniformly distributed
+     */
+    private static int hash(byte[] id, int offset, int kind) {
+        return ((id[offset] & 0xFF) << 24 | (id[offset + 1] & 0xFF) << 16 | (id[offset + 2] & 0xFF) << 8 | (id[offset + 3] & 0xFF)) ^ kind;
+    }
+
+
+    private LinkNode toLinkNode(int node, int depth, String linkType) {
+        boolean chain = (flags[node] & CHAIN) != 0;
+        ChainId chainId = ChainId.fromBytes(ids, (chain ? node : chains[node]) * ID_LENGTH);
+        EntryId entryId = chain ? null : EntryId.fromBytes(ids, node * ID_LENGTH);
+        return new LinkNode(chainId, entryId, depth, linkType);
+    }
+}
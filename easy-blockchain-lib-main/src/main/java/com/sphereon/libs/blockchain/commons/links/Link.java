@@ -18,6 +18,8 @@ package com.sphereon.libs.blockchain.commons.links;
 
 import com.sphereon.libs.blockchain.commons.RegistrationType;
 import com.sphereon.libs.blockchain.commons.Utils;
+import com.sphereon.libs.blockchain.commons.jfr.JfrEvents;
+import com.sphereon.libs.blockchain.commons.metrics.Metrics;
 
 import java.util.*;
 
@@ -264,6 +266,18 @@ public enum Link {
         }
 
         public SortedMap<Link, String> targetLinkParts(String input) {
+            boolean metrics = Metrics.isEnabled();
+            long start = metrics ? System.nanoTime() : 0;
+            Object event = JfrEvents.beginLinkParse();
+            SortedMap<Link, String> parsed = parseLinkParts(input);
+            JfrEvents.commitLinkParse(event, input, parsed.size());
+            if (metrics) {
+                Metrics.instruments().linkParse(System.nanoTime() - start);
+            }
+            return parsed;
+        }
+
+        private SortedMap<Link, String> parseLinkParts(String input) {
             SortedMap<Link, String> parsed = new TreeMap<>();
             if (Utils.String.isEmpty(input) || !input.startsWith("/")) {
                 parsed.put(NONE, input);
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.links;
+
+import com.sphereon.libs.blockchain.api.model.ChainId;
+import com.sphereon.libs.blockchain.api.model.EntryId;
+
+/**
+ * A chain or entry reached in a {@link ChainLinkGraph} query
+ */
+public class LinkNode {
+    private final ChainId chainId;
+    private final EntryId entryId;
+    private final int depth;
+    private final String linkType;
+
+    LinkNode(ChainId chainId, EntryId entryId, int depth, String linkType) {
+        this.chainId = chainId;
+        this.entryId = entryId;
+        this.depth = depth;
+        this.linkType = linkType;
+    }
+
+    /**
+     * @return the chain, or the chain of the entry
+     */
+    public ChainId getChainId() {
+        return chainId;
+    }
+
+    /**
+     * @return the entry, or null when the node is a chain
+     */
+    public EntryId getEntryId() {
+        return entryId;
+    }
+
+    public boolean isChain() {
+        return entryId == null;
+    }
+
+    /**
+     * @return the number of links followed to reach the node
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return the registration type name of the link the node was reached by, or null for cycle members
+     */
+    public String getLinkType() {
+        return linkType;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        LinkNode that = (LinkNode) o;
+
+        if (!chainId.equals(that.chainId)) return false;
+        return entryId != null ? entryId.equals(that.entryId) : that.entryId == null;
+    }
+
+    @Override
+    public int hashCode() {
+        return entryId != null ? entryId.hashCode() : chainId.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "LinkNode{" +
+                "chainId=" + chainId +
+                ", entryId=" + entryId +
+                ", depth=" + depth +
+                ", linkType='" + linkType + '\'' +
+                '}';
+    }
+}
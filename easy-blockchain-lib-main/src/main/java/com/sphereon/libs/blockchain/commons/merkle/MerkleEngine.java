@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.merkle;
+
+import com.sphereon.libs.blockchain.api.model.AbstractId;
+import com.sphereon.libs.blockchain.commons.AsyncOperations;
+
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Builds Merkle trees and roots over 32 byte leaves, such as the entry Ids of a batch to anchor.
+ * <p>
+ * Trees are built level by level. Levels with many nodes are split into chunks, which the calling thread and helpers on
+ * the executor claim until none are left. The calling thread never waits for a helper to start, so a busy executor slows
+ * the build down but cannot block it. Only the leaves and the levels from the cache level up are kept, see
+ * {@link MerkleTree}.
+ * <p>
+ * For roots over more leaves than fit in memory, {@link #root(Iterator)} streams the leaves and keeps one node per level.
+ * <p>
+ * Instances are thread safe.
+ */
+public class MerkleEngine {
+    private static final int CHUNK_SIZE = 4096;
+
+    private final MerkleHash hash;
+    private final int parallelism;
+    private final int cacheLevel;
+    private final Executor executor;
+
+
+    private MerkleEngine(Builder builder) {
+        this.hash = builder.hash;
+        this.parallelism = builder.parallelism;
+        this.cacheLevel = builder.cacheLevel;
+        this.executor = builder.executor;
+    }
+
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+
+    public MerkleHash getHash() {
+        return hash;
+    }
+
+
+    public MerkleTree build(Collection<? extends AbstractId<?>> leaves) {
+        return build(toBytes(leaves));
+    }
+
+    /**
+     * @param leaves The concatenated 32 byte leaves. The array is kept by the tree, so it should not be changed
+     * @return the tree
+     */
+    public MerkleTree build(byte[] leaves) {
+        int leafCount = leafCount(leaves);
+        int depth = 32 - Integer.numberOfLeadingZeros(leafCount - 1);
+        byte[][] levels = new byte[depth + 1][];
+        levels[0] = leaves;
+        byte[] level = leaves;
+        int count = leafCount;
+        for (int i = 1; i <= depth; i++) {
+            level = nextLevel(level, count);
+            count = (count + 1) >>> 1;
+            if (i >= cacheLevel || i == depth) {
+                levels[i] = level;
+            }
+        }
+        return new MerkleTree(hash, leafCount, cacheLevel, levels);
+    }
+
+
+    public byte[] root(Collection<? extends AbstractId<?>> leaves) {
+        return root(toBytes(leaves));
+    }
+
+    /**
+     * Calculate the root without keeping the tree
+     *
+     * @param leaves The concatenated 32 byte leaves
+     * @return the root
+     */
+    public byte[] root(byte[] leaves) {
+        int count = leafCount(leaves);
+        byte[] level = leaves;
+        while (count > 1) {
+            level = nextLevel(level, count);
+            count = (count + 1) >>> 1;
+        }
+        return level == leaves ? leaves.clone() : level;
+    }
+
+    /**
+     * Calculate the root over a stream of leaves on the calling thread, keeping one node per level in memory
+     *
+     * @param leaves The 32 byte leaves
+     * @return the root
+     */
+    public byte[] root(Iterator<byte[]> leaves) {
+        MerkleRootAccumulator accumulator = new MerkleRootAccumulator(hash);
+        while (leaves.hasNext()) {
+            accumulator.add(leaves.next());
+        }
+        return accumulator.root();
+    }
+
+
+    private byte[] nextLevel(final byte[] children, final int childCount) {
+        final int parentCount = (childCount + 1) >>> 1;
+        final byte[] parents = new byte[parentCount * MerkleHash.LENGTH];
+        final int chunks = (parentCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (parallelism == 1 || chunks == 1) {
+            hashChunk(hash.newMessageDigest(), children, childCount, parents, 0, parentCount);
+            return parents;
+        }
+
+        final AtomicInteger nextChunk = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(chunks);
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                MessageDigest sha256 = null;
+                int chunk;
+                while ((chunk = nextChunk.getAndIncrement()) < chunks) {
+                    try {
+                        if (failure.get() == null) {
+                            if (sha256 == null) {
+                                sha256 = hash.newMessageDigest();
+                            }
+                            int from = chunk * CHUNK_SIZE;
+                            hashChunk(sha256, children, childCount, parents, from, Math.min(parentCount, from + CHUNK_SIZE));
+                        }
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }
+        };
+        for (int i = 1; i < Math.min(parallelism, chunks); i++) {
+            try {
+                executor.execute(worker);
+            } catch (RuntimeException e) {
+                // The calling thread processes the remaining chunks
+                break;
+            }
+        }
+        worker.run();
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e.getMessage(), e);
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return parents;
+    }
+
+
+    private void hashChunk(MessageDigest sha256, byte[] children, int childCount, byte[] parents, int from, int to) {
+        for (int parent = from; parent < to; parent++) {
+            int left = 2 * parent;
+            int right = left + 1 < childCount ? left + 1 : left;
+            hash.combine(sha256, children, left * MerkleHash.LENGTH, children, right * MerkleHash.LENGTH, parents, parent * MerkleHash.LENGTH);
+        }
+    }
+
+
+    private static int leafCount(byte[] leaves) {
+        if (leaves == null || leaves.length == 0 || leaves.length % MerkleHash.LENGTH != 0) {
+            throw new IllegalArgumentException("Leaves need to be one or more " + MerkleHash.LENGTH + " byte hashes");
+        }
+        return leaves.length / MerkleHash.LENGTH;
+    }
+
+    private static byte[] toBytes(Collection<? extends AbstractId<?>> leaves) {
+        if (leaves.size() > Integer.MAX_VALUE / MerkleHash.LENGTH) {
+            throw new IllegalArgumentException("Too many leaves for an in-memory tree: " + leaves.size());
+        }
+        byte[] bytes = new byte[leaves.size() * MerkleHash.LENGTH];
+        int offset = 0;
+        for (AbstractId<?> leaf : leaves) {
+            leaf.writeTo(bytes, offset);
+            offset += MerkleHash.LENGTH;
+        }
+        return bytes;
+    }
+
+
+    public static class Builder {
+        private MerkleHash hash = MerkleHash.SHA_256;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private int cacheLevel = 4;
+        private Executor executor;
+
+        private Builder() {
+        }
+
+        /**
+         * @param hash How child nodes are combined. Defaults to {@link MerkleHash#SHA_256}
+         */
+        public Builder hash(MerkleHash hash) {
+            if (hash == null) {
+                throw new IllegalArgumentException("A Merkle hash is required");
+            }
+            this.hash = hash;
+            return this;
+        }
+
+        /**
+         * @param parallelism The maximum number of threads hashing a level, including the calling thread. Defaults to
+         *                    the number of cores
+         */
+        public Builder parallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("Parallelism needs to be at least 1 instead of: " + parallelism);
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * @param cacheLevel The lowest level above the leaves that is kept in built trees. Lower levels are recomputed for
+         *                   proofs. 0 or 1 keeps all levels. Defaults to 4, which recomputes up to 14 hashes per proof
+         */
+        public Builder cacheLevel(int cacheLevel) {
+            if (cacheLevel < 0 || cacheLevel > 16) {
+                throw new IllegalArgumentException("Cache level needs to be between 0 and 16 instead of: " + cacheLevel);
+            }
+            this.cacheLevel = cacheLevel;
+            return this;
+        }
+
+        /**
+         * @param executor The executor running the helper threads. Defaults to the executor of {@link AsyncOperations#getInstance()}
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public MerkleEngine build() {
+            if (executor == null) {
+                executor = AsyncOperations.getInstance().getExecutor();
+            }
+            return new MerkleEngine(this);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.merkle;
+
+import com.sphereon.libs.blockchain.commons.Digest;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+
+/**
+ * How two child nodes are combined into their parent. In both conventions a level with an odd number of nodes pairs its
+ * last node with itself
+ */
+public enum MerkleHash {
+    /**
+     * SHA-256 over the concatenated children, the convention of Factom entry and directory blocks
+     */
+    SHA_256(1),
+
+    /**
+     * SHA-256 applied twice over the concatenated children, the Bitcoin convention
+     */
+    DOUBLE_SHA_256(2);
+
+    public static final int LENGTH = 32;
+
+    private final int rounds;
+
+    MerkleHash(int rounds) {
+        this.rounds = rounds;
+    }
+
+
+    /**
+     * @return a new SHA-256 message digest for {@link #combine(MessageDigest, byte[], int, byte[], int, byte[], int)}
+     */
+    public MessageDigest newMessageDigest() {
+        return Digest.getInstance().newMessageDigest(Digest.Algorithm.SHA_256);
+    }
+
+
+    /**
+     * Hash the left and right child into the target. The target may overlap with the children
+     */
+    public void combine(MessageDigest sha256, byte[] left, int leftOffset, byte[] right, int rightOffset, byte[] target, int targetOffset) {
+        try {
+            sha256.update(left, leftOffset, LENGTH);
+            sha256.update(right, rightOffset, LENGTH);
+            sha256.digest(target, targetOffset, LENGTH);
+            for (int i = 1; i < rounds; i++) {
+                sha256.update(target, targetOffset, LENGTH);
+                sha256.digest(target, targetOffset, LENGTH);
+            }
+        } catch (DigestException e) {
+            sha256.reset();
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+
+    public byte[] combine(byte[] left, byte[] right) {
+        byte[] parent = new byte[LENGTH];
+        combine(newMessageDigest(), left, 0, right, 0, parent, 0);
+        return parent;
+    }
+}
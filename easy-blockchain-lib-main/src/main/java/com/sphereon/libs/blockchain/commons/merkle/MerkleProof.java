@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.merkle;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * Proof that a leaf is included in a Merkle tree with a given root.
+ * <p>
+ * The proof holds the siblings on the path from the leaf to the root. Where the path passes the last node of a level
+ * with an odd number of nodes the node is paired with itself, which follows from the leaf index and count, so no
+ * sibling is stored for it. The serialized form is 10 bytes plus 32 bytes per sibling.
+ */
+public final class MerkleProof {
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 10;
+
+    private final MerkleHash hash;
+    private final int leafIndex;
+    private final int leafCount;
+    private final byte[] siblings;
+
+
+    MerkleProof(MerkleHash hash, int leafIndex, int leafCount, byte[] siblings) {
+        this.hash = hash;
+        this.leafIndex = leafIndex;
+        this.leafCount = leafCount;
+        this.siblings = siblings;
+    }
+
+
+    public MerkleHash getHash() {
+        return hash;
+    }
+
+    public int getLeafIndex() {
+        return leafIndex;
+    }
+
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    public int getSiblingCount() {
+        return siblings.length / MerkleHash.LENGTH;
+    }
+
+    public byte[] getSibling(int i) {
+        return Arrays.copyOfRange(siblings, i * MerkleHash.LENGTH, (i + 1) * MerkleHash.LENGTH);
+    }
+
+
+    /**
+     * @return the root of the tree the leaf would be part of according to this proof
+     */
+    public byte[] computeRoot(byte[] leaf) {
+        return computeRoot(hash.newMessageDigest(), leaf);
+    }
+
+    /**
+     * @param sha256 A SHA-256 message digest, so verifying many proofs can reuse one
+     */
+    public byte[] computeRoot(MessageDigest sha256, byte[] leaf) {
+        if (leaf == null || leaf.length != MerkleHash.LENGTH) {
+            throw new IllegalArgumentException("A leaf needs " + MerkleHash.LENGTH + " bytes");
+        }
+        byte[] node = leaf.clone();
+        int index = leafIndex;
+        int count = leafCount;
+        int sibling = 0;
+        while (count > 1) {
+            if ((index ^ 1) >= count) {
+                hash.combine(sha256, node, 0, node, 0, node, 0);
+            } else {
+                if (sibling >= siblings.length) {
+                    throw new IllegalArgumentException("Merkle proof has too few siblings");
+                }
+                if ((index & 1) == 0) {
+                    hash.combine(sha256, node, 0, siblings, sibling, node, 0);
+                } else {
+                    hash.combine(sha256, siblings, sibling, node, 0, node, 0);
+                }
+                sibling += MerkleHash.LENGTH;
+            }
+            index >>>= 1;
+            count = (count + 1) >>> 1;
+        }
+        if (sibling != siblings.length) {
+            throw new IllegalArgumentException("Merkle proof has too many siblings");
+        }
+        return node;
+    }
+
+
+    public boolean verify(byte[] leaf, byte[] root) {
+        return verify(hash.newMessageDigest(), leaf, root);
+    }
+
+    /**
+     * @return true when the leaf is included in the tree with the given root
+     */
+    public boolean verify(MessageDigest sha256, byte[] leaf, byte[] root) {
+        try {
+            return MessageDigest.isEqual(computeRoot(sha256, leaf), root);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + siblings.length);
+        buffer.put((byte) VERSION).put((byte) hash.ordinal()).putInt(leafIndex).putInt(leafCount).put(siblings);
+        return buffer.array();
+    }
+
+    public static MerkleProof fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length < HEADER_SIZE || (bytes.length - HEADER_SIZE) % MerkleHash.LENGTH != 0) {
+            throw new IllegalArgumentException("Invalid Merkle proof length");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.get() != VERSION) {
+            throw new IllegalArgumentException("Unsupported Merkle proof version: " + bytes[0]);
+        }
+        int hashOrdinal = buffer.get();
+        if (hashOrdinal < 0 || hashOrdinal >= MerkleHash.values().length) {
+            throw new IllegalArgumentException("Unknown Merkle hash: " + hashOrdinal);
+        }
+        int leafIndex = buffer.getInt();
+        int leafCount = buffer.getInt();
+        if (leafCount < 1 || leafIndex < 0 || leafIndex >= leafCount) {
+            throw new IllegalArgumentException("Invalid leaf index " + leafIndex + " for " + leafCount + " leaves");
+        }
+        byte[] siblings = new byte[buffer.remaining()];
+        buffer.get(siblings);
+        return new MerkleProof(MerkleHash.values()[hashOrdinal], leafIndex, leafCount, siblings);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.merkle;
+
+import java.security.MessageDigest;
+
+/**
+ * Calculates a Merkle root over leaves added one by one, keeping at most one pending node per level. The root equals the
+ * root of a {@link MerkleTree} over the same leaves. Not thread safe.
+ */
+public final class MerkleRootAccumulator {
+    private final MerkleHash hash;
+    private final MessageDigest sha256;
+    // One pending left node per level, as in a binary counter
+    private final byte[][] pending = new byte[64][];
+    private long leafCount;
+
+
+    public MerkleRootAccumulator(MerkleHash hash) {
+        this.hash = hash;
+        this.sha256 = hash.newMessageDigest();
+    }
+
+
+    public void add(byte[] leaf) {
+        add(leaf, 0);
+    }
+
+    /**
+     * Add the 32 byte leaf at the offset. The bytes are copied
+     */
+    public void add(byte[] leaf, int offset) {
+        if (leaf == null || offset < 0 || leaf.length - offset < MerkleHash.LENGTH) {
+            throw new IllegalArgumentException("A leaf needs " + MerkleHash.LENGTH + " bytes");
+        }
+        byte[] node = new byte[MerkleHash.LENGTH];
+        System.arraycopy(leaf, offset, node, 0, MerkleHash.LENGTH);
+        int level = 0;
+        while (pending[level] != null) {
+            hash.combine(sha256, pending[level], 0, node, 0, node, 0);
+            pending[level] = null;
+            level++;
+        }
+        pending[level] = node;
+        leafCount++;
+    }
+
+
+    public long getLeafCount() {
+        return leafCount;
+    }
+
+
+    /**
+     * Remove all leaves, so the accumulator and its digest can be reused
+     */
+    public void reset() {
+        for (int i = 0; i < pending.length; i++) {
+            pending[i] = null;
+        }
+        leafCount = 0;
+    }
+
+
+    /**
+     * @return the root over the leaves added so far. More leaves can be added afterwards
+     */
+    public byte[] root() {
+        if (leafCount == 0) {
+            throw new IllegalStateException("A Merkle root needs at least one leaf");
+        }
+        int top = 63 - Long.numberOfLeadingZeros(leafCount);
+        byte[] carry = null;
+        for (int level = 0; level <= top; level++) {
+            byte[] node = pending[level];
+            if (node == null && carry == null) {
+                continue;
+            }
+            if (level == top && (node == null || carry == null)) {
+                // The only node left is the root
+                return (node == null ? carry : node).clone();
+            }
+            byte[] parent = new byte[MerkleHash.LENGTH];
+            if (node != null && carry != null) {
+                hash.combine(sha256, node, 0, carry, 0, parent, 0);
+            } else {
+                // The last node of a level with an odd number of nodes is paired with itself
+                byte[] single = node == null ? carry : node;
+                hash.combine(sha256, single, 0, single, 0, parent, 0);
+            }
+            carry = parent;
+        }
+        return carry;
+    }
+}
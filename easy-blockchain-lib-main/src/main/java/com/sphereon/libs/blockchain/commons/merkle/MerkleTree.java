@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.merkle;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * A Merkle tree built by a {@link MerkleEngine}. Leaves are 32 byte hashes, such as entry Ids.
+ * <p>
+ * To bound memory, the levels directly above the leaves, up to the cache level, are not kept. A proof recomputes them
+ * from the leaves of its own subtree, which takes fewer hashes than the subtree has leaves. The levels from the cache
+ * level up take about 64 / 2^cache level bytes per leaf.
+ * <p>
+ * Trees are immutable and thread safe.
+ */
+public final class MerkleTree {
+    private final MerkleHash hash;
+    private final int leafCount;
+    private final int cacheLevel;
+    // Level 0 holds the leaves. Levels between 0 and the cache level are null
+    private final byte[][] levels;
+
+
+    MerkleTree(MerkleHash hash, int leafCount, int cacheLevel, byte[][] levels) {
+        this.hash = hash;
+        this.leafCount = leafCount;
+        this.cacheLevel = cacheLevel;
+        this.levels = levels;
+    }
+
+
+    public MerkleHash getHash() {
+        return hash;
+    }
+
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    /**
+     * @return the number of levels above the leaves
+     */
+    public int getDepth() {
+        return levels.length - 1;
+    }
+
+    public byte[] getRoot() {
+        return levels[levels.length - 1].clone();
+    }
+
+    public byte[] getLeaf(int index) {
+        checkIndex(index);
+        return Arrays.copyOfRange(levels[0], index * MerkleHash.LENGTH, (index + 1) * MerkleHash.LENGTH);
+    }
+
+
+    /**
+     * @return the inclusion proof of the leaf
+     */
+    public MerkleProof proof(int index) {
+        checkIndex(index);
+        MessageDigest sha256 = hash.newMessageDigest();
+        return proof(index, subtree(sha256, index));
+    }
+
+
+    /**
+     * Create the proofs of a range of leaves in order. Leaves of the same subtree share the recomputed levels, so this is
+     * faster than calling {@link #proof(int)} for each leaf
+     *
+     * @param from     The first leaf index, inclusive
+     * @param to       The last leaf index, exclusive
+     * @param consumer Receives the proofs
+     */
+    public void proofs(int from, int to, MerkleProofConsumer consumer) {
+        if (from < 0 || to > leafCount || from > to) {
+            throw new IllegalArgumentException("Invalid leaf range " + from + " - " + to + " for " + leafCount + " leaves");
+        }
+        MessageDigest sha256 = hash.newMessageDigest();
+        byte[][] subtree = null;
+        int subtreeMask = ~((1 << cacheLevel) - 1);
+        for (int index = from; index < to; index++) {
+            if (subtree == null || (index & (1 << cacheLevel) - 1) == 0) {
+                subtree = subtree(sha256, index & subtreeMask);
+            }
+            consumer.onProof(proof(index, subtree));
+        }
+    }
+
+
+    public void proofs(MerkleProofConsumer consumer) {
+        proofs(0, leafCount, consumer);
+    }
+
+
+    private MerkleProof proof(int index, byte[][] subtree) {
+        byte[] siblings = new byte[getDepth() * MerkleHash.LENGTH];
+        int length = 0;
+        int subtreeStart = index >>> cacheLevel << cacheLevel;
+        int levelIndex = index;
+        int levelCount = leafCount;
+        for (int level = 0; levelCount > 1; level++) {
+            int sibling = levelIndex ^ 1;
+            if (sibling < levelCount) {
+                if (levels[level] != null) {
+                    System.arraycopy(levels[level], sibling * MerkleHash.LENGTH, siblings, length, MerkleHash.LENGTH);
+                } else {
+                    int relative = sibling - (subtreeStart >>> level);
+                    System.arraycopy(subtree[level], relative * MerkleHash.LENGTH, siblings, length, MerkleHash.LENGTH);
+                }
+                length += MerkleHash.LENGTH;
+            }
+            levelIndex >>>= 1;
+            levelCount = (levelCount + 1) >>> 1;
+        }
+        return new MerkleProof(hash, index, leafCount, Arrays.copyOf(siblings, length));
+    }
+
+
+    /**
+     * Recompute the levels below the cache level for the subtree containing the leaf
+     */
+    private byte[][] subtree(MessageDigest sha256, int index) {
+        if (cacheLevel <= 1) {
+            return null;
+        }
+        int start = index >>> cacheLevel << cacheLevel;
+        int last = Math.min(start + (1 << cacheLevel), leafCount) - 1;
+        byte[][] subtree = new byte[cacheLevel][];
+        int childCount = leafCount;
+        for (int level = 1; level < cacheLevel && level < levels.length; level++) {
+            byte[] children = level == 1 ? levels[0] : subtree[level - 1];
+            int childOffset = level == 1 ? 0 : start >>> (level - 1);
+            int first = start >>> level;
+            int count = (last >>> level) - first + 1;
+            byte[] nodes = new byte[count * MerkleHash.LENGTH];
+            for (int i = 0; i < count; i++) {
+                int left = 2 * (first + i);
+                int right = left + 1 < childCount ? left + 1 : left;
+                hash.combine(sha256, children, (left - childOffset) * MerkleHash.LENGTH,
+                        children, (right - childOffset) * MerkleHash.LENGTH, nodes, i * MerkleHash.LENGTH);
+            }
+            subtree[level] = nodes;
+            childCount = (childCount + 1) >>> 1;
+        }
+        return subtree;
+    }
+
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= leafCount) {
+            throw new IllegalArgumentException("Leaf index " + index + " out of range for " + leafCount + " leaves");
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.metrics;
+
+import com.sphereon.libs.blockchain.commons.Digest;
+
+/**
+ * Entry point of the library metrics. Without a recorder all instrumentation is disabled and hot paths only check
+ * {@link #isEnabled()}, so there is no timing or allocation overhead.
+ * <p>
+ * The library records:
+ * <ul>
+ * <li>{@value #DIGEST_TIME} and {@value #DIGEST_BYTES} tagged with the algorithm</li>
+ * <li>{@value #ENTRY_SERIALIZE_TIME} and the {@value #ENTRY_SIZE} distribution</li>
+ * <li>{@value #CHAIN_ID_TIME}, {@value #CHAIN_ID_BASE_TIME} for the chain Id base calculation and {@value #ENTRY_ID_TIME}</li>
+ * <li>{@value #CHAIN_ID_CACHE} tagged with result hit or miss</li>
+ * <li>{@value #LINK_PARSE_TIME}</li>
+ * <li>{@value #DIGEST_PROVIDER_SELECTED} tagged with algorithm and provider, each time a digest provider is selected</li>
+ * </ul>
+ */
+public final class Metrics {
+    public static final String PREFIX = "easyblockchain.";
+    public static final String DIGEST_TIME = PREFIX + "digest.time";
+    public static final String DIGEST_BYTES = PREFIX + "digest.bytes";
+    public static final String ENTRY_SERIALIZE_TIME = PREFIX + "entry.serialize.time";
+    public static final String ENTRY_SIZE = PREFIX + "entry.size";
+    public static final String CHAIN_ID_TIME = PREFIX + "chainid.time";
+    public static final String CHAIN_ID_BASE_TIME = PREFIX + "chainid.base.time";
+    public static final String ENTRY_ID_TIME = PREFIX + "entryid.time";
+    public static final String CHAIN_ID_CACHE = PREFIX + "chainid.cache";
+    public static final String LINK_PARSE_TIME = PREFIX + "link.parse.time";
+    public static final String DIGEST_PROVIDER_SELECTED = PREFIX + "digest.provider.selected";
+
+    public static final String TAG_ALGORITHM = "algorithm";
+    public static final String TAG_RESULT = "result";
+    public static final String TAG_PROVIDER = "provider";
+
+    private static final MetricsRecorder NOOP = new NoopRecorder();
+
+    private static volatile MetricsRecorder recorder = NOOP;
+    private static volatile Instruments instruments = new Instruments(NOOP);
+    private static volatile boolean enabled;
+
+
+    private Metrics() {
+    }
+
+
+    /**
+     * Install a recorder. Use null to disable the instrumentation again
+     */
+    public static synchronized void setRecorder(MetricsRecorder metricsRecorder) {
+        Metrics.recorder = metricsRecorder == null ? NOOP : metricsRecorder;
+        Metrics.instruments = new Instruments(recorder);
+        Metrics.enabled = metricsRecorder != null;
+    }
+
+
+    public static MetricsRecorder getRecorder() {
+        return recorder;
+    }
+
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+
+    /**
+     * @return the cached instruments of the library
+     */
+    public static Instruments instruments() {
+        return instruments;
+    }
+
+
+    /**
+     * The instruments of the library, created once per recorder
+     */
+    public static final class Instruments {
+        private final Timer[] digestTime;
+        private final Counter[] digestBytes;
+        private final Timer entrySerializeTime;
+        private final Histogram entrySize;
+        private final Timer chainIdTime;
+        private final Timer chainIdBaseTime;
+        private final Timer entryIdTime;
+        private final Counter chainIdCacheHit;
+        private final Counter chainIdCacheMiss;
+        private final Timer linkParseTime;
+        private final MetricsRecorder recorder;
+
+        private Instruments(MetricsRecorder recorder) {
+            this.recorder = recorder;
+            Digest.Algorithm[] algorithms = Digest.Algorithm.values();
+            this.digestTime = new Timer[algorithms.length];
+            this.digestBytes = new Counter[algorithms.length];
+            for (Digest.Algorithm algorithm : algorithms) {
+                digestTime[algorithm.ordinal()] = recorder.timer(DIGEST_TIME, TAG_ALGORITHM, algorithm.getImplementation());
+                digestBytes[algorithm.ordinal()] = recorder.counter(DIGEST_BYTES, TAG_ALGORITHM, algorithm.getImplementation());
+            }
+            this.entrySerializeTime = recorder.timer(ENTRY_SERIALIZE_TIME);
+            this.entrySize = recorder.histogram(ENTRY_SIZE);
+            this.chainIdTime = recorder.timer(CHAIN_ID_TIME);
+            this.chainIdBaseTime = recorder.timer(CHAIN_ID_BASE_TIME);
+            this.entryIdTime = recorder.timer(ENTRY_ID_TIME);
+            this.chainIdCacheHit = recorder.counter(CHAIN_ID_CACHE, TAG_RESULT, "hit");
+            this.chainIdCacheMiss = recorder.counter(CHAIN_ID_CACHE, TAG_RESULT, "miss");
+            this.linkParseTime = recorder.timer(LINK_PARSE_TIME);
+        }
+
+        public void digest(Digest.Algorithm algorithm, long nanos, long bytes) {
+            digestTime[algorithm.ordinal()].record(nanos);
+            digestBytes[algorithm.ordinal()].increment(bytes);
+        }
+
+        public void entrySerialized(long nanos, int size) {
+            entrySerializeTime.record(nanos);
+            entrySize.record(size);
+        }
+
+        public void chainId(long nanos) {
+            chainIdTime.record(nanos);
+        }
+
+        public void chainIdBase(long nanos) {
+            chainIdBaseTime.record(nanos);
+        }
+
+        public void entryId(long nanos) {
+            entryIdTime.record(nanos);
+        }
+
+        public void chainIdCache(boolean hit) {
+            (hit ? chainIdCacheHit : chainIdCacheMiss).increment(1);
+        }
+
+        public void linkParse(long nanos) {
+            linkParseTime.record(nanos);
+        }
+
+        public void digestProviderSelected(Digest.Algorithm algorithm, String provider) {
+            // Rare, so there is no need to cache the counter
+            recorder.counter(DIGEST_PROVIDER_SELECTED, TAG_ALGORITHM, algorithm.getImplementation(), TAG_PROVIDER, provider).increment(1);
+        }
+    }
+
+
+    private static class NoopRecorder implements MetricsRecorder, Counter, Timer, Histogram {
+        @Override
+        public Counter counter(String name, String... tags) {
+            return this;
+        }
+
+        @Override
+        public Timer timer(String name, String... tags) {
+            return this;
+        }
+
+        @Override
+        public Histogram histogram(String name, String... tags) {
+            return this;
+        }
+
+        @Override
+        public void increment(long amount) {
+        }
+
+        @Override
+        public void record(long value) {
+        }
+    }
+}
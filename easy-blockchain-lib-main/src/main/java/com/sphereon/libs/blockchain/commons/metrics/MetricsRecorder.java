@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.metrics;
+
+/**
+ * Service provider interface connecting the library instrumentation to a metrics system. Install an implementation
+ * using {@link Metrics#setRecorder(MetricsRecorder)}.
+ * <p>
+ * Instruments are created once when the recorder is installed and cached by the library, so implementations do not
+ * need to cache them. Tags are passed as alternating keys and values.
+ */
+public interface MetricsRecorder {
+
+    Counter counter(String name, String... tags);
+
+    Timer timer(String name, String... tags);
+
+    Histogram histogram(String name, String... tags);
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.offheap;
+
+import com.sphereon.libs.blockchain.api.model.AbstractId;
+
+/**
+ * Off-heap map from 32 byte digests to int values, for instance from entry Ids to journal offsets or block heights.
+ * Absent keys are reported as {@link #NO_VALUE}, use {@link #containsKey(byte[], int)} when that value is stored as well
+ *
+ * @see DigestTable
+ */
+public final class DigestIntMap extends DigestTable {
+    public static final int NO_VALUE = Integer.MIN_VALUE;
+
+    private static final Factory<DigestIntMap> FACTORY = new Factory<DigestIntMap>() {
+        @Override
+        public DigestIntMap create(Builder<DigestIntMap> builder) {
+            return new DigestIntMap(builder);
+        }
+    };
+
+
+    private DigestIntMap(Builder<DigestIntMap> builder) {
+        super(builder);
+    }
+
+
+    public static Builder<DigestIntMap> newBuilder() {
+        return new Builder<>(FACTORY, 4);
+    }
+
+
+    public boolean containsKey(AbstractId<?> id) {
+        return containsKey(id.toBytes(), 0);
+    }
+
+    public boolean containsKey(byte[] key, int offset) {
+        return hasKey(key, offset);
+    }
+
+
+    public int get(AbstractId<?> id) {
+        return get(id.toBytes(), 0);
+    }
+
+    /**
+     * @return the value of the 32 bytes at the offset, or {@link #NO_VALUE}
+     */
+    public int get(byte[] key, int offset) {
+        return (int) get(key, offset, NO_VALUE);
+    }
+
+
+    public int put(AbstractId<?> id, int value) {
+        return put(id.toBytes(), 0, value);
+    }
+
+    /**
+     * Associate the value with the 32 bytes at the offset. The bytes are copied
+     *
+     * @return the previous value, or {@link #NO_VALUE}
+     */
+    public int put(byte[] key, int offset, int value) {
+        return (int) put(key, offset, value, false, NO_VALUE);
+    }
+
+
+    public int putIfAbsent(AbstractId<?> id, int value) {
+        return putIfAbsent(id.toBytes(), 0, value);
+    }
+
+    /**
+     * @return the current value when the key is present, otherwise {@link #NO_VALUE} after associating the value
+     */
+    public int putIfAbsent(byte[] key, int offset, int value) {
+        return (int) put(key, offset, value, true, NO_VALUE);
+    }
+}
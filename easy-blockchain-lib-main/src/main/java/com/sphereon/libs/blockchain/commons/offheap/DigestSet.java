@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.offheap;
+
+import com.sphereon.libs.blockchain.api.model.AbstractId;
+
+/**
+ * Off-heap set of 32 byte digests, for instance to keep track of tens of millions of known entry Ids
+ *
+ * @see DigestTable
+ */
+public final class DigestSet extends DigestTable {
+    private static final long ABSENT = -1;
+
+    private static final Factory<DigestSet> FACTORY = new Factory<DigestSet>() {
+        @Override
+        public DigestSet create(Builder<DigestSet> builder) {
+            return new DigestSet(builder);
+        }
+    };
+
+
+    private DigestSet(Builder<DigestSet> builder) {
+        super(builder);
+    }
+
+
+    public static Builder<DigestSet> newBuilder() {
+        return new Builder<>(FACTORY, 0);
+    }
+
+
+    public boolean contains(AbstractId<?> id) {
+        return contains(id.toBytes(), 0);
+    }
+
+    public boolean contains(byte[] key) {
+        return contains(key, 0);
+    }
+
+    /**
+     * @return whether the 32 bytes at the offset are in the set
+     */
+    public boolean contains(byte[] key, int offset) {
+        return hasKey(key, offset);
+    }
+
+
+    public boolean add(AbstractId<?> id) {
+        return add(id.toBytes(), 0);
+    }
+
+    public boolean add(byte[] key) {
+        return add(key, 0);
+    }
+
+    /**
+     * Add the 32 bytes at the offset. The bytes are copied
+     *
+     * @return true when the key was not in the set yet
+     */
+    public boolean add(byte[] key, int offset) {
+        return put(key, offset, 0, true, ABSENT) == ABSENT;
+    }
+}
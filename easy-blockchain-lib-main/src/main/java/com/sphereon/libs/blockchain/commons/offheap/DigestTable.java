@@ -0,0 +1,507 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.offheap;
+
+import com.sphereon.libs.blockchain.commons.Bytes;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Base class for off-heap open addressing hash tables with fixed 32 byte digest keys, such as chain Ids, entry Ids and
+ * SHA-256 content hashes.
+ * <p>
+ * Keys and values are stored in direct byte buffers, or in memory mapped files when a directory is configured, so tens
+ * of millions of digests neither take up heap nor add to garbage collection pauses. The keys are digests, so their bits
+ * are used as hash directly: the first word selects the segment, the second word the slot. Collisions are resolved by
+ * linear probing. Keys cannot be removed.
+ * <p>
+ * The table is split into segments with their own lock. Writers lock their segment only. Readers do not lock at all,
+ * unless a write to the same segment interferes, in which case the read is retried with a read lock. Segments double in
+ * size when they are three quarters full.
+ */
+public abstract class DigestTable implements Closeable {
+    public static final int KEY_LENGTH = 32;
+
+    private static final int MAGIC = 0x45424454; // EBDT
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int SIZE_OFFSET = 16;
+    private static final int ZERO_KEY_OFFSET = 24;
+    private static final int ZERO_VALUE_OFFSET = 32;
+    private static final int MIN_CAPACITY = 16;
+
+    private final int valueBytes;
+    private final int slotSize;
+    private final int maxCapacity;
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final Path directory;
+    private volatile boolean closed;
+
+
+    DigestTable(Builder<?> builder) {
+        this.valueBytes = builder.valueBytes;
+        this.slotSize = KEY_LENGTH + valueBytes;
+        this.maxCapacity = Integer.highestOneBit((Integer.MAX_VALUE - HEADER_SIZE) / slotSize);
+        this.directory = builder.directory;
+        this.segments = new Segment[builder.segments];
+        this.segmentMask = builder.segments - 1;
+        long perSegment = (long) Math.ceil(builder.expectedSize / (double) builder.segments / 0.75);
+        int capacity = (int) Math.min(maxCapacity, Math.max(MIN_CAPACITY, Long.highestOneBit(Math.max(1, perSegment - 1)) << 1));
+        try {
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = new Segment(directory == null ? null : directory.resolve("segment-" + i + ".dat"), capacity);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * @return the number of keys
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return the off-heap memory or file size taken by the table
+     */
+    public long getSizeInBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            Table table = segment.table;
+            if (table != null) {
+                bytes += table.buffer.capacity();
+            }
+        }
+        return bytes;
+    }
+
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    /**
+     * @return the directory of the segment files, or null when the table is kept in memory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+
+    /**
+     * Write the changes of memory mapped segments to disk. Does nothing for in-memory tables
+     */
+    public void flush() {
+        checkOpen();
+        if (directory == null) {
+            // Direct buffers are mapped byte buffers as well, but cannot be forced
+            return;
+        }
+        for (Segment segment : segments) {
+            long stamp = segment.lock.readLock();
+            try {
+                ((MappedByteBuffer) segment.table.buffer).force();
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+    }
+
+
+    /**
+     * Flush and release the segments. Direct and mapped memory is returned once the buffers are garbage collected
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        flush();
+        closed = true;
+        for (Segment segment : segments) {
+            long stamp = segment.lock.writeLock();
+            try {
+                segment.table = null;
+            } finally {
+                segment.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+
+    /**
+     * @return the value, 0 for tables without values, or the missing value when the key is absent
+     */
+    final long get(byte[] key, int offset, long missing) {
+        return read(key, offset, false, missing);
+    }
+
+    final boolean hasKey(byte[] key, int offset) {
+        return read(key, offset, true, 0) != 0;
+    }
+
+
+    private long read(byte[] key, int offset, boolean presence, long missing) {
+        checkKey(key, offset);
+        long word0 = Bytes.readLong(key, offset);
+        long word1 = Bytes.readLong(key, offset + 8);
+        long word2 = Bytes.readLong(key, offset + 16);
+        long word3 = Bytes.readLong(key, offset + 24);
+        Segment segment = segments[(int) (word0 >>> 32) & segmentMask];
+        StampedLock lock = segment.lock;
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            long value = segment.read(word0, word1, word2, word3, presence, missing);
+            if (lock.validate(stamp)) {
+                return value;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return segment.read(word0, word1, word2, word3, presence, missing);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+
+    /**
+     * @return the previous value, 0 for tables without values, or the missing value when the key was absent
+     */
+    final long put(byte[] key, int offset, long value, boolean onlyIfAbsent, long missing) {
+        checkKey(key, offset);
+        long word0 = Bytes.readLong(key, offset);
+        long word1 = Bytes.readLong(key, offset + 8);
+        long word2 = Bytes.readLong(key, offset + 16);
+        long word3 = Bytes.readLong(key, offset + 24);
+        Segment segment = segments[(int) (word0 >>> 32) & segmentMask];
+        long stamp = segment.lock.writeLock();
+        try {
+            return segment.put(word0, word1, word2, word3, value, onlyIfAbsent, missing);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+
+    private void checkKey(byte[] key, int offset) {
+        if (key == null || offset < 0 || key.length - offset < KEY_LENGTH) {
+            throw new IllegalArgumentException("A digest key needs " + KEY_LENGTH + " bytes");
+        }
+        checkOpen();
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Digest table has been closed");
+        }
+    }
+
+
+    private static final class Table {
+        private final ByteBuffer buffer;
+        private final int mask;
+
+        private Table(ByteBuffer buffer, int capacity) {
+            this.buffer = buffer;
+            this.mask = capacity - 1;
+        }
+    }
+
+
+    private final class Segment {
+        private final StampedLock lock = new StampedLock();
+        private final Path file;
+        private volatile Table table;
+        private volatile int size;
+        // The all zero key marks empty slots, so it is kept aside
+        private boolean zeroKey;
+        private long zeroValue;
+
+        private Segment(Path file, int capacity) throws IOException {
+            this.file = file;
+            if (file != null && Files.exists(file)) {
+                open();
+            } else {
+                this.table = create(file, capacity);
+            }
+        }
+
+        /**
+         * @return 1 or 0 for presence reads, otherwise the value or the missing value
+         */
+        private long read(long word0, long word1, long word2, long word3, boolean presence, long missing) {
+            if ((word0 | word1 | word2 | word3) == 0) {
+                if (presence) {
+                    return zeroKey ? 1 : 0;
+                }
+                return zeroKey ? zeroValue : missing;
+            }
+            Table current = table;
+            ByteBuffer buffer = current.buffer;
+            int index = (int) word1 & current.mask;
+            while (true) {
+                int position = HEADER_SIZE + index * slotSize;
+                long slot0 = buffer.getLong(position);
+                long slot1 = buffer.getLong(position + 8);
+                long slot2 = buffer.getLong(position + 16);
+                long slot3 = buffer.getLong(position + 24);
+                if (slot0 == word0 && slot1 == word1 && slot2 == word2 && slot3 == word3) {
+                    return presence ? 1 : readValue(buffer, position + KEY_LENGTH);
+                }
+                if ((slot0 | slot1 | slot2 | slot3) == 0) {
+                    // Slots are never emptied, so at least a quarter of them stay empty and probing ends
+                    return presence ? 0 : missing;
+                }
+                index = (index + 1) & current.mask;
+            }
+        }
+
+        private long put(long word0, long word1, long word2, long word3, long value, boolean onlyIfAbsent, long missing) throws IOException {
+            if ((word0 | word1 | word2 | word3) == 0) {
+                ByteBuffer buffer = table.buffer;
+                if (zeroKey) {
+                    long previous = zeroValue;
+                    if (!onlyIfAbsent) {
+                        zeroValue = value;
+                        buffer.putLong(ZERO_VALUE_OFFSET, value);
+                    }
+                    return previous;
+                }
+                zeroKey = true;
+                zeroValue = value;
+                buffer.put(ZERO_KEY_OFFSET, (byte) 1);
+                buffer.putLong(ZERO_VALUE_OFFSET, value);
+                setSize(size + 1);
+                return missing;
+            }
+            Table current = table;
+            if ((size + 1) > (current.mask + 1) / 4 * 3) {
+                current = grow(current);
+            }
+            ByteBuffer buffer = current.buffer;
+            int index = (int) word1 & current.mask;
+            while (true) {
+                int position = HEADER_SIZE + index * slotSize;
+                long slot0 = buffer.getLong(position);
+                long slot1 = buffer.getLong(position + 8);
+                long slot2 = buffer.getLong(position + 16);
+                long slot3 = buffer.getLong(position + 24);
+                if (slot0 == word0 && slot1 == word1 && slot2 == word2 && slot3 == word3) {
+                    long previous = readValue(buffer, position + KEY_LENGTH);
+                    if (!onlyIfAbsent) {
+                        writeValue(buffer, position + KEY_LENGTH, value);
+                    }
+                    return previous;
+                }
+                if ((slot0 | slot1 | slot2 | slot3) == 0) {
+                    writeValue(buffer, position + KEY_LENGTH, value);
+                    buffer.putLong(position, word0);
+                    buffer.putLong(position + 8, word1);
+                    buffer.putLong(position + 16, word2);
+                    buffer.putLong(position + 24, word3);
+                    setSize(size + 1);
+                    return missing;
+                }
+                index = (index + 1) & current.mask;
+            }
+        }
+
+        private void setSize(int size) {
+            this.size = size;
+            table.buffer.putLong(SIZE_OFFSET, size);
+        }
+
+        private Table grow(Table current) throws IOException {
+            int capacity = current.mask + 1;
+            if (capacity >= maxCapacity) {
+                throw new IllegalStateException("Digest table segment cannot grow beyond " + maxCapacity + " keys, use more segments");
+            }
+            Path target = file == null ? null : file.resolveSibling(file.getFileName() + ".tmp");
+            Table next = create(target, capacity * 2);
+            ByteBuffer from = current.buffer;
+            ByteBuffer to = next.buffer;
+            for (int i = 0; i < capacity; i++) {
+                int position = HEADER_SIZE + i * slotSize;
+                long word1 = from.getLong(position + 8);
+                if ((from.getLong(position) | word1 | from.getLong(position + 16) | from.getLong(position + 24)) == 0) {
+                    continue;
+                }
+                int index = (int) word1 & next.mask;
+                while (to.getLong(HEADER_SIZE + index * slotSize) != 0 || to.getLong(HEADER_SIZE + index * slotSize + 8) != 0
+                        || to.getLong(HEADER_SIZE + index * slotSize + 16) != 0 || to.getLong(HEADER_SIZE + index * slotSize + 24) != 0) {
+                    index = (index + 1) & next.mask;
+                }
+                for (int b = 0; b < slotSize; b += 4) {
+                    to.putInt(HEADER_SIZE + index * slotSize + b, from.getInt(position + b));
+                }
+            }
+            to.putLong(SIZE_OFFSET, size);
+            to.put(ZERO_KEY_OFFSET, (byte) (zeroKey ? 1 : 0));
+            to.putLong(ZERO_VALUE_OFFSET, zeroValue);
+            if (file != null) {
+                ((MappedByteBuffer) to).force();
+                Files.move(target, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            table = next;
+            return next;
+        }
+
+        private Table create(Path target, int capacity) throws IOException {
+            int bytes = HEADER_SIZE + capacity * slotSize;
+            ByteBuffer buffer;
+            if (target == null) {
+                buffer = ByteBuffer.allocateDirect(bytes);
+            } else {
+                Files.deleteIfExists(target);
+                try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    // A fresh file reads as zeros, so all slots are empty
+                    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+                }
+            }
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, valueBytes);
+            buffer.putInt(12, capacity);
+            return new Table(buffer, capacity);
+        }
+
+        private void open() throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                if (channel.size() < HEADER_SIZE) {
+                    throw new IOException("File " + file + " is not a digest table segment");
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                int capacity = buffer.getInt(12);
+                if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                    throw new IOException("File " + file + " is not a digest table segment");
+                }
+                if (buffer.getInt(8) != valueBytes || Integer.bitCount(capacity) != 1
+                        || channel.size() != HEADER_SIZE + (long) capacity * slotSize) {
+                    throw new IOException("Digest table segment " + file + " does not match the table layout");
+                }
+                this.size = (int) buffer.getLong(SIZE_OFFSET);
+                this.zeroKey = buffer.get(ZERO_KEY_OFFSET) != 0;
+                this.zeroValue = buffer.getLong(ZERO_VALUE_OFFSET);
+                this.table = new Table(buffer, capacity);
+            }
+        }
+
+        private long readValue(ByteBuffer buffer, int position) {
+            switch (valueBytes) {
+                case 4:
+                    return buffer.getInt(position);
+                case 8:
+                    return buffer.getLong(position);
+                default:
+                    return 0;
+            }
+        }
+
+        private void writeValue(ByteBuffer buffer, int position, long value) {
+            if (valueBytes == 4) {
+                buffer.putInt(position, (int) value);
+            } else if (valueBytes == 8) {
+                buffer.putLong(position, value);
+            }
+        }
+    }
+
+
+    /**
+     * Creates the concrete table type
+     */
+    interface Factory<T extends DigestTable> {
+        T create(Builder<T> builder);
+    }
+
+
+    public static final class Builder<T extends DigestTable> {
+        private final Factory<T> factory;
+        private final int valueBytes;
+        private long expectedSize = 1 << 20;
+        private int segments = 16;
+        private Path directory;
+
+        Builder(Factory<T> factory, int valueBytes) {
+            this.factory = factory;
+            this.valueBytes = valueBytes;
+        }
+
+        /**
+         * @param expectedSize The number of keys the table is initially sized for. Defaults to 1,048,576
+         */
+        public Builder<T> expectedSize(long expectedSize) {
+            if (expectedSize < 1) {
+                throw new IllegalArgumentException("Expected size needs to be at least 1 instead of: " + expectedSize);
+            }
+            this.expectedSize = expectedSize;
+            return this;
+        }
+
+        /**
+         * @param segments The number of independently locked segments, which needs to be a power of 2. Defaults to 16
+         */
+        public Builder<T> segments(int segments) {
+            if (segments < 1 || segments > 1 << 16 || Integer.bitCount(segments) != 1) {
+                throw new IllegalArgumentException("Segments needs to be a power of 2 up to 65536 instead of: " + segments);
+            }
+            this.segments = segments;
+            return this;
+        }
+
+        /**
+         * @param directory Keep the segments in memory mapped files in this directory. Existing segment files are
+         *                  opened, in which case the number of segments and the table type need to match. Defaults to
+         *                  direct memory
+         */
+        public Builder<T> directory(Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        public T build() {
+            return factory.create(this);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.reactive;
+
+import com.sphereon.libs.blockchain.api.model.ChainId;
+import com.sphereon.libs.blockchain.api.model.ImmutableEntryData;
+import com.sphereon.libs.blockchain.commons.Digest;
+import com.sphereon.libs.blockchain.commons.Operations;
+
+import java.util.function.Function;
+
+/**
+ * Functions wrapping {@link Digest} and {@link Operations} for use in {@link ProcessingStage}s.
+ * <p>
+ * A typical pipeline hashes source documents, builds the entry data from the hash and prepares the entries for
+ * submission:
+ * <pre>
+ * ProcessingStage.newBuilder(EntryStages.hash(Digest.Algorithm.SHA_256)).parallelism(4).build()
+ *         .from(Publishers.fromIterable(documents))
+ *         .then(ProcessingStage.newBuilder(toEntryData).parallelism(1).build())
+ *         .then(ProcessingStage.newBuilder(EntryStages.prepare(chainId)).build())
+ *         .subscribe(submitter);
+ * </pre>
+ */
+public final class EntryStages {
+
+    private EntryStages() {
+    }
+
+    public static Function<byte[], byte[]> hash(final Digest.Algorithm algorithm) {
+        final Digest digest = Digest.getInstance();
+        return new Function<byte[], byte[]>() {
+            @Override
+            public byte[] apply(byte[] input) {
+                return digest.getHash(algorithm, input);
+            }
+        };
+    }
+
+    /**
+     * Serialize the entry and calculate the entry Id, serializing only once
+     *
+     * @param chainId The chain the entries are for. When null every entry is prepared as the first entry of a new chain
+     * @return
+     */
+    public static Function<ImmutableEntryData, PreparedEntry> prepare(final ChainId chainId) {
+        final Operations operations = Operations.getInstance();
+        return new Function<ImmutableEntryData, PreparedEntry>() {
+            @Override
+            public PreparedEntry apply(ImmutableEntryData entryData) {
+                ChainId entryChainId = chainId == null ? operations.calculateChainId(entryData.getExternalIds()) : chainId;
+                byte[] entryBytes = operations.chainEntryToBytes(entryChainId, entryData, entryData.getExternalIds()).original();
+                return new PreparedEntry(entryChainId, entryData, entryBytes, operations.calculateEntryId(entryBytes));
+            }
+        };
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.reactive;
+
+import com.sphereon.libs.blockchain.api.model.ChainId;
+import com.sphereon.libs.blockchain.api.model.EntryId;
+import com.sphereon.libs.blockchain.api.model.ImmutableEntryData;
+
+/**
+ * An entry which is serialized and has its entry Id calculated, ready to be submitted
+ */
+public final class PreparedEntry {
+    private final ChainId chainId;
+    private final ImmutableEntryData entryData;
+    private final byte[] entryBytes;
+    private final EntryId entryId;
+
+    PreparedEntry(ChainId chainId, ImmutableEntryData entryData, byte[] entryBytes, EntryId entryId) {
+        this.chainId = chainId;
+        this.entryData = entryData;
+        this.entryBytes = entryBytes;
+        this.entryId = entryId;
+    }
+
+    public ChainId getChainId() {
+        return chainId;
+    }
+
+    public ImmutableEntryData getEntryData() {
+        return entryData;
+    }
+
+    /**
+     * @return a copy of the serialized entry
+     */
+    public byte[] getEntryBytes() {
+        return entryBytes.clone();
+    }
+
+    public int entrySize() {
+        return entryBytes.length;
+    }
+
+    public EntryId getEntryId() {
+        return entryId;
+    }
+
+    @Override
+    public String toString() {
+        return "PreparedEntry{" +
+                "chainId=" + chainId +
+                ", entryId=" + entryId +
+                ", entrySize=" + entryBytes.length +
+                '}';
+    }
+}
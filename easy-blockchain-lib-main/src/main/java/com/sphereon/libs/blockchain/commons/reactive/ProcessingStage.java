@@ -0,0 +1,446 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.libs.blockchain.commons.reactive;
+
+import com.sphereon.libs.blockchain.commons.AsyncOperations;
+import org.reactivestreams.Processor;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * A Reactive Streams {@link Processor} applying a function to every item on an {@link Executor}, with at most
+ * {@code parallelism} items being processed at the same time.
+ * <p>
+ * Demand is bounded: items received from upstream but not yet emitted downstream never exceed the buffer size. When the
+ * downstream subscriber stops requesting, the stage stops requesting from upstream as well, so a slow consumer throttles
+ * the hashing upstream instead of letting results pile up in memory.
+ * <p>
+ * Ordered stages emit in the order the items were received. Unordered stages emit as soon as an item is processed.
+ * A failing function cancels upstream and signals the error downstream immediately. An upstream error is signalled
+ * after the items received before it have been emitted.
+ * <p>
+ * Each stage supports a single subscriber. On Java 9+ the stage can be adapted to {@code java.util.concurrent.Flow} using
+ * {@code org.reactivestreams.FlowAdapters}.
+ * <p>
+ * The org.reactivestreams:reactive-streams dependency is optional, so applications using this package have to add it.
+ *
+ * @param <T> The input type
+ * @param <R> The output type
+ */
+public class ProcessingStage<T, R> implements Processor<T, R> {
+
+    private final Function<? super T, ? extends R> function;
+    private final Executor executor;
+    private final int parallelism;
+    private final int bufferSize;
+    private final boolean ordered;
+
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+    private final AtomicReference<Subscription> upstream = new AtomicReference<>();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final Queue<Task> received = new ConcurrentLinkedQueue<>();
+    private final Queue<Task> processed = new ConcurrentLinkedQueue<>();
+
+    private volatile Subscriber<? super R> downstream;
+    private volatile boolean upstreamDone;
+    private volatile Throwable upstreamError;
+    private volatile boolean cancelled;
+    private volatile boolean terminated;
+
+    // Only accessed from the drain loop
+    private final ArrayDeque<Task> waiting = new ArrayDeque<>();
+    private final ArrayDeque<Task> emitOrder = new ArrayDeque<>();
+    private int outstanding;
+    private long upstreamRequested;
+
+
+    private ProcessingStage(Builder<T, R> builder) {
+        this.function = builder.function;
+        this.executor = builder.executor == null ? AsyncOperations.getInstance().getExecutor() : builder.executor;
+        this.parallelism = builder.parallelism;
+        this.bufferSize = Math.max(builder.parallelism, builder.bufferSize);
+        this.ordered = builder.ordered;
+    }
+
+
+    public static <T, R> Builder<T, R> newBuilder(Function<? super T, ? extends R> function) {
+        return new Builder<>(function);
+    }
+
+
+    /**
+     * Subscribe this stage to the source
+     *
+     * @param source The upstream publisher
+     * @return this stage, so stages can be chained
+     */
+    public ProcessingStage<T, R> from(Publisher<? extends T> source) {
+        source.subscribe(this);
+        return this;
+    }
+
+
+    /**
+     * Subscribe the next stage to this stage
+     *
+     * @param next The downstream stage
+     * @return the next stage, so stages can be chained
+     */
+    public <V> ProcessingStage<R, V> then(ProcessingStage<R, V> next) {
+        subscribe(next);
+        return next;
+    }
+
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+
+    @Override
+    public void subscribe(final Subscriber<? super R> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("Subscriber cannot be null");
+        }
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("A processing stage supports only one subscriber"));
+            return;
+        }
+        subscriber.onSubscribe(new Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    failure.compareAndSet(null, new IllegalArgumentException("Requested amount needs to be positive (rule 3.9) instead of: " + n));
+                } else {
+                    addRequested(n);
+                }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+                drain();
+            }
+        });
+        // Set after onSubscribe, so no other signal can reach the subscriber before it
+        downstream = subscriber;
+        drain();
+    }
+
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        if (!upstream.compareAndSet(null, subscription)) {
+            subscription.cancel();
+            return;
+        }
+        drain();
+    }
+
+
+    @Override
+    public void onNext(T item) {
+        if (item == null) {
+            throw new NullPointerException("Items cannot be null (rule 2.13)");
+        }
+        received.offer(new Task(item));
+        drain();
+    }
+
+
+    @Override
+    public void onError(Throwable t) {
+        upstreamError = t;
+        upstreamDone = true;
+        drain();
+    }
+
+
+    @Override
+    public void onComplete() {
+        upstreamDone = true;
+        drain();
+    }
+
+
+    private void addRequested(long n) {
+        for (; ; ) {
+            long current = requested.get();
+            if (current == Long.MAX_VALUE) {
+                return;
+            }
+            long next = current + n;
+            if (next < 0) {
+                next = Long.MAX_VALUE;
+            }
+            if (requested.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        for (; ; ) {
+            if (!terminated) {
+                drainLoop();
+            }
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+
+    private void drainLoop() {
+        Subscriber<? super R> subscriber = downstream;
+        if (cancelled) {
+            terminate();
+            return;
+        }
+        if (subscriber == null) {
+            return;
+        }
+        Throwable t = failure.get();
+        if (t != null) {
+            terminate();
+            subscriber.onError(t);
+            return;
+        }
+
+        // Read before polling, so every item signalled before completion is seen below
+        boolean done = upstreamDone;
+        Task task;
+        while ((task = received.poll()) != null) {
+            waiting.add(task);
+            if (ordered) {
+                emitOrder.add(task);
+            }
+            outstanding++;
+            upstreamRequested--;
+        }
+
+        while (running.get() < parallelism && !waiting.isEmpty()) {
+            task = waiting.poll();
+            running.incrementAndGet();
+            try {
+                executor.execute(task);
+            } catch (RuntimeException e) {
+                running.decrementAndGet();
+                failure.compareAndSet(null, e);
+                terminate();
+                subscriber.onError(e);
+                return;
+            }
+        }
+
+        long demand = requested.get();
+        long emitted = 0;
+        while (emitted != demand) {
+            if (failure.get() != null || cancelled) {
+                // Picked up by the next round of the drain loop
+                return;
+            }
+            Task next;
+            if (ordered) {
+                next = emitOrder.peek();
+                if (next == null || !next.done) {
+                    break;
+                }
+                emitOrder.poll();
+            } else {
+                next = processed.poll();
+                if (next == null) {
+                    break;
+                }
+            }
+            R result = next.result;
+            if (result == null) {
+                // The function failed, the failure is signalled by the next round of the drain loop
+                return;
+            }
+            outstanding--;
+            subscriber.onNext(result);
+            emitted++;
+        }
+        if (emitted != 0 && demand != Long.MAX_VALUE) {
+            requested.addAndGet(-emitted);
+        }
+
+        if (done) {
+            if (outstanding == 0) {
+                terminate();
+                Throwable error = upstreamError;
+                if (error == null) {
+                    subscriber.onComplete();
+                } else {
+                    subscriber.onError(error);
+                }
+            }
+            return;
+        }
+
+        Subscription subscription = upstream.get();
+        long free = bufferSize - outstanding - upstreamRequested;
+        // Request in batches to limit the amount of request signals
+        if (subscription != null && free > 0 && (upstreamRequested == 0 || free >= Math.max(1, bufferSize / 2))) {
+            upstreamRequested += free;
+            subscription.request(free);
+        }
+    }
+
+
+    private void terminate() {
+        terminated = true;
+        Subscription subscription = upstream.get();
+        if (subscription != null && !upstreamDone) {
+            subscription.cancel();
+        }
+        received.clear();
+        processed.clear();
+        waiting.clear();
+        emitOrder.clear();
+    }
+
+
+    private class Task implements Runnable {
+        private final T input;
+        private volatile R result;
+        private volatile boolean done;
+
+        private Task(T input) {
+            this.input = input;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!terminated) {
+                    R value = function.apply(input);
+                    if (value == null) {
+                        throw new NullPointerException("Processing stage function returned null for: " + input);
+                    }
+                    result = value;
+                }
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            } finally {
+                done = true;
+                if (!ordered) {
+                    processed.offer(this);
+                }
+                running.decrementAndGet();
+                drain();
+            }
+        }
+    }
+
+
+    public static class Builder<T, R> {
+        private final Function<? super T, ? extends R> function;
+        private Executor executor;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private int bufferSize;
+        private boolean ordered = true;
+
+        private Builder(Function<? super T, ? extends R> function) {
+            if (function == null) {
+                throw new NullPointerException("A processing stage needs a function");
+            }
+            this.function = function;
+        }
+
+        /**
+         * @param executor The executor running the function. Defaults to the executor of {@link AsyncOperations#getInstance()}
+         */
+        public Builder<T, R> executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * @param parallelism The maximum number of items processed at the same time. Defaults to the number of cores
+         */
+        public Builder<T, R> parallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("Parallelism needs to be at least 1 instead of: " + parallelism);
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * @param bufferSize The maximum number of items received but not emitted yet. Defaults to twice the parallelism
+         */
+        public Builder<T, R> bufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        /**
+         * @param ordered Whether items are emitted in the order they were received. Defaults to true
+         */
+        public Builder<T, R> ordered(boolean ordered) {
+            this.ordered = ordered;
+            return this;
+        }
+
+        public ProcessingStage<T, R> build() {
+            if (bufferSize <= 0) {
+                bufferSize = parallelism * 2;
+            }
+            return new ProcessingStage<>(this);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.reactive;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sources for {@link ProcessingStage} pipelines
+ */
+public final class Publishers {
+
+    private Publishers() {
+    }
+
+    /**
+     * A publisher emitting the items of the iterable on request. Every subscriber gets its own iterator, so a lazy
+     * iterable is only read as fast as the pipeline requests items
+     *
+     * @param iterable The source items, which cannot contain null values
+     * @return a cold publisher
+     */
+    public static <T> Publisher<T> fromIterable(final Iterable<? extends T> iterable) {
+        return new Publisher<T>() {
+            @Override
+            public void subscribe(Subscriber<? super T> subscriber) {
+                new IterableSubscription<T>(subscriber, iterable.iterator()).start();
+            }
+        };
+    }
+
+
+    private static class IterableSubscription<T> implements Subscription {
+        private final Subscriber<? super T> subscriber;
+        private final Iterator<? extends T> iterator;
+        private final AtomicLong requested = new AtomicLong();
+        private volatile boolean cancelled;
+
+        private IterableSubscription(Subscriber<? super T> subscriber, Iterator<? extends T> iterator) {
+            this.subscriber = subscriber;
+            this.iterator = iterator;
+        }
+
+        private void start() {
+            subscriber.onSubscribe(this);
+            // Only complete directly when nothing has been requested from within onSubscribe
+            if (requested.get() == 0 && !cancelled) {
+                boolean empty;
+                try {
+                    empty = !iterator.hasNext();
+                } catch (Throwable t) {
+                    cancelled = true;
+                    subscriber.onError(t);
+                    return;
+                }
+                if (empty && requested.get() == 0) {
+                    cancelled = true;
+                    subscriber.onComplete();
+                }
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancelled = true;
+                subscriber.onError(new IllegalArgumentException("Requested amount needs to be positive (rule 3.9) instead of: " + n));
+                return;
+            }
+            long previous;
+            long next;
+            do {
+                previous = requested.get();
+                if (previous == Long.MAX_VALUE) {
+                    return;
+                }
+                next = previous + n < 0 ? Long.MAX_VALUE : previous + n;
+            } while (!requested.compareAndSet(previous, next));
+            if (previous == 0) {
+                // This thread is the only one emitting until the outstanding demand drops to zero again
+                emit(next);
+            }
+        }
+
+        private void emit(long demand) {
+            long emitted = 0;
+            for (; ; ) {
+                while (emitted != demand) {
+                    if (cancelled) {
+                        return;
+                    }
+                    T item;
+                    try {
+                        if (!iterator.hasNext()) {
+                            cancelled = true;
+                            subscriber.onComplete();
+                            return;
+                        }
+                        item = iterator.next();
+                        if (item == null) {
+                            throw new NullPointerException("Iterable publishers cannot emit null values");
+                        }
+                    } catch (Throwable t) {
+                        cancelled = true;
+                        subscriber.onError(t);
+                        return;
+                    }
+                    subscriber.onNext(item);
+                    emitted++;
+                }
+                demand = requested.get();
+                if (emitted == demand) {
+                    if (demand == Long.MAX_VALUE) {
+                        continue;
+                    }
+                    demand = requested.addAndGet(-emitted);
+                    if (demand == 0) {
+                        return;
+                    }
+                    emitted = 0;
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,509 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.scan;
+
+import com.sphereon.libs.blockchain.api.model.ImmutableEntryData;
+import com.sphereon.libs.blockchain.commons.AsyncOperations;
+import com.sphereon.libs.blockchain.commons.Digest;
+import com.sphereon.libs.blockchain.commons.RegistrationType;
+import com.sphereon.libs.blockchain.commons.links.Subsystem;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Walks a directory tree in parallel and builds an entry per file with the registration external Ids of the
+ * {@link Subsystem.Default#FILE} subsystem: the root, the context, the relative path as document Id and the SHA-256
+ * content hash.
+ * <p>
+ * Directories are listed and small files are read on a pool of I/O threads, hashing runs on a separate CPU executor.
+ * Files above the map threshold are memory mapped and hashed on the CPU executor directly, so their reads are driven by
+ * the hashing itself. At most {@code maxInFlight} files are read, hashed or waiting for the consumer at any time. The
+ * walkers block when that limit is reached, so a slow consumer throttles both the hashing and the walk.
+ * <p>
+ * The consumer gets an {@link ImmutableEntryData} per file, which has no content and is not bound to a chain: the file is
+ * anchored by its hash. {@link FileEntry#toEntry()} builds the {@link com.sphereon.libs.blockchain.api.model.Entry} to
+ * add to a chain of choice.
+ * <p>
+ * The I/O pool of a scan queues any number of directories, so wide trees do not overflow it. When the CPU executor rejects
+ * a file, it is hashed on the I/O thread instead. A scanner can be used for several scans, also concurrently.
+ */
+public class DirectoryScanner {
+    private static final List<RegistrationType> FILE_TYPES = Arrays.asList(RegistrationType.Defaults.ROOT,
+            RegistrationType.Defaults.CONTEXT, RegistrationType.Defaults.DOCUMENT_ID, RegistrationType.Defaults.HASH);
+    // Mapped regions stay below the 2 GiB limit of a byte buffer
+    private static final long MAX_MAP_SIZE = 1L << 30;
+
+    private static final Digest digest = Digest.getInstance();
+
+    private final Path root;
+    private final String rootValue;
+    private final String context;
+    private final List<RegistrationType> registrationTypes;
+    private final int ioThreads;
+    private final ExecutorService ioExecutor;
+    private final Executor cpuExecutor;
+    private final int maxInFlight;
+    private final long mapThreshold;
+    private final boolean followLinks;
+    private final LinkOption[] linkOptions;
+    private final DirectoryStream.Filter<? super Path> filter;
+
+
+    private DirectoryScanner(Builder builder) {
+        this.root = builder.root;
+        this.rootValue = builder.rootValue != null ? builder.rootValue
+                : root.getFileName() == null ? root.toString() : root.getFileName().toString();
+        this.context = builder.context;
+        this.registrationTypes = new ArrayList<>(builder.registrationTypes);
+        this.ioThreads = builder.ioThreads;
+        this.ioExecutor = builder.ioExecutor;
+        this.cpuExecutor = builder.cpuExecutor == null ? AsyncOperations.getInstance().getExecutor() : builder.cpuExecutor;
+        this.maxInFlight = builder.maxInFlight;
+        this.mapThreshold = builder.mapThreshold;
+        this.followLinks = builder.followLinks;
+        this.linkOptions = builder.followLinks ? new LinkOption[0] : new LinkOption[]{LinkOption.NOFOLLOW_LINKS};
+        this.filter = builder.filter;
+    }
+
+
+    public static Builder newBuilder(Path root) {
+        return new Builder(root);
+    }
+
+
+    /**
+     * Start scanning the tree
+     *
+     * @param consumer Receives the files in order of completion
+     * @return a future completing with the totals after the last file was passed to the consumer, or exceptionally when
+     * the consumer or an executor failed
+     */
+    public CompletableFuture<ScanResult> scan(FileEntryConsumer consumer) {
+        if (consumer == null) {
+            throw new IllegalArgumentException("A scan needs a consumer");
+        }
+        Scan scan = new Scan(consumer);
+        scan.start();
+        return scan.future;
+    }
+
+
+    public Path getRoot() {
+        return root;
+    }
+
+
+    private ImmutableEntryData entryData(String documentId, byte[] contentHash) {
+        ImmutableEntryData.Builder builder = ImmutableEntryData.newBuilder();
+        for (RegistrationType type : registrationTypes) {
+            if (RegistrationType.Defaults.ROOT.equals(type)) {
+                builder.externalId(type.getName()).externalId(rootValue.getBytes(StandardCharsets.UTF_8));
+            } else if (RegistrationType.Defaults.CONTEXT.equals(type)) {
+                if (context != null) {
+                    builder.externalId(type.getName()).externalId(context.getBytes(StandardCharsets.UTF_8));
+                }
+            } else if (RegistrationType.Defaults.DOCUMENT_ID.equals(type)) {
+                builder.externalId(type.getName()).externalId(documentId.getBytes(StandardCharsets.UTF_8));
+            } else {
+                builder.externalId(type.getName()).externalId(contentHash);
+            }
+        }
+        return builder.content(new byte[0]).build();
+    }
+
+    private String documentId(Path file) {
+        StringBuilder documentId = new StringBuilder();
+        for (Path part : root.relativize(file)) {
+            if (documentId.length() > 0) {
+                documentId.append('/');
+            }
+            documentId.append(part.toString());
+        }
+        return documentId.toString();
+    }
+
+    /**
+     * A pool with an unbounded queue. Only directories are queued, files are read by the thread listing them
+     */
+    private static ExecutorService newIoExecutor(int threads) {
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "easy-blockchain-scan-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private static byte[] hashMapped(Path file, long size) throws IOException {
+        MessageDigest messageDigest = digest.newMessageDigest(Digest.Algorithm.SHA_256);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (long position = 0; position < size; position += MAX_MAP_SIZE) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAX_MAP_SIZE, size - position));
+                messageDigest.update(buffer);
+            }
+        }
+        return messageDigest.digest();
+    }
+
+
+    /**
+     * State of a single scan. Every listed directory and every accepted file is a pending task, the scan completes when
+     * the last one is done
+     */
+    private class Scan {
+        private final FileEntryConsumer consumer;
+        private final CompletableFuture<ScanResult> future = new CompletableFuture<>();
+        private final ExecutorService io;
+        private final boolean ownsIo;
+        private final Semaphore inFlight = new Semaphore(maxInFlight);
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final AtomicLong files = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong directories = new AtomicLong();
+        private final Map<Path, IOException> failures = new ConcurrentHashMap<>();
+        private final Set<Object> visited = Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+        private final Object deliveryLock = new Object();
+        private final long start = System.nanoTime();
+
+        private Scan(FileEntryConsumer consumer) {
+            this.consumer = consumer;
+            this.ownsIo = ioExecutor == null;
+            this.io = ownsIo ? newIoExecutor(ioThreads) : ioExecutor;
+        }
+
+        private void start() {
+            if (followLinks) {
+                try {
+                    Object rootKey = Files.readAttributes(root, BasicFileAttributes.class).fileKey();
+                    if (rootKey != null) {
+                        visited.add(rootKey);
+                    }
+                } catch (IOException e) {
+                    // Reported when listing the root
+                }
+            }
+            pending.incrementAndGet();
+            submitDirectory(root);
+        }
+
+        private void submitDirectory(final Path directory) {
+            try {
+                io.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            listDirectory(directory);
+                        } catch (Throwable t) {
+                            abort(t);
+                        } finally {
+                            taskDone();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Only an I/O executor passed to the builder can reject
+                abort(e);
+                taskDone();
+            }
+        }
+
+        private void listDirectory(Path directory) throws InterruptedException {
+            directories.incrementAndGet();
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+                for (Path child : children) {
+                    if (failure.get() != null) {
+                        return;
+                    }
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(child, BasicFileAttributes.class, linkOptions);
+                    } catch (IOException e) {
+                        failures.put(child, e);
+                        continue;
+                    }
+                    if (attributes.isDirectory()) {
+                        // Links can lead back to a parent, so with links followed every directory is listed only once
+                        if (followLinks && attributes.fileKey() != null && !visited.add(attributes.fileKey())) {
+                            continue;
+                        }
+                        pending.incrementAndGet();
+                        submitDirectory(child);
+                    } else if (attributes.isRegularFile() && accept(child)) {
+                        if (!acquire()) {
+                            return;
+                        }
+                        pending.incrementAndGet();
+                        processFile(child, attributes.size());
+                    }
+                }
+            } catch (IOException e) {
+                failures.put(directory, e);
+            }
+        }
+
+        private boolean accept(Path file) {
+            try {
+                return filter == null || filter.accept(file);
+            } catch (IOException e) {
+                failures.put(file, e);
+                return false;
+            }
+        }
+
+        /**
+         * Wait for room for another file, giving up when the scan was aborted
+         */
+        private boolean acquire() throws InterruptedException {
+            while (!inFlight.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                if (failure.get() != null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void processFile(final Path file, final long size) {
+            try {
+                final byte[] content = size <= mapThreshold ? Files.readAllBytes(file) : null;
+                Runnable hash = new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            byte[] hash = content != null ? digest.getSHA256Hash(content) : hashMapped(file, size);
+                            long length = content != null ? content.length : size;
+                            String documentId = documentId(file);
+                            deliver(new FileEntry(file, documentId, length, hash, entryData(documentId, hash)));
+                        } catch (IOException e) {
+                            failures.put(file, e);
+                        } catch (Throwable t) {
+                            abort(t);
+                        } finally {
+                            fileDone();
+                        }
+                    }
+                };
+                try {
+                    cpuExecutor.execute(hash);
+                } catch (RejectedExecutionException e) {
+                    // A saturated or shut down CPU executor slows the walk down instead of failing the scan
+                    hash.run();
+                }
+            } catch (IOException e) {
+                failures.put(file, e);
+                fileDone();
+            }
+        }
+
+        private void deliver(FileEntry fileEntry) {
+            synchronized (deliveryLock) {
+                if (failure.get() == null) {
+                    consumer.onFileEntry(fileEntry);
+                    files.incrementAndGet();
+                    bytes.addAndGet(fileEntry.getSize());
+                }
+            }
+        }
+
+        private void fileDone() {
+            inFlight.release();
+            taskDone();
+        }
+
+        private void abort(Throwable t) {
+            failure.compareAndSet(null, t);
+        }
+
+        private void taskDone() {
+            if (pending.decrementAndGet() != 0) {
+                return;
+            }
+            if (ownsIo) {
+                io.shutdown();
+            }
+            Throwable t = failure.get();
+            if (t != null) {
+                future.completeExceptionally(t);
+            } else {
+                future.complete(new ScanResult(files.get(), bytes.get(), directories.get(), System.nanoTime() - start,
+                        new LinkedHashMap<>(failures)));
+            }
+        }
+    }
+
+
+    public static class Builder {
+        private final Path root;
+        private String rootValue;
+        private String context;
+        private List<RegistrationType> registrationTypes = FILE_TYPES;
+        private int ioThreads = 4;
+        private ExecutorService ioExecutor;
+        private Executor cpuExecutor;
+        private int maxInFlight = Runtime.getRuntime().availableProcessors() * 4;
+        private long mapThreshold = 1024 * 1024;
+        private boolean followLinks;
+        private DirectoryStream.Filter<? super Path> filter;
+
+        private Builder(Path root) {
+            if (root == null || !Files.isDirectory(root)) {
+                throw new IllegalArgumentException("A directory scanner needs an existing root directory instead of: " + root);
+            }
+            this.root = root;
+        }
+
+        /**
+         * @param rootValue The value of the {@link RegistrationType.Defaults#ROOT} external Id. Defaults to the name of the
+         *                  root directory
+         */
+        public Builder rootValue(String rootValue) {
+            this.rootValue = rootValue;
+            return this;
+        }
+
+        /**
+         * @param context The value of the {@link RegistrationType.Defaults#CONTEXT} external Id. Defaults to none, in
+         *                which case the context external Id is left out
+         */
+        public Builder context(String context) {
+            this.context = context;
+            return this;
+        }
+
+        /**
+         * @param registrationTypes The external Ids to add, in order. Only the root, context, document Id and hash types
+         *                          of the FILE subsystem are supported. Defaults to all four
+         */
+        public Builder registrationTypes(RegistrationType... registrationTypes) {
+            for (RegistrationType type : registrationTypes) {
+                if (!FILE_TYPES.contains(type)) {
+                    throw new IllegalArgumentException("Registration type is not supported by the directory scanner: " + type.getName());
+                }
+            }
+            this.registrationTypes = Arrays.asList(registrationTypes);
+            return this;
+        }
+
+        /**
+         * @param ioThreads The number of threads listing directories and reading files, when no I/O executor is given.
+         *                  Defaults to 4
+         */
+        public Builder ioThreads(int ioThreads) {
+            if (ioThreads < 1) {
+                throw new IllegalArgumentException("I/O threads needs to be at least 1 instead of: " + ioThreads);
+            }
+            this.ioThreads = ioThreads;
+            return this;
+        }
+
+        /**
+         * @param ioExecutor The executor listing directories and reading files, instead of a pool per scan. Its threads
+         *                   block while the in-flight limit is reached, so do not share it with the CPU executor. A
+         *                   rejected directory fails the scan, so its queue needs room for the directories waiting to be
+         *                   listed
+         */
+        public Builder ioExecutor(ExecutorService ioExecutor) {
+            this.ioExecutor = ioExecutor;
+            return this;
+        }
+
+        /**
+         * @param cpuExecutor The executor hashing the files. Files it rejects are hashed on the I/O thread. Defaults to the
+         *                    executor of {@link AsyncOperations#getInstance()}
+         */
+        public Builder cpuExecutor(Executor cpuExecutor) {
+            this.cpuExecutor = cpuExecutor;
+            return this;
+        }
+
+        /**
+         * @param maxInFlight The maximum number of files being read, hashed or delivered. Defaults to 4 per core
+         */
+        public Builder maxInFlight(int maxInFlight) {
+            if (maxInFlight < 1) {
+                throw new IllegalArgumentException("Max in flight needs to be at least 1 instead of: " + maxInFlight);
+            }
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * @param mapThreshold Files larger than this are memory mapped instead of read into the heap. Defaults to 1 MiB
+         */
+        public Builder mapThreshold(long mapThreshold) {
+            if (mapThreshold < 0 || mapThreshold > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Map threshold needs to be between 0 and 2 GiB instead of: " + mapThreshold);
+            }
+            this.mapThreshold = mapThreshold;
+            return this;
+        }
+
+        /**
+         * @param followLinks Whether symbolic links are followed. Defaults to false, which skips them
+         */
+        public Builder followLinks(boolean followLinks) {
+            this.followLinks = followLinks;
+            return this;
+        }
+
+        /**
+         * @param filter Accepts the files to include. Directories are always walked
+         */
+        public Builder filter(DirectoryStream.Filter<? super Path> filter) {
+            this.filter = filter;
+            return this;
+        }
+
+        public DirectoryScanner build() {
+            return new DirectoryScanner(this);
+        }
+    }
+}
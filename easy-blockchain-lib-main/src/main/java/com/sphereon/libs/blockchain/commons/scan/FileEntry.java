@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.scan;
+
+import com.sphereon.libs.blockchain.api.model.Entry;
+import com.sphereon.libs.blockchain.api.model.ImmutableEntryData;
+
+import java.nio.file.Path;
+
+/**
+ * A file found by the {@link DirectoryScanner}, with its content hash and the entry data registering it
+ */
+public final class FileEntry {
+    private final Path path;
+    private final String documentId;
+    private final long size;
+    private final byte[] contentHash;
+    private final ImmutableEntryData entryData;
+
+    FileEntry(Path path, String documentId, long size, byte[] contentHash, ImmutableEntryData entryData) {
+        this.path = path;
+        this.documentId = documentId;
+        this.size = size;
+        this.contentHash = contentHash;
+        this.entryData = entryData;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return the path relative to the scanned root, with forward slashes on every platform
+     */
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the SHA-256 hash of the file content
+     */
+    public byte[] getContentHash() {
+        return contentHash.clone();
+    }
+
+    /**
+     * @return the entry data with the FILE subsystem registration external Ids and no content. It is not bound to a chain
+     */
+    public ImmutableEntryData getEntryData() {
+        return entryData;
+    }
+
+    /**
+     * @return a new entry wrapping the entry data. The chain is chosen when calculating its entry Id or adding it
+     */
+    public Entry toEntry() {
+        return entryData.toEntry();
+    }
+
+    @Override
+    public String toString() {
+        return "FileEntry{" +
+                "path=" + path +
+                ", size=" + size +
+                '}';
+    }
+}
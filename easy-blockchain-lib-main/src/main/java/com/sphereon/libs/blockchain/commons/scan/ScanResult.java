@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.scan;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Totals of a {@link DirectoryScanner} run
+ */
+public final class ScanResult {
+    private final long fileCount;
+    private final long byteCount;
+    private final long directoryCount;
+    private final long elapsedNanos;
+    private final Map<Path, IOException> failures;
+
+    ScanResult(long fileCount, long byteCount, long directoryCount, long elapsedNanos, Map<Path, IOException> failures) {
+        this.fileCount = fileCount;
+        this.byteCount = byteCount;
+        this.directoryCount = directoryCount;
+        this.elapsedNanos = elapsedNanos;
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * @return the number of files passed to the consumer
+     */
+    public long getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * @return the number of bytes hashed
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * @return the number of directories listed, including the root
+     */
+    public long getDirectoryCount() {
+        return directoryCount;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return the files and directories that could not be read. They are skipped, the rest of the tree is still scanned
+     */
+    public Map<Path, IOException> getFailures() {
+        return failures;
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.verify;
+
+import com.sphereon.libs.blockchain.api.model.AbstractId;
+import com.sphereon.libs.blockchain.api.model.ChainId;
+import com.sphereon.libs.blockchain.api.model.EntryId;
+import com.sphereon.libs.blockchain.commons.ingest.EntryHasher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Verifies claimed entry and chain Ids against the data they should be calculated from, for instance to audit stored
+ * entries.
+ * <p>
+ * Workers take micro batches of records from the source and calculate the Ids with their own {@link EntryHasher}, so
+ * digests and serialization buffers are reused and a matching record does not allocate. Calculated Ids are compared to
+ * the claimed Ids in constant time, as raw 32 byte values.
+ * <p>
+ * The source is only read by one worker at a time, so it does not need to be thread safe. An exception thrown by the
+ * source stops the verification and is rethrown by {@link #verify(Iterator)}. An entry that cannot be hashed, for
+ * instance because its external Ids are too large, is reported as an error and does not stop the verification.
+ * <p>
+ * Instances are thread safe and can run multiple verifications at the same time.
+ */
+public class EntryVerifier {
+
+    private static final Comparator<VerificationMismatch> BY_INDEX = new Comparator<VerificationMismatch>() {
+        @Override
+        public int compare(VerificationMismatch first, VerificationMismatch second) {
+            return Long.compare(first.getIndex(), second.getIndex());
+        }
+    };
+
+    private final int workers;
+    private final int batchSize;
+    private final long progressInterval;
+    private final int maxMismatches;
+    private final VerificationListener listener;
+    private final Executor executor;
+    private final String threadNamePrefix;
+
+
+    private EntryVerifier(Builder builder) {
+        this.workers = builder.workers;
+        this.batchSize = builder.batchSize;
+        this.progressInterval = builder.progressInterval;
+        this.maxMismatches = builder.maxMismatches;
+        this.listener = builder.listener;
+        this.executor = builder.executor;
+        this.threadNamePrefix = builder.threadNamePrefix;
+    }
+
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+
+    public VerificationReport verify(Iterable<VerificationRecord> records) {
+        return verify(records.iterator());
+    }
+
+
+    public VerificationReport verify(Stream<VerificationRecord> records) {
+        return verify(records.iterator());
+    }
+
+
+    /**
+     * Verify all records and wait for the result. The calling thread acts as one of the workers
+     *
+     * @param records The records to verify
+     * @return the report
+     */
+    public VerificationReport verify(Iterator<VerificationRecord> records) {
+        Run run = new Run(records);
+        CountDownLatch finished = new CountDownLatch(workers - 1);
+        for (int i = 1; i < workers; i++) {
+            Runnable worker = run.newWorker(finished);
+            if (executor == null) {
+                Thread thread = new Thread(worker, threadNamePrefix + "-" + i);
+                thread.setDaemon(true);
+                thread.start();
+            } else {
+                try {
+                    executor.execute(worker);
+                } catch (RuntimeException e) {
+                    run.fail(e);
+                    finished.countDown();
+                }
+            }
+        }
+        run.newWorker(null).run();
+        try {
+            finished.await();
+        } catch (InterruptedException e) {
+            run.fail(e);
+            Thread.currentThread().interrupt();
+        }
+        return run.report();
+    }
+
+
+    public int getWorkers() {
+        return workers;
+    }
+
+
+    private class Run {
+        private final Iterator<VerificationRecord> source;
+        private final long started = System.nanoTime();
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong mismatches = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong nextProgress = new AtomicLong(progressInterval);
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final List<VerificationMismatch> mismatchList = new ArrayList<>();
+        // Guarded by source
+        private long nextIndex;
+
+        private Run(Iterator<VerificationRecord> source) {
+            this.source = source;
+        }
+
+        private Runnable newWorker(final CountDownLatch finished) {
+            return new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        work();
+                    } catch (Throwable t) {
+                        fail(t);
+                    } finally {
+                        if (finished != null) {
+                            finished.countDown();
+                        }
+                    }
+                }
+            };
+        }
+
+        private void work() {
+            EntryHasher hasher = new EntryHasher();
+            byte[] actual = new byte[EntryHasher.ENTRY_ID_LENGTH];
+            VerificationRecord[] batch = new VerificationRecord[batchSize];
+            while (failure.get() == null) {
+                int count = 0;
+                long firstIndex;
+                synchronized (source) {
+                    firstIndex = nextIndex;
+                    while (count < batchSize && source.hasNext()) {
+                        batch[count++] = source.next();
+                    }
+                    nextIndex += count;
+                }
+                if (count == 0) {
+                    return;
+                }
+                long batchBytes = 0;
+                for (int i = 0; i < count; i++) {
+                    batchBytes += verify(hasher, batch[i], firstIndex + i, actual);
+                    batch[i] = null;
+                }
+                bytes.addAndGet(batchBytes);
+                progress(processed.addAndGet(count));
+            }
+        }
+
+        private long verify(EntryHasher hasher, VerificationRecord record, long index, byte[] actual) {
+            long hashed;
+            try {
+                if (record.getType() == VerificationRecord.Type.CHAIN) {
+                    hashed = hasher.chainId(record.getExternalIds(), actual, 0);
+                } else {
+                    hasher.entryId(record.getChainId(), record.getEntryData(), record.getExternalIds(), actual, 0);
+                    hashed = hasher.length();
+                }
+            } catch (RuntimeException e) {
+                errors.incrementAndGet();
+                add(new VerificationMismatch(index, record, null, e.getMessage() == null ? e.getClass().getName() : e.getMessage()));
+                return 0;
+            }
+            if (!record.getClaimedId().matchesInConstantTime(actual, 0)) {
+                mismatches.incrementAndGet();
+                AbstractId<?> actualId = record.getType() == VerificationRecord.Type.CHAIN ? ChainId.fromBytes(actual) : EntryId.fromBytes(actual);
+                add(new VerificationMismatch(index, record, actualId, null));
+            }
+            return hashed;
+        }
+
+        private void add(VerificationMismatch mismatch) {
+            synchronized (mismatchList) {
+                if (mismatchList.size() < maxMismatches) {
+                    mismatchList.add(mismatch);
+                }
+            }
+        }
+
+        private void progress(long done) {
+            if (listener == null) {
+                return;
+            }
+            long next = nextProgress.get();
+            if (done >= next && nextProgress.compareAndSet(next, (done / progressInterval + 1) * progressInterval)) {
+                synchronized (this) {
+                    listener.onProgress(new VerificationProgress(processed.get(), mismatches.get(), errors.get(), bytes.get(), System.nanoTime() - started));
+                }
+            }
+        }
+
+        private void fail(Throwable t) {
+            failure.compareAndSet(null, t);
+        }
+
+        private VerificationReport report() {
+            Throwable t = failure.get();
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            } else if (t instanceof Error) {
+                throw (Error) t;
+            } else if (t != null) {
+                throw new RuntimeException(t.getMessage(), t);
+            }
+            List<VerificationMismatch> sorted;
+            synchronized (mismatchList) {
+                sorted = new ArrayList<>(mismatchList);
+            }
+            Collections.sort(sorted, BY_INDEX);
+            return new VerificationReport(processed.get(), mismatches.get(), errors.get(), bytes.get(), System.nanoTime() - started, sorted);
+        }
+    }
+
+
+    public static class Builder {
+        private int workers = Runtime.getRuntime().availableProcessors();
+        private int batchSize = 256;
+        private long progressInterval = 100000;
+        private int maxMismatches = 1000;
+        private VerificationListener listener;
+        private Executor executor;
+        private String threadNamePrefix = "easy-blockchain-verify";
+
+        private Builder() {
+        }
+
+        /**
+         * @param workers The number of verification workers, including the calling thread. Defaults to the number of cores
+         */
+        public Builder workers(int workers) {
+            if (workers < 1) {
+                throw new IllegalArgumentException("At least one worker is needed instead of: " + workers);
+            }
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * @param batchSize The number of records a worker takes from the source at once. Defaults to 256
+         */
+        public Builder batchSize(int batchSize) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("Batch size needs to be at least 1 instead of: " + batchSize);
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * @param progressInterval The number of records between progress callbacks. Defaults to 100000
+         */
+        public Builder progressInterval(long progressInterval) {
+            if (progressInterval < 1) {
+                throw new IllegalArgumentException("Progress interval needs to be at least 1 instead of: " + progressInterval);
+            }
+            this.progressInterval = progressInterval;
+            return this;
+        }
+
+        /**
+         * @param maxMismatches The maximum number of mismatches and errors kept in the report. Defaults to 1000
+         */
+        public Builder maxMismatches(int maxMismatches) {
+            if (maxMismatches < 0) {
+                throw new IllegalArgumentException("Max mismatches cannot be negative: " + maxMismatches);
+            }
+            this.maxMismatches = maxMismatches;
+            return this;
+        }
+
+        public Builder listener(VerificationListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * @param executor Runs the additional workers. Defaults to starting a daemon thread per worker for each verification
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public Builder threadNamePrefix(String threadNamePrefix) {
+            this.threadNamePrefix = threadNamePrefix;
+            return this;
+        }
+
+        public EntryVerifier build() {
+            return new EntryVerifier(this);
+        }
+    }
+}
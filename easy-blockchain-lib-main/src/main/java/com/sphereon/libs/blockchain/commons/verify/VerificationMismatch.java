@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.verify;
+
+import com.sphereon.libs.blockchain.api.model.AbstractId;
+
+/**
+ * A record of which the calculated Id differs from the claimed Id, or of which the Id could not be calculated
+ */
+public final class VerificationMismatch {
+    private final long index;
+    private final VerificationRecord.Type type;
+    private final Object reference;
+    private final AbstractId<?> claimedId;
+    private final AbstractId<?> actualId;
+    private final String error;
+
+    VerificationMismatch(long index, VerificationRecord record, AbstractId<?> actualId, String error) {
+        this.index = index;
+        this.type = record.getType();
+        this.reference = record.getReference();
+        this.claimedId = record.getClaimedId();
+        this.actualId = actualId;
+        this.error = error;
+    }
+
+    /**
+     * @return the position of the record in the verified records, starting at 0
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    public VerificationRecord.Type getType() {
+        return type;
+    }
+
+    public Object getReference() {
+        return reference;
+    }
+
+    public AbstractId<?> getClaimedId() {
+        return claimedId;
+    }
+
+    /**
+     * @return the calculated Id, or null when it could not be calculated
+     */
+    public AbstractId<?> getActualId() {
+        return actualId;
+    }
+
+    /**
+     * @return why the Id could not be calculated, or null for a mismatch
+     */
+    public String getError() {
+        return error;
+    }
+
+    public boolean isError() {
+        return error != null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder().append('#').append(index).append(' ').append(type);
+        if (reference != null) {
+            builder.append(" (").append(reference).append(')');
+        }
+        builder.append(" claimed ").append(claimedId.toHex());
+        if (error == null) {
+            builder.append(" actual ").append(actualId.toHex());
+        } else {
+            builder.append(" error: ").append(error);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.verify;
+
+/**
+ * Counters of a running or finished verification
+ */
+public class VerificationProgress {
+    private final long processed;
+    private final long mismatches;
+    private final long errors;
+    private final long bytes;
+    private final long elapsedNanos;
+
+    VerificationProgress(long processed, long mismatches, long errors, long bytes, long elapsedNanos) {
+        this.processed = processed;
+        this.mismatches = mismatches;
+        this.errors = errors;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return the number of verified records
+     */
+    public long getProcessed() {
+        return processed;
+    }
+
+    /**
+     * @return the number of records with an Id different from the claimed Id
+     */
+    public long getMismatches() {
+        return mismatches;
+    }
+
+    /**
+     * @return the number of records of which the Id could not be calculated
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the number of serialized entry and external Id bytes hashed
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getRecordsPerSecond() {
+        return elapsedNanos == 0 ? 0 : processed * 1e9 / elapsedNanos;
+    }
+
+    public double getBytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : bytes * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d records, %d mismatches, %d errors in %.1f s (%.0f records/s, %.1f MB/s)", processed, mismatches, errors,
+                elapsedNanos / 1e9, getRecordsPerSecond(), getBytesPerSecond() / (1024 * 1024));
+    }
+}
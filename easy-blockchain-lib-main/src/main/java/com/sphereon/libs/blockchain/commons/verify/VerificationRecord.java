@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.verify;
+
+import com.sphereon.libs.blockchain.api.HasContent;
+import com.sphereon.libs.blockchain.api.HasValue;
+import com.sphereon.libs.blockchain.api.model.AbstractId;
+import com.sphereon.libs.blockchain.api.model.ChainId;
+import com.sphereon.libs.blockchain.api.model.EntryId;
+
+import java.util.Collection;
+
+/**
+ * A claimed Id together with the data it should be calculated from
+ */
+public final class VerificationRecord {
+
+    public enum Type {
+        /**
+         * An entry Id, calculated from the chain Id, content and external Ids of the entry
+         */
+        ENTRY,
+        /**
+         * A chain Id, calculated from the external Ids of the first entry
+         */
+        CHAIN
+    }
+
+    private final Type type;
+    private final Object reference;
+    private final AbstractId<?> claimedId;
+    private final ChainId chainId;
+    private final HasContent<byte[]> entryData;
+    private final Collection<? extends HasValue<byte[]>> externalIds;
+
+    private VerificationRecord(Type type, Object reference, AbstractId<?> claimedId, ChainId chainId, HasContent<byte[]> entryData,
+                               Collection<? extends HasValue<byte[]>> externalIds) {
+        if (claimedId == null) {
+            throw new IllegalArgumentException("A claimed Id is required for verification");
+        }
+        this.type = type;
+        this.reference = reference;
+        this.claimedId = claimedId;
+        this.chainId = chainId;
+        this.entryData = entryData;
+        this.externalIds = externalIds;
+    }
+
+
+    /**
+     * @param claimedEntryId The recorded entry Id
+     * @param chainId        The chain of the entry. When null the entry is verified as the first entry of a new chain
+     */
+    public static VerificationRecord entry(EntryId claimedEntryId, ChainId chainId, HasContent<byte[]> entryData,
+                                           Collection<? extends HasValue<byte[]>> externalIds) {
+        return entry(null, claimedEntryId, chainId, entryData, externalIds);
+    }
+
+
+    /**
+     * @param reference Identifies the record in the report, for instance a database key. Can be null
+     */
+    public static VerificationRecord entry(Object reference, EntryId claimedEntryId, ChainId chainId, HasContent<byte[]> entryData,
+                                           Collection<? extends HasValue<byte[]>> externalIds) {
+        return new VerificationRecord(Type.ENTRY, reference, claimedEntryId, chainId, entryData, externalIds);
+    }
+
+
+    /**
+     * @param claimedChainId        The recorded chain Id
+     * @param firstEntryExternalIds The external Ids of the first entry of the chain
+     */
+    public static VerificationRecord chain(ChainId claimedChainId, Collection<? extends HasValue<byte[]>> firstEntryExternalIds) {
+        return chain(null, claimedChainId, firstEntryExternalIds);
+    }
+
+
+    /**
+     * @param reference Identifies the record in the report, for instance a database key. Can be null
+     */
+    public static VerificationRecord chain(Object reference, ChainId claimedChainId, Collection<? extends HasValue<byte[]>> firstEntryExternalIds) {
+        return new VerificationRecord(Type.CHAIN, reference, claimedChainId, null, null, firstEntryExternalIds);
+    }
+
+
+    public Type getType() {
+        return type;
+    }
+
+    public Object getReference() {
+        return reference;
+    }
+
+    public AbstractId<?> getClaimedId() {
+        return claimedId;
+    }
+
+    public ChainId getChainId() {
+        return chainId;
+    }
+
+    public HasContent<byte[]> getEntryData() {
+        return entryData;
+    }
+
+    public Collection<? extends HasValue<byte[]>> getExternalIds() {
+        return externalIds;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.verify;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of a verification. The mismatch list is capped, see {@link #isTruncated()}, the counters are not
+ */
+public final class VerificationReport extends VerificationProgress {
+    private final List<VerificationMismatch> mismatchList;
+
+    VerificationReport(long processed, long mismatches, long errors, long bytes, long elapsedNanos, List<VerificationMismatch> mismatchList) {
+        super(processed, mismatches, errors, bytes, elapsedNanos);
+        this.mismatchList = Collections.unmodifiableList(mismatchList);
+    }
+
+    /**
+     * @return true when all records matched their claimed Id
+     */
+    public boolean isValid() {
+        return getMismatches() == 0 && getErrors() == 0;
+    }
+
+    /**
+     * @return the mismatches and errors, ordered by record index
+     */
+    public List<VerificationMismatch> getMismatchList() {
+        return mismatchList;
+    }
+
+    /**
+     * @return whether more mismatches and errors occurred than are in the list
+     */
+    public boolean isTruncated() {
+        return mismatchList.size() < getMismatches() + getErrors();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.libs.blockchain.commons;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.HexFormat;
+
+/**
+ * Hex and big-endian byte conversions used by the entry format.
+ * <p>
+ * Java 17 version, packaged in META-INF/versions/17 of the multi-release jar. It has to keep the same public methods and
+ * behaviour as the Java 8 version in src/main/java.
+ */
+public final class Bytes {
+    private static final HexFormat HEX = HexFormat.of();
+    private static final VarHandle SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private Bytes() {
+    }
+
+    public static String toHex(byte[] data) {
+        return HEX.formatHex(data);
+    }
+
+    public static byte[] fromHex(CharSequence hex) {
+        // HexFormat throws an IllegalArgumentException for odd lengths and invalid characters, like the Java 8 version
+        return HEX.parseHex(hex);
+    }
+
+    public static int hexDigit(char c) {
+        return HexFormat.isHexDigit(c) ? HexFormat.fromHexDigit(c) : -1;
+    }
+
+    public static int writeShort(int value, byte[] target, int offset) {
+        SHORT.set(target, offset, (short) value);
+        return offset + 2;
+    }
+
+    public static int readUnsignedShort(byte[] source, int offset) {
+        return Short.toUnsignedInt((short) SHORT.get(source, offset));
+    }
+
+    public static int writeLong(long value, byte[] target, int offset) {
+        LONG.set(target, offset, value);
+        return offset + 8;
+    }
+
+    public static long readLong(byte[] source, int offset) {
+        return (long) LONG.get(source, offset);
+    }
+}
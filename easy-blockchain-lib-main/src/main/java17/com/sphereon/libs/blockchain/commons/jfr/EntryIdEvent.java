@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name(JfrEvents.ENTRY_ID_EVENT)
+@Label("Entry ID")
+@Description("Entry ID generation from a hex chain ID")
+@Category({"Easy Blockchain"})
+@StackTrace(false)
+@Threshold("1 ms")
+class EntryIdEvent extends Event {
+
+    @Label("External IDs")
+    int externalIds;
+
+    @Label("Content Size")
+    @DataAmount
+    int contentSize;
+
+    @Label("Chain ID Cache Hit")
+    boolean chainIdCacheHit;
+}
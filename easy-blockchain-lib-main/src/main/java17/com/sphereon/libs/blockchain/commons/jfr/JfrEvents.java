@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.jfr;
+
+import com.sphereon.libs.blockchain.commons.Digest;
+
+/**
+ * JDK Flight Recorder events of the library.
+ * <p>
+ * Java 17 version, packaged in META-INF/versions/17 of the multi-release jar. It has to keep the same public methods as
+ * the Java 8 version in src/main/java. The event classes are only loaded when the jdk.jfr module is part of the runtime.
+ */
+public final class JfrEvents {
+    public static final String DIGEST_EVENT = "com.sphereon.easyblockchain.Digest";
+    public static final String ENTRY_SERIALIZE_EVENT = "com.sphereon.easyblockchain.EntrySerialize";
+    public static final String ENTRY_ID_EVENT = "com.sphereon.easyblockchain.EntryId";
+    public static final String LINK_PARSE_EVENT = "com.sphereon.easyblockchain.LinkParse";
+
+    public static final String SOURCE_BYTES = "bytes";
+    public static final String SOURCE_STREAM = "stream";
+
+    private static final boolean AVAILABLE = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+
+    private JfrEvents() {
+    }
+
+
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+
+    public static Object beginDigest() {
+        return AVAILABLE ? JfrSupport.beginDigest() : null;
+    }
+
+    public static void commitDigest(Object event, Digest.Algorithm algorithm, long bytes, String source) {
+        if (event != null) {
+            JfrSupport.commitDigest(event, algorithm, bytes, source);
+        }
+    }
+
+
+    public static Object beginEntrySerialize() {
+        return AVAILABLE ? JfrSupport.beginEntrySerialize() : null;
+    }
+
+    public static void commitEntrySerialize(Object event, int externalIds, int contentSize, int entrySize) {
+        if (event != null) {
+            JfrSupport.commitEntrySerialize(event, externalIds, contentSize, entrySize);
+        }
+    }
+
+
+    public static Object beginEntryId() {
+        return AVAILABLE ? JfrSupport.beginEntryId() : null;
+    }
+
+    public static void commitEntryId(Object event, int externalIds, int contentSize, boolean chainIdCacheHit) {
+        if (event != null) {
+            JfrSupport.commitEntryId(event, externalIds, contentSize, chainIdCacheHit);
+        }
+    }
+
+
+    public static Object beginLinkParse() {
+        return AVAILABLE ? JfrSupport.beginLinkParse() : null;
+    }
+
+    public static void commitLinkParse(Object event, String input, int parts) {
+        if (event != null) {
+            JfrSupport.commitLinkParse(event, input, parts);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.jfr;
+
+import com.sphereon.libs.blockchain.commons.Digest;
+import jdk.jfr.EventType;
+
+/**
+ * Creates and commits the events. Kept apart from {@link JfrEvents}, so jdk.jfr classes are only resolved once the module
+ * is known to be present.
+ */
+final class JfrSupport {
+    private static final EventType DIGEST = EventType.getEventType(DigestEvent.class);
+    private static final EventType ENTRY_SERIALIZE = EventType.getEventType(EntrySerializeEvent.class);
+    private static final EventType ENTRY_ID = EventType.getEventType(EntryIdEvent.class);
+    private static final EventType LINK_PARSE = EventType.getEventType(LinkParseEvent.class);
+
+    private JfrSupport() {
+    }
+
+
+    static Object beginDigest() {
+        if (!DIGEST.isEnabled()) {
+            return null;
+        }
+        DigestEvent event = new DigestEvent();
+        event.begin();
+        return event;
+    }
+
+    static void commitDigest(Object e, Digest.Algorithm algorithm, long bytes, String source) {
+        DigestEvent event = (DigestEvent) e;
+        event.end();
+        if (event.shouldCommit()) {
+            event.algorithm = algorithm.getImplementation();
+            event.bytes = bytes;
+            event.source = source;
+            event.commit();
+        }
+    }
+
+
+    static Object beginEntrySerialize() {
+        if (!ENTRY_SERIALIZE.isEnabled()) {
+            return null;
+        }
+        EntrySerializeEvent event = new EntrySerializeEvent();
+        event.begin();
+        return event;
+    }
+
+    static void commitEntrySerialize(Object e, int externalIds, int contentSize, int entrySize) {
+        EntrySerializeEvent event = (EntrySerializeEvent) e;
+        event.end();
+        if (event.shouldCommit()) {
+            event.externalIds = externalIds;
+            event.contentSize = contentSize;
+            event.entrySize = entrySize;
+            event.commit();
+        }
+    }
+
+
+    static Object beginEntryId() {
+        if (!ENTRY_ID.isEnabled()) {
+            return null;
+        }
+        EntryIdEvent event = new EntryIdEvent();
+        event.begin();
+        return event;
+    }
+
+    static void commitEntryId(Object e, int externalIds, int contentSize, boolean chainIdCacheHit) {
+        EntryIdEvent event = (EntryIdEvent) e;
+        event.end();
+        if (event.shouldCommit()) {
+            event.externalIds = externalIds;
+            event.contentSize = contentSize;
+            event.chainIdCacheHit = chainIdCacheHit;
+            event.commit();
+        }
+    }
+
+
+    static Object beginLinkParse() {
+        if (!LINK_PARSE.isEnabled()) {
+            return null;
+        }
+        LinkParseEvent event = new LinkParseEvent();
+        event.begin();
+        return event;
+    }
+
+    static void commitLinkParse(Object e, String input, int parts) {
+        LinkParseEvent event = (LinkParseEvent) e;
+        event.end();
+        if (event.shouldCommit()) {
+            event.input = input;
+            event.parts = parts;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the executor for batch file hashing.
+ * <p>
+ * Java 21 version, packaged in META-INF/versions/21 of the multi-release jar. File hashing mostly waits on IO, so every
+ * file gets its own virtual thread instead of queueing for one of the platform threads.
+ */
+final class BatchExecutors {
+
+    private BatchExecutors() {
+    }
+
+    static ExecutorService newBatchExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("easy-blockchain-batch-", 1).factory());
+    }
+
+    static boolean isVirtual() {
+        return true;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.libs.blockchain.api.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class TestIds {
+
+    private static final String CHAIN_ID = "502b99271ff6a3f8509ba2764e1e1c1482ad800140c17b25e165837ab5320501";
+    private static final String ENTRY_ID = "3d945a53b2e0ec5bc4464ae83955e818b6cb5906c93a1eaf80291bd1e241653c";
+
+    @Test
+    public void testRoundTrip() {
+        ChainId chainId = ChainId.fromHex(CHAIN_ID);
+        Assert.assertEquals(CHAIN_ID, chainId.toHex());
+        Assert.assertEquals(CHAIN_ID, chainId.toString());
+        Assert.assertEquals(chainId, ChainId.fromHex(CHAIN_ID.toUpperCase()));
+
+        byte[] bytes = chainId.toBytes();
+        Assert.assertEquals(AbstractId.LENGTH, bytes.length);
+        Assert.assertEquals(chainId, ChainId.fromBytes(bytes));
+
+        byte[] padded = new byte[AbstractId.LENGTH + 3];
+        chainId.writeTo(padded, 3);
+        Assert.assertEquals(chainId, ChainId.fromBytes(padded, 3));
+        Assert.assertTrue(chainId.matches(padded, 3));
+        Assert.assertFalse(chainId.matches(padded, 0));
+
+        ByteBuffer buffer = ByteBuffer.allocate(AbstractId.LENGTH);
+        chainId.writeTo(buffer);
+        Assert.assertArrayEquals(bytes, buffer.array());
+    }
+
+    @Test
+    public void testEqualityAndOrdering() {
+        ChainId chainId = ChainId.fromHex(CHAIN_ID);
+        EntryId entryId = EntryId.fromHex(ENTRY_ID);
+        Assert.assertEquals(chainId.hashCode(), ChainId.fromHex(CHAIN_ID).hashCode());
+        // Same bytes, different kind of id
+        Assert.assertNotEquals(chainId, EntryId.fromHex(CHAIN_ID));
+
+        byte[] low = new byte[AbstractId.LENGTH];
+        byte[] high = new byte[AbstractId.LENGTH];
+        Arrays.fill(high, (byte) 0xFF);
+        Assert.assertTrue(EntryId.fromBytes(low).compareTo(EntryId.fromBytes(high)) < 0);
+        Assert.assertTrue(EntryId.fromBytes(high).compareTo(entryId) > 0);
+        Assert.assertEquals(0, entryId.compareTo(EntryId.fromHex(ENTRY_ID)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidHex() {
+        ChainId.fromHex(CHAIN_ID.substring(1) + "x");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonAsciiHex() {
+        // A fullwidth zero is a digit for Character.digit, but not for the Java 17 Bytes.fromHex
+        EntryId.fromHex(ENTRY_ID.substring(1) + "\uFF10");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLength() {
+        EntryId.fromBytes(new byte[AbstractId.LENGTH - 1]);
+    }
+}
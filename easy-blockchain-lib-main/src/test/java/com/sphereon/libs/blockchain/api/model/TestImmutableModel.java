@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.libs.blockchain.api.model;
+
+import com.sphereon.libs.blockchain.commons.Operations;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class TestImmutableModel {
+
+    private static final String CHAIN_ID = "502b99271ff6a3f8509ba2764e1e1c1482ad800140c17b25e165837ab5320501";
+    private static final String ENTRY_ID = "3d945a53b2e0ec5bc4464ae83955e818b6cb5906c93a1eaf80291bd1e241653c";
+
+    @Test
+    public void testDefensiveCopies() {
+        byte[] value = "value".getBytes();
+        ImmutableExternalId externalId = ImmutableExternalId.of(value);
+        value[0] = 'X';
+        Assert.assertArrayEquals("value".getBytes(), externalId.getValue());
+
+        externalId.getValue()[0] = 'X';
+        Assert.assertArrayEquals("value".getBytes(), externalId.getValue());
+
+        byte[] content = "content".getBytes();
+        ImmutableEntryData entryData = ImmutableEntryData.newBuilder().externalId("id").content(content).build();
+        content[0] = 'X';
+        Assert.assertArrayEquals("content".getBytes(), entryData.getContent());
+    }
+
+    @Test
+    public void testEqualsAndHashCode() {
+        ImmutableEntryData first = ImmutableEntryData.newBuilder().externalId("a").externalId("bc").content("content").build();
+        ImmutableEntryData second = ImmutableEntryData.newBuilder().externalId("a").externalId("bc").content("content").build();
+        ImmutableEntryData shifted = ImmutableEntryData.newBuilder().externalId("ab").externalId("c").content("content").build();
+        ImmutableEntryData noContent = ImmutableEntryData.newBuilder().externalId("a").externalId("bc").build();
+        ImmutableEntryData emptyContent = ImmutableEntryData.newBuilder().externalId("a").externalId("bc").content(new byte[0]).build();
+
+        Assert.assertEquals(first, second);
+        Assert.assertEquals(first.hashCode(), second.hashCode());
+        Assert.assertNotEquals(first, shifted);
+        Assert.assertNotEquals(noContent, emptyContent);
+
+        Set<ImmutableEntryData> set = new HashSet<>();
+        set.add(first);
+        set.add(second);
+        set.add(shifted);
+        Assert.assertEquals(2, set.size());
+    }
+
+    @Test
+    public void testInteroperability() {
+        EntryData mutable = new EntryData();
+        List<ExternalId> externalIds = new ArrayList<>();
+        externalIds.add(new ExternalId().setValue("first entry external id".getBytes()));
+        externalIds.add(new ExternalId().setValue("second entry external id".getBytes()));
+        mutable.setExternalIds(externalIds);
+        mutable.setContent("Test Entry Content".getBytes());
+
+        ImmutableEntryData immutable = ImmutableEntryData.from(mutable);
+        Assert.assertEquals(mutable, immutable.toEntryData());
+        Assert.assertEquals(immutable, ImmutableEntryData.from(immutable.toEntry()));
+
+        Operations operations = Operations.getInstance();
+        Assert.assertEquals(ENTRY_ID, operations.generateEntryID(CHAIN_ID, immutable, immutable.getExternalIds()));
+        Assert.assertEquals(operations.generateEntryID(CHAIN_ID, mutable, mutable.getExternalIds()), operations.generateEntryID(CHAIN_ID, immutable, immutable.getExternalIds()));
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs against the packaged multi-release jar, which the unit tests do not see. Only runs when building on JDK 17+
+ */
+public class ITMultiReleaseJar {
+
+    @Test
+    public void testJava17Overlay() {
+        Assume.assumeTrue(javaVersion() >= 17);
+        assertFromJar(Bytes.class, 17);
+
+        byte[] data = {0, 1, (byte) 0x7f, (byte) 0x80, (byte) 0xff};
+        Assert.assertEquals("00017f80ff", Bytes.toHex(data));
+        Assert.assertArrayEquals(data, Bytes.fromHex("00017F80ff"));
+        byte[] target = new byte[11];
+        Assert.assertEquals(9, Bytes.writeLong(0x0102030405060708L, target, 1));
+        Assert.assertEquals(11, Bytes.writeShort(0xfffe, target, 9));
+        Assert.assertEquals(0x0102030405060708L, Bytes.readLong(target, 1));
+        Assert.assertEquals(0xfffe, Bytes.readUnsignedShort(target, 9));
+        Assert.assertEquals(11, Bytes.hexDigit('B'));
+        Assert.assertEquals(-1, Bytes.hexDigit('\uFF10'));
+    }
+
+    @Test
+    public void testJava21Overlay() throws Exception {
+        Assume.assumeTrue(javaVersion() >= 21);
+        assertFromJar(BatchExecutors.class, 21);
+        Assert.assertTrue(AsyncOperations.isVirtualBatchExecutor());
+
+        ExecutorService executor = AsyncOperations.newBatchExecutor();
+        try {
+            Future<Boolean> virtual = executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    return (Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread());
+                }
+            });
+            Assert.assertTrue(virtual.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void assertFromJar(Class<?> type, int version) {
+        URL resource = type.getResource(type.getSimpleName() + ".class");
+        Assert.assertEquals("jar", resource.getProtocol());
+        Assert.assertTrue(resource.toString(), resource.getPath().contains("!/META-INF/versions/" + version + "/"));
+    }
+
+    private static int javaVersion() {
+        String version = System.getProperty("java.specification.version");
+        return version.startsWith("1.") ? Integer.parseInt(version.substring(2)) : Integer.parseInt(version);
+    }
+}
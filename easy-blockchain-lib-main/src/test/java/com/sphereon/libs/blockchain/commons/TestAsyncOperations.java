@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.libs.blockchain.commons;
+
+import com.sphereon.libs.blockchain.api.HasContent;
+import com.sphereon.libs.blockchain.api.HasValue;
+import com.sphereon.libs.blockchain.api.model.ChainId;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestAsyncOperations {
+
+    private static final String CHAIN_ID = "502b99271ff6a3f8509ba2764e1e1c1482ad800140c17b25e165837ab5320501";
+    private static final String ENTRY_ID = "3d945a53b2e0ec5bc4464ae83955e818b6cb5906c93a1eaf80291bd1e241653c";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AsyncOperations asyncOperations = AsyncOperations.getInstance();
+
+    @Test
+    public void testIds() throws Exception {
+        List<HasValue<byte[]>> chainExternalIds = Arrays.<HasValue<byte[]>>asList(
+                HasValue.Impl.of("first external id".getBytes()), HasValue.Impl.of("second external id".getBytes()));
+        List<HasValue<byte[]>> entryExternalIds = Arrays.<HasValue<byte[]>>asList(
+                HasValue.Impl.of("first entry external id".getBytes()), HasValue.Impl.of("second entry external id".getBytes()));
+        HasContent<byte[]> content = HasContent.Impl.of("Test Entry Content".getBytes());
+
+        Assert.assertEquals(CHAIN_ID, asyncOperations.generateChainId(chainExternalIds).get());
+        Assert.assertEquals(CHAIN_ID, asyncOperations.calculateChainId(chainExternalIds).get().toHex());
+        Assert.assertEquals(ENTRY_ID, asyncOperations.generateEntryId(CHAIN_ID, content, entryExternalIds).get());
+        Assert.assertEquals(ENTRY_ID, asyncOperations.calculateEntryId(ChainId.fromHex(CHAIN_ID), content, entryExternalIds).get().toHex());
+        Assert.assertArrayEquals(Operations.getInstance().entryToBytes(CHAIN_ID, content, entryExternalIds).original(),
+                asyncOperations.entryToBytes(CHAIN_ID, content, entryExternalIds).get());
+    }
+
+    @Test
+    public void testFileHash() throws Exception {
+        byte[] data = new byte[200000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        File file = folder.newFile("content.bin");
+        Files.write(file.toPath(), data);
+
+        Digest digest = Digest.getInstance();
+        Assert.assertArrayEquals(digest.getSHA256Hash(data), asyncOperations.getHash(Digest.Algorithm.SHA_256, file.toPath()).get());
+        Assert.assertEquals(digest.getHashAsString(Digest.Algorithm.SHA_512, data, Digest.Encoding.HEX),
+                asyncOperations.getHashAsString(Digest.Algorithm.SHA_512, new ByteArrayInputStream(data), Digest.Encoding.HEX).get());
+    }
+
+    @Test
+    public void testBatchHash() throws Exception {
+        List<Path> files = new ArrayList<>();
+        List<byte[]> expected = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            byte[] data = ("file " + i).getBytes();
+            File file = folder.newFile("batch" + i + ".txt");
+            Files.write(file.toPath(), data);
+            files.add(file.toPath());
+            expected.add(Digest.getInstance().getSHA256Hash(data));
+        }
+        ExecutorService executor = AsyncOperations.newBatchExecutor();
+        try {
+            List<byte[]> hashes = AsyncOperations.of(executor).getHashes(Digest.Algorithm.SHA_256, files).get();
+            Assert.assertEquals(expected.size(), hashes.size());
+            for (int i = 0; i < expected.size(); i++) {
+                Assert.assertArrayEquals(expected.get(i), hashes.get(i));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCancelStopsEarly() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final AtomicInteger reads = new AtomicInteger();
+            final CountDownLatch reading = new CountDownLatch(1);
+            final CountDownLatch closed = new CountDownLatch(1);
+            // Endless stream, so the hash only ends when the cancellation is honoured
+            InputStream endless = new InputStream() {
+                @Override
+                public int read() {
+                    return 0;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    if (reads.incrementAndGet() == 10) {
+                        reading.countDown();
+                    }
+                    return len;
+                }
+
+                @Override
+                public void close() {
+                    closed.countDown();
+                }
+            };
+
+            CompletableFuture<byte[]> future = AsyncOperations.of(executor).getHash(Digest.Algorithm.SHA_256, endless);
+            Assert.assertTrue(reading.await(10, TimeUnit.SECONDS));
+            Assert.assertTrue(future.cancel(true));
+            Assert.assertTrue(closed.await(10, TimeUnit.SECONDS));
+            Assert.assertTrue(future.isCancelled());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSaturationPolicy() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        Runnable blocker = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        ExecutorService rejecting = AsyncOperations.newExecutor(1, 1, AsyncOperations.SaturationPolicy.REJECT);
+        ExecutorService callerRuns = AsyncOperations.newExecutor(1, 1, AsyncOperations.SaturationPolicy.CALLER_RUNS);
+        try {
+            for (ExecutorService executor : Arrays.asList(rejecting, callerRuns)) {
+                executor.execute(blocker);
+                executor.execute(blocker);
+            }
+            CompletableFuture<byte[]> rejected = AsyncOperations.of(rejecting).getHash(Digest.Algorithm.SHA_256, new byte[]{1});
+            Assert.assertTrue(rejected.isCompletedExceptionally());
+            // Saturated caller runs executors complete the future on the calling thread
+            CompletableFuture<byte[]> ranOnCaller = AsyncOperations.of(callerRuns).getHash(Digest.Algorithm.SHA_256, new byte[]{1});
+            Assert.assertArrayEquals(Digest.getInstance().getSHA256Hash(new byte[]{1}), ranOnCaller.getNow(null));
+        } finally {
+            release.countDown();
+            rejecting.shutdown();
+            callerRuns.shutdown();
+        }
+    }
+
+    @Test
+    public void testRejected() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        CompletableFuture<byte[]> future = AsyncOperations.of(executor).getHash(Digest.Algorithm.SHA_256, new byte[]{1});
+        Assert.assertTrue(future.isCompletedExceptionally());
+    }
+}
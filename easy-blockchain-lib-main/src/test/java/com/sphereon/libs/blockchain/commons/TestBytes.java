@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestBytes {
+
+    @Test
+    public void testHex() {
+        byte[] bytes = {0, 1, 0x7F, (byte) 0x80, (byte) 0xAB, (byte) 0xFF};
+        Assert.assertEquals("00017f80abff", Bytes.toHex(bytes));
+        Assert.assertArrayEquals(bytes, Bytes.fromHex("00017f80abff"));
+        Assert.assertArrayEquals(bytes, Bytes.fromHex("00017F80ABFF"));
+        Assert.assertEquals("", Bytes.toHex(new byte[0]));
+        Assert.assertEquals("00017f80abff", Operations.getInstance().toHex(bytes));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOddHex() {
+        Bytes.fromHex("abc");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidHex() {
+        Bytes.fromHex("zz");
+    }
+
+    @Test
+    public void testNonAsciiDigits() {
+        Assert.assertEquals(10, Bytes.hexDigit('a'));
+        Assert.assertEquals(15, Bytes.hexDigit('F'));
+        Assert.assertEquals(-1, Bytes.hexDigit('g'));
+        // Fullwidth digits are digits according to Character.digit, but not according to HexFormat
+        Assert.assertEquals(-1, Bytes.hexDigit('\uFF10'));
+        try {
+            Bytes.fromHex("\uFF10\uFF11");
+            Assert.fail("Non ASCII hex digits are invalid");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testBigEndian() {
+        byte[] target = new byte[11];
+        Assert.assertEquals(3, Bytes.writeShort(0xFFFE, target, 1));
+        Assert.assertEquals(0xFF, target[1] & 0xFF);
+        Assert.assertEquals(0xFE, target[2] & 0xFF);
+        Assert.assertEquals(0xFFFE, Bytes.readUnsignedShort(target, 1));
+
+        Assert.assertEquals(11, Bytes.writeLong(0x0102030405060708L, target, 3));
+        Assert.assertEquals(1, target[3]);
+        Assert.assertEquals(8, target[10]);
+        Assert.assertEquals(0x0102030405060708L, Bytes.readLong(target, 3));
+        Assert.assertArrayEquals(new byte[]{0x12, 0x34}, Operations.getInstance().toByteArray((short) 0x1234).original());
+    }
+}
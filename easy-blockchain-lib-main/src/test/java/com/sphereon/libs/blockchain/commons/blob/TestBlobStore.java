@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.blob;
+
+import com.sphereon.libs.blockchain.commons.Digest;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class TestBlobStore {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Digest digest = Digest.getInstance();
+
+    @Test
+    public void testPutAndRead() throws Exception {
+        BlobStore store = BlobStore.newBuilder(folder.getRoot().toPath()).build();
+        byte[] content = content(200000);
+        byte[] hash = digest.getSHA256Hash(content);
+
+        StoredBlob blob = store.put(content);
+        Assert.assertArrayEquals(hash, blob.getHash());
+        Assert.assertEquals(content.length, blob.getSize());
+        Assert.assertFalse(blob.isDuplicate());
+        Assert.assertTrue(store.contains(hash));
+        Assert.assertEquals(content.length, store.size(hash));
+
+        // Sharded by the first characters of the hex hash
+        Path path = store.path(hash);
+        Assert.assertEquals(blob.getHashHex(), path.getFileName().toString());
+        Assert.assertEquals(blob.getHashHex().substring(2, 4), path.getParent().getFileName().toString());
+        Assert.assertEquals(blob.getHashHex().substring(0, 2), path.getParent().getParent().getFileName().toString());
+
+        try (InputStream input = store.open(hash)) {
+            Assert.assertArrayEquals(hash, digest.getHash(Digest.Algorithm.SHA_256, input));
+        }
+        ByteBuffer mapped = store.map(hash);
+        byte[] read = new byte[mapped.remaining()];
+        mapped.get(read);
+        Assert.assertArrayEquals(content, read);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Assert.assertEquals(content.length, store.transferTo(hash, Channels.newChannel(out)));
+        Assert.assertArrayEquals(content, out.toByteArray());
+        Assert.assertTrue(store.verify(hash));
+
+        Assert.assertTrue(store.delete(hash));
+        Assert.assertFalse(store.contains(hash));
+        Assert.assertFalse(store.delete(hash));
+    }
+
+    @Test
+    public void testDeduplicate() {
+        BlobStore store = BlobStore.newBuilder(folder.getRoot().toPath()).shardLevels(1).sync(false).build();
+        byte[] content = content(1000);
+        Assert.assertFalse(store.put(content).isDuplicate());
+        Assert.assertTrue(store.put(content).isDuplicate());
+        Assert.assertTrue(store.put(new ByteArrayInputStream(content), digest.getSHA256Hash(content)).isDuplicate());
+        assertNoTemporaryFiles();
+    }
+
+    @Test
+    public void testExpectedHash() {
+        BlobStore store = BlobStore.newBuilder(folder.getRoot().toPath()).build();
+        byte[] content = content(1000);
+        byte[] wrongHash = digest.getSHA256Hash("other".getBytes());
+        try {
+            store.put(new ByteArrayInputStream(content), wrongHash);
+            Assert.fail("The content does not match the hash");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains("does not match"));
+        }
+        Assert.assertFalse(store.contains(digest.getSHA256Hash(content)));
+        assertNoTemporaryFiles();
+    }
+
+    @Test
+    public void testConcurrentWriters() throws Exception {
+        final BlobStore store = BlobStore.newBuilder(folder.getRoot().toPath()).sync(false).build();
+        final byte[] content = content(100000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<StoredBlob>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                results.add(executor.submit(new Callable<StoredBlob>() {
+                    @Override
+                    public StoredBlob call() {
+                        return store.put(content);
+                    }
+                }));
+            }
+            for (Future<StoredBlob> result : results) {
+                Assert.assertArrayEquals(digest.getSHA256Hash(content), result.get().getHash());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertTrue(store.verify(digest.getSHA256Hash(content)));
+        assertNoTemporaryFiles();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotFound() {
+        BlobStore.newBuilder(folder.getRoot().toPath()).build().open(digest.getSHA256Hash("missing".getBytes()));
+    }
+
+    private void assertNoTemporaryFiles() {
+        Assert.assertEquals(0, folder.getRoot().toPath().resolve("tmp").toFile().list().length);
+    }
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        return content;
+    }
+}
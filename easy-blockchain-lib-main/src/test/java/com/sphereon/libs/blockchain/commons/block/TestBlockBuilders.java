@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.block;
+
+import com.sphereon.libs.blockchain.api.model.ChainId;
+import com.sphereon.libs.blockchain.api.model.EntryId;
+import com.sphereon.libs.blockchain.commons.Digest;
+import com.sphereon.libs.blockchain.commons.merkle.MerkleEngine;
+import com.sphereon.libs.blockchain.commons.merkle.MerkleHash;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class TestBlockBuilders {
+
+    private static final String CHAIN_ID = "502b99271ff6a3f8509ba2764e1e1c1482ad800140c17b25e165837ab5320501";
+    private static final String ENTRY_ID = "3d945a53b2e0ec5bc4464ae83955e818b6cb5906c93a1eaf80291bd1e241653c";
+
+    private final Digest digest = Digest.getInstance();
+    private final MerkleEngine engine = MerkleEngine.newBuilder().parallelism(1).build();
+
+    @Test
+    public void testEntryBlock() {
+        byte[] previous = digest.getSHA256Hash("previous".getBytes());
+        EntryBlockBuilder builder = new EntryBlockBuilder(ChainId.fromHex(CHAIN_ID))
+                .previousKeyMR(previous).sequence(7).directoryBlockHeight(1000)
+                .addEntry(EntryId.fromHex(ENTRY_ID)).addEntry(hash(1), 0).endMinute(1)
+                .addEntry(hash(2), 0).endMinute(4);
+        EntryBlockHeader header = builder.build();
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(EntryId.fromHex(ENTRY_ID).toBytes(), 0, 32);
+        body.write(hash(1), 0, 32);
+        body.write(marker(1), 0, 32);
+        body.write(hash(2), 0, 32);
+        body.write(marker(4), 0, 32);
+        Assert.assertEquals(5, header.getEntryCount());
+        Assert.assertArrayEquals(engine.root(body.toByteArray()), header.getBodyMR());
+
+        byte[] bytes = header.toBytes();
+        Assert.assertEquals(EntryBlockHeader.LENGTH, bytes.length);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        Assert.assertArrayEquals(ChainId.fromHex(CHAIN_ID).toBytes(), Arrays.copyOfRange(bytes, 0, 32));
+        Assert.assertArrayEquals(header.getBodyMR(), Arrays.copyOfRange(bytes, 32, 64));
+        Assert.assertArrayEquals(previous, Arrays.copyOfRange(bytes, 64, 96));
+        Assert.assertArrayEquals(new byte[32], Arrays.copyOfRange(bytes, 96, 128));
+        Assert.assertEquals(7, buffer.getInt(128));
+        Assert.assertEquals(1000, buffer.getInt(132));
+        Assert.assertEquals(5, buffer.getInt(136));
+
+        byte[] headerHash = digest.getSHA256Hash(bytes);
+        Assert.assertArrayEquals(headerHash, header.getHeaderHash());
+        Assert.assertArrayEquals(MerkleHash.SHA_256.combine(headerHash, header.getBodyMR()), header.getKeyMR());
+
+        // A reset builder gives the same result for the same input
+        builder.reset(ChainId.fromHex(CHAIN_ID)).previousKeyMR(previous).sequence(7).directoryBlockHeight(1000)
+                .addEntry(EntryId.fromHex(ENTRY_ID)).addEntry(hash(1), 0).endMinute(1).addEntry(hash(2), 0).endMinute(4);
+        Assert.assertArrayEquals(header.getKeyMR(), builder.build().getKeyMR());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMinuteOrder() {
+        new EntryBlockBuilder(ChainId.fromHex(CHAIN_ID)).addEntry(hash(1), 0).endMinute(3).endMinute(2);
+    }
+
+    @Test
+    public void testDirectoryBlock() {
+        EntryBlockHeader entryBlock = new EntryBlockBuilder(ChainId.fromHex(CHAIN_ID)).addEntry(hash(1), 0).endMinute(1).build();
+        DirectoryBlockHeader header = new DirectoryBlockBuilder().networkId(0xFA92E5A2L).timestamp(25000000).height(12)
+                .addBlock(DirectoryBlockBuilder.ADMIN_BLOCK_CHAIN_ID, hash(10))
+                .addBlock(DirectoryBlockBuilder.ENTRY_CREDIT_BLOCK_CHAIN_ID, hash(11))
+                .addBlock(DirectoryBlockBuilder.FACTOID_BLOCK_CHAIN_ID, hash(12))
+                .addBlock(entryBlock)
+                .build();
+
+        ByteArrayOutputStream leaves = new ByteArrayOutputStream();
+        leaves.write(pair(DirectoryBlockBuilder.ADMIN_BLOCK_CHAIN_ID, hash(10)), 0, 32);
+        leaves.write(pair(DirectoryBlockBuilder.ENTRY_CREDIT_BLOCK_CHAIN_ID, hash(11)), 0, 32);
+        leaves.write(pair(DirectoryBlockBuilder.FACTOID_BLOCK_CHAIN_ID, hash(12)), 0, 32);
+        leaves.write(pair(ChainId.fromHex(CHAIN_ID), entryBlock.getKeyMR()), 0, 32);
+        Assert.assertEquals(4, header.getBlockCount());
+        Assert.assertArrayEquals(engine.root(leaves.toByteArray()), header.getBodyMR());
+
+        byte[] bytes = header.toBytes();
+        Assert.assertEquals(DirectoryBlockHeader.LENGTH, bytes.length);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        Assert.assertEquals(DirectoryBlockHeader.VERSION, bytes[0]);
+        Assert.assertEquals(0xFA92E5A2, buffer.getInt(1));
+        Assert.assertArrayEquals(header.getBodyMR(), Arrays.copyOfRange(bytes, 5, 37));
+        Assert.assertEquals(25000000, buffer.getInt(101));
+        Assert.assertEquals(12, buffer.getInt(105));
+        Assert.assertEquals(4, buffer.getInt(109));
+        Assert.assertArrayEquals(MerkleHash.SHA_256.combine(digest.getSHA256Hash(bytes), header.getBodyMR()), header.getKeyMR());
+    }
+
+    private byte[] pair(ChainId chainId, byte[] keyMR) {
+        byte[] pair = Arrays.copyOf(chainId.toBytes(), 64);
+        System.arraycopy(keyMR, 0, pair, 32, 32);
+        return digest.getSHA256Hash(pair);
+    }
+
+    private static byte[] marker(int minute) {
+        byte[] marker = new byte[32];
+        marker[31] = (byte) minute;
+        return marker;
+    }
+
+    private byte[] hash(int i) {
+        return digest.getSHA256Hash(("entry " + i).getBytes());
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.dedup;
+
+import com.sphereon.libs.blockchain.api.HasContent;
+import com.sphereon.libs.blockchain.api.HasValue;
+import com.sphereon.libs.blockchain.api.model.ChainId;
+import com.sphereon.libs.blockchain.api.model.EntryId;
+import com.sphereon.libs.blockchain.commons.Digest;
+import com.sphereon.libs.blockchain.commons.RegistrationType;
+import com.sphereon.libs.blockchain.commons.ingest.EntryIdConsumer;
+import com.sphereon.libs.blockchain.commons.ingest.EntryIngestor;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestDuplicateFilter {
+
+    private static final String ENTRY_ID = "3d945a53b2e0ec5bc4464ae83955e818b6cb5906c93a1eaf80291bd1e241653c";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Digest digest = Digest.getInstance();
+
+    @Test
+    public void testBloomFilter() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1000, 0.01);
+        int rejected = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (!filter.put(key(i))) {
+                // A false positive on insertion
+                rejected++;
+            }
+        }
+        Assert.assertTrue("Rejected: " + rejected, rejected < 10000 * 0.01);
+        Assert.assertTrue(filter.getStageCount() > 1);
+        for (int i = 0; i < 10000; i++) {
+            Assert.assertTrue(filter.mightContain(key(i)));
+            Assert.assertFalse(filter.put(key(i)));
+        }
+        int falsePositives = 0;
+        for (int i = 10000; i < 30000; i++) {
+            if (filter.mightContain(key(i))) {
+                falsePositives++;
+            }
+        }
+        Assert.assertTrue("False positives: " + falsePositives, falsePositives < 20000 * 0.01 * 2);
+        Assert.assertTrue(filter.getExpectedFalsePositiveRate() < 0.01);
+    }
+
+    @Test
+    public void testWithoutStore() {
+        DuplicateFilter filter = DuplicateFilter.newBuilder().expectedInsertions(100).build();
+        EntryId entryId = EntryId.fromHex(ENTRY_ID);
+        Assert.assertFalse(filter.isDuplicate(entryId));
+        Assert.assertTrue(filter.markSeen(entryId));
+        Assert.assertFalse(filter.markSeen(entryId));
+        Assert.assertTrue(filter.isDuplicate(entryId));
+
+        // Entry Ids and content hashes do not share a filter
+        byte[] hash = entryId.toBytes();
+        Assert.assertFalse(filter.isDuplicate(DuplicateFilter.KeyType.CONTENT_HASH, hash));
+        Assert.assertTrue(filter.markSeen(DuplicateFilter.KeyType.CONTENT_HASH, hash));
+        Assert.assertTrue(filter.isDuplicate(DuplicateFilter.KeyType.CONTENT_HASH, hash));
+    }
+
+    @Test
+    public void testStoreResolvesFalsePositives() {
+        // A tiny filter with a high rate, so false positives are guaranteed
+        InMemorySeenStore store = new InMemorySeenStore();
+        DuplicateFilter filter = DuplicateFilter.newBuilder().expectedInsertions(1).falsePositiveRate(0.5).store(store).build();
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(filter.markSeen(DuplicateFilter.KeyType.CONTENT_HASH, key(i)));
+        }
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(filter.isDuplicate(DuplicateFilter.KeyType.CONTENT_HASH, key(i)));
+            Assert.assertFalse(filter.markSeen(DuplicateFilter.KeyType.CONTENT_HASH, key(i)));
+        }
+        for (int i = 1000; i < 2000; i++) {
+            Assert.assertFalse(filter.isDuplicate(DuplicateFilter.KeyType.CONTENT_HASH, key(i)));
+        }
+        Assert.assertEquals(1000, store.size(DuplicateFilter.KeyType.CONTENT_HASH));
+        Assert.assertTrue(filter.getFalsePositiveCount() > 0);
+    }
+
+    @Test
+    public void testSnapshot() {
+        Path path = folder.getRoot().toPath().resolve("seen.bloom");
+        DuplicateFilter filter = DuplicateFilter.newBuilder().expectedInsertions(500).snapshotPath(path).build();
+        for (int i = 0; i < 2000; i++) {
+            filter.markSeen(DuplicateFilter.KeyType.ENTRY_ID, key(i));
+        }
+        filter.snapshot();
+
+        DuplicateFilter restored = DuplicateFilter.newBuilder().snapshotPath(path).build();
+        ScalableBloomFilter original = filter.getBloomFilter(DuplicateFilter.KeyType.ENTRY_ID);
+        ScalableBloomFilter loaded = restored.getBloomFilter(DuplicateFilter.KeyType.ENTRY_ID);
+        Assert.assertEquals(original.getStageCount(), loaded.getStageCount());
+        Assert.assertEquals(original.getCount(), loaded.getCount());
+        for (int i = 0; i < 2000; i++) {
+            Assert.assertTrue(restored.isDuplicate(DuplicateFilter.KeyType.ENTRY_ID, key(i)));
+        }
+    }
+
+    @Test
+    public void testIngestorSkipsDuplicates() {
+        final AtomicInteger received = new AtomicInteger();
+        final AtomicInteger endOfBatch = new AtomicInteger();
+        DuplicateFilter filter = DuplicateFilter.newBuilder().expectedInsertions(100).store(new InMemorySeenStore()).build();
+        EntryIdConsumer consumer = new EntryIdConsumer() {
+            @Override
+            public void onEntryId(long sequence, byte[] entryId, boolean last) {
+                received.incrementAndGet();
+                if (last) {
+                    endOfBatch.incrementAndGet();
+                }
+            }
+        };
+        ChainId chainId = ChainId.fromHex(ENTRY_ID);
+        try (EntryIngestor ingestor = EntryIngestor.newBuilder(consumer).workers(2).duplicateFilter(filter).build()) {
+            // Every entry is published three times. Keys are marked after delivery, so the rounds are flushed
+            for (int round = 0; round < 3; round++) {
+                for (int i = 0; i < 100; i++) {
+                    ingestor.publish(chainId, HasContent.Impl.of(("content " + i).getBytes()), Collections.<HasValue<byte[]>>emptyList());
+                }
+                ingestor.flush();
+            }
+            Assert.assertEquals(100, received.get());
+            Assert.assertEquals(200, ingestor.getDuplicateCount());
+            Assert.assertTrue(endOfBatch.get() > 0);
+        }
+    }
+
+    @Test
+    public void testIngestorSkipsDuplicateContent() {
+        final List<Long> received = Collections.synchronizedList(new ArrayList<Long>());
+        DuplicateFilter filter = DuplicateFilter.newBuilder().expectedInsertions(100).store(new InMemorySeenStore()).build();
+        EntryIdConsumer consumer = new EntryIdConsumer() {
+            @Override
+            public void onEntryId(long sequence, byte[] entryId, boolean last) {
+                received.add(sequence);
+            }
+        };
+        ChainId chainId = ChainId.fromHex(ENTRY_ID);
+        byte[] contentHash = digest.getSHA256Hash("document".getBytes());
+        try (EntryIngestor ingestor = EntryIngestor.newBuilder(consumer).workers(1).duplicateFilter(filter).build()) {
+            ingestor.publish(chainId, HasContent.Impl.of("version 1".getBytes()), hashExternalIds(contentHash));
+            // Different entries with the same content hash, in the same batch and after a flush
+            ingestor.publish(chainId, HasContent.Impl.of("version 2".getBytes()), hashExternalIds(contentHash));
+            ingestor.flush();
+            ingestor.publish(chainId, HasContent.Impl.of("version 3".getBytes()), hashExternalIds(contentHash));
+            // The hash is only a content hash when it follows the Hash registration type
+            ingestor.publish(chainId, HasContent.Impl.of("version 4".getBytes()), Arrays.<HasValue<byte[]>>asList(
+                    HasValue.Impl.of(RegistrationType.Defaults.NODE_ID.getNameInBytes()), HasValue.Impl.of(contentHash)));
+            ingestor.flush();
+        }
+        Assert.assertEquals(Arrays.asList(0L, 3L), received);
+        Assert.assertTrue(filter.isDuplicate(DuplicateFilter.KeyType.CONTENT_HASH, contentHash));
+    }
+
+    @Test
+    public void testIngestorMarksDeliveredEntriesOnly() {
+        final AtomicBoolean fail = new AtomicBoolean(true);
+        final AtomicInteger received = new AtomicInteger();
+        DuplicateFilter filter = DuplicateFilter.newBuilder().expectedInsertions(100).store(new InMemorySeenStore()).build();
+        EntryIdConsumer consumer = new EntryIdConsumer() {
+            @Override
+            public void onEntryId(long sequence, byte[] entryId, boolean last) {
+                if (fail.get()) {
+                    throw new IllegalStateException("Consumer failure");
+                }
+                received.incrementAndGet();
+            }
+        };
+        ChainId chainId = ChainId.fromHex(ENTRY_ID);
+        byte[] contentHash = digest.getSHA256Hash("document".getBytes());
+        try (EntryIngestor ingestor = EntryIngestor.newBuilder(consumer).workers(1).duplicateFilter(filter).build()) {
+            ingestor.publish(chainId, HasContent.Impl.of("content".getBytes()), hashExternalIds(contentHash));
+            ingestor.flush();
+            Assert.assertEquals(1, ingestor.getFailureCount());
+            Assert.assertFalse(filter.isDuplicate(DuplicateFilter.KeyType.CONTENT_HASH, contentHash));
+
+            // Publishing the entry again after the failure delivers it
+            fail.set(false);
+            ingestor.publish(chainId, HasContent.Impl.of("content".getBytes()), hashExternalIds(contentHash));
+            ingestor.publish(chainId, HasContent.Impl.of("content".getBytes()), hashExternalIds(contentHash));
+            ingestor.flush();
+            Assert.assertEquals(1, received.get());
+            Assert.assertEquals(1, ingestor.getDuplicateCount());
+        }
+    }
+
+    private static List<HasValue<byte[]>> hashExternalIds(byte[] contentHash) {
+        return Arrays.<HasValue<byte[]>>asList(HasValue.Impl.of(RegistrationType.Defaults.HASH.getNameInBytes()), HasValue.Impl.of(contentHash));
+    }
+
+    private byte[] key(int i) {
+        return digest.getSHA256Hash(("key " + i).getBytes());
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.digest;
+
+import com.sphereon.libs.blockchain.commons.Digest;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestDigestProviders {
+
+    private final DigestProviders providers = DigestProviders.getInstance();
+
+    @After
+    public void reset() {
+        providers.reset();
+    }
+
+    @Test
+    public void testDiscovery() {
+        Assert.assertNotNull("Service loader provider", providers.getProvider(CountingDigestProvider.NAME));
+        Assert.assertNotNull(providers.getProvider(JcaDigestProvider.DEFAULT_NAME));
+        Assert.assertNotNull(providers.getProvider(JcaDigestProvider.NAME_PREFIX + "SUN"));
+        Assert.assertEquals(JcaDigestProvider.DEFAULT_NAME, providers.getSelected(Digest.Algorithm.SHA_256).getName());
+        Assert.assertTrue(providers.getCandidates(Digest.Algorithm.SHA_512).size() >= 3);
+    }
+
+    @Test
+    public void testSelect() {
+        providers.select(CountingDigestProvider.NAME);
+        int before = CountingDigestProvider.CREATED.get();
+        byte[] hash = Digest.getInstance().getSHA256Hash("test".getBytes());
+        Assert.assertEquals(before + 1, CountingDigestProvider.CREATED.get());
+
+        providers.reset();
+        Assert.assertArrayEquals(hash, Digest.getInstance().getSHA256Hash("test".getBytes()));
+        Assert.assertEquals(before + 1, CountingDigestProvider.CREATED.get());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testSelectUnknown() {
+        providers.select("unknown");
+    }
+
+    @Test
+    public void testInvalidConfiguration() {
+        // A typo in the provider property must not make hashing impossible
+        DigestProviders configured = DigestProviders.create("unknown", false, 0);
+        for (Digest.Algorithm algorithm : Digest.Algorithm.values()) {
+            Assert.assertEquals(JcaDigestProvider.DEFAULT_NAME, configured.getSelected(algorithm).getName());
+        }
+
+        configured = DigestProviders.create(CountingDigestProvider.NAME, false, 0);
+        Assert.assertEquals(CountingDigestProvider.NAME, configured.getSelected(Digest.Algorithm.SHA_256).getName());
+    }
+
+    @Test
+    public void testBenchmark() {
+        Map<Digest.Algorithm, DigestProvider> selection = providers.benchmarkAndSelect(5);
+        Assert.assertEquals(Digest.Algorithm.values().length, selection.size());
+        for (Digest.Algorithm algorithm : Digest.Algorithm.values()) {
+            List<DigestBenchmarkResult> results = providers.getBenchmarkResults(algorithm);
+            Assert.assertFalse(results.isEmpty());
+            Assert.assertTrue(results.get(0).isValid());
+            Assert.assertTrue(results.get(0).getBytesPerSecond() > 0);
+            Assert.assertEquals(results.get(0).getProviderName(), providers.getSelected(algorithm).getName());
+        }
+    }
+
+    @Test
+    public void testBenchmarkRejectsWrongHashes() {
+        DigestProvider broken = new DigestProvider() {
+            @Override
+            public String getName() {
+                return "broken";
+            }
+
+            @Override
+            public boolean supports(Digest.Algorithm algorithm) {
+                return algorithm == Digest.Algorithm.SHA_256;
+            }
+
+            @Override
+            public MessageDigest newMessageDigest(Digest.Algorithm algorithm) {
+                try {
+                    // Wrong algorithm, so the reference hash does not match
+                    return MessageDigest.getInstance("SHA-512");
+                } catch (NoSuchAlgorithmException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        providers.register(broken);
+        try {
+            for (DigestBenchmarkResult result : providers.benchmark(Digest.Algorithm.SHA_256, 5)) {
+                if (result.getProviderName().equals("broken")) {
+                    Assert.assertFalse(result.isValid());
+                }
+            }
+            providers.benchmarkAndSelect(5);
+            Assert.assertNotEquals("broken", providers.getSelected(Digest.Algorithm.SHA_256).getName());
+        } finally {
+            providers.unregister(broken);
+        }
+    }
+
+
+    /**
+     * Registered using META-INF/services in the test resources
+     */
+    public static class CountingDigestProvider implements DigestProvider {
+        static final String NAME = "counting";
+        static final AtomicInteger CREATED = new AtomicInteger();
+
+        @Override
+        public String getName() {
+            return NAME;
+        }
+
+        @Override
+        public boolean supports(Digest.Algorithm algorithm) {
+            return true;
+        }
+
+        @Override
+        public MessageDigest newMessageDigest(Digest.Algorithm algorithm) {
+            CREATED.incrementAndGet();
+            return JcaDigestProvider.defaultProvider().newMessageDigest(algorithm);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.digest;
+
+import com.sphereon.libs.blockchain.commons.AsyncOperations;
+import com.sphereon.libs.blockchain.commons.Digest;
+import com.sphereon.libs.blockchain.commons.merkle.MerkleHash;
+import com.sphereon.libs.blockchain.commons.merkle.MerkleRootAccumulator;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class TestMultiDigest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Digest digest = Digest.getInstance();
+
+    @Test
+    public void testSinglePass() throws Exception {
+        byte[] data = data(300000);
+        File file = folder.newFile("content.bin");
+        Files.write(file.toPath(), data);
+
+        MultiDigestResult result = digest.getHashes(file.toPath(), Digest.Algorithm.SHA_256, Digest.Algorithm.SHA_512);
+        Assert.assertArrayEquals(digest.getSHA256Hash(data), result.getHash(Digest.Algorithm.SHA_256));
+        Assert.assertArrayEquals(digest.getSHA512Hash(data), result.getHash(Digest.Algorithm.SHA_512));
+        Assert.assertEquals(data.length, result.getSize());
+        Assert.assertNull(result.getTreeHash());
+
+        final AtomicBoolean closed = new AtomicBoolean();
+        InputStream input = new ByteArrayInputStream(data) {
+            @Override
+            public void close() throws IOException {
+                closed.set(true);
+                super.close();
+            }
+        };
+        result = digest.getHashes(input, Digest.Algorithm.SHA_512);
+        Assert.assertTrue(closed.get());
+        Assert.assertFalse(result.hasHash(Digest.Algorithm.SHA_256));
+        Assert.assertArrayEquals(digest.getSHA512Hash(data), result.getHash(Digest.Algorithm.SHA_512));
+    }
+
+    @Test
+    public void testTreeHash() {
+        byte[] data = data(10000);
+        MultiDigest multiDigest = MultiDigest.newBuilder().treeHash(4096).bufferSize(1000).build();
+        MerkleRootAccumulator expected = new MerkleRootAccumulator(MerkleHash.SHA_256);
+        for (int offset = 0; offset < data.length; offset += 4096) {
+            expected.add(digest.getSHA256Hash(Arrays.copyOfRange(data, offset, Math.min(data.length, offset + 4096))));
+        }
+        byte[] treeHash = expected.root();
+        Assert.assertArrayEquals(treeHash, multiDigest.digest(data).getTreeHash());
+        Assert.assertArrayEquals(treeHash, multiDigest.digest(new ByteArrayInputStream(data)).getTreeHash());
+
+        expected.reset();
+        expected.add(digest.getSHA256Hash(new byte[0]));
+        Assert.assertArrayEquals(expected.root(), multiDigest.digest(new byte[0]).getTreeHash());
+    }
+
+    @Test
+    public void testParallel() {
+        byte[] data = data(1000003);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            MultiDigest multiDigest = MultiDigest.newBuilder()
+                    .algorithms(Digest.Algorithm.SHA_256, Digest.Algorithm.SHA_512)
+                    .treeHash(65536)
+                    .parallel(true)
+                    .executor(executor)
+                    .bufferSize(7919)
+                    .readAhead(3)
+                    .build();
+            MultiDigestResult sequential = MultiDigest.newBuilder()
+                    .algorithms(Digest.Algorithm.SHA_256, Digest.Algorithm.SHA_512).treeHash(65536).build().digest(data);
+            for (int i = 0; i < 5; i++) {
+                MultiDigestResult result = multiDigest.digest(new ByteArrayInputStream(data));
+                Assert.assertArrayEquals(digest.getSHA256Hash(data), result.getHash(Digest.Algorithm.SHA_256));
+                Assert.assertArrayEquals(digest.getSHA512Hash(data), result.getHash(Digest.Algorithm.SHA_512));
+                Assert.assertArrayEquals(sequential.getTreeHash(), result.getTreeHash());
+                Assert.assertEquals(data.length, result.getSize());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelReadFailure() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            InputStream failing = new InputStream() {
+                private int reads;
+
+                @Override
+                public int read() {
+                    return 0;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (++reads > 10) {
+                        throw new IOException("Disk failure");
+                    }
+                    return len;
+                }
+            };
+            MultiDigest multiDigest = MultiDigest.newBuilder().algorithms(Digest.Algorithm.SHA_256, Digest.Algorithm.SHA_512)
+                    .parallel(true).executor(executor).readAhead(2).build();
+            try {
+                multiDigest.digest(failing);
+                Assert.fail("Read failure expected");
+            } catch (RuntimeException e) {
+                Assert.assertEquals("Disk failure", e.getMessage());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testRejectedFallsBackToSequential() {
+        byte[] data = data(50000);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        MultiDigestResult result = MultiDigest.newBuilder().algorithms(Digest.Algorithm.SHA_256, Digest.Algorithm.SHA_512)
+                .parallel(true).executor(executor).build().digest(new ByteArrayInputStream(data));
+        Assert.assertArrayEquals(digest.getSHA512Hash(data), result.getHash(Digest.Algorithm.SHA_512));
+    }
+
+    @Test(timeout = 30000)
+    public void testParallelWithDefaultExecutorSaturated() throws Exception {
+        byte[] data = data(300000);
+        ThreadPoolExecutor shared = (ThreadPoolExecutor) AsyncOperations.getInstance().getExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < shared.getCorePoolSize(); i++) {
+                shared.execute(blocker(release));
+            }
+            while (shared.getQueue().remainingCapacity() > 0) {
+                shared.execute(blocker(release));
+            }
+            MultiDigestResult result = MultiDigest.newBuilder().algorithms(Digest.Algorithm.SHA_256, Digest.Algorithm.SHA_512)
+                    .parallel(true).build().digest(new ByteArrayInputStream(data));
+            Assert.assertArrayEquals(digest.getSHA256Hash(data), result.getHash(Digest.Algorithm.SHA_256));
+            Assert.assertArrayEquals(digest.getSHA512Hash(data), result.getHash(Digest.Algorithm.SHA_512));
+
+            // The saturated caller-runs executor runs the lanes on the reader, which abandons them
+            result = MultiDigest.newBuilder().algorithms(Digest.Algorithm.SHA_256, Digest.Algorithm.SHA_512)
+                    .parallel(true).executor(shared).build().digest(new ByteArrayInputStream(data));
+            Assert.assertArrayEquals(digest.getSHA512Hash(data), result.getHash(Digest.Algorithm.SHA_512));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testParallelWithBusyExecutor() throws Exception {
+        byte[] data = data(300000);
+        ExecutorService executor = AsyncOperations.newExecutor(1, 10);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.execute(blocker(release));
+            MultiDigestResult result = MultiDigest.newBuilder().algorithms(Digest.Algorithm.SHA_256, Digest.Algorithm.SHA_512)
+                    .parallel(true).executor(executor).startTimeout(20, TimeUnit.MILLISECONDS).build()
+                    .digest(new ByteArrayInputStream(data));
+            Assert.assertArrayEquals(digest.getSHA256Hash(data), result.getHash(Digest.Algorithm.SHA_256));
+            Assert.assertArrayEquals(digest.getSHA512Hash(data), result.getHash(Digest.Algorithm.SHA_512));
+        } finally {
+            release.countDown();
+        }
+        // The abandoned lanes return as soon as they get a thread
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 30000)
+    public void testInterruptedLaneDrains() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        InputStream slow = new InputStream() {
+            private int reads;
+
+            @Override
+            public int read() {
+                return 0;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (++reads == 20) {
+                    executor.shutdownNow();
+                }
+                if (reads > 200) {
+                    return -1;
+                }
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return len;
+            }
+        };
+        try {
+            MultiDigest.newBuilder().algorithms(Digest.Algorithm.SHA_256, Digest.Algorithm.SHA_512)
+                    .parallel(true).executor(executor).readAhead(2).bufferSize(1024).build().digest(slow);
+            Assert.fail("Interrupted lane expected");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getCause() instanceof InterruptedException);
+        }
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNothingToCalculate() {
+        MultiDigest.newBuilder().build();
+    }
+
+
+    private static Runnable blocker(final CountDownLatch release) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    private static byte[] data(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.libs.blockchain.commons.index;
+
+import com.sphereon.libs.blockchain.api.model.ImmutableEntryData;
+import com.sphereon.libs.blockchain.commons.Digest;
+import com.sphereon.libs.blockchain.commons.RegistrationType;
+import com.sphereon.libs.blockchain.commons.RegistrationTypeRegistry;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.List;
+
+public class TestExternalIdIndex {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Digest digest = Digest.getInstance();
+
+    @Test
+    public void testIndexAndQuery() throws Exception {
+        RegistrationTypeRegistry.getInstance().initDefaultSubsystems();
+        ExternalIdIndex index = new ExternalIdIndex();
+
+        byte[][] entryIds = new byte[10][];
+        for (int i = 0; i < entryIds.length; i++) {
+            entryIds[i] = digest.getSHA256Hash(("entry " + i).getBytes());
+            ImmutableEntryData entryData = ImmutableEntryData.newBuilder()
+                    .externalId(RegistrationType.Defaults.HASH.getName())
+                    .externalId(digest.getSHA256Hash(("document " + i % 2).getBytes()))
+                    .externalId("not a key")
+                    .externalId(RegistrationType.Defaults.DOCUMENT_ID.getName())
+                    .externalId("doc-" + i)
+                    .externalId(RegistrationType.Defaults.NODE_ID.createChainLinkKey())
+                    .externalId("/context/chains/chain" + i)
+                    .build();
+            Assert.assertEquals(3, index.addEntry(entryIds[i], entryData.getExternalIds()));
+        }
+        Assert.assertEquals(0, index.addEntry(entryIds[0], ImmutableEntryData.newBuilder().build().getExternalIds()));
+        Assert.assertEquals(10, index.size());
+
+        assertQueries(index, entryIds);
+
+        Path file = folder.newFile().toPath();
+        index.save(file);
+        ExternalIdIndex loaded = ExternalIdIndex.load(file);
+        Assert.assertEquals(10, loaded.size());
+        Assert.assertTrue(loaded.containsEntry(entryIds[9]));
+        assertQueries(loaded, entryIds);
+    }
+
+    private void assertQueries(ExternalIdIndex index, byte[][] entryIds) {
+        List<byte[]> evenDocuments = index.find(RegistrationType.Defaults.HASH, digest.getSHA256Hash("document 0".getBytes()));
+        Assert.assertEquals(5, evenDocuments.size());
+        Assert.assertArrayEquals(entryIds[0], evenDocuments.get(0));
+        Assert.assertArrayEquals(entryIds[8], evenDocuments.get(4));
+
+        Assert.assertEquals(10, index.findByPrefix(RegistrationType.Defaults.DOCUMENT_ID, "doc-".getBytes()).size());
+        Assert.assertEquals(1, index.findByPrefix(RegistrationType.Defaults.DOCUMENT_ID, "doc-3".getBytes()).size());
+        Assert.assertEquals(0, index.find(RegistrationType.Defaults.DOCUMENT_ID, "doc-".getBytes()).size());
+
+        List<byte[]> linked = index.find(RegistrationType.Defaults.NODE_ID.createChainLinkKey(), "/context/chains/chain7".getBytes());
+        Assert.assertEquals(1, linked.size());
+        Assert.assertArrayEquals(entryIds[7], linked.get(0));
+        Assert.assertEquals(0, index.find(RegistrationType.Defaults.NODE_ID, "/context/chains/chain7".getBytes()).size());
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.ingest;
+
+import com.sphereon.libs.blockchain.api.HasContent;
+import com.sphereon.libs.blockchain.api.HasValue;
+import com.sphereon.libs.blockchain.api.model.ChainId;
+import com.sphereon.libs.blockchain.api.model.ImmutableEntryData;
+import com.sphereon.libs.blockchain.commons.EntryValidationException;
+import com.sphereon.libs.blockchain.commons.Operations;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class TestEntryIngestor {
+
+    private static final String CHAIN_ID = "502b99271ff6a3f8509ba2764e1e1c1482ad800140c17b25e165837ab5320501";
+    private static final String ENTRY_ID = "3d945a53b2e0ec5bc4464ae83955e818b6cb5906c93a1eaf80291bd1e241653c";
+
+    private final Operations operations = Operations.getInstance();
+
+    @Test
+    public void testHasher() {
+        EntryHasher hasher = new EntryHasher(16);
+        ChainId chainId = ChainId.fromHex(CHAIN_ID);
+        List<HasValue<byte[]>> externalIds = Arrays.<HasValue<byte[]>>asList(
+                HasValue.Impl.of("first entry external id".getBytes()), HasValue.Impl.of("second entry external id".getBytes()));
+        HasContent<byte[]> content = HasContent.Impl.of("Test Entry Content".getBytes());
+
+        Assert.assertEquals(ENTRY_ID, hasher.entryId(chainId, content, externalIds).toHex());
+        byte[] expected = operations.entryToBytes(CHAIN_ID, content, externalIds).original();
+        Assert.assertEquals(expected.length, hasher.serialize(chainId, content, externalIds));
+        Assert.assertArrayEquals(expected, Arrays.copyOf(hasher.buffer(), hasher.length()));
+
+        ImmutableEntryData immutable = ImmutableEntryData.newBuilder().externalIds(externalIds).content("Test Entry Content").build();
+        Assert.assertEquals(ENTRY_ID, hasher.entryId(chainId, immutable, immutable.getExternalIds()).toHex());
+
+        // First entry of a chain and entries without external Ids
+        Assert.assertEquals(operations.generateFirstEntryId(content, externalIds), hasher.entryId(null, content, externalIds).toHex());
+        Assert.assertEquals(operations.generateEntryID(CHAIN_ID, content, null), hasher.entryId(chainId, content, null).toHex());
+    }
+
+    @Test
+    public void testSingleProducer() {
+        assertIngest(ProducerType.SINGLE, WaitStrategy.SLEEPING, 1);
+        assertIngest(ProducerType.SINGLE, WaitStrategy.BLOCKING, 1);
+    }
+
+    @Test
+    public void testMultiProducer() {
+        assertIngest(ProducerType.MULTI, WaitStrategy.YIELDING, 4);
+        assertIngest(ProducerType.MULTI, WaitStrategy.BLOCKING, 4);
+    }
+
+    @Test(expected = EntryValidationException.class)
+    public void testValidation() {
+        try (EntryIngestor ingestor = EntryIngestor.newBuilder(new CollectingConsumer(1)).workers(1).build()) {
+            ingestor.publish(ChainId.fromHex(CHAIN_ID), ImmutableEntryData.newBuilder().content(new byte[Operations.MAX_PAYLOAD_SIZE + 1]).build());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHasherRejectsMissingValue() {
+        new EntryHasher().serialize(ChainId.fromHex(CHAIN_ID), HasContent.Impl.of("content".getBytes()),
+                Collections.<HasValue<byte[]>>singletonList(HasValue.Impl.<byte[]>of(null)));
+    }
+
+    @Test(timeout = 30000)
+    public void testConsumerError() throws Exception {
+        final ChainId chainId = ChainId.fromHex(CHAIN_ID);
+        final CollectingConsumer collecting = new CollectingConsumer(32);
+        final CountDownLatch published = new CountDownLatch(1);
+        EntryIdConsumer consumer = new EntryIdConsumer() {
+            @Override
+            public void onEntryId(long sequence, byte[] entryId, boolean endOfBatch) {
+                try {
+                    published.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                if (sequence == 3) {
+                    throw new AssertionError("Consumer failure");
+                }
+                collecting.onEntryId(sequence, entryId, endOfBatch);
+            }
+        };
+        EntryIngestor ingestor = EntryIngestor.newBuilder(consumer).bufferSize(8).workers(1).batchSize(2).build();
+        try {
+            // The ring holds all entries, so publishing does not depend on the blocked worker
+            for (int i = 0; i < 8; i++) {
+                ingestor.publish(chainId, ImmutableEntryData.newBuilder().externalId(String.valueOf(i)).build());
+            }
+            published.countDown();
+            // The worker survives the error and processes the entries published before it
+            ingestor.flush();
+            Assert.assertEquals(1, ingestor.getFailureCount());
+            Assert.assertTrue(ingestor.getFatalError() instanceof AssertionError);
+            Assert.assertSame(ingestor.getFatalError(), ingestor.getLastFailure());
+            Assert.assertNull(collecting.entryIds.get(3));
+            Assert.assertNotNull(collecting.entryIds.get(7));
+            try {
+                ingestor.publish(chainId, ImmutableEntryData.newBuilder().externalId("rejected").build());
+                Assert.fail("Failed ingestor expected");
+            } catch (IllegalStateException e) {
+                Assert.assertSame(ingestor.getFatalError(), e.getCause());
+            }
+        } finally {
+            ingestor.close();
+        }
+    }
+
+    private void assertIngest(ProducerType producerType, WaitStrategy waitStrategy, int producers) {
+        final int perProducer = 5000;
+        final ChainId chainId = ChainId.fromHex(CHAIN_ID);
+        final List<ImmutableEntryData> entries = new ArrayList<>();
+        for (int i = 0; i < perProducer * producers; i++) {
+            entries.add(ImmutableEntryData.newBuilder().externalId("ingest").externalId(String.valueOf(i)).content("content " + i).build());
+        }
+        CollectingConsumer consumer = new CollectingConsumer(entries.size());
+        // A small ring, so producers have to wait for the workers regularly
+        final EntryIngestor ingestor = EntryIngestor.newBuilder(consumer).bufferSize(64).workers(3).batchSize(8)
+                .producerType(producerType).waitStrategy(waitStrategy).build();
+        final List<Long> sequences = Collections.synchronizedList(new ArrayList<Long>());
+        final long[] indexBySequence = new long[entries.size()];
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = producer * perProducer; i < (producer + 1) * perProducer; i++) {
+                        long sequence = ingestor.publish(chainId, entries.get(i));
+                        indexBySequence[(int) sequence] = i;
+                        sequences.add(sequence);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        ingestor.close();
+
+        Assert.assertEquals(0, ingestor.getFailureCount());
+        Assert.assertEquals(entries.size(), sequences.size());
+        for (long sequence : sequences) {
+            ImmutableEntryData entryData = entries.get((int) indexBySequence[(int) sequence]);
+            Assert.assertEquals(operations.calculateEntryId(chainId, entryData, entryData.getExternalIds()).toHex(),
+                    operations.toHex(consumer.entryIds.get((int) sequence)));
+        }
+    }
+
+    private static class CollectingConsumer implements EntryIdConsumer {
+        private final AtomicReferenceArray<byte[]> entryIds;
+
+        private CollectingConsumer(int size) {
+            this.entryIds = new AtomicReferenceArray<>(size);
+        }
+
+        @Override
+        public void onEntryId(long sequence, byte[] entryId, boolean endOfBatch) {
+            // The array is reused by the ingestor
+            entryIds.set((int) sequence, entryId.clone());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.jfr;
+
+import com.sphereon.libs.blockchain.commons.Digest;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestJfrEvents {
+
+    @Test
+    public void testWithoutRecording() {
+        // No recording is running, so no events are created and committing is a no-op
+        Assert.assertNull(JfrEvents.beginDigest());
+        Assert.assertNull(JfrEvents.beginEntrySerialize());
+        Assert.assertNull(JfrEvents.beginEntryId());
+        Assert.assertNull(JfrEvents.beginLinkParse());
+        JfrEvents.commitDigest(null, Digest.Algorithm.SHA_256, 1, JfrEvents.SOURCE_BYTES);
+        JfrEvents.commitEntrySerialize(null, 1, 1, 1);
+        JfrEvents.commitEntryId(null, 1, 1, true);
+        JfrEvents.commitLinkParse(null, "/context", 1);
+    }
+}
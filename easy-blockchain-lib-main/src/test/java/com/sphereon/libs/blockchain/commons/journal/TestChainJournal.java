@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sphereon.libs.blockchain.commons.journal;
+
+import com.sphereon.libs.blockchain.api.model.Entry;
+import com.sphereon.libs.blockchain.api.model.ImmutableEntryData;
+import com.sphereon.libs.blockchain.commons.Operations;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestChainJournal {
+
+    private static final String CHAIN_ID = "502b99271ff6a3f8509ba2764e1e1c1482ad800140c17b25e165837ab5320501";
+    private static final String ENTRY_ID = "3d945a53b2e0ec5bc4464ae83955e818b6cb5906c93a1eaf80291bd1e241653c";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Operations operations = Operations.getInstance();
+
+    @Test
+    public void testAppendAndLookup() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        try (ChainJournal journal = ChainJournal.open(directory, CHAIN_ID)) {
+            ImmutableEntryData entryData = ImmutableEntryData.newBuilder()
+                    .externalId("first entry external id")
+                    .externalId("second entry external id")
+                    .content("Test Entry Content")
+                    .build();
+            byte[] entryId = journal.append(entryData, entryData.getExternalIds());
+            Assert.assertEquals(ENTRY_ID, operations.toHex(entryId));
+            // Appending the same entry again is a no-op
+            journal.append(entryData, entryData.getExternalIds());
+            Assert.assertEquals(1, journal.size());
+
+            JournalRecord record = journal.get(ENTRY_ID);
+            Assert.assertNotNull(record);
+            Assert.assertEquals(CHAIN_ID, operations.toHex(record.getChainId()));
+            Entry entry = record.toEntry();
+            Assert.assertEquals(entryData, ImmutableEntryData.from(entry));
+
+            ImmutableEntryData noExternalIds = ImmutableEntryData.newBuilder().content("only content").build();
+            byte[] secondId = journal.append(noExternalIds, noExternalIds.getExternalIds());
+            Assert.assertEquals(noExternalIds, ImmutableEntryData.from(journal.get(secondId).toEntry()));
+            Assert.assertNull(journal.get(new byte[32]));
+        }
+    }
+
+    @Test
+    public void testIndexAheadOfSegment() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        List<byte[]> entryIds = new ArrayList<>();
+        try (ChainJournal journal = ChainJournal.open(directory, CHAIN_ID)) {
+            for (int i = 0; i < 10; i++) {
+                ImmutableEntryData entryData = ImmutableEntryData.newBuilder().externalId("entry " + i).content("content " + i).build();
+                entryIds.add(journal.append(entryData, entryData.getExternalIds()));
+            }
+        }
+
+        // Simulate a crash that persisted the index but not the tail of the segment
+        Path segment = directory.resolve(String.format("%010d%s", 0, ChainJournal.SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 10);
+        }
+        try (ChainJournal journal = ChainJournal.open(directory, CHAIN_ID)) {
+            Assert.assertEquals(9, journal.size());
+            Assert.assertFalse(journal.contains(entryIds.get(9)));
+            for (byte[] entryId : entryIds.subList(0, 9)) {
+                Assert.assertArrayEquals(entryId, journal.get(entryId).getEntryId());
+            }
+            ImmutableEntryData entryData = ImmutableEntryData.newBuilder().externalId("after crash").build();
+            byte[] entryId = journal.append(entryData, entryData.getExternalIds());
+            Assert.assertEquals(entryData, ImmutableEntryData.from(journal.get(entryId).toEntry()));
+            int records = 0;
+            for (JournalRecord ignored : journal) {
+                records++;
+            }
+            Assert.assertEquals(10, records);
+        }
+    }
+
+    @Test
+    public void testEntryWithoutContent() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        try (ChainJournal journal = ChainJournal.open(directory, CHAIN_ID)) {
+            ImmutableEntryData entryData = ImmutableEntryData.newBuilder().externalId("no content").build();
+            Assert.assertNull(entryData.getContent());
+            byte[] entryId = journal.append(entryData, entryData.getExternalIds());
+            Entry entry = journal.get(entryId).toEntry();
+            Assert.assertNull(entry.getEntryData().getContent());
+            Assert.assertEquals(entryData, ImmutableEntryData.from(entry));
+            Assert.assertEquals(1, entry.getEntryData().getExternalIds().size());
+        }
+    }
+
+    @Test
+    public void testRecoveryAndSegments() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        List<byte[]> entryIds = new ArrayList<>();
+        try (ChainJournal journal = ChainJournal.newBuilder(directory, CHAIN_ID).maxSegmentSize(1024).initialIndexCapacity(16).build()) {
+            for (int i = 0; i < 200; i++) {
+                ImmutableEntryData entryData = ImmutableEntryData.newBuilder().externalId("entry " + i).content("content " + i).build();
+                entryIds.add(journal.append(entryData, entryData.getExternalIds()));
+            }
+        }
+        Path lastSegment;
+        try (ChainJournal journal = ChainJournal.open(directory, CHAIN_ID)) {
+            Assert.assertEquals(200, journal.size());
+            int i = 0;
+            for (JournalRecord record : journal) {
+                Assert.assertArrayEquals(entryIds.get(i++), record.getEntryId());
+            }
+            Assert.assertEquals(200, i);
+            lastSegment = directory.resolve(String.format("%010d%s", journal.get(entryIds.get(199)).getSegment(), ChainJournal.SEGMENT_SUFFIX));
+        }
+
+        // Simulate a torn write and a lost index
+        long validSize = Files.size(lastSegment);
+        Files.write(lastSegment, new byte[]{0, 0, 0, 100, 1, 2, 3}, StandardOpenOption.APPEND);
+        Files.delete(directory.resolve(ChainJournal.INDEX_FILE));
+        try (ChainJournal journal = ChainJournal.open(directory, CHAIN_ID)) {
+            Assert.assertEquals(validSize, Files.size(lastSegment));
+            Assert.assertEquals(200, journal.size());
+            for (byte[] entryId : entryIds) {
+                Assert.assertTrue(journal.contains(entryId));
+                Assert.assertArrayEquals(entryId, journal.get(entryId).getEntryId());
+            }
+            ImmutableEntryData entryData = ImmutableEntryData.newBuilder().externalId("after recovery").build();
+            journal.append(entryData, entryData.getExternalIds());
+            Assert.assertEquals(201, journal.size());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.links;
+
+import com.sphereon.libs.blockchain.api.HasValue;
+import com.sphereon.libs.blockchain.api.model.ChainId;
+import com.sphereon.libs.blockchain.api.model.EntryId;
+import com.sphereon.libs.blockchain.commons.Digest;
+import com.sphereon.libs.blockchain.commons.RegistrationType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestChainLinkGraph {
+
+    private static final ChainId CHAIN_A = chainId("a");
+    private static final ChainId CHAIN_B = chainId("b");
+    private static final ChainId CHAIN_C = chainId("c");
+
+    @Test
+    public void testDirectLinks() {
+        ChainLinkGraph graph = new ChainLinkGraph();
+        EntryId a1 = entryId("a1");
+        EntryId b1 = entryId("b1");
+        Assert.assertEquals(2, graph.addEntry(CHAIN_A, a1, externalIds(
+                "name", "document",
+                RegistrationType.Defaults.CHAIN_LINK_KEY + "Signature", target(CHAIN_B, b1),
+                RegistrationType.Defaults.CHAIN_LINK.getName(), target(CHAIN_C, null))));
+        // Adding the same entry again is a no-op
+        Assert.assertEquals(0, graph.addEntry(CHAIN_A, a1, externalIds(
+                RegistrationType.Defaults.CHAIN_LINK_KEY + "Signature", target(CHAIN_B, b1))));
+        Assert.assertEquals(2, graph.getLinkCount());
+
+        List<LinkNode> forward = graph.links(a1, ChainLinkGraph.Direction.FORWARD);
+        Assert.assertEquals(2, forward.size());
+        Assert.assertEquals(b1, forward.get(0).getEntryId());
+        Assert.assertEquals(CHAIN_B, forward.get(0).getChainId());
+        Assert.assertEquals("Signature", forward.get(0).getLinkType());
+        Assert.assertTrue(forward.get(1).isChain());
+        Assert.assertEquals(CHAIN_C, forward.get(1).getChainId());
+        Assert.assertEquals("ChainLink", forward.get(1).getLinkType());
+
+        // Links from the entries of a chain are links from the chain, and links to entries of a chain are links to the chain
+        Assert.assertEquals(forward, graph.links(CHAIN_A, ChainLinkGraph.Direction.FORWARD));
+        List<LinkNode> reverse = graph.links(CHAIN_B, ChainLinkGraph.Direction.REVERSE);
+        Assert.assertEquals(1, reverse.size());
+        Assert.assertEquals(a1, reverse.get(0).getEntryId());
+        Assert.assertEquals(reverse, graph.links(b1, ChainLinkGraph.Direction.REVERSE));
+        Assert.assertTrue(graph.links(chainId("unknown"), ChainLinkGraph.Direction.FORWARD).isEmpty());
+    }
+
+    @Test
+    public void testMalformedTargets() {
+        ChainLinkGraph graph = new ChainLinkGraph();
+        Assert.assertEquals(0, graph.addEntry(CHAIN_A, entryId("a1"), externalIds(
+                RegistrationType.Defaults.CHAIN_LINK_KEY + "Signature", "/ctx/chains/not-hex",
+                RegistrationType.Defaults.CHAIN_LINK_KEY + "Signature", "/ctx/chains/" + CHAIN_B.toHex().replace('0', 'x'),
+                "ChainLinkage", target(CHAIN_B, null),
+                RegistrationType.Defaults.CHAIN_LINK_KEY + "Signature")));
+        Assert.assertEquals(0, graph.getLinkCount());
+    }
+
+    @Test
+    public void testTraversalDepth() {
+        ChainLinkGraph graph = new ChainLinkGraph();
+        List<EntryId> entries = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            entries.add(entryId("chain " + i));
+        }
+        for (int i = 0; i + 1 < entries.size(); i++) {
+            graph.addLink(CHAIN_A, entries.get(i), "Next", CHAIN_A, entries.get(i + 1));
+        }
+        Assert.assertEquals(201, graph.getNodeCount());
+
+        List<LinkNode> nodes = graph.traverse(entries.get(0), ChainLinkGraph.Direction.FORWARD, 5);
+        Assert.assertEquals(5, nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            Assert.assertEquals(entries.get(i + 1), nodes.get(i).getEntryId());
+            Assert.assertEquals(i + 1, nodes.get(i).getDepth());
+        }
+        Assert.assertEquals(199, graph.traverse(entries.get(199), ChainLinkGraph.Direction.REVERSE, 1000).size());
+        Assert.assertFalse(graph.hasCycle());
+
+        graph.addLink(CHAIN_A, entries.get(199), "Next", CHAIN_A, entries.get(100));
+        Assert.assertTrue(graph.hasCycle());
+        List<LinkNode> cycle = graph.findCycle(entries.get(0));
+        Assert.assertEquals(100, cycle.size());
+        Assert.assertEquals(entries.get(100), cycle.get(0).getEntryId());
+        Assert.assertEquals(entries.get(199), cycle.get(99).getEntryId());
+        // Visited once, even though the entry is reachable again through the cycle
+        Assert.assertEquals(199, graph.traverse(entries.get(0), ChainLinkGraph.Direction.FORWARD, 1000).size());
+    }
+
+    @Test
+    public void testCycleThroughChain() {
+        ChainLinkGraph graph = new ChainLinkGraph();
+        EntryId a1 = entryId("a1");
+        EntryId b1 = entryId("b1");
+        graph.addEntry(CHAIN_A, a1, externalIds(RegistrationType.Defaults.CHAIN_LINK_KEY + "Parent", target(CHAIN_B, null)));
+        Assert.assertFalse(graph.hasCycle());
+        graph.addEntry(CHAIN_B, b1, externalIds(RegistrationType.Defaults.CHAIN_LINK_KEY + "Child", target(CHAIN_A, a1)));
+        List<LinkNode> cycle = graph.findCycle();
+        Assert.assertEquals(3, cycle.size());
+        Assert.assertTrue(cycle.contains(new LinkNode(CHAIN_B, null, 0, null)));
+        Assert.assertTrue(cycle.contains(new LinkNode(CHAIN_A, a1, 0, null)));
+        Assert.assertTrue(cycle.contains(new LinkNode(CHAIN_B, b1, 0, null)));
+    }
+
+
+    private static List<HasValue<byte[]>> externalIds(String... values) {
+        List<HasValue<byte[]>> externalIds = new ArrayList<>();
+        for (String value : values) {
+            externalIds.add(HasValue.Impl.of(value.getBytes()));
+        }
+        return externalIds;
+    }
+
+    private static String target(ChainId chainId, EntryId entryId) {
+        return "/test/chains/" + chainId.toHex() + (entryId == null ? "" : "/entries/" + entryId.toHex());
+    }
+
+    private static ChainId chainId(String seed) {
+        return ChainId.fromBytes(Digest.getInstance().getSHA256Hash(seed.getBytes()));
+    }
+
+    private static EntryId entryId(String seed) {
+        return EntryId.fromBytes(Digest.getInstance().getSHA256Hash(("entry " + seed).getBytes()));
+    }
+}
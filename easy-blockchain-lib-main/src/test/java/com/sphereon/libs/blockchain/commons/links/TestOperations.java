@@ -16,7 +16,9 @@
 
 package com.sphereon.libs.blockchain.commons.links;
 
+import com.sphereon.libs.blockchain.api.model.ChainId;
 import com.sphereon.libs.blockchain.commons.Digest;
+import com.sphereon.libs.blockchain.commons.EntryValidationException;
 import com.sphereon.libs.blockchain.commons.Operations;
 import com.sphereon.libs.blockchain.api.HasContent;
 import com.sphereon.libs.blockchain.api.HasValue;
@@ -47,6 +49,8 @@ public class TestOperations {
         Assert.assertEquals(CHAIN_ID, operations.calculateChainIdBase(externalIds).stringHash(Digest.Algorithm.SHA_256, Digest.Encoding.HEX));
         Assert.assertEquals(CHAIN_ID, operations.generateChainId(externalIds));
         Assert.assertEquals("322b18e1f267202565bf0d1ee03865f076fd22357ff6dc46c7a6dfef454f3871", operations.generateFirstEntryId(null, externalIds));
+        Assert.assertEquals(CHAIN_ID, operations.calculateChainId(externalIds).toHex());
+        Assert.assertEquals("322b18e1f267202565bf0d1ee03865f076fd22357ff6dc46c7a6dfef454f3871", operations.calculateEntryId(null, null, externalIds).toHex());
     }
 
     @Test
@@ -55,6 +59,76 @@ public class TestOperations {
         Data content = new Data(ENTRY_CONTENT);
         Assert.assertEquals(ENTRY_ID, operations.calculateEntryIdBase(CHAIN_ID, content, externalIds).stringHash(Digest.Algorithm.SHA_256, Digest.Encoding.HEX));
         Assert.assertEquals(ENTRY_ID, operations.generateEntryID(CHAIN_ID, content, externalIds));
+        Assert.assertEquals(ENTRY_ID, operations.calculateEntryId(ChainId.fromHex(CHAIN_ID), content, externalIds).toHex());
+        Assert.assertArrayEquals(operations.entryToBytes(CHAIN_ID, content, externalIds).original(),
+                operations.chainEntryToBytes(ChainId.fromHex(CHAIN_ID), content, externalIds).original());
+        Assert.assertSame(operations.parseChainId(CHAIN_ID), operations.parseChainId(CHAIN_ID));
+    }
+
+    @Test
+    public void testShortChainIdHex() {
+        Collection<Data> externalIds = new Data(ENTRY_FIRST_EXTERNAL_ID).collect(ENTRY_SECOND_EXTERNAL_ID);
+        Data content = new Data(ENTRY_CONTENT);
+        byte[] full = operations.chainEntryToBytes(ChainId.fromHex(CHAIN_ID), content, externalIds).original();
+        // The hex based methods serialize chain Ids of other sizes as decoded
+        byte[] expected = new byte[full.length - ChainId.LENGTH + 2];
+        expected[1] = 0x0a;
+        expected[2] = 0x0b;
+        System.arraycopy(full, 1 + ChainId.LENGTH, expected, 3, full.length - 1 - ChainId.LENGTH);
+        Assert.assertArrayEquals(expected, operations.entryToBytes("0a0b", content, externalIds).original());
+
+        Digest digest = Digest.getInstance();
+        byte[] hashBase = new byte[64 + expected.length];
+        System.arraycopy(digest.getSHA512Hash(expected), 0, hashBase, 0, 64);
+        System.arraycopy(expected, 0, hashBase, 64, expected.length);
+        Assert.assertEquals(digest.getHashAsString(Digest.Algorithm.SHA_256, hashBase, Digest.Encoding.HEX),
+                operations.generateEntryID("0a0b", content, externalIds));
+
+        try {
+            operations.parseChainId("0a0b");
+            Assert.fail("Parsing a chain Id needs 64 hex characters");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+
+    @Test
+    public void testEntrySize() {
+        Collection<Data> externalIds = new Data(ENTRY_FIRST_EXTERNAL_ID).collect(ENTRY_SECOND_EXTERNAL_ID);
+        Data content = new Data(ENTRY_CONTENT);
+        int size = operations.entryToBytes(CHAIN_ID, content, externalIds).original().length;
+        Assert.assertEquals(size, operations.entrySize(content, externalIds));
+        Assert.assertEquals(size, operations.entrySize(ENTRY_CONTENT.length(), 2, ENTRY_FIRST_EXTERNAL_ID.length() + ENTRY_SECOND_EXTERNAL_ID.length()));
+        Assert.assertEquals(operations.entryToBytes(CHAIN_ID, content, null).original().length, operations.entrySize(content, null));
+        Assert.assertEquals(ENTRY_CONTENT.length() + 4 + ENTRY_FIRST_EXTERNAL_ID.length() + ENTRY_SECOND_EXTERNAL_ID.length(), operations.payloadSize(content, externalIds));
+
+        Assert.assertEquals(1, operations.paymentUnits(content, externalIds));
+        Assert.assertEquals(11, operations.chainPaymentUnits(content, externalIds));
+        Assert.assertEquals(1, operations.paymentUnits(1024));
+        Assert.assertEquals(2, operations.paymentUnits(1025));
+        Assert.assertEquals(10, operations.paymentUnits(Operations.MAX_PAYLOAD_SIZE));
+    }
+
+    @Test
+    public void testEntryLimits() {
+        Collection<Data> externalIds = new Data(new byte[20000]).collect(new Data(new byte[20000]));
+        try {
+            operations.entryToBytes(CHAIN_ID, null, externalIds);
+            Assert.fail("External Ids exceeding the 2 byte length field should be rejected");
+        } catch (EntryValidationException e) {
+            Assert.assertEquals(EntryValidationException.Reason.EXTERNAL_IDS_TOO_LARGE, e.getReason());
+            Assert.assertEquals(40004, e.getSize());
+        }
+
+        Data content = new Data(new byte[Operations.MAX_PAYLOAD_SIZE]);
+        Assert.assertEquals(Operations.MAX_PAYLOAD_SIZE, operations.validateEntry(content, null));
+        try {
+            operations.validateEntry(content, new Data("id").collect());
+            Assert.fail("Payload exceeding the maximum should be rejected");
+        } catch (EntryValidationException e) {
+            Assert.assertEquals(EntryValidationException.Reason.PAYLOAD_TOO_LARGE, e.getReason());
+        }
     }
 
 
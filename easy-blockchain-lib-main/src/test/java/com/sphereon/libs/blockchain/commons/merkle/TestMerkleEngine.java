@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.merkle;
+
+import com.sphereon.libs.blockchain.commons.Bytes;
+import com.sphereon.libs.blockchain.commons.Digest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class TestMerkleEngine {
+
+    private final Digest digest = Digest.getInstance();
+
+    @Test
+    public void testBitcoinBlock() {
+        // Block 100000 of the Bitcoin main chain, transaction Ids in internal byte order
+        String[] transactions = {
+                "8c14f0db3df150123e6f3dbbf30f8b955a8249b62ac1d1ff16284aefa3d06d87",
+                "fff2525b8931402dd09222c50775608f75787bd2b87e56995a7bdd30f79702c4",
+                "6359f0868171b1d194cbee1af2f16ea598ae8fad666d9b012c8ed2b79a236ec4",
+                "e9a66845e05d5abc0ad04ec80f774a7e585c6e8db975962d069a522137b80c1d"};
+        byte[] leaves = new byte[transactions.length * MerkleHash.LENGTH];
+        for (int i = 0; i < transactions.length; i++) {
+            System.arraycopy(reverse(Bytes.fromHex(transactions[i])), 0, leaves, i * MerkleHash.LENGTH, MerkleHash.LENGTH);
+        }
+        byte[] root = MerkleEngine.newBuilder().hash(MerkleHash.DOUBLE_SHA_256).build().root(leaves);
+        Assert.assertEquals("f3e94742aca4b5ef85488dc37c06c3282295ffec960994b2c0d5ac2a25a95766", Bytes.toHex(reverse(root)));
+    }
+
+    @Test
+    public void testSingleLeaf() {
+        byte[] leaf = leaf(0);
+        MerkleTree tree = MerkleEngine.newBuilder().build().build(leaf);
+        Assert.assertArrayEquals(leaf, tree.getRoot());
+        Assert.assertEquals(0, tree.getDepth());
+        MerkleProof proof = tree.proof(0);
+        Assert.assertEquals(0, proof.getSiblingCount());
+        Assert.assertTrue(proof.verify(leaf, leaf));
+    }
+
+    @Test
+    public void testProofs() {
+        for (int count : new int[]{2, 3, 5, 7, 16, 17, 100, 1000}) {
+            for (int cacheLevel : new int[]{0, 3, 5}) {
+                assertProofs(count, MerkleEngine.newBuilder().cacheLevel(cacheLevel).parallelism(1).build());
+            }
+        }
+        assertProofs(33, MerkleEngine.newBuilder().hash(MerkleHash.DOUBLE_SHA_256).build());
+    }
+
+    @Test
+    public void testParallel() {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            byte[] leaves = leaves(50001);
+            byte[] sequential = MerkleEngine.newBuilder().parallelism(1).build().root(leaves);
+            MerkleEngine engine = MerkleEngine.newBuilder().parallelism(4).executor(executor).build();
+            Assert.assertArrayEquals(sequential, engine.root(leaves));
+            MerkleTree tree = engine.build(leaves);
+            Assert.assertArrayEquals(sequential, tree.getRoot());
+            Assert.assertTrue(tree.proof(50000).verify(tree.getLeaf(50000), sequential));
+
+            // A shut down executor leaves all work to the calling thread
+            executor.shutdown();
+            Assert.assertArrayEquals(sequential, engine.root(leaves));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testAccumulator() {
+        MerkleEngine engine = MerkleEngine.newBuilder().build();
+        MerkleRootAccumulator accumulator = new MerkleRootAccumulator(MerkleHash.SHA_256);
+        List<byte[]> leaves = new ArrayList<>();
+        for (int i = 0; i < 70; i++) {
+            accumulator.add(leaf(i));
+            leaves.add(leaf(i));
+            Assert.assertArrayEquals(engine.root(leaves(i + 1)), accumulator.root());
+        }
+        Assert.assertArrayEquals(accumulator.root(), engine.root(leaves.iterator()));
+    }
+
+    @Test
+    public void testSerializedProof() {
+        MerkleTree tree = MerkleEngine.newBuilder().build().build(leaves(11));
+        MerkleProof proof = MerkleProof.fromBytes(tree.proof(10).toBytes());
+        Assert.assertEquals(10, proof.getLeafIndex());
+        Assert.assertEquals(11, proof.getLeafCount());
+        // Leaf 10 is the last node of odd levels twice, so it needs two siblings instead of four
+        Assert.assertEquals(2, proof.getSiblingCount());
+        Assert.assertTrue(proof.verify(leaf(10), tree.getRoot()));
+        Assert.assertFalse(proof.verify(leaf(9), tree.getRoot()));
+
+        byte[] bytes = tree.proof(3).toBytes();
+        bytes[bytes.length - 1] ^= 1;
+        Assert.assertFalse(MerkleProof.fromBytes(bytes).verify(leaf(3), tree.getRoot()));
+    }
+
+    private void assertProofs(final int count, MerkleEngine engine) {
+        final MerkleTree tree = engine.build(leaves(count));
+        final byte[] root = naiveRoot(count, engine.getHash());
+        Assert.assertArrayEquals(root, tree.getRoot());
+        for (int i = 0; i < count; i++) {
+            Assert.assertTrue("Leaf " + i + " of " + count, tree.proof(i).verify(leaf(i), root));
+        }
+        final int[] next = {0};
+        tree.proofs(new MerkleProofConsumer() {
+            @Override
+            public void onProof(MerkleProof proof) {
+                Assert.assertEquals(next[0], proof.getLeafIndex());
+                Assert.assertArrayEquals(root, proof.computeRoot(leaf(next[0]++)));
+            }
+        });
+        Assert.assertEquals(count, next[0]);
+    }
+
+    private byte[] naiveRoot(int count, MerkleHash hash) {
+        List<byte[]> level = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            level.add(leaf(i));
+        }
+        while (level.size() > 1) {
+            List<byte[]> parents = new ArrayList<>();
+            for (int i = 0; i < level.size(); i += 2) {
+                parents.add(hash.combine(level.get(i), level.get(Math.min(i + 1, level.size() - 1))));
+            }
+            level = parents;
+        }
+        return level.get(0);
+    }
+
+    private byte[] leaves(int count) {
+        byte[] leaves = new byte[count * MerkleHash.LENGTH];
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(leaf(i), 0, leaves, i * MerkleHash.LENGTH, MerkleHash.LENGTH);
+        }
+        return leaves;
+    }
+
+    private byte[] leaf(int i) {
+        return digest.getSHA256Hash(("leaf " + i).getBytes());
+    }
+
+    private static byte[] reverse(byte[] bytes) {
+        byte[] reversed = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            reversed[i] = bytes[bytes.length - 1 - i];
+        }
+        return reversed;
+    }
+}
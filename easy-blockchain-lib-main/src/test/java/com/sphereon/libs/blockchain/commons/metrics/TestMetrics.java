@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.metrics;
+
+import com.sphereon.libs.blockchain.api.HasContent;
+import com.sphereon.libs.blockchain.api.HasValue;
+import com.sphereon.libs.blockchain.commons.Digest;
+import com.sphereon.libs.blockchain.commons.Operations;
+import com.sphereon.libs.blockchain.commons.links.Link;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TestMetrics {
+
+    private static final String CHAIN_ID = "502b99271ff6a3f8509ba2764e1e1c1482ad800140c17b25e165837ab5320501";
+
+    @After
+    public void disable() {
+        Metrics.setRecorder(null);
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        Assert.assertFalse(Metrics.isEnabled());
+        // The no-op recorder accepts everything
+        Metrics.instruments().digest(Digest.Algorithm.SHA_256, 1, 1);
+    }
+
+    @Test
+    public void testRecorded() throws Exception {
+        RecordingRecorder recorder = new RecordingRecorder();
+        Metrics.setRecorder(recorder);
+        Assert.assertTrue(Metrics.isEnabled());
+
+        Digest digest = Digest.getInstance();
+        digest.getHash(Digest.Algorithm.SHA_256, new byte[100]);
+        digest.getHash(Digest.Algorithm.SHA_256, new ByteArrayInputStream(new byte[50]));
+        Assert.assertEquals(2, recorder.count(Metrics.DIGEST_TIME + "[algorithm, SHA-256]"));
+        Assert.assertEquals(150, recorder.total(Metrics.DIGEST_BYTES + "[algorithm, SHA-256]"));
+
+        List<HasValue<byte[]>> externalIds = Arrays.<HasValue<byte[]>>asList(HasValue.Impl.of("id".getBytes()));
+        Operations operations = Operations.getInstance();
+        operations.generateEntryID(CHAIN_ID, HasContent.Impl.of("content".getBytes()), externalIds);
+        Assert.assertEquals(1, recorder.count(Metrics.ENTRY_ID_TIME + "[]"));
+        Assert.assertEquals(1, recorder.count(Metrics.ENTRY_SERIALIZE_TIME + "[]"));
+        // version + chain id + ext ids (2 + 2 + 2) + content
+        Assert.assertEquals(1 + 32 + 6 + 7, recorder.total(Metrics.ENTRY_SIZE + "[]"));
+
+        operations.calculateChainIdBase(externalIds);
+        Assert.assertEquals(1, recorder.count(Metrics.CHAIN_ID_BASE_TIME + "[]"));
+        operations.generateChainId(externalIds);
+        Assert.assertEquals(1, recorder.count(Metrics.CHAIN_ID_TIME + "[]"));
+
+        // Other tests may have cached the chain id already, so only look at the difference
+        long hits = recorder.count(Metrics.CHAIN_ID_CACHE + "[result, hit]");
+        operations.parseChainId(CHAIN_ID);
+        operations.parseChainId(CHAIN_ID);
+        Assert.assertEquals(hits + 2, recorder.count(Metrics.CHAIN_ID_CACHE + "[result, hit]"));
+
+        new Link.Parser().targetLinkParts("/context/chains/" + CHAIN_ID);
+        Assert.assertEquals(1, recorder.count(Metrics.LINK_PARSE_TIME + "[]"));
+    }
+
+
+    private static class RecordingRecorder implements MetricsRecorder {
+        private final Map<String, Instrument> instruments = new ConcurrentHashMap<>();
+
+        @Override
+        public Counter counter(String name, String... tags) {
+            return instrument(name, tags);
+        }
+
+        @Override
+        public Timer timer(String name, String... tags) {
+            return instrument(name, tags);
+        }
+
+        @Override
+        public Histogram histogram(String name, String... tags) {
+            return instrument(name, tags);
+        }
+
+        long count(String key) {
+            Instrument instrument = instruments.get(key);
+            return instrument == null ? 0 : instrument.count.get();
+        }
+
+        long total(String key) {
+            Instrument instrument = instruments.get(key);
+            return instrument == null ? 0 : instrument.total.get();
+        }
+
+        private Instrument instrument(String name, String... tags) {
+            String key = name + Arrays.toString(tags);
+            Instrument instrument = instruments.get(key);
+            if (instrument == null) {
+                instrument = new Instrument();
+                instruments.put(key, instrument);
+            }
+            return instrument;
+        }
+    }
+
+
+    private static class Instrument implements Counter, Timer, Histogram {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong total = new AtomicLong();
+
+        @Override
+        public void increment(long amount) {
+            count.incrementAndGet();
+            total.addAndGet(amount);
+        }
+
+        @Override
+        public void record(long value) {
+            count.incrementAndGet();
+            total.addAndGet(value);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.offheap;
+
+import com.sphereon.libs.blockchain.api.HasContent;
+import com.sphereon.libs.blockchain.api.HasValue;
+import com.sphereon.libs.blockchain.api.model.ChainId;
+import com.sphereon.libs.blockchain.api.model.EntryId;
+import com.sphereon.libs.blockchain.commons.Digest;
+import com.sphereon.libs.blockchain.commons.Operations;
+import com.sphereon.libs.blockchain.commons.ingest.EntryHasher;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestDigestTable {
+
+    private static final String CHAIN_ID = "502b99271ff6a3f8509ba2764e1e1c1482ad800140c17b25e165837ab5320501";
+    private static final String ENTRY_ID = "3d945a53b2e0ec5bc4464ae83955e818b6cb5906c93a1eaf80291bd1e241653c";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Digest digest = Digest.getInstance();
+
+    @Test
+    public void testSetGrows() {
+        try (DigestSet set = DigestSet.newBuilder().expectedSize(10).segments(2).build()) {
+            long initialBytes = set.getSizeInBytes();
+            for (int i = 0; i < 10000; i++) {
+                Assert.assertTrue(set.add(key(i)));
+                Assert.assertFalse(set.add(key(i)));
+            }
+            Assert.assertEquals(10000, set.size());
+            Assert.assertTrue(set.getSizeInBytes() > initialBytes);
+            for (int i = 0; i < 10000; i++) {
+                Assert.assertTrue(set.contains(key(i)));
+            }
+            Assert.assertFalse(set.contains(key(10000)));
+
+            // The all zero key marks empty slots internally
+            Assert.assertFalse(set.contains(new byte[32]));
+            Assert.assertTrue(set.add(new byte[32]));
+            Assert.assertTrue(set.contains(new byte[32]));
+            Assert.assertEquals(10001, set.size());
+        }
+    }
+
+    @Test
+    public void testMaps() {
+        try (DigestLongMap longs = DigestLongMap.newBuilder().segments(1).build();
+             DigestIntMap ints = DigestIntMap.newBuilder().build()) {
+            EntryId entryId = EntryId.fromHex(ENTRY_ID);
+            Assert.assertEquals(DigestLongMap.NO_VALUE, longs.get(entryId));
+            Assert.assertEquals(DigestLongMap.NO_VALUE, longs.put(entryId, Long.MAX_VALUE));
+            Assert.assertEquals(Long.MAX_VALUE, longs.putIfAbsent(entryId, 1));
+            Assert.assertEquals(Long.MAX_VALUE, longs.put(entryId, 2));
+            Assert.assertEquals(2, longs.get(entryId));
+            Assert.assertTrue(longs.containsKey(entryId));
+
+            Assert.assertEquals(DigestIntMap.NO_VALUE, ints.put(entryId, DigestIntMap.NO_VALUE));
+            Assert.assertTrue(ints.containsKey(entryId));
+            Assert.assertEquals(DigestIntMap.NO_VALUE, ints.get(entryId));
+            Assert.assertFalse(ints.containsKey(ChainId.fromHex(CHAIN_ID)));
+        }
+    }
+
+    @Test
+    public void testFileBacked() {
+        Path directory = folder.getRoot().toPath().resolve("table");
+        try (DigestLongMap map = DigestLongMap.newBuilder().expectedSize(100).segments(4).directory(directory).build()) {
+            for (int i = 0; i < 5000; i++) {
+                map.put(key(i), 0, i);
+            }
+        }
+        try (DigestLongMap map = DigestLongMap.newBuilder().segments(4).directory(directory).build()) {
+            Assert.assertEquals(5000, map.size());
+            for (int i = 0; i < 5000; i++) {
+                Assert.assertEquals(i, map.get(key(i), 0));
+            }
+        }
+        try {
+            DigestSet.newBuilder().segments(4).directory(directory).build();
+            Assert.fail("A set cannot open the segments of a map");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage().contains("layout"));
+        }
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        final DigestSet set = DigestSet.newBuilder().expectedSize(16).segments(4).build();
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger added = new AtomicInteger();
+        final AtomicInteger missing = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    // All threads add the same keys, and read them back while other threads grow the segments
+                    for (int i = 0; i < 5000; i++) {
+                        byte[] key = key(i);
+                        if (set.add(key)) {
+                            added.incrementAndGet();
+                        }
+                        if (!set.contains(key)) {
+                            missing.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(5000, added.get());
+        Assert.assertEquals(0, missing.get());
+        Assert.assertEquals(5000, set.size());
+        set.close();
+    }
+
+    @Test
+    public void testOverloads() {
+        ChainId chainId = ChainId.fromHex(CHAIN_ID);
+        List<HasValue<byte[]>> externalIds = Arrays.<HasValue<byte[]>>asList(
+                HasValue.Impl.of("first entry external id".getBytes()), HasValue.Impl.of("second entry external id".getBytes()));
+        HasContent<byte[]> content = HasContent.Impl.of("Test Entry Content".getBytes());
+
+        try (DigestSet set = DigestSet.newBuilder().build(); DigestLongMap map = DigestLongMap.newBuilder().build()) {
+            Assert.assertTrue(Operations.getInstance().calculateEntryId(chainId, content, externalIds, set));
+            Assert.assertFalse(new EntryHasher().entryId(chainId, content, externalIds, set));
+            Assert.assertTrue(set.contains(EntryId.fromHex(ENTRY_ID)));
+            Assert.assertEquals(DigestLongMap.NO_VALUE, new EntryHasher().entryId(chainId, content, externalIds, map, 7));
+            Assert.assertEquals(7, Operations.getInstance().calculateEntryId(chainId, content, externalIds, map, 8));
+
+            Assert.assertTrue(digest.getSHA256Hash(content.getContent(), set));
+            Assert.assertTrue(set.contains(digest.getSHA256Hash(content.getContent())));
+            Assert.assertEquals(DigestLongMap.NO_VALUE, digest.getSHA256Hash(content.getContent(), map, 1));
+        }
+    }
+
+    private byte[] key(int i) {
+        return digest.getSHA256Hash(("key " + i).getBytes());
+    }
+}
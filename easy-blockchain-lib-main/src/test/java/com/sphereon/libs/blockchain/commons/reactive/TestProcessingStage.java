@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.reactive;
+
+import com.sphereon.libs.blockchain.api.model.ChainId;
+import com.sphereon.libs.blockchain.api.model.ImmutableEntryData;
+import com.sphereon.libs.blockchain.commons.Operations;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class TestProcessingStage {
+
+    private static final String CHAIN_ID = "502b99271ff6a3f8509ba2764e1e1c1482ad800140c17b25e165837ab5320501";
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testOrdered() throws Exception {
+        ProcessingStage<Integer, Integer> stage = ProcessingStage.newBuilder(randomDelay()).executor(executor).parallelism(4).ordered(true).build();
+        CollectingSubscriber<Integer> subscriber = new CollectingSubscriber<>(3);
+        stage.from(Publishers.fromIterable(range(200))).subscribe(subscriber);
+
+        Assert.assertTrue(subscriber.await());
+        Assert.assertNull(subscriber.error);
+        Assert.assertEquals(range(200), subscriber.items);
+    }
+
+    @Test
+    public void testUnordered() throws Exception {
+        ProcessingStage<Integer, Integer> stage = ProcessingStage.newBuilder(randomDelay()).executor(executor).parallelism(4).ordered(false).build();
+        CollectingSubscriber<Integer> subscriber = new CollectingSubscriber<>(Long.MAX_VALUE);
+        stage.from(Publishers.fromIterable(range(200))).subscribe(subscriber);
+
+        Assert.assertTrue(subscriber.await());
+        List<Integer> items = new ArrayList<>(subscriber.items);
+        Collections.sort(items);
+        Assert.assertEquals(range(200), items);
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        final AtomicInteger pulled = new AtomicInteger();
+        // An endless source, which would exhaust memory without bounded demand
+        Iterable<Integer> endless = new Iterable<Integer>() {
+            @Override
+            public Iterator<Integer> iterator() {
+                return new Iterator<Integer>() {
+                    @Override
+                    public boolean hasNext() {
+                        return true;
+                    }
+
+                    @Override
+                    public Integer next() {
+                        return pulled.incrementAndGet();
+                    }
+                };
+            }
+        };
+        ProcessingStage<Integer, Integer> stage = ProcessingStage.newBuilder(randomDelay()).executor(executor).parallelism(2).bufferSize(8).build();
+        CollectingSubscriber<Integer> subscriber = new CollectingSubscriber<>(0);
+        stage.from(Publishers.fromIterable(endless)).subscribe(subscriber);
+
+        subscriber.subscription.request(5);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (subscriber.items.size() < 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(50);
+        Assert.assertEquals(5, subscriber.items.size());
+        // Never more than the emitted items plus the buffer
+        Assert.assertTrue("Pulled " + pulled.get(), pulled.get() <= 5 + 8);
+        subscriber.subscription.cancel();
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        ProcessingStage<Integer, Integer> stage = ProcessingStage.newBuilder(new Function<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer value) {
+                if (value == 50) {
+                    throw new IllegalStateException("Failed on " + value);
+                }
+                return value;
+            }
+        }).executor(executor).parallelism(4).build();
+        CollectingSubscriber<Integer> subscriber = new CollectingSubscriber<>(Long.MAX_VALUE);
+        stage.from(Publishers.fromIterable(range(200))).subscribe(subscriber);
+
+        Assert.assertTrue(subscriber.await());
+        Assert.assertTrue(subscriber.error instanceof IllegalStateException);
+        Assert.assertTrue(subscriber.items.size() <= 50);
+    }
+
+    @Test
+    public void testEntryPipeline() throws Exception {
+        List<ImmutableEntryData> entries = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            entries.add(ImmutableEntryData.newBuilder().externalId("entry").externalId(String.valueOf(i)).content("content " + i).build());
+        }
+        ChainId chainId = ChainId.fromHex(CHAIN_ID);
+        ProcessingStage<ImmutableEntryData, PreparedEntry> stage = ProcessingStage.newBuilder(EntryStages.prepare(chainId))
+                .executor(executor).parallelism(4).build();
+        CollectingSubscriber<PreparedEntry> subscriber = new CollectingSubscriber<>(7);
+        stage.from(Publishers.fromIterable(entries)).subscribe(subscriber);
+
+        Assert.assertTrue(subscriber.await());
+        Assert.assertEquals(entries.size(), subscriber.items.size());
+        Operations operations = Operations.getInstance();
+        for (int i = 0; i < entries.size(); i++) {
+            PreparedEntry prepared = subscriber.items.get(i);
+            ImmutableEntryData entryData = entries.get(i);
+            Assert.assertSame(entryData, prepared.getEntryData());
+            Assert.assertEquals(operations.generateEntryID(CHAIN_ID, entryData, entryData.getExternalIds()), prepared.getEntryId().toHex());
+            Assert.assertArrayEquals(operations.entryToBytes(CHAIN_ID, entryData, entryData.getExternalIds()).original(), prepared.getEntryBytes());
+        }
+    }
+
+    private static List<Integer> range(int size) {
+        List<Integer> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(i);
+        }
+        return values;
+    }
+
+    private static Function<Integer, Integer> randomDelay() {
+        return new Function<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer value) {
+                try {
+                    Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return value;
+            }
+        };
+    }
+
+
+    /**
+     * Requests a fixed batch every time the previous batch has been received
+     */
+    private static class CollectingSubscriber<T> implements Subscriber<T> {
+        private final long batch;
+        private final List<T> items = Collections.synchronizedList(new ArrayList<T>());
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Subscription subscription;
+        private volatile Throwable error;
+        private long remaining;
+
+        private CollectingSubscriber(long batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            if (batch > 0) {
+                remaining = batch;
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+            if (batch > 0 && batch != Long.MAX_VALUE && --remaining == 0) {
+                remaining = batch;
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+
+        private boolean await() throws InterruptedException {
+            return done.await(30, TimeUnit.SECONDS);
+        }
+    }
+}
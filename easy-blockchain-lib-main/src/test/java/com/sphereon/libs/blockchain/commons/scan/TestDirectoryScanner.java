@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.scan;
+
+import com.sphereon.libs.blockchain.api.model.ImmutableExternalId;
+import com.sphereon.libs.blockchain.commons.Digest;
+import com.sphereon.libs.blockchain.commons.RegistrationType;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestDirectoryScanner {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Digest digest = Digest.getInstance();
+
+    @Test
+    public void testScan() throws Exception {
+        Path root = folder.newFolder("documents").toPath();
+        final Map<String, byte[]> expected = new ConcurrentHashMap<>();
+        for (int d = 0; d < 5; d++) {
+            Path directory = Files.createDirectories(root.resolve("dir" + d).resolve("sub"));
+            for (int f = 0; f < 20; f++) {
+                byte[] data = ("document " + d + "-" + f).getBytes();
+                Files.write(directory.resolve("file" + f + ".txt"), data);
+                expected.put("dir" + d + "/sub/file" + f + ".txt", data);
+            }
+        }
+        // Above the map threshold below
+        byte[] large = new byte[300000];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) (i * 31);
+        }
+        Files.write(root.resolve("large.bin"), large);
+        expected.put("large.bin", large);
+
+        ExecutorService cpu = Executors.newFixedThreadPool(3);
+        try {
+            final Map<String, FileEntry> found = new ConcurrentHashMap<>();
+            final AtomicInteger concurrent = new AtomicInteger();
+            DirectoryScanner scanner = DirectoryScanner.newBuilder(root)
+                    .context("test")
+                    .cpuExecutor(cpu)
+                    .ioThreads(2)
+                    .maxInFlight(4)
+                    .mapThreshold(100000)
+                    .build();
+            ScanResult result = scanner.scan(new FileEntryConsumer() {
+                @Override
+                public void onFileEntry(FileEntry fileEntry) {
+                    Assert.assertEquals(1, concurrent.incrementAndGet());
+                    found.put(fileEntry.getDocumentId(), fileEntry);
+                    concurrent.decrementAndGet();
+                }
+            }).get(30, TimeUnit.SECONDS);
+
+            Assert.assertEquals(expected.size(), result.getFileCount());
+            Assert.assertEquals(11, result.getDirectoryCount());
+            Assert.assertTrue(result.getFailures().isEmpty());
+            Assert.assertEquals(expected.keySet(), found.keySet());
+            for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+                FileEntry fileEntry = found.get(entry.getKey());
+                Assert.assertArrayEquals(digest.getSHA256Hash(entry.getValue()), fileEntry.getContentHash());
+                Assert.assertEquals(entry.getValue().length, fileEntry.getSize());
+            }
+
+            List<ImmutableExternalId> externalIds = found.get("large.bin").getEntryData().getExternalIds();
+            Assert.assertEquals(8, externalIds.size());
+            Assert.assertEquals(RegistrationType.Defaults.ROOT.getName(), new String(externalIds.get(0).getValue()));
+            Assert.assertEquals("documents", new String(externalIds.get(1).getValue()));
+            Assert.assertEquals("test", new String(externalIds.get(3).getValue()));
+            Assert.assertEquals("large.bin", new String(externalIds.get(5).getValue()));
+            Assert.assertEquals(RegistrationType.Defaults.HASH.getName(), new String(externalIds.get(6).getValue()));
+            Assert.assertArrayEquals(digest.getSHA256Hash(large), externalIds.get(7).getValue());
+            Assert.assertEquals(0, found.get("large.bin").toEntry().getEntryData().getContent().length);
+        } finally {
+            cpu.shutdown();
+        }
+    }
+
+    @Test
+    public void testFilterAndTypes() throws Exception {
+        Path root = folder.newFolder("filtered").toPath();
+        Files.write(root.resolve("keep.pdf"), "keep".getBytes());
+        Files.write(root.resolve("skip.tmp"), "skip".getBytes());
+        final Map<String, FileEntry> found = new ConcurrentHashMap<>();
+        DirectoryScanner.newBuilder(root)
+                .registrationTypes(RegistrationType.Defaults.HASH)
+                .filter(new DirectoryStream.Filter<Path>() {
+                    @Override
+                    public boolean accept(Path entry) {
+                        return entry.toString().endsWith(".pdf");
+                    }
+                })
+                .build()
+                .scan(new FileEntryConsumer() {
+                    @Override
+                    public void onFileEntry(FileEntry fileEntry) {
+                        found.put(fileEntry.getDocumentId(), fileEntry);
+                    }
+                }).get(30, TimeUnit.SECONDS);
+        Assert.assertEquals(1, found.size());
+        Assert.assertEquals(2, found.get("keep.pdf").getEntryData().getExternalIds().size());
+    }
+
+    @Test
+    public void testConsumerFailureAbortsScan() throws Exception {
+        Path root = folder.newFolder("aborted").toPath();
+        for (int i = 0; i < 50; i++) {
+            Files.write(root.resolve("file" + i), new byte[]{(byte) i});
+        }
+        final AtomicInteger calls = new AtomicInteger();
+        try {
+            DirectoryScanner.newBuilder(root).maxInFlight(2).build().scan(new FileEntryConsumer() {
+                @Override
+                public void onFileEntry(FileEntry fileEntry) {
+                    calls.incrementAndGet();
+                    throw new IllegalStateException("Consumer failure");
+                }
+            }).get(30, TimeUnit.SECONDS);
+            Assert.fail("Scan failure expected");
+        } catch (ExecutionException e) {
+            Assert.assertEquals("Consumer failure", e.getCause().getMessage());
+        }
+        Assert.assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testBackPressure() throws Exception {
+        Path root = folder.newFolder("slow").toPath();
+        for (int d = 0; d < 3; d++) {
+            Path directory = Files.createDirectories(root.resolve("dir" + d));
+            for (int f = 0; f < 10; f++) {
+                Files.write(directory.resolve("file" + f), new byte[]{(byte) d, (byte) f});
+            }
+        }
+        final ExecutorService cpu = Executors.newFixedThreadPool(3);
+        final AtomicInteger submitted = new AtomicInteger();
+        final AtomicInteger delivered = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        try {
+            ScanResult result = DirectoryScanner.newBuilder(root)
+                    .ioThreads(3)
+                    .maxInFlight(1)
+                    .cpuExecutor(new Executor() {
+                        @Override
+                        public void execute(Runnable command) {
+                            submitted.incrementAndGet();
+                            cpu.execute(command);
+                        }
+                    })
+                    .build()
+                    .scan(new FileEntryConsumer() {
+                        @Override
+                        public void onFileEntry(FileEntry fileEntry) {
+                            maxInFlight.set(Math.max(maxInFlight.get(), submitted.get() - delivered.get()));
+                            try {
+                                // The walkers have to wait for this slow consumer
+                                Thread.sleep(5);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            delivered.incrementAndGet();
+                        }
+                    }).get(30, TimeUnit.SECONDS);
+            Assert.assertEquals(30, result.getFileCount());
+            Assert.assertEquals(30, delivered.get());
+            Assert.assertEquals(1, maxInFlight.get());
+        } finally {
+            cpu.shutdown();
+        }
+    }
+
+    @Test
+    public void testRejectingCpuExecutor() throws Exception {
+        Path root = folder.newFolder("rejected").toPath();
+        for (int i = 0; i < 20; i++) {
+            Files.write(root.resolve("file" + i), new byte[]{(byte) i});
+        }
+        ExecutorService cpu = Executors.newSingleThreadExecutor();
+        cpu.shutdown();
+        final AtomicInteger found = new AtomicInteger();
+        ScanResult result = DirectoryScanner.newBuilder(root).cpuExecutor(cpu).build().scan(new FileEntryConsumer() {
+            @Override
+            public void onFileEntry(FileEntry fileEntry) {
+                found.incrementAndGet();
+            }
+        }).get(30, TimeUnit.SECONDS);
+        Assert.assertEquals(20, result.getFileCount());
+        Assert.assertEquals(20, found.get());
+    }
+
+    @Test
+    public void testFailures() throws Exception {
+        Path root = folder.newFolder("failures").toPath();
+        Files.write(root.resolve("readable"), "readable".getBytes());
+        final Path vanished = Files.write(root.resolve("vanished"), "vanished".getBytes());
+        Path broken = Files.createSymbolicLink(root.resolve("broken"), root.resolve("missing"));
+        Path unreadable = Files.write(root.resolve("unreadable"), "unreadable".getBytes());
+        boolean permissions = unreadable.toFile().setReadable(false) && !Files.isReadable(unreadable);
+
+        final Map<String, FileEntry> found = new ConcurrentHashMap<>();
+        ScanResult result = DirectoryScanner.newBuilder(root)
+                .followLinks(true)
+                .filter(new DirectoryStream.Filter<Path>() {
+                    @Override
+                    public boolean accept(Path entry) throws IOException {
+                        // Removed between the listing and the read
+                        if (entry.equals(vanished)) {
+                            Files.delete(entry);
+                        }
+                        return true;
+                    }
+                })
+                .build()
+                .scan(new FileEntryConsumer() {
+                    @Override
+                    public void onFileEntry(FileEntry fileEntry) {
+                        found.put(fileEntry.getDocumentId(), fileEntry);
+                    }
+                }).get(30, TimeUnit.SECONDS);
+
+        Assert.assertTrue(found.containsKey("readable"));
+        Assert.assertTrue(result.getFailures().get(vanished) instanceof NoSuchFileException);
+        Assert.assertTrue(result.getFailures().get(broken) instanceof NoSuchFileException);
+        // Permissions do not stop the super user
+        if (permissions) {
+            Assert.assertTrue(result.getFailures().get(unreadable) instanceof AccessDeniedException);
+            Assert.assertEquals(3, result.getFailures().size());
+            Assert.assertEquals(1, result.getFileCount());
+        } else {
+            Assert.assertEquals(2, result.getFailures().size());
+            Assert.assertEquals(2, result.getFileCount());
+        }
+    }
+
+    @Test
+    public void testFollowLinksCycle() throws Exception {
+        Path root = folder.newFolder("linked").toPath();
+        Path directory = Files.createDirectories(root.resolve("dir").resolve("sub"));
+        Files.write(root.resolve("top.txt"), "top".getBytes());
+        Files.write(directory.resolve("deep.txt"), "deep".getBytes());
+        // Links back to the root and to a parent, either of which loops forever without cycle detection
+        Files.createSymbolicLink(directory.resolve("root"), root);
+        Files.createSymbolicLink(directory.resolve("parent"), directory.getParent());
+
+        final Map<String, FileEntry> found = new ConcurrentHashMap<>();
+        FileEntryConsumer consumer = new FileEntryConsumer() {
+            @Override
+            public void onFileEntry(FileEntry fileEntry) {
+                found.put(fileEntry.getDocumentId(), fileEntry);
+            }
+        };
+        ScanResult result = DirectoryScanner.newBuilder(root).followLinks(true).build().scan(consumer).get(30, TimeUnit.SECONDS);
+        Assert.assertEquals(2, result.getFileCount());
+        Assert.assertEquals(3, result.getDirectoryCount());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("top.txt", "dir/sub/deep.txt")), found.keySet());
+
+        // Without following, the links are skipped
+        found.clear();
+        result = DirectoryScanner.newBuilder(root).build().scan(consumer).get(30, TimeUnit.SECONDS);
+        Assert.assertEquals(2, result.getFileCount());
+        Assert.assertEquals(3, result.getDirectoryCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedType() throws IOException {
+        DirectoryScanner.newBuilder(folder.newFolder().toPath()).registrationTypes(RegistrationType.Defaults.SITE);
+    }
+}
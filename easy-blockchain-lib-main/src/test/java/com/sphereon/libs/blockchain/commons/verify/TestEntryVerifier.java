@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.verify;
+
+import com.sphereon.libs.blockchain.api.HasContent;
+import com.sphereon.libs.blockchain.api.HasValue;
+import com.sphereon.libs.blockchain.api.model.ChainId;
+import com.sphereon.libs.blockchain.api.model.EntryId;
+import com.sphereon.libs.blockchain.api.model.ImmutableExternalId;
+import com.sphereon.libs.blockchain.commons.Operations;
+import com.sphereon.libs.blockchain.commons.ingest.EntryHasher;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestEntryVerifier {
+
+    private static final String CHAIN_ID = "502b99271ff6a3f8509ba2764e1e1c1482ad800140c17b25e165837ab5320501";
+
+    private final Operations operations = Operations.getInstance();
+
+    @Test
+    public void testChainIdHasher() {
+        List<HasValue<byte[]>> externalIds = Arrays.<HasValue<byte[]>>asList(
+                HasValue.Impl.of("first external id".getBytes()), ImmutableExternalId.of("second external id".getBytes()));
+        byte[] chainId = new byte[EntryHasher.ENTRY_ID_LENGTH];
+        EntryHasher hasher = new EntryHasher();
+        Assert.assertEquals(35, hasher.chainId(externalIds, chainId, 0));
+        Assert.assertEquals(CHAIN_ID, ChainId.fromBytes(chainId).toHex());
+        // Reused digests give the same result
+        hasher.chainId(externalIds, chainId, 0);
+        Assert.assertTrue(ChainId.fromHex(CHAIN_ID).matchesInConstantTime(chainId, 0));
+        chainId[31] ^= 1;
+        Assert.assertFalse(ChainId.fromHex(CHAIN_ID).matchesInConstantTime(chainId, 0));
+    }
+
+    @Test
+    public void testVerify() throws Exception {
+        ChainId chainId = ChainId.fromHex(CHAIN_ID);
+        List<VerificationRecord> records = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            HasContent<byte[]> content = HasContent.Impl.of(("content " + i).getBytes());
+            List<HasValue<byte[]>> externalIds = Collections.<HasValue<byte[]>>singletonList(HasValue.Impl.of(("id " + i).getBytes()));
+            EntryId entryId = operations.calculateEntryId(chainId, content, externalIds);
+            if (i == 1234) {
+                // Tampered content
+                content = HasContent.Impl.of("tampered".getBytes());
+            }
+            records.add(VerificationRecord.entry(i, entryId, chainId, content, externalIds));
+        }
+        List<HasValue<byte[]>> chainExternalIds = Collections.<HasValue<byte[]>>singletonList(HasValue.Impl.of("chain".getBytes()));
+        records.add(VerificationRecord.chain("valid chain", operations.calculateChainId(chainExternalIds), chainExternalIds));
+        records.add(VerificationRecord.chain("wrong chain", chainId, chainExternalIds));
+        List<HasValue<byte[]>> tooLarge = Collections.<HasValue<byte[]>>singletonList(HasValue.Impl.of(new byte[Operations.MAX_EXTERNAL_IDS_LENGTH + 1]));
+        records.add(VerificationRecord.entry("too large", EntryId.fromHex(CHAIN_ID), chainId, null, tooLarge));
+
+        final AtomicInteger progressCalls = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            EntryVerifier verifier = EntryVerifier.newBuilder()
+                    .workers(4)
+                    .batchSize(16)
+                    .progressInterval(1000)
+                    .executor(executor)
+                    .listener(new VerificationListener() {
+                        @Override
+                        public void onProgress(VerificationProgress progress) {
+                            Assert.assertTrue(progress.getProcessed() >= 1000);
+                            progressCalls.incrementAndGet();
+                        }
+                    })
+                    .build();
+            VerificationReport report = verifier.verify(records);
+
+            Assert.assertFalse(report.isValid());
+            Assert.assertEquals(records.size(), report.getProcessed());
+            Assert.assertEquals(2, report.getMismatches());
+            Assert.assertEquals(1, report.getErrors());
+            Assert.assertTrue(report.getBytes() > 0);
+            Assert.assertTrue(progressCalls.get() >= 1 && progressCalls.get() <= 5);
+            Assert.assertFalse(report.isTruncated());
+
+            List<VerificationMismatch> mismatches = report.getMismatchList();
+            Assert.assertEquals(3, mismatches.size());
+            Assert.assertEquals(1234, mismatches.get(0).getIndex());
+            Assert.assertEquals(1234, mismatches.get(0).getReference());
+            Assert.assertEquals(VerificationRecord.Type.ENTRY, mismatches.get(0).getType());
+            Assert.assertEquals("wrong chain", mismatches.get(1).getReference());
+            Assert.assertEquals(operations.calculateChainId(chainExternalIds), mismatches.get(1).getActualId());
+            Assert.assertTrue(mismatches.get(2).isError());
+            Assert.assertNull(mismatches.get(2).getActualId());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testTruncatedAndValid() {
+        ChainId chainId = ChainId.fromHex(CHAIN_ID);
+        List<VerificationRecord> records = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            records.add(VerificationRecord.entry(EntryId.fromHex(CHAIN_ID), chainId, HasContent.Impl.of(new byte[]{(byte) i}), null));
+        }
+        VerificationReport report = EntryVerifier.newBuilder().workers(2).maxMismatches(3).build().verify(records.stream());
+        Assert.assertEquals(10, report.getMismatches());
+        Assert.assertEquals(3, report.getMismatchList().size());
+        Assert.assertTrue(report.isTruncated());
+
+        Assert.assertTrue(EntryVerifier.newBuilder().build().verify(Collections.<VerificationRecord>emptyList()).isValid());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSourceFailure() {
+        EntryVerifier.newBuilder().workers(3).build().verify(new Iterator<VerificationRecord>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public VerificationRecord next() {
+                throw new IllegalStateException("Storage unavailable");
+            }
+        });
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.commons.jfr;
+
+import com.sphereon.libs.blockchain.api.HasContent;
+import com.sphereon.libs.blockchain.api.HasValue;
+import com.sphereon.libs.blockchain.commons.Digest;
+import com.sphereon.libs.blockchain.commons.Operations;
+import com.sphereon.libs.blockchain.commons.links.Link;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Records the events of the Java 17 overlay. Runs against the packaged multi-release jar, see the failsafe plugin
+ */
+public class ITJfrEvents {
+
+    private static final String CHAIN_ID = "502b99271ff6a3f8509ba2764e1e1c1482ad800140c17b25e165837ab5320501";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRecording() throws Exception {
+        Assert.assertTrue(JfrEvents.isAvailable());
+        List<HasValue<byte[]>> externalIds = Arrays.asList(HasValue.Impl.of("first".getBytes()), HasValue.Impl.of("second".getBytes()));
+        HasContent<byte[]> content = HasContent.Impl.of("Test Entry Content".getBytes());
+        String link = "/context/chains/" + CHAIN_ID;
+
+        Path file = folder.getRoot().toPath().resolve("events.jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : Arrays.asList(JfrEvents.DIGEST_EVENT, JfrEvents.ENTRY_SERIALIZE_EVENT, JfrEvents.ENTRY_ID_EVENT,
+                    JfrEvents.LINK_PARSE_EVENT)) {
+                recording.enable(name).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            Digest.getInstance().getHash(Digest.Algorithm.SHA_512, new byte[1000]);
+            Digest.getInstance().getHash(Digest.Algorithm.SHA_256, new ByteArrayInputStream(new byte[2000]));
+            Operations.getInstance().parseChainId(CHAIN_ID);
+            Operations.getInstance().generateEntryID(CHAIN_ID, content, externalIds);
+            Link.parser().targetLinkParts(link);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> digests = events(file, JfrEvents.DIGEST_EVENT);
+        RecordedEvent bytes = find(digests, "source", JfrEvents.SOURCE_BYTES);
+        Assert.assertEquals("SHA-512", bytes.getString("algorithm"));
+        Assert.assertEquals(1000, bytes.getLong("bytes"));
+        RecordedEvent stream = find(digests, "source", JfrEvents.SOURCE_STREAM);
+        Assert.assertEquals("SHA-256", stream.getString("algorithm"));
+        Assert.assertEquals(2000, stream.getLong("bytes"));
+
+        List<RecordedEvent> serialized = events(file, JfrEvents.ENTRY_SERIALIZE_EVENT);
+        Assert.assertFalse(serialized.isEmpty());
+        RecordedEvent entry = serialized.get(serialized.size() - 1);
+        Assert.assertEquals(2, entry.getInt("externalIds"));
+        Assert.assertEquals(18, entry.getInt("contentSize"));
+        Assert.assertEquals(1 + 32 + 2 + 2 + 5 + 2 + 6 + 18, entry.getInt("entrySize"));
+
+        List<RecordedEvent> entryIds = events(file, JfrEvents.ENTRY_ID_EVENT);
+        Assert.assertEquals(1, entryIds.size());
+        Assert.assertEquals(2, entryIds.get(0).getInt("externalIds"));
+        Assert.assertEquals(18, entryIds.get(0).getInt("contentSize"));
+        Assert.assertTrue(entryIds.get(0).getBoolean("chainIdCacheHit"));
+
+        List<RecordedEvent> links = events(file, JfrEvents.LINK_PARSE_EVENT);
+        Assert.assertEquals(1, links.size());
+        Assert.assertEquals(link, links.get(0).getString("input"));
+        Assert.assertEquals(Link.parser().targetLinkParts(link).size(), links.get(0).getInt("parts"));
+    }
+
+    private static List<RecordedEvent> events(Path file, String name) throws Exception {
+        List<RecordedEvent> events = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            if (event.getEventType().getName().equals(name)) {
+                Assert.assertFalse(event.getDuration().isNegative());
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> events, String field, String value) {
+        for (RecordedEvent event : events) {
+            if (value.equals(event.getString(field))) {
+                return event;
+            }
+        }
+        throw new AssertionError("No event with " + field + " " + value + " in " + events);
+    }
+}
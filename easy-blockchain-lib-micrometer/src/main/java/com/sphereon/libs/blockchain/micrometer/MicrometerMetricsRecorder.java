@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.micrometer;
+
+import com.sphereon.libs.blockchain.commons.metrics.Counter;
+import com.sphereon.libs.blockchain.commons.metrics.Histogram;
+import com.sphereon.libs.blockchain.commons.metrics.Metrics;
+import com.sphereon.libs.blockchain.commons.metrics.MetricsRecorder;
+import com.sphereon.libs.blockchain.commons.metrics.Timer;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the library metrics to a Micrometer {@link MeterRegistry}.
+ * <p>
+ * Use {@link #install(MeterRegistry)} to register the recorder with {@link Metrics}.
+ */
+public class MicrometerMetricsRecorder implements MetricsRecorder {
+
+    private final MeterRegistry registry;
+    private final double[] percentiles;
+
+    /**
+     * @param registry    The registry to publish to
+     * @param percentiles The percentiles to publish for timers and distributions, for instance 0.5, 0.95 and 0.99
+     */
+    public MicrometerMetricsRecorder(MeterRegistry registry, double... percentiles) {
+        if (registry == null) {
+            throw new IllegalArgumentException("A meter registry is required");
+        }
+        this.registry = registry;
+        this.percentiles = percentiles == null ? new double[0] : percentiles.clone();
+    }
+
+
+    /**
+     * Create a recorder for the registry and install it as the library recorder
+     *
+     * @return the installed recorder
+     */
+    public static MicrometerMetricsRecorder install(MeterRegistry registry, double... percentiles) {
+        MicrometerMetricsRecorder recorder = new MicrometerMetricsRecorder(registry, percentiles);
+        Metrics.setRecorder(recorder);
+        return recorder;
+    }
+
+
+    /**
+     * Disable the library metrics again, when this recorder is still the installed recorder
+     */
+    public void uninstall() {
+        synchronized (Metrics.class) {
+            if (Metrics.getRecorder() == this) {
+                Metrics.setRecorder(null);
+            }
+        }
+    }
+
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+
+    @Override
+    public Counter counter(String name, String... tags) {
+        final io.micrometer.core.instrument.Counter counter = io.micrometer.core.instrument.Counter.builder(name)
+                .tags(Tags.of(tags))
+                .register(registry);
+        return new Counter() {
+            @Override
+            public void increment(long amount) {
+                counter.increment(amount);
+            }
+        };
+    }
+
+
+    @Override
+    public Timer timer(String name, String... tags) {
+        final io.micrometer.core.instrument.Timer timer = io.micrometer.core.instrument.Timer.builder(name)
+                .tags(Tags.of(tags))
+                .publishPercentiles(percentiles)
+                .register(registry);
+        return new Timer() {
+            @Override
+            public void record(long nanos) {
+                timer.record(nanos, TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+
+
+    @Override
+    public Histogram histogram(String name, String... tags) {
+        final DistributionSummary summary = DistributionSummary.builder(name)
+                .tags(Tags.of(tags))
+                .publishPercentiles(percentiles)
+                .register(registry);
+        return new Histogram() {
+            @Override
+            public void record(long value) {
+                summary.record(value);
+            }
+        };
+    }
+}
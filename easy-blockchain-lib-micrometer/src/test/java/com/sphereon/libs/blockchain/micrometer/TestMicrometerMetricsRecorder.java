@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.micrometer;
+
+import com.sphereon.libs.blockchain.api.HasContent;
+import com.sphereon.libs.blockchain.api.HasValue;
+import com.sphereon.libs.blockchain.commons.Digest;
+import com.sphereon.libs.blockchain.commons.Operations;
+import com.sphereon.libs.blockchain.commons.metrics.Metrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class TestMicrometerMetricsRecorder {
+
+    private static final String CHAIN_ID = "502b99271ff6a3f8509ba2764e1e1c1482ad800140c17b25e165837ab5320501";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @After
+    public void uninstall() {
+        Metrics.setRecorder(null);
+    }
+
+    @Test
+    public void testInstall() {
+        MicrometerMetricsRecorder recorder = MicrometerMetricsRecorder.install(registry, 0.5, 0.99);
+        Assert.assertTrue(Metrics.isEnabled());
+        Assert.assertSame(recorder, Metrics.getRecorder());
+        Assert.assertSame(registry, recorder.getRegistry());
+
+        // The instruments are registered up front, the registry adds a gauge per published percentile
+        Set<String> names = new HashSet<>();
+        for (Meter meter : registry.getMeters()) {
+            if (!meter.getId().getName().endsWith(".percentile")) {
+                names.add(meter.getId().getName());
+            }
+        }
+        Assert.assertEquals(new HashSet<>(Arrays.asList(Metrics.DIGEST_TIME, Metrics.DIGEST_BYTES, Metrics.ENTRY_SERIALIZE_TIME,
+                Metrics.ENTRY_SIZE, Metrics.CHAIN_ID_TIME, Metrics.CHAIN_ID_BASE_TIME, Metrics.ENTRY_ID_TIME, Metrics.CHAIN_ID_CACHE,
+                Metrics.LINK_PARSE_TIME)), names);
+        Assert.assertEquals(2, registry.find(Metrics.DIGEST_TIME).timers().size());
+        Assert.assertEquals(2, registry.find(Metrics.CHAIN_ID_CACHE).counters().size());
+        Assert.assertEquals(2, registry.find(Metrics.DIGEST_TIME + ".percentile").tag(Metrics.TAG_ALGORITHM, "SHA-256").gauges().size());
+        Assert.assertNotNull(registry.find(Metrics.ENTRY_SIZE + ".percentile").tag("phi", "0.99").gauge());
+
+        Digest.getInstance().getSHA256Hash(new byte[1000]);
+        Digest.getInstance().getSHA512Hash(new byte[10]);
+        Digest.getInstance().getSHA512Hash(new byte[20]);
+        Timer sha256 = registry.get(Metrics.DIGEST_TIME).tag(Metrics.TAG_ALGORITHM, "SHA-256").timer();
+        Assert.assertEquals(1, sha256.count());
+        Assert.assertTrue(sha256.totalTime(TimeUnit.NANOSECONDS) > 0);
+        Assert.assertEquals(2, registry.get(Metrics.DIGEST_TIME).tag(Metrics.TAG_ALGORITHM, "SHA-512").timer().count());
+        Assert.assertEquals(1000, registry.get(Metrics.DIGEST_BYTES).tag(Metrics.TAG_ALGORITHM, "SHA-256").counter().count(), 0);
+        Assert.assertEquals(30, registry.get(Metrics.DIGEST_BYTES).tag(Metrics.TAG_ALGORITHM, "SHA-512").counter().count(), 0);
+
+        ValueAtPercentile[] percentiles = sha256.takeSnapshot().percentileValues();
+        Assert.assertEquals(2, percentiles.length);
+        Assert.assertEquals(0.5, percentiles[0].percentile(), 0);
+        Assert.assertEquals(0.99, percentiles[1].percentile(), 0);
+
+        List<HasValue<byte[]>> externalIds = Arrays.asList(HasValue.Impl.of("first".getBytes()), HasValue.Impl.of("second".getBytes()));
+        Operations.getInstance().entryToBytes(CHAIN_ID, HasContent.Impl.of("content".getBytes()), externalIds);
+        DistributionSummary entrySize = registry.get(Metrics.ENTRY_SIZE).summary();
+        Assert.assertEquals(1, entrySize.count());
+        Assert.assertEquals(1 + 32 + 2 + 2 + 5 + 2 + 6 + 7, entrySize.totalAmount(), 0);
+        Assert.assertEquals(2, entrySize.takeSnapshot().percentileValues().length);
+        Assert.assertEquals(1, registry.get(Metrics.ENTRY_SERIALIZE_TIME).timer().count());
+
+        Counter hits = registry.get(Metrics.CHAIN_ID_CACHE).tag(Metrics.TAG_RESULT, "hit").counter();
+        Counter misses = registry.get(Metrics.CHAIN_ID_CACHE).tag(Metrics.TAG_RESULT, "miss").counter();
+        double lookups = hits.count() + misses.count();
+        Operations.getInstance().parseChainId(CHAIN_ID);
+        Operations.getInstance().parseChainId(CHAIN_ID);
+        Assert.assertEquals(lookups + 2, hits.count() + misses.count(), 0);
+        Assert.assertTrue(hits.count() >= 1);
+    }
+
+    @Test
+    public void testUninstall() {
+        MicrometerMetricsRecorder recorder = MicrometerMetricsRecorder.install(registry);
+        Digest.getInstance().getSHA256Hash(new byte[100]);
+        // Without percentiles none are published
+        Assert.assertEquals(0, registry.get(Metrics.DIGEST_TIME).tag(Metrics.TAG_ALGORITHM, "SHA-256").timer()
+                .takeSnapshot().percentileValues().length);
+        recorder.uninstall();
+        Assert.assertFalse(Metrics.isEnabled());
+
+        // No longer recorded, but the meters stay in the registry
+        Digest.getInstance().getSHA256Hash(new byte[100]);
+        Assert.assertEquals(100, registry.get(Metrics.DIGEST_BYTES).tag(Metrics.TAG_ALGORITHM, "SHA-256").counter().count(), 0);
+
+        // Uninstalling a replaced recorder leaves the new one in place
+        SimpleMeterRegistry other = new SimpleMeterRegistry();
+        MicrometerMetricsRecorder first = MicrometerMetricsRecorder.install(registry);
+        MicrometerMetricsRecorder second = MicrometerMetricsRecorder.install(other);
+        first.uninstall();
+        Assert.assertSame(second, Metrics.getRecorder());
+        Digest.getInstance().getSHA256Hash(new byte[100]);
+        Assert.assertEquals(100, other.get(Metrics.DIGEST_BYTES).tag(Metrics.TAG_ALGORITHM, "SHA-256").counter().count(), 0);
+        second.uninstall();
+        Assert.assertFalse(Metrics.isEnabled());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoRegistry() {
+        new MicrometerMetricsRecorder(null);
+    }
+}
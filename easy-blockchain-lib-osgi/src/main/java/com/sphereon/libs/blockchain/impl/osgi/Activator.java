@@ -14,30 +14,55 @@
  * limitations under the License.
  */
 
-package com.sphereon.libs.authentication.impl.osgi;
+
+package com.sphereon.libs.blockchain.impl.osgi;
 
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+
+import java.util.logging.Logger;
 
 public class Activator implements BundleActivator {
+    private static final Logger LOG = Logger.getLogger(Activator.class.getName());
+
+    private BlockchainServices services;
+    private ServiceRegistration<?> managedService;
 
     /**
-     * Implements BundleActivator.start().
+     * Implements BundleActivator.start(). Registers the library services and, when Configuration Admin is available, a
+     * managed service for the {@value BlockchainServices#PID} configuration.
      *
      * @param bundleContext - the framework context for the bundle.
      **/
 
     public void start(BundleContext bundleContext) {
-        System.out.println("Sphereon Easy Blockchain Lib activated");
+        services = new BlockchainServices(bundleContext);
+        services.start();
+        try {
+            managedService = BlockchainManagedService.register(bundleContext, services);
+        } catch (NoClassDefFoundError e) {
+            // org.osgi.service.cm is an optional import
+            LOG.info("Configuration Admin is not available, using the default easy blockchain configuration");
+        }
+        LOG.info("Sphereon Easy Blockchain Lib activated");
     }
 
 
     /**
-     * Implements BundleActivator.stop()
+     * Implements BundleActivator.stop(). Unregisters the services and drains the shared worker pool
      *
      * @param bundleContext - the framework context for the bundle
      **/
     public void stop(BundleContext bundleContext) {
-        System.out.println("Sphereon Easy Blockchain Lib deactivated");
+        if (managedService != null) {
+            managedService.unregister();
+            managedService = null;
+        }
+        if (services != null) {
+            services.stop();
+            services = null;
+        }
+        LOG.info("Sphereon Easy Blockchain Lib deactivated");
     }
-}
\ No newline at end of file
+}
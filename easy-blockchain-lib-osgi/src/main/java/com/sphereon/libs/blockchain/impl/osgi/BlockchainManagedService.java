@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.impl.osgi;
+
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.cm.ConfigurationException;
+import org.osgi.service.cm.ManagedService;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+
+/**
+ * Passes the {@value BlockchainServices#PID} configuration from Configuration Admin to the services. Kept apart from the
+ * activator, because org.osgi.service.cm is an optional import. Invalid pool sizes are rejected with a
+ * {@link ConfigurationException} naming the property.
+ */
+class BlockchainManagedService implements ManagedService {
+    private final BlockchainServices services;
+
+    private BlockchainManagedService(BlockchainServices services) {
+        this.services = services;
+    }
+
+    static ServiceRegistration<ManagedService> register(BundleContext bundleContext, BlockchainServices services) {
+        Dictionary<String, Object> properties = new Hashtable<>();
+        properties.put(Constants.SERVICE_PID, BlockchainServices.PID);
+        return bundleContext.registerService(ManagedService.class, new BlockchainManagedService(services), properties);
+    }
+
+    @Override
+    public void updated(Dictionary<String, ?> properties) throws ConfigurationException {
+        String invalid = BlockchainServices.invalidProperty(properties);
+        if (invalid != null) {
+            throw new ConfigurationException(invalid, "needs to be at least 1 instead of: " + properties.get(invalid));
+        }
+        services.update(properties);
+    }
+}
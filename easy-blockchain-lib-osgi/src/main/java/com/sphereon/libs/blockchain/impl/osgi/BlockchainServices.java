@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.impl.osgi;
+
+import com.sphereon.libs.blockchain.commons.AsyncOperations;
+import com.sphereon.libs.blockchain.commons.Digest;
+import com.sphereon.libs.blockchain.commons.Operations;
+import com.sphereon.libs.blockchain.commons.RegistrationTypeRegistry;
+import com.sphereon.libs.blockchain.commons.digest.DigestProviders;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The services registered by the bundle, shared by all bundles using the library.
+ * <p>
+ * Registers {@link Operations}, {@link Digest}, {@link RegistrationTypeRegistry} and {@link DigestProviders}, plus an
+ * {@link AsyncOperations} service running on one shared, bounded worker pool. The pool and the chain Id cache are sized
+ * by the {@value #PID} configuration. A pool size change registers a new {@link AsyncOperations} service before the old
+ * one is unregistered, after which the old pool finishes its queued work and stops.
+ * <p>
+ * On stop the services are unregistered, the pool is drained for at most the shutdown timeout and the chain Id cache is
+ * cleared, so a bundle refresh does not leak threads or cached values.
+ */
+class BlockchainServices {
+    static final String PID = "com.sphereon.libs.blockchain";
+
+    static final String DIGEST_PROVIDER = "digest.provider";
+    static final String DIGEST_BENCHMARK = "digest.benchmark";
+    static final String DIGEST_BENCHMARK_MILLIS = "digest.benchmark-millis";
+    static final String CHAIN_ID_CACHE_SIZE = "chain-id-cache.size";
+    static final String EXECUTOR_THREADS = "executor.threads";
+    static final String EXECUTOR_QUEUE_CAPACITY = "executor.queue-capacity";
+    static final String EXECUTOR_SHUTDOWN_TIMEOUT_MILLIS = "executor.shutdown-timeout-millis";
+
+    static final long DEFAULT_SHUTDOWN_TIMEOUT_MILLIS = 10000;
+
+    private static final Logger LOG = Logger.getLogger(BlockchainServices.class.getName());
+
+    private final BundleContext bundleContext;
+    private final List<ServiceRegistration<?>> registrations = new ArrayList<>();
+
+    private int chainIdCacheSize = Operations.DEFAULT_CHAIN_ID_CACHE_SIZE;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int queueCapacity = AsyncOperations.DEFAULT_QUEUE_CAPACITY;
+    private long shutdownTimeoutMillis = DEFAULT_SHUTDOWN_TIMEOUT_MILLIS;
+
+    private ExecutorService executor;
+    private ServiceRegistration<AsyncOperations> asyncRegistration;
+    private boolean started;
+
+
+    BlockchainServices(BundleContext bundleContext) {
+        this.bundleContext = bundleContext;
+    }
+
+
+    synchronized void start() {
+        if (started) {
+            return;
+        }
+        Operations.getInstance().setChainIdCacheSize(chainIdCacheSize);
+        registrations.add(bundleContext.registerService(Operations.class, Operations.getInstance(), null));
+        registrations.add(bundleContext.registerService(Digest.class, Digest.getInstance(), null));
+        registrations.add(bundleContext.registerService(DigestProviders.class, DigestProviders.getInstance(), null));
+        registrations.add(bundleContext.registerService(RegistrationTypeRegistry.class, RegistrationTypeRegistry.getInstance(), null));
+        startExecutor();
+        started = true;
+    }
+
+
+    /**
+     * Check a configuration before applying it. Kept apart from {@link #update(Dictionary)}, so the caller can report the
+     * property in the exception type of its configuration source
+     *
+     * @return the name of the first invalid property, or null when the configuration can be applied
+     */
+    static String invalidProperty(Dictionary<String, ?> properties) {
+        if (intValue(properties, EXECUTOR_THREADS, 1) < 1) {
+            return EXECUTOR_THREADS;
+        } else if (intValue(properties, EXECUTOR_QUEUE_CAPACITY, 1) < 1) {
+            return EXECUTOR_QUEUE_CAPACITY;
+        }
+        return null;
+    }
+
+    /**
+     * Apply a configuration. Missing values fall back to the defaults, except for the digest provider selection which is
+     * kept until another provider is configured. Pool sizes below 1 fall back to the defaults as well, check the
+     * configuration with {@link #invalidProperty(Dictionary)} to reject them instead
+     *
+     * @param properties The configuration. Null when there is no configuration
+     */
+    synchronized void update(Dictionary<String, ?> properties) {
+        int newThreads = positiveIntValue(properties, EXECUTOR_THREADS, Runtime.getRuntime().availableProcessors());
+        int newQueueCapacity = positiveIntValue(properties, EXECUTOR_QUEUE_CAPACITY, AsyncOperations.DEFAULT_QUEUE_CAPACITY);
+        this.shutdownTimeoutMillis = longValue(properties, EXECUTOR_SHUTDOWN_TIMEOUT_MILLIS, DEFAULT_SHUTDOWN_TIMEOUT_MILLIS);
+        this.chainIdCacheSize = intValue(properties, CHAIN_ID_CACHE_SIZE, Operations.DEFAULT_CHAIN_ID_CACHE_SIZE);
+        if (started) {
+            Operations.getInstance().setChainIdCacheSize(chainIdCacheSize);
+        }
+
+        DigestProviders.getInstance().configure(stringValue(properties, DIGEST_PROVIDER), booleanValue(properties, DIGEST_BENCHMARK),
+                longValue(properties, DIGEST_BENCHMARK_MILLIS, DigestProviders.DEFAULT_BENCHMARK_MILLIS));
+
+        if (newThreads != threads || newQueueCapacity != queueCapacity) {
+            this.threads = newThreads;
+            this.queueCapacity = newQueueCapacity;
+            if (started) {
+                ExecutorService previousExecutor = executor;
+                ServiceRegistration<AsyncOperations> previousRegistration = asyncRegistration;
+                startExecutor();
+                previousRegistration.unregister();
+                // Queued work still completes, the threads end afterwards
+                previousExecutor.shutdown();
+            }
+        }
+    }
+
+
+    synchronized void stop() {
+        if (!started) {
+            return;
+        }
+        started = false;
+        asyncRegistration.unregister();
+        asyncRegistration = null;
+        for (ServiceRegistration<?> registration : registrations) {
+            registration.unregister();
+        }
+        registrations.clear();
+
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(shutdownTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                LOG.warning("Easy blockchain workers did not finish within " + shutdownTimeoutMillis + " ms, interrupting them");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+        // Clears the cache, start applies the configured size again
+        Operations.getInstance().setChainIdCacheSize(0);
+    }
+
+
+    private void startExecutor() {
+        this.executor = AsyncOperations.newExecutor(threads, queueCapacity);
+        this.asyncRegistration = bundleContext.registerService(AsyncOperations.class, AsyncOperations.of(executor), null);
+    }
+
+
+    private static String stringValue(Dictionary<String, ?> properties, String key) {
+        Object value = properties == null ? null : properties.get(key);
+        return value == null ? null : value.toString().trim();
+    }
+
+    private static boolean booleanValue(Dictionary<String, ?> properties, String key) {
+        return Boolean.parseBoolean(stringValue(properties, key));
+    }
+
+    private static int intValue(Dictionary<String, ?> properties, String key, int defaultValue) {
+        return (int) longValue(properties, key, defaultValue);
+    }
+
+    private static int positiveIntValue(Dictionary<String, ?> properties, String key, int defaultValue) {
+        int value = intValue(properties, key, defaultValue);
+        if (value < 1) {
+            LOG.log(Level.WARNING, "Invalid value '" + value + "' for " + key + " in " + PID + ", using " + defaultValue);
+            return defaultValue;
+        }
+        return value;
+    }
+
+    private static long longValue(Dictionary<String, ?> properties, String key, long defaultValue) {
+        String value = stringValue(properties, key);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            LOG.log(Level.WARNING, "Invalid value '" + value + "' for " + key + " in " + PID + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+}
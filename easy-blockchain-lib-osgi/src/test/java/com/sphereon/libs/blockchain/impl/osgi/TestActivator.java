@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.impl.osgi;
+
+import com.sphereon.libs.blockchain.commons.AsyncOperations;
+import com.sphereon.libs.blockchain.commons.Digest;
+import com.sphereon.libs.blockchain.commons.Operations;
+import com.sphereon.libs.blockchain.commons.RegistrationTypeRegistry;
+import com.sphereon.libs.blockchain.commons.digest.DigestProviders;
+import org.apache.felix.framework.FrameworkFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.launch.Framework;
+import org.osgi.service.cm.ConfigurationException;
+import org.osgi.service.cm.ManagedService;
+
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+public class TestActivator {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Framework framework;
+    private BundleContext context;
+    private Activator activator;
+
+    @Before
+    public void startFramework() throws Exception {
+        Map<String, String> configuration = new HashMap<>();
+        configuration.put(Constants.FRAMEWORK_STORAGE, folder.newFolder("felix").getAbsolutePath());
+        configuration.put(Constants.FRAMEWORK_STORAGE_CLEAN, Constants.FRAMEWORK_STORAGE_CLEAN_ONFIRSTINIT);
+        framework = new FrameworkFactory().newFramework(configuration);
+        framework.start();
+        context = framework.getBundleContext();
+        activator = new Activator();
+        activator.start(context);
+    }
+
+    @After
+    public void stopFramework() throws Exception {
+        activator.stop(context);
+        framework.stop();
+        framework.waitForStop(10000);
+    }
+
+    @Test
+    public void testServices() throws Exception {
+        Assert.assertSame(Operations.getInstance(), service(Operations.class));
+        Assert.assertSame(Digest.getInstance(), service(Digest.class));
+        Assert.assertSame(DigestProviders.getInstance(), service(DigestProviders.class));
+        Assert.assertSame(RegistrationTypeRegistry.getInstance(), service(RegistrationTypeRegistry.class));
+        Assert.assertEquals(Operations.DEFAULT_CHAIN_ID_CACHE_SIZE, Operations.getInstance().getChainIdCacheSize());
+        ServiceReference<ManagedService> managedService = context.getServiceReference(ManagedService.class);
+        Assert.assertEquals(BlockchainServices.PID, managedService.getProperty(Constants.SERVICE_PID));
+
+        ExecutorService executor = (ExecutorService) service(AsyncOperations.class).getExecutor();
+        activator.stop(context);
+        Assert.assertTrue(executor.isShutdown());
+        Assert.assertNull(context.getServiceReference(Operations.class));
+        Assert.assertNull(context.getServiceReference(AsyncOperations.class));
+        Assert.assertNull(context.getServiceReference(ManagedService.class));
+        // Stopping twice is harmless
+        activator.stop(context);
+    }
+
+    @Test
+    public void testConfigurationUpdate() throws Exception {
+        ManagedService managedService = service(ManagedService.class);
+        AsyncOperations previous = service(AsyncOperations.class);
+
+        Dictionary<String, Object> properties = new Hashtable<>();
+        properties.put(BlockchainServices.EXECUTOR_THREADS, "2");
+        properties.put(BlockchainServices.EXECUTOR_QUEUE_CAPACITY, 8);
+        properties.put(BlockchainServices.CHAIN_ID_CACHE_SIZE, "16");
+        managedService.updated(properties);
+
+        AsyncOperations current = service(AsyncOperations.class);
+        Assert.assertNotSame(previous, current);
+        Assert.assertTrue(((ExecutorService) previous.getExecutor()).isShutdown());
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) current.getExecutor();
+        Assert.assertEquals(2, executor.getCorePoolSize());
+        Assert.assertEquals(8, executor.getQueue().remainingCapacity());
+        Assert.assertEquals(16, Operations.getInstance().getChainIdCacheSize());
+        Assert.assertEquals(1, context.getServiceReferences(AsyncOperations.class, null).size());
+
+        // An unchanged pool size keeps the executor
+        properties.put(BlockchainServices.CHAIN_ID_CACHE_SIZE, "32");
+        managedService.updated(properties);
+        Assert.assertSame(current, service(AsyncOperations.class));
+        Assert.assertEquals(32, Operations.getInstance().getChainIdCacheSize());
+
+        properties.put(BlockchainServices.EXECUTOR_THREADS, "0");
+        try {
+            managedService.updated(properties);
+            Assert.fail("Invalid thread count accepted");
+        } catch (ConfigurationException e) {
+            Assert.assertEquals(BlockchainServices.EXECUTOR_THREADS, e.getProperty());
+        }
+        Assert.assertSame(current, service(AsyncOperations.class));
+        Assert.assertFalse(executor.isShutdown());
+
+        // Without a configuration the defaults apply again
+        managedService.updated(null);
+        Assert.assertTrue(executor.isShutdown());
+        Assert.assertEquals(Runtime.getRuntime().availableProcessors(),
+                ((ThreadPoolExecutor) service(AsyncOperations.class).getExecutor()).getCorePoolSize());
+        Assert.assertEquals(Operations.DEFAULT_CHAIN_ID_CACHE_SIZE, Operations.getInstance().getChainIdCacheSize());
+    }
+
+
+    private <T> T service(Class<T> type) {
+        ServiceReference<T> reference = context.getServiceReference(type);
+        Assert.assertNotNull("No service " + type.getName(), reference);
+        return context.getService(reference);
+    }
+}
@@ -0,0 +1,555 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.simulator;
+
+import com.sphereon.libs.blockchain.api.model.AbstractId;
+import com.sphereon.libs.blockchain.api.model.Chain;
+import com.sphereon.libs.blockchain.api.model.ChainId;
+import com.sphereon.libs.blockchain.api.model.Entry;
+import com.sphereon.libs.blockchain.api.model.EntryId;
+import com.sphereon.libs.blockchain.commons.EntryValidationException;
+import com.sphereon.libs.blockchain.commons.Operations;
+import com.sphereon.libs.blockchain.commons.journal.ChainJournal;
+import com.sphereon.libs.blockchain.commons.journal.JournalRecord;
+import com.sphereon.libs.blockchain.commons.links.ChainLinkGraph;
+import com.sphereon.libs.blockchain.commons.links.LinkNode;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Embeddable stand-in for a blockchain node, so code built on this library can be load tested and benchmarked on a
+ * single machine without a network.
+ * <p>
+ * The node accepts chains and entries, validates their Ids and sizes using {@link Operations} and answers entry, chain
+ * and link lookups. Entries are kept in memory, or in a {@link ChainJournal} per chain when a journal directory is
+ * configured, in which case the node picks up the chains of an earlier run when it is built.
+ * <p>
+ * Writes and reads can be given a random latency, writes can be paced to a maximum throughput and writes can fail at a
+ * configured rate. Random choices use a seeded generator, so a run can be reproduced.
+ */
+public class LocalNode implements Closeable {
+    private static final Operations operations = Operations.getInstance();
+
+    private final Path journalDirectory;
+    private final long minWriteLatencyNanos;
+    private final long maxWriteLatencyNanos;
+    private final long minReadLatencyNanos;
+    private final long maxReadLatencyNanos;
+    private final long writeIntervalNanos;
+    private final double failureRate;
+    private final Random random;
+
+    private final ConcurrentMap<ChainId, ChainState> chains = new ConcurrentHashMap<>();
+    private final ConcurrentMap<EntryId, StoredEntry> entries = new ConcurrentHashMap<>();
+    private final ChainLinkGraph linkGraph = new ChainLinkGraph();
+    private final AtomicLong injectedFailures = new AtomicLong();
+    private final Object pacingLock = new Object();
+    private long nextWriteNanos;
+    private volatile boolean closed;
+
+
+    private LocalNode(Builder builder) {
+        this.journalDirectory = builder.journalDirectory;
+        this.minWriteLatencyNanos = builder.minWriteLatencyNanos;
+        this.maxWriteLatencyNanos = builder.maxWriteLatencyNanos;
+        this.minReadLatencyNanos = builder.minReadLatencyNanos;
+        this.maxReadLatencyNanos = builder.maxReadLatencyNanos;
+        this.writeIntervalNanos = builder.maxWritesPerSecond <= 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / builder.maxWritesPerSecond;
+        this.failureRate = builder.failureRate;
+        this.random = builder.seed == null ? new Random() : new Random(builder.seed);
+        if (journalDirectory != null) {
+            recover();
+        }
+    }
+
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+
+    /**
+     * Create a chain with its first entry
+     *
+     * @return the chain Id calculated from the external Ids of the first entry
+     * @throws NodeException when the chain exists already, the entry is too large or a failure is injected
+     */
+    public ChainId createChain(Chain chain) {
+        return createChain(null, chain);
+    }
+
+    /**
+     * Create a chain with its first entry, verifying the chain Id claimed by the client
+     *
+     * @param claimedChainId The chain Id calculated by the client, or null to skip the check
+     * @throws NodeException when the claimed chain Id does not match as well
+     */
+    public ChainId createChain(ChainId claimedChainId, Chain chain) {
+        if (chain == null || chain.getFirstEntry() == null || chain.getFirstEntry().getEntryData() == null) {
+            throw new IllegalArgumentException("A chain needs a first entry");
+        }
+        Entry firstEntry = chain.getFirstEntry();
+        ChainId chainId = operations.calculateChainId(chain);
+        checkId(claimedChainId, chainId, "Chain");
+        validate(firstEntry);
+        beginWrite();
+
+        ChainState state = new ChainState(chainId);
+        synchronized (state) {
+            if (chains.putIfAbsent(chainId, state) != null) {
+                throw new NodeException(NodeException.Reason.DUPLICATE_CHAIN, "Chain exists already: " + chainId);
+            }
+            try {
+                if (journalDirectory != null) {
+                    state.journal = ChainJournal.open(journalDirectory.resolve(chainId.toHex()), chainId.toHex());
+                }
+                store(state, operations.calculateEntryId(chainId, firstEntry), firstEntry);
+            } catch (RuntimeException e) {
+                chains.remove(chainId, state);
+                discardJournal(state, e);
+                throw e;
+            }
+        }
+        return chainId;
+    }
+
+
+    /**
+     * Add an entry to an existing chain. Adding an entry that is present already is a no-op
+     *
+     * @return the entry Id
+     * @throws NodeException when the chain does not exist, the entry is too large or a failure is injected
+     */
+    public EntryId addEntry(ChainId chainId, Entry entry) {
+        return addEntry(chainId, null, entry);
+    }
+
+    /**
+     * Add an entry to an existing chain, verifying the entry Id claimed by the client
+     *
+     * @param claimedEntryId The entry Id calculated by the client, or null to skip the check
+     * @throws NodeException when the claimed entry Id does not match as well
+     */
+    public EntryId addEntry(ChainId chainId, EntryId claimedEntryId, Entry entry) {
+        if (chainId == null || entry == null || entry.getEntryData() == null) {
+            throw new IllegalArgumentException("An entry needs a chain Id and entry data");
+        }
+        EntryId entryId = operations.calculateEntryId(chainId, entry);
+        checkId(claimedEntryId, entryId, "Entry");
+        validate(entry);
+        ChainState state = chains.get(chainId);
+        if (state == null) {
+            throw new NodeException(NodeException.Reason.UNKNOWN_CHAIN, "Chain does not exist: " + chainId);
+        }
+        beginWrite();
+        synchronized (state) {
+            store(state, entryId, entry);
+        }
+        return entryId;
+    }
+
+
+    /**
+     * @return the entry, or null when the node does not have it
+     */
+    public Entry getEntry(EntryId entryId) {
+        beginRead();
+        StoredEntry stored = entries.get(entryId);
+        if (stored == null) {
+            return null;
+        } else if (stored.entry != null) {
+            return stored.entry;
+        }
+        ChainState state = chains.get(stored.chainId);
+        synchronized (state) {
+            return state.journal.get(entryId.toBytes()).toEntry();
+        }
+    }
+
+    /**
+     * @return the chain of the entry, or null when the node does not have the entry
+     */
+    public ChainId getChainId(EntryId entryId) {
+        beginRead();
+        StoredEntry stored = entries.get(entryId);
+        return stored == null ? null : stored.chainId;
+    }
+
+    /**
+     * @return the first entry of the chain, or null when the chain does not exist
+     */
+    public Entry getFirstEntry(ChainId chainId) {
+        List<EntryId> entryIds = getEntryIds(chainId);
+        return entryIds.isEmpty() ? null : getEntry(entryIds.get(0));
+    }
+
+    /**
+     * @return the Ids of the entries of the chain in the order they were added, or an empty list when the chain does not
+     * exist
+     */
+    public List<EntryId> getEntryIds(ChainId chainId) {
+        beginRead();
+        ChainState state = chains.get(chainId);
+        if (state == null) {
+            return new ArrayList<>();
+        }
+        synchronized (state) {
+            return new ArrayList<>(state.entryIds);
+        }
+    }
+
+    public boolean containsChain(ChainId chainId) {
+        beginRead();
+        return chains.containsKey(chainId);
+    }
+
+    public boolean containsEntry(EntryId entryId) {
+        beginRead();
+        return entries.containsKey(entryId);
+    }
+
+    /**
+     * @return the chains and entries directly linked from or to the chain or entry
+     * @see ChainLinkGraph#links(AbstractId, ChainLinkGraph.Direction)
+     */
+    public List<LinkNode> getLinks(AbstractId<?> id, ChainLinkGraph.Direction direction) {
+        beginRead();
+        return linkGraph.links(id, direction);
+    }
+
+    /**
+     * @return the graph of the chain links in the entries of this node, for traversal queries
+     */
+    public ChainLinkGraph getLinkGraph() {
+        return linkGraph;
+    }
+
+
+    public int getChainCount() {
+        return chains.size();
+    }
+
+    public int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of writes that failed because of the configured failure rate
+     */
+    public long getInjectedFailureCount() {
+        return injectedFailures.get();
+    }
+
+
+    @Override
+    public void close() {
+        closed = true;
+        for (ChainState state : chains.values()) {
+            synchronized (state) {
+                if (state.journal != null) {
+                    state.journal.close();
+                }
+            }
+        }
+    }
+
+
+    private void store(ChainState state, EntryId entryId, Entry entry) {
+        if (entries.containsKey(entryId)) {
+            return;
+        }
+        if (state.journal != null) {
+            state.journal.append(entry);
+        }
+        entries.put(entryId, new StoredEntry(state.chainId, state.journal == null ? entry : null));
+        state.entryIds.add(entryId);
+        linkGraph.addEntry(state.chainId, entryId, entry.getEntryData().getExternalIds());
+    }
+
+    private void recover() {
+        try {
+            Files.createDirectories(journalDirectory);
+            try (DirectoryStream<Path> directories = Files.newDirectoryStream(journalDirectory)) {
+                for (Path directory : directories) {
+                    String name = directory.getFileName().toString();
+                    if (!Files.isDirectory(directory) || name.length() != AbstractId.HEX_LENGTH) {
+                        continue;
+                    }
+                    ChainState state = new ChainState(ChainId.fromHex(name));
+                    state.journal = ChainJournal.open(directory, name);
+                    if (state.journal.size() == 0) {
+                        // Left behind by a chain creation that did not complete, a chain always has a first entry
+                        state.journal.close();
+                        continue;
+                    }
+                    Iterator<JournalRecord> records = state.journal.iterator();
+                    while (records.hasNext()) {
+                        JournalRecord record = records.next();
+                        EntryId entryId = EntryId.fromBytes(record.getEntryId());
+                        entries.put(entryId, new StoredEntry(state.chainId, null));
+                        state.entryIds.add(entryId);
+                        linkGraph.addEntry(state.chainId, entryId, record.toEntry().getEntryData().getExternalIds());
+                    }
+                    chains.put(state.chainId, state);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * Close and remove the journal of a chain that could not be created, so a later attempt starts from scratch
+     */
+    private void discardJournal(ChainState state, RuntimeException failure) {
+        if (journalDirectory == null) {
+            return;
+        }
+        if (state.journal != null) {
+            try {
+                state.journal.close();
+            } catch (RuntimeException e) {
+                failure.addSuppressed(e);
+            }
+            state.journal = null;
+        }
+        Path directory = journalDirectory.resolve(state.chainId.toHex());
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try {
+            Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                    if (e != null) {
+                        throw e;
+                    }
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+
+    private static void checkId(AbstractId<?> claimed, AbstractId<?> calculated, String kind) {
+        if (claimed != null && !claimed.equals(calculated)) {
+            throw new NodeException(NodeException.Reason.INVALID_ID, kind + " Id " + claimed + " does not match the calculated Id " + calculated);
+        }
+    }
+
+    private static void validate(Entry entry) {
+        try {
+            operations.validateEntry(entry);
+        } catch (EntryValidationException e) {
+            throw new NodeException(NodeException.Reason.INVALID_ENTRY, e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * Paces, delays and possibly fails a write. Called before anything is stored, so a failed write leaves no trace
+     */
+    private void beginWrite() {
+        ensureOpen();
+        if (writeIntervalNanos > 0) {
+            long slot;
+            synchronized (pacingLock) {
+                long now = System.nanoTime();
+                slot = Math.max(now, nextWriteNanos);
+                nextWriteNanos = slot + writeIntervalNanos;
+            }
+            sleep(slot - System.nanoTime());
+        }
+        sleep(randomNanos(minWriteLatencyNanos, maxWriteLatencyNanos));
+        if (failureRate > 0 && nextDouble() < failureRate) {
+            injectedFailures.incrementAndGet();
+            throw new NodeException(NodeException.Reason.INJECTED_FAILURE, "Injected write failure");
+        }
+    }
+
+    private void beginRead() {
+        ensureOpen();
+        sleep(randomNanos(minReadLatencyNanos, maxReadLatencyNanos));
+    }
+
+    private long randomNanos(long min, long max) {
+        if (max <= min) {
+            return min;
+        }
+        return min + (long) (nextDouble() * (max - min));
+    }
+
+    private double nextDouble() {
+        synchronized (random) {
+            return random.nextDouble();
+        }
+    }
+
+    private static void sleep(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Node is closed");
+        }
+    }
+
+
+    private static class ChainState {
+        private final ChainId chainId;
+        private final List<EntryId> entryIds = new ArrayList<>();
+        private ChainJournal journal;
+
+        private ChainState(ChainId chainId) {
+            this.chainId = chainId;
+        }
+    }
+
+    private static class StoredEntry {
+        private final ChainId chainId;
+        // Null when the entry is stored in the journal of its chain
+        private final Entry entry;
+
+        private StoredEntry(ChainId chainId, Entry entry) {
+            this.chainId = chainId;
+            this.entry = entry;
+        }
+    }
+
+
+    public static class Builder {
+        private Path journalDirectory;
+        private long minWriteLatencyNanos;
+        private long maxWriteLatencyNanos;
+        private long minReadLatencyNanos;
+        private long maxReadLatencyNanos;
+        private int maxWritesPerSecond;
+        private double failureRate;
+        private Long seed;
+
+        private Builder() {
+        }
+
+        /**
+         * @param journalDirectory The directory holding a journal per chain. Defaults to keeping the entries in memory
+         */
+        public Builder journalDirectory(Path journalDirectory) {
+            this.journalDirectory = journalDirectory;
+            return this;
+        }
+
+        /**
+         * @param min  The minimum delay of a chain or entry write
+         * @param max  The maximum delay of a chain or entry write, delays are uniformly distributed in between
+         * @param unit The unit of the delays
+         */
+        public Builder writeLatency(long min, long max, TimeUnit unit) {
+            checkLatency(min, max);
+            this.minWriteLatencyNanos = unit.toNanos(min);
+            this.maxWriteLatencyNanos = unit.toNanos(max);
+            return this;
+        }
+
+        /**
+         * @param min  The minimum delay of a lookup
+         * @param max  The maximum delay of a lookup, delays are uniformly distributed in between
+         * @param unit The unit of the delays
+         */
+        public Builder readLatency(long min, long max, TimeUnit unit) {
+            checkLatency(min, max);
+            this.minReadLatencyNanos = unit.toNanos(min);
+            this.maxReadLatencyNanos = unit.toNanos(max);
+            return this;
+        }
+
+        /**
+         * @param maxWritesPerSecond The maximum number of chain and entry writes per second, writers are blocked until
+         *                           their turn. Zero, the default, means no limit
+         */
+        public Builder maxWritesPerSecond(int maxWritesPerSecond) {
+            if (maxWritesPerSecond < 0) {
+                throw new IllegalArgumentException("Maximum writes per second cannot be negative: " + maxWritesPerSecond);
+            }
+            this.maxWritesPerSecond = maxWritesPerSecond;
+            return this;
+        }
+
+        /**
+         * @param failureRate The fraction of writes failing with {@link NodeException.Reason#INJECTED_FAILURE}. Defaults to 0
+         */
+        public Builder failureRate(double failureRate) {
+            if (failureRate < 0 || failureRate > 1) {
+                throw new IllegalArgumentException("Failure rate needs to be between 0 and 1 instead of: " + failureRate);
+            }
+            this.failureRate = failureRate;
+            return this;
+        }
+
+        /**
+         * @param seed The seed of the latencies and failures, for reproducible runs. Defaults to a random seed
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public LocalNode build() {
+            return new LocalNode(this);
+        }
+
+        private static void checkLatency(long min, long max) {
+            if (min < 0 || max < min) {
+                throw new IllegalArgumentException("Latency needs 0 <= min <= max instead of: " + min + ", " + max);
+            }
+        }
+    }
+}
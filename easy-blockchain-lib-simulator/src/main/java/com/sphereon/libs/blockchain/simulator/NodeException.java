@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.simulator;
+
+/**
+ * Thrown when the {@link LocalNode} rejects a chain or entry
+ */
+public class NodeException extends RuntimeException {
+
+    public enum Reason {
+        /**
+         * The claimed chain or entry Id does not match the Id calculated from the data
+         */
+        INVALID_ID,
+        /**
+         * The entry does not fit the size limits of the entry format
+         */
+        INVALID_ENTRY,
+        /**
+         * The chain of the entry has not been created
+         */
+        UNKNOWN_CHAIN,
+        /**
+         * The chain has been created already
+         */
+        DUPLICATE_CHAIN,
+        /**
+         * A failure injected by the node configuration. Nothing was stored, so the operation can be retried
+         */
+        INJECTED_FAILURE
+    }
+
+    private final Reason reason;
+
+    public NodeException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public NodeException(Reason reason, String message, Throwable cause) {
+        super(message, cause);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    /**
+     * @return whether retrying the same operation can succeed
+     */
+    public boolean isRetryable() {
+        return reason == Reason.INJECTED_FAILURE;
+    }
+}
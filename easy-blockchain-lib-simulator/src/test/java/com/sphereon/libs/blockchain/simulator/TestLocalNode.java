@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.simulator;
+
+import com.sphereon.libs.blockchain.api.model.Chain;
+import com.sphereon.libs.blockchain.api.model.ChainId;
+import com.sphereon.libs.blockchain.api.model.Entry;
+import com.sphereon.libs.blockchain.api.model.EntryId;
+import com.sphereon.libs.blockchain.api.model.ImmutableEntryData;
+import com.sphereon.libs.blockchain.commons.Operations;
+import com.sphereon.libs.blockchain.commons.RegistrationType;
+import com.sphereon.libs.blockchain.commons.links.ChainLinkGraph;
+import com.sphereon.libs.blockchain.commons.links.LinkNode;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class TestLocalNode {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Operations operations = Operations.getInstance();
+
+    @Test
+    public void testChainsAndEntries() {
+        try (LocalNode node = LocalNode.newBuilder().build()) {
+            Chain chain = chain("chain", "first");
+            ChainId chainId = node.createChain(chain);
+            Assert.assertEquals(operations.calculateChainId(chain), chainId);
+            Entry entry = entry("second", "entry");
+            EntryId entryId = node.addEntry(chainId, entry);
+            Assert.assertEquals(entryId, node.addEntry(chainId, entry));
+
+            Assert.assertEquals(1, node.getChainCount());
+            Assert.assertEquals(2, node.getEntryCount());
+            Assert.assertEquals(entry, node.getEntry(entryId));
+            Assert.assertEquals(chainId, node.getChainId(entryId));
+            Assert.assertEquals(chain.getFirstEntry(), node.getFirstEntry(chainId));
+            Assert.assertEquals(2, node.getEntryIds(chainId).size());
+            Assert.assertNull(node.getEntry(EntryId.fromBytes(new byte[32])));
+        }
+    }
+
+    @Test
+    public void testValidation() {
+        try (LocalNode node = LocalNode.newBuilder().build()) {
+            Chain chain = chain("chain", "first");
+            ChainId chainId = node.createChain(chain);
+            assertCreateFails(NodeException.Reason.DUPLICATE_CHAIN, node, null, chain);
+
+            Chain other = chain("other", "first");
+            assertCreateFails(NodeException.Reason.INVALID_ID, node, chainId, other);
+            Assert.assertFalse(node.containsChain(operations.calculateChainId(other)));
+
+            Entry tooLarge = ImmutableEntryData.newBuilder().content(new byte[Operations.MAX_PAYLOAD_SIZE + 1]).build().toEntry();
+            assertAddFails(NodeException.Reason.INVALID_ENTRY, node, chainId, tooLarge);
+            assertAddFails(NodeException.Reason.UNKNOWN_CHAIN, node, operations.calculateChainId(other), entry("entry"));
+            try {
+                node.addEntry(chainId, EntryId.fromBytes(new byte[32]), entry("entry"));
+                Assert.fail("Entry Id mismatch expected");
+            } catch (NodeException e) {
+                Assert.assertEquals(NodeException.Reason.INVALID_ID, e.getReason());
+                Assert.assertFalse(e.isRetryable());
+            }
+            Assert.assertEquals(1, node.getEntryCount());
+        }
+    }
+
+    @Test
+    public void testJournalRecovery() throws Exception {
+        Path directory = folder.newFolder("journals").toPath();
+        Chain target = chain("target");
+        ChainId targetId;
+        ChainId chainId;
+        EntryId entryId;
+        Entry entry = ImmutableEntryData.newBuilder()
+                .externalId(RegistrationType.Defaults.CHAIN_LINK_KEY + "Signature")
+                .externalId("/test/chains/" + operations.calculateChainId(target).toHex())
+                .content("linked")
+                .build().toEntry();
+        try (LocalNode node = LocalNode.newBuilder().journalDirectory(directory).build()) {
+            targetId = node.createChain(target);
+            chainId = node.createChain(chain("chain", "first"));
+            entryId = node.addEntry(chainId, entry);
+        }
+        // Left behind by an incomplete chain creation
+        Files.createDirectory(directory.resolve(operations.calculateChainId(chain("incomplete")).toHex()));
+
+        try (LocalNode node = LocalNode.newBuilder().journalDirectory(directory).build()) {
+            Assert.assertEquals(2, node.getChainCount());
+            Assert.assertEquals(3, node.getEntryCount());
+            Assert.assertEquals(entry, node.getEntry(entryId));
+            Assert.assertEquals(chainId, node.getChainId(entryId));
+            Assert.assertEquals(entryId, node.getEntryIds(chainId).get(1));
+            List<LinkNode> links = node.getLinks(targetId, ChainLinkGraph.Direction.REVERSE);
+            Assert.assertEquals(1, links.size());
+            Assert.assertEquals(entryId, links.get(0).getEntryId());
+
+            // The incomplete chain can be created now
+            Assert.assertNotNull(node.createChain(chain("incomplete")));
+        }
+    }
+
+    @Test
+    public void testFailedChainCreationLeavesNoJournal() throws Exception {
+        Path directory = folder.newFolder("journals").toPath();
+        Chain chain = chain("chain", "first");
+        File chainDirectory = directory.resolve(operations.calculateChainId(chain).toHex()).toFile();
+        try (LocalNode node = LocalNode.newBuilder().journalDirectory(directory).build()) {
+            // Interrupted file channels fail when the journal writes its first segment
+            Thread.currentThread().interrupt();
+            try {
+                node.createChain(chain);
+                Assert.fail("Journal failure expected");
+            } catch (RuntimeException e) {
+                Assert.assertTrue(Thread.interrupted());
+            }
+            Assert.assertFalse(node.containsChain(operations.calculateChainId(chain)));
+            Assert.assertFalse(chainDirectory.exists());
+
+            node.createChain(chain);
+            Assert.assertEquals(1, node.getEntryCount());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void testPacing() {
+        try (LocalNode node = LocalNode.newBuilder().maxWritesPerSecond(100).build()) {
+            ChainId chainId = node.createChain(chain("chain"));
+            long start = System.nanoTime();
+            for (int i = 0; i < 10; i++) {
+                node.addEntry(chainId, entry("entry " + i));
+            }
+            // The first write after the chain waits for its slot as well
+            Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(90));
+        }
+    }
+
+    @Test
+    public void testFailureInjection() {
+        try (LocalNode node = LocalNode.newBuilder().failureRate(1).build()) {
+            try {
+                node.createChain(chain("chain"));
+                Assert.fail("Injected failure expected");
+            } catch (NodeException e) {
+                Assert.assertEquals(NodeException.Reason.INJECTED_FAILURE, e.getReason());
+                Assert.assertTrue(e.isRetryable());
+            }
+            Assert.assertEquals(0, node.getChainCount());
+            Assert.assertEquals(1, node.getInjectedFailureCount());
+        }
+
+        Assert.assertEquals(failures(42), failures(42));
+        int failures = failures(42);
+        Assert.assertTrue(failures > 20 && failures < 80);
+    }
+
+
+    private static int failures(long seed) {
+        try (LocalNode node = LocalNode.newBuilder().failureRate(0.5).seed(seed).build()) {
+            int failures = 0;
+            for (int i = 0; i < 100; i++) {
+                try {
+                    node.createChain(chain("chain " + i));
+                } catch (NodeException e) {
+                    failures++;
+                }
+            }
+            Assert.assertEquals(failures, node.getInjectedFailureCount());
+            Assert.assertEquals(100 - failures, node.getChainCount());
+            return failures;
+        }
+    }
+
+    private static void assertCreateFails(NodeException.Reason reason, LocalNode node, ChainId claimedChainId, Chain chain) {
+        try {
+            node.createChain(claimedChainId, chain);
+            Assert.fail(reason + " expected");
+        } catch (NodeException e) {
+            Assert.assertEquals(reason, e.getReason());
+        }
+    }
+
+    private static void assertAddFails(NodeException.Reason reason, LocalNode node, ChainId chainId, Entry entry) {
+        try {
+            node.addEntry(chainId, entry);
+            Assert.fail(reason + " expected");
+        } catch (NodeException e) {
+            Assert.assertEquals(reason, e.getReason());
+        }
+    }
+
+    private static Chain chain(String... externalIds) {
+        Chain chain = new Chain();
+        chain.setFirstEntry(entry(externalIds));
+        return chain;
+    }
+
+    private static Entry entry(String... externalIds) {
+        ImmutableEntryData.Builder builder = ImmutableEntryData.newBuilder().content("content");
+        for (String externalId : externalIds) {
+            builder.externalId(externalId);
+        }
+        return builder.build().toEntry();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.spring.boot;
+
+import com.sphereon.libs.blockchain.commons.AsyncOperations;
+import com.sphereon.libs.blockchain.commons.Digest;
+import com.sphereon.libs.blockchain.commons.Operations;
+import com.sphereon.libs.blockchain.commons.RegistrationTypeRegistry;
+import com.sphereon.libs.blockchain.commons.digest.DigestProviders;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Spring Boot auto-configuration exposing the library singletons, tuned by {@link EasyBlockchainProperties}.
+ * <p>
+ * The async operations run on their own executor, which is not exposed as a bean so it does not replace the application
+ * task executor. It is shut down with the application context.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(EasyBlockchainProperties.class)
+public class EasyBlockchainAutoConfiguration implements DisposableBean {
+
+    private volatile ExecutorService executor;
+
+
+    @Bean
+    @ConditionalOnMissingBean
+    public DigestProviders digestProviders(EasyBlockchainProperties properties) {
+        DigestProviders digestProviders = DigestProviders.getInstance();
+        EasyBlockchainProperties.Digest digest = properties.getDigest();
+        digestProviders.configure(digest.getProvider(), digest.isBenchmark(), digest.getBenchmarkMillis());
+        return digestProviders;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public Digest digest(DigestProviders digestProviders) {
+        // Depends on the providers, so the configured provider is selected before the first hash
+        return Digest.getInstance();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public Operations operations(EasyBlockchainProperties properties) {
+        Operations operations = Operations.getInstance();
+        operations.setChainIdCacheSize(properties.getChainIdCache().getSize());
+        return operations;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public RegistrationTypeRegistry registrationTypeRegistry() {
+        return RegistrationTypeRegistry.getInstance();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public AsyncOperations asyncOperations(EasyBlockchainProperties properties) {
+        EasyBlockchainProperties.Executor settings = properties.getExecutor();
+        this.executor = AsyncOperations.newExecutor(settings.getThreads(), settings.getQueueCapacity(), settings.getSaturationPolicy());
+        return AsyncOperations.of(executor);
+    }
+
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.spring.boot;
+
+import com.sphereon.libs.blockchain.commons.Digest;
+import com.sphereon.libs.blockchain.commons.Operations;
+import com.sphereon.libs.blockchain.commons.digest.DigestProvider;
+import com.sphereon.libs.blockchain.commons.digest.DigestProviders;
+import com.sphereon.libs.blockchain.commons.metrics.Metrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Actuator endpoint showing the throughput and latency of the instrumented operations, the chain Id cache statistics and
+ * the selected digest providers.
+ * <p>
+ * Throughput is the average number of operations per second since the endpoint was created. Latencies are in
+ * milliseconds. Operation statistics are only available while the library metrics are bound to a {@link MeterRegistry}.
+ */
+@Endpoint(id = "easyblockchain")
+public class EasyBlockchainEndpoint {
+
+    private final Operations operations;
+    private final DigestProviders digestProviders;
+    private final MeterRegistry registry;
+    private final long started = System.nanoTime();
+
+    /**
+     * @param registry The registry the metrics are published to. Can be null
+     */
+    public EasyBlockchainEndpoint(Operations operations, DigestProviders digestProviders, MeterRegistry registry) {
+        this.operations = operations;
+        this.digestProviders = digestProviders;
+        this.registry = registry;
+    }
+
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("metricsEnabled", Metrics.isEnabled());
+        statistics.put("chainIdCache", chainIdCache());
+        statistics.put("digestProviders", digestProviders());
+        if (registry != null) {
+            double seconds = Math.max(1e-9, (System.nanoTime() - started) / 1e9);
+            Map<String, Object> timers = new TreeMap<>();
+            Map<String, Object> distributions = new TreeMap<>();
+            Map<String, Object> counters = new TreeMap<>();
+            for (Meter meter : registry.getMeters()) {
+                Meter.Id id = meter.getId();
+                if (!id.getName().startsWith(Metrics.PREFIX)) {
+                    continue;
+                }
+                if (meter instanceof Timer) {
+                    timers.put(key(id), timer((Timer) meter, seconds));
+                } else if (meter instanceof DistributionSummary) {
+                    distributions.put(key(id), distribution((DistributionSummary) meter));
+                } else if (meter instanceof Counter) {
+                    Map<String, Object> counter = new LinkedHashMap<>();
+                    double count = ((Counter) meter).count();
+                    counter.put("count", count);
+                    counter.put("perSecond", count / seconds);
+                    counters.put(key(id), counter);
+                }
+            }
+            statistics.put("timers", timers);
+            statistics.put("distributions", distributions);
+            statistics.put("counters", counters);
+        }
+        return statistics;
+    }
+
+
+    private Map<String, Object> chainIdCache() {
+        Map<String, Object> cache = new LinkedHashMap<>();
+        cache.put("capacity", operations.getChainIdCacheSize());
+        cache.put("entries", operations.getChainIdCacheCount());
+        if (registry != null) {
+            double hits = count(Metrics.CHAIN_ID_CACHE, "hit");
+            double misses = count(Metrics.CHAIN_ID_CACHE, "miss");
+            cache.put("hits", hits);
+            cache.put("misses", misses);
+            cache.put("hitRatio", hits + misses == 0 ? 0 : hits / (hits + misses));
+        }
+        return cache;
+    }
+
+    private Map<String, String> digestProviders() {
+        Map<String, String> providers = new LinkedHashMap<>();
+        for (Digest.Algorithm algorithm : Digest.Algorithm.values()) {
+            DigestProvider provider = digestProviders.getSelected(algorithm);
+            providers.put(algorithm.getImplementation(), provider == null ? null : provider.getName());
+        }
+        return providers;
+    }
+
+    private double count(String name, String result) {
+        Counter counter = registry.find(name).tag(Metrics.TAG_RESULT, result).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private static Map<String, Object> timer(Timer timer, double seconds) {
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("count", snapshot.count());
+        values.put("perSecond", snapshot.count() / seconds);
+        values.put("mean", snapshot.mean(TimeUnit.MILLISECONDS));
+        values.put("max", snapshot.max(TimeUnit.MILLISECONDS));
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            values.put("p" + percentileName(percentile.percentile()), percentile.value(TimeUnit.MILLISECONDS));
+        }
+        return values;
+    }
+
+    private static Map<String, Object> distribution(DistributionSummary summary) {
+        HistogramSnapshot snapshot = summary.takeSnapshot();
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("count", snapshot.count());
+        values.put("mean", snapshot.mean());
+        values.put("max", snapshot.max());
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            values.put("p" + percentileName(percentile.percentile()), percentile.value());
+        }
+        return values;
+    }
+
+    private static String percentileName(double percentile) {
+        // 0.5 becomes p50 and 0.999 becomes p99.9
+        String name = Double.toString(percentile * 100);
+        return name.endsWith(".0") ? name.substring(0, name.length() - 2) : name;
+    }
+
+    private static String key(Meter.Id id) {
+        StringBuilder key = new StringBuilder(id.getName().substring(Metrics.PREFIX.length()));
+        for (Tag tag : id.getTagsAsIterable()) {
+            key.append('[').append(tag.getKey()).append('=').append(tag.getValue()).append(']');
+        }
+        return key.toString();
+    }
+}
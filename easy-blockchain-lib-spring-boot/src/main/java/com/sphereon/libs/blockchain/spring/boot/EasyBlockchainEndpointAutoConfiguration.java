@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.spring.boot;
+
+import com.sphereon.libs.blockchain.commons.Operations;
+import com.sphereon.libs.blockchain.commons.digest.DigestProviders;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers the {@link EasyBlockchainEndpoint} when the actuator is on the classpath. Expose it with
+ * management.endpoints.web.exposure.include=easyblockchain.
+ */
+@Configuration(proxyBeanMethods = false)
+@AutoConfigureAfter({EasyBlockchainAutoConfiguration.class, EasyBlockchainMetricsAutoConfiguration.class})
+@ConditionalOnClass({Endpoint.class, MeterRegistry.class})
+@ConditionalOnAvailableEndpoint(endpoint = EasyBlockchainEndpoint.class)
+public class EasyBlockchainEndpointAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public EasyBlockchainEndpoint easyBlockchainEndpoint(Operations operations, DigestProviders digestProviders, ObjectProvider<MeterRegistry> registry) {
+        return new EasyBlockchainEndpoint(operations, digestProviders, registry.getIfAvailable());
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.spring.boot;
+
+import com.sphereon.libs.blockchain.micrometer.MicrometerMetricsRecorder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Binds the library metrics to the application {@link MeterRegistry}, when easy-blockchain-lib-micrometer is on the
+ * classpath. Disable with easy-blockchain.metrics.enabled=false.
+ */
+@Configuration(proxyBeanMethods = false)
+@AutoConfigureAfter(name = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
+@ConditionalOnClass({MeterRegistry.class, MicrometerMetricsRecorder.class})
+@ConditionalOnBean(MeterRegistry.class)
+@ConditionalOnProperty(prefix = EasyBlockchainProperties.PREFIX + ".metrics", name = "enabled", matchIfMissing = true)
+@EnableConfigurationProperties(EasyBlockchainProperties.class)
+public class EasyBlockchainMetricsAutoConfiguration {
+
+    @Bean(destroyMethod = "uninstall")
+    @ConditionalOnMissingBean
+    public MicrometerMetricsRecorder micrometerMetricsRecorder(MeterRegistry registry, EasyBlockchainProperties properties) {
+        return MicrometerMetricsRecorder.install(registry, properties.getMetrics().getPercentiles());
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.spring.boot;
+
+import com.sphereon.libs.blockchain.commons.AsyncOperations;
+import com.sphereon.libs.blockchain.commons.Operations;
+import com.sphereon.libs.blockchain.commons.digest.DigestProviders;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the easy blockchain library, using the {@value #PREFIX} prefix.
+ * <p>
+ * The digest settings have the same names as the system properties read by {@link DigestProviders}.
+ */
+@ConfigurationProperties(prefix = EasyBlockchainProperties.PREFIX)
+public class EasyBlockchainProperties {
+    public static final String PREFIX = "easy-blockchain";
+
+    private final Digest digest = new Digest();
+    private final ChainIdCache chainIdCache = new ChainIdCache();
+    private final Executor executor = new Executor();
+    private final Metrics metrics = new Metrics();
+
+    public Digest getDigest() {
+        return digest;
+    }
+
+    public ChainIdCache getChainIdCache() {
+        return chainIdCache;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+
+    public static class Digest {
+        /**
+         * The digest provider to select for all algorithms it supports, for instance JCA or JCA:SUN
+         */
+        private String provider;
+
+        /**
+         * Benchmark the available digest providers at startup and select the fastest per algorithm
+         */
+        private boolean benchmark;
+
+        /**
+         * The benchmark time per provider and algorithm in milliseconds
+         */
+        private long benchmarkMillis = DigestProviders.DEFAULT_BENCHMARK_MILLIS;
+
+        public String getProvider() {
+            return provider;
+        }
+
+        public void setProvider(String provider) {
+            this.provider = provider;
+        }
+
+        public boolean isBenchmark() {
+            return benchmark;
+        }
+
+        public void setBenchmark(boolean benchmark) {
+            this.benchmark = benchmark;
+        }
+
+        public long getBenchmarkMillis() {
+            return benchmarkMillis;
+        }
+
+        public void setBenchmarkMillis(long benchmarkMillis) {
+            this.benchmarkMillis = benchmarkMillis;
+        }
+    }
+
+
+    public static class ChainIdCache {
+        /**
+         * The maximum number of parsed chain Ids to keep. Use 0 to disable the cache
+         */
+        private int size = Operations.DEFAULT_CHAIN_ID_CACHE_SIZE;
+
+        public int getSize() {
+            return size;
+        }
+
+        public void setSize(int size) {
+            this.size = size;
+        }
+    }
+
+
+    public static class Executor {
+        /**
+         * The number of threads running the async operations. Defaults to the number of cores
+         */
+        private int threads = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * The number of operations that can wait for a thread before the saturation policy applies. With the default
+         * CALLER_RUNS policy a small queue moves the hashing onto the calling threads, for instance the request threads
+         */
+        private int queueCapacity = AsyncOperations.DEFAULT_QUEUE_CAPACITY;
+
+        /**
+         * What happens to operations submitted while all threads are busy and the queue is full. CALLER_RUNS runs them
+         * on the calling thread, REJECT fails them with a RejectedExecutionException
+         */
+        private AsyncOperations.SaturationPolicy saturationPolicy = AsyncOperations.SaturationPolicy.CALLER_RUNS;
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public AsyncOperations.SaturationPolicy getSaturationPolicy() {
+            return saturationPolicy;
+        }
+
+        public void setSaturationPolicy(AsyncOperations.SaturationPolicy saturationPolicy) {
+            this.saturationPolicy = saturationPolicy;
+        }
+    }
+
+
+    public static class Metrics {
+        /**
+         * Publish the library metrics to the application MeterRegistry
+         */
+        private boolean enabled = true;
+
+        /**
+         * The latency and size percentiles to publish
+         */
+        private double[] percentiles = {0.5, 0.95, 0.99};
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double[] getPercentiles() {
+            return percentiles;
+        }
+
+        public void setPercentiles(double[] percentiles) {
+            this.percentiles = percentiles;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.spring.boot;
+
+import com.sphereon.libs.blockchain.commons.AsyncOperations;
+import com.sphereon.libs.blockchain.commons.Operations;
+import com.sphereon.libs.blockchain.commons.metrics.Metrics;
+import com.sphereon.libs.blockchain.micrometer.MicrometerMetricsRecorder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.assertj.AssertableApplicationContext;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.test.context.runner.ContextConsumer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TestEasyBlockchainAutoConfiguration {
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(EasyBlockchainAutoConfiguration.class, EasyBlockchainMetricsAutoConfiguration.class));
+
+
+    @After
+    public void reset() {
+        Operations.getInstance().setChainIdCacheSize(Operations.DEFAULT_CHAIN_ID_CACHE_SIZE);
+    }
+
+
+    @Test
+    public void testProperties() {
+        runner.withPropertyValues(
+                "easy-blockchain.digest.benchmark-millis=20",
+                "easy-blockchain.chain-id-cache.size=16",
+                "easy-blockchain.executor.threads=3",
+                "easy-blockchain.executor.queue-capacity=5",
+                "easy-blockchain.executor.saturation-policy=REJECT",
+                "easy-blockchain.metrics.percentiles=0.5,0.9"
+        ).run(new ContextConsumer<AssertableApplicationContext>() {
+            @Override
+            public void accept(AssertableApplicationContext context) {
+                EasyBlockchainProperties properties = context.getBean(EasyBlockchainProperties.class);
+                Assert.assertEquals(20, properties.getDigest().getBenchmarkMillis());
+                Assert.assertEquals(3, properties.getExecutor().getThreads());
+                Assert.assertEquals(AsyncOperations.SaturationPolicy.REJECT, properties.getExecutor().getSaturationPolicy());
+                Assert.assertArrayEquals(new double[]{0.5, 0.9}, properties.getMetrics().getPercentiles(), 0);
+                Assert.assertEquals(16, context.getBean(Operations.class).getChainIdCacheSize());
+
+                ThreadPoolExecutor executor = (ThreadPoolExecutor) context.getBean(AsyncOperations.class).getExecutor();
+                Assert.assertEquals(3, executor.getMaximumPoolSize());
+                Assert.assertEquals(5, executor.getQueue().remainingCapacity());
+                Assert.assertTrue(executor.getRejectedExecutionHandler() instanceof ThreadPoolExecutor.AbortPolicy);
+            }
+        });
+    }
+
+
+    @Test
+    public void testDefaults() {
+        runner.run(new ContextConsumer<AssertableApplicationContext>() {
+            @Override
+            public void accept(AssertableApplicationContext context) {
+                EasyBlockchainProperties properties = context.getBean(EasyBlockchainProperties.class);
+                Assert.assertNull(properties.getDigest().getProvider());
+                Assert.assertFalse(properties.getDigest().isBenchmark());
+                Assert.assertEquals(Operations.DEFAULT_CHAIN_ID_CACHE_SIZE, properties.getChainIdCache().getSize());
+
+                ThreadPoolExecutor executor = (ThreadPoolExecutor) context.getBean(AsyncOperations.class).getExecutor();
+                Assert.assertEquals(AsyncOperations.DEFAULT_QUEUE_CAPACITY, executor.getQueue().remainingCapacity());
+                Assert.assertTrue(executor.getRejectedExecutionHandler() instanceof ThreadPoolExecutor.CallerRunsPolicy);
+            }
+        });
+    }
+
+
+    @Test
+    public void testExecutorShutdown() {
+        final AtomicReference<ExecutorService> executor = new AtomicReference<>();
+        runner.run(new ContextConsumer<AssertableApplicationContext>() {
+            @Override
+            public void accept(AssertableApplicationContext context) {
+                executor.set((ExecutorService) context.getBean(AsyncOperations.class).getExecutor());
+                Assert.assertFalse(executor.get().isShutdown());
+            }
+        });
+        Assert.assertTrue(executor.get().isShutdown());
+    }
+
+
+    @Test
+    public void testMetricsWithoutRegistry() {
+        runner.run(new ContextConsumer<AssertableApplicationContext>() {
+            @Override
+            public void accept(AssertableApplicationContext context) {
+                Assert.assertTrue(context.getBeansOfType(MicrometerMetricsRecorder.class).isEmpty());
+                Assert.assertFalse(Metrics.isEnabled());
+            }
+        });
+    }
+
+
+    @Test
+    public void testMetricsWithRegistry() {
+        runner.withUserConfiguration(RegistryConfiguration.class).run(new ContextConsumer<AssertableApplicationContext>() {
+            @Override
+            public void accept(AssertableApplicationContext context) {
+                MicrometerMetricsRecorder recorder = context.getBean(MicrometerMetricsRecorder.class);
+                Assert.assertSame(context.getBean(MeterRegistry.class), recorder.getRegistry());
+                Assert.assertSame(recorder, Metrics.getRecorder());
+            }
+        });
+        Assert.assertFalse(Metrics.isEnabled());
+    }
+
+
+    @Test
+    public void testMetricsDisabled() {
+        runner.withUserConfiguration(RegistryConfiguration.class).withPropertyValues("easy-blockchain.metrics.enabled=false")
+                .run(new ContextConsumer<AssertableApplicationContext>() {
+                    @Override
+                    public void accept(AssertableApplicationContext context) {
+                        Assert.assertTrue(context.getBeansOfType(MicrometerMetricsRecorder.class).isEmpty());
+                        Assert.assertFalse(Metrics.isEnabled());
+                    }
+                });
+    }
+
+
+    @Configuration(proxyBeanMethods = false)
+    static class RegistryConfiguration {
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2017 Sphereon B.V. <https://sphereon.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sphereon.libs.blockchain.spring.boot;
+
+import com.sphereon.libs.blockchain.commons.Digest;
+import com.sphereon.libs.blockchain.commons.Operations;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.assertj.AssertableApplicationContext;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.test.context.runner.ContextConsumer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+public class TestEasyBlockchainEndpoint {
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(EasyBlockchainAutoConfiguration.class, EasyBlockchainMetricsAutoConfiguration.class,
+                    EasyBlockchainEndpointAutoConfiguration.class))
+            .withPropertyValues("management.endpoints.web.exposure.include=easyblockchain", "easy-blockchain.chain-id-cache.size=8");
+
+
+    @After
+    public void reset() {
+        Operations.getInstance().setChainIdCacheSize(Operations.DEFAULT_CHAIN_ID_CACHE_SIZE);
+    }
+
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testStatistics() {
+        runner.withUserConfiguration(RegistryConfiguration.class).run(new ContextConsumer<AssertableApplicationContext>() {
+            @Override
+            public void accept(AssertableApplicationContext context) {
+                context.getBean(Digest.class).getSHA256Hash(new byte[1000]);
+
+                Map<String, Object> statistics = context.getBean(EasyBlockchainEndpoint.class).statistics();
+                Assert.assertEquals(Boolean.TRUE, statistics.get("metricsEnabled"));
+
+                Map<String, Object> cache = (Map<String, Object>) statistics.get("chainIdCache");
+                Assert.assertEquals(8, cache.get("capacity"));
+                Assert.assertTrue(cache.containsKey("hitRatio"));
+
+                Map<String, String> providers = (Map<String, String>) statistics.get("digestProviders");
+                Assert.assertNotNull(providers.get("SHA-256"));
+                Assert.assertNotNull(providers.get("SHA-512"));
+
+                Map<String, Object> timers = (Map<String, Object>) statistics.get("timers");
+                Map<String, Object> digestTime = (Map<String, Object>) timers.get("digest.time[algorithm=SHA-256]");
+                Assert.assertEquals(1L, digestTime.get("count"));
+                Assert.assertTrue(digestTime.containsKey("p50"));
+                Assert.assertTrue(digestTime.containsKey("p99"));
+
+                Map<String, Object> counters = (Map<String, Object>) statistics.get("counters");
+                Map<String, Object> digestBytes = (Map<String, Object>) counters.get("digest.bytes[algorithm=SHA-256]");
+                Assert.assertEquals(1000.0, (Double) digestBytes.get("count"), 0);
+            }
+        });
+    }
+
+
+    @Test
+    public void testWithoutRegistry() {
+        runner.run(new ContextConsumer<AssertableApplicationContext>() {
+            @Override
+            public void accept(AssertableApplicationContext context) {
+                Map<String, Object> statistics = context.getBean(EasyBlockchainEndpoint.class).statistics();
+                Assert.assertEquals(Boolean.FALSE, statistics.get("metricsEnabled"));
+                Assert.assertTrue(statistics.containsKey("digestProviders"));
+                Assert.assertFalse(statistics.containsKey("timers"));
+            }
+        });
+    }
+
+
+    @Test
+    public void testNotExposed() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(EasyBlockchainAutoConfiguration.class, EasyBlockchainEndpointAutoConfiguration.class))
+                .run(new ContextConsumer<AssertableApplicationContext>() {
+                    @Override
+                    public void accept(AssertableApplicationContext context) {
+                        Assert.assertTrue(context.getBeansOfType(EasyBlockchainEndpoint.class).isEmpty());
+                    }
+                });
+    }
+
+
+    @Configuration(proxyBeanMethods = false)
+    static class RegistryConfiguration {
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}